@@ -0,0 +1,97 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.astrocalc.EclipseDisplay;
+import custom.solar.eclipse.viewer.astrocalc.EclipseType;
+import custom.solar.eclipse.viewer.astrocalc.EngineStages;
+import custom.solar.eclipse.viewer.astrocalc.EngineStages.Contact;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+
+/**
+ The cost of each stage of the astronomy engine: the lookup in the catalog, a single worksheet, the local maximum eclipse,
+ each of the 4 contacts, and the full calculation used to generate a viewer. See {@link EngineStages}.
+
+ <P>Each stage is measured for each of the sample config files beside {@link ConfigFromFile}:
+ total, annular, partial, and hybrid, in both hemispheres.
+ The central contacts (the start and end of totality or annularity) are measured only for the samples where the eclipse is central.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each stage as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AstronomyBenchmark {
+
+  /** Total, annular, and partial; north and south; and a hybrid eclipse, seen as total. */
+  @State(Scope.Benchmark)
+  public static class Sample {
+    @Param({"config-total.ini", "config-annular.ini", "config-partial.ini", "config-southern-hemisphere.ini", "config-hybrid.ini"})
+    public String sample;
+    EngineStages stages;
+
+    @Setup public void setUp() {
+      stages = new EngineStages(new ConfigFromFile().initSample(sample));
+    }
+  }
+
+  /** The samples where the eclipse is total or annular. */
+  @State(Scope.Benchmark)
+  public static class CentralSample {
+    @Param({"config-total.ini", "config-annular.ini", "config-southern-hemisphere.ini", "config-hybrid.ini"})
+    public String sample;
+    EngineStages stages;
+
+    @Setup public void setUp() {
+      stages = new EngineStages(new ConfigFromFile().initSample(sample));
+      if (stages.localEclipseType() == EclipseType.Partial) {
+        throw new IllegalStateException("The eclipse in " + sample + " isn't central, so it has no central contacts.");
+      }
+    }
+  }
+
+  @Benchmark public double catalogLookup(Sample s) {
+    return s.stages.lookup();
+  }
+
+  @Benchmark public double worksheet(Sample s) {
+    return s.stages.worksheet();
+  }
+
+  @Benchmark public double localMaximum(Sample s) {
+    return s.stages.localMax();
+  }
+
+  @Benchmark public double contactStartPartial(Sample s) {
+    return s.stages.contact(Contact.START_PARTIAL);
+  }
+
+  @Benchmark public double contactStartCentral(CentralSample s) {
+    return s.stages.contact(Contact.START_CENTRAL);
+  }
+
+  @Benchmark public double contactEndCentral(CentralSample s) {
+    return s.stages.contact(Contact.END_CENTRAL);
+  }
+
+  @Benchmark public double contactEndPartial(Sample s) {
+    return s.stages.contact(Contact.END_PARTIAL);
+  }
+
+  @Benchmark public EclipseDisplay buildFrom(Sample s) {
+    return s.stages.buildFrom();
+  }
+}
@@ -0,0 +1,50 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.GraphicsBackend;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The cost of a whole viewer with each graphics backend. See {@link GraphicsBackend}.
+
+ <P>Whether the backends draw the same pages, and the size of what they write, are reported by {@link OutputReport}.
+ Uses the usual config file (see {@link ConfigFromFile}).
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BackendBenchmark {
+
+  @Param
+  public GraphicsBackend backend;
+  GenerateViewer viewer;
+
+  @Setup public void setUp() {
+    viewer = new GenerateViewer(new ConfigFromFile().init());
+  }
+
+  @Benchmark public long wholeViewer() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    viewer.outputTo(out, backend);
+    return out.count();
+  }
+}
@@ -0,0 +1,68 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.GeneratePdfABC;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The time to output a booklet, versus the number of viewers in it.
+ See {@link GeneratePdfABC#outputAllTo(java.io.OutputStream, Iterator)}.
+
+ <P>Every viewer in the booklet uses the usual config (see {@link ConfigFromFile}).
+ The output is counted, and then discarded.
+ The size of the file and the retained heap, versus the number of viewers, are reported by {@link OutputReport}.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookletBenchmark {
+
+  @Param({"1", "10", "50", "100", "200"})
+  public int viewers;
+  Config config;
+
+  @Setup public void setUp() {
+    config = new ConfigFromFile().init();
+  }
+
+  @Benchmark public long booklet() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    GeneratePdfABC.outputAllTo(out, viewers(config, viewers));
+    return out.count();
+  }
+
+  /** A new viewer each time, all with the same config. */
+  static Iterator<GeneratePdfABC> viewers(Config config, int viewerCount){
+    return new Iterator<GeneratePdfABC>() {
+      @Override public boolean hasNext() {
+        return count < viewerCount;
+      }
+      @Override public GeneratePdfABC next() {
+        ++count;
+        return new GenerateViewer(config);
+      }
+      private int count;
+    };
+  }
+}
@@ -0,0 +1,55 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.GraphicsBackend;
+import custom.solar.eclipse.viewer.PageComposition;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The time to output a single viewer with each page composition, and each graphics backend. See {@link PageComposition}.
+
+ <P>The time is wall-clock time on the calling thread, which is what a single user waits for.
+ The parallel composition gains nothing on a single core, so compare results only from machines with the same number of processors.
+ Whether the compositions draw the same pages is reported by {@link OutputReport}.
+ Uses the usual config file (see {@link ConfigFromFile}).
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompositionBenchmark {
+
+  @Param
+  public GraphicsBackend backend;
+  @Param
+  public PageComposition composition;
+  GenerateViewer viewer;
+
+  @Setup public void setUp() {
+    viewer = new GenerateViewer(new ConfigFromFile().init());
+  }
+
+  @Benchmark public long wholeViewer() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    viewer.outputTo(out, backend, composition);
+    return out.count();
+  }
+}
@@ -0,0 +1,131 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsCenterText;
+import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsRotate;
+import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsTranslate;
+import custom.solar.eclipse.viewer.draw.mix.ChangeFontSize;
+import custom.solar.eclipse.viewer.draw.mix.Draw;
+import custom.solar.eclipse.viewer.draw.mix.DrawLine;
+import custom.solar.eclipse.viewer.draw.mix.DrawText;
+import custom.solar.eclipse.viewer.draw.mix.DrawingContext;
+import custom.solar.eclipse.viewer.draw.mix.DrawingStack;
+import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ Compare a chain of {@link DrawingContext} objects with a {@link DrawingStack}, for drawing many small labels.
+
+ <P>The workload is the same as the ruler along the side of the viewer: a tick and a rotated, centered label for each degree.
+ Before measuring, both versions are checked to produce exactly the same content stream.
+ For the time to render a whole viewer, see {@link RenderingBenchmark}.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DrawingContextBenchmark {
+
+  @Setup public void setUp() throws Exception {
+    Document document = new Document();
+    writer = PdfWriter.getInstance(document, new CountingOutputStream());
+    document.open();
+    byte[] chain = render(g -> rulerWithChains(g));
+    byte[] stack = render(g -> rulerWithStack(g));
+    if (!Arrays.equals(chain, stack)) {
+      throw new IllegalStateException("The chain and the stack don't produce the same content: " + chain.length + " and " + stack.length + " bytes.");
+    }
+  }
+
+  @Benchmark public byte[] rulerWithChains() throws Exception {
+    return render(g -> rulerWithChains(g));
+  }
+
+  @Benchmark public byte[] rulerWithStack() throws Exception {
+    return render(g -> rulerWithStack(g));
+  }
+
+  // PRIVATE
+
+  private static final int SIZE = 600;
+  private static final int NUM_LABELS = 60;
+  private static final double X_LEVEL = 100.0;
+
+  private PdfWriter writer;
+
+  private interface Drawing {
+    void drawOn(Graphics2D g) throws Exception;
+  }
+
+  /** Returns the content stream. */
+  private byte[] render(Drawing drawing) throws Exception {
+    PdfTemplate template = writer.getDirectContent().createTemplate(SIZE, SIZE);
+    Graphics2D g = new PdfGraphics2D(template, SIZE, SIZE);
+    drawing.drawOn(g);
+    g.dispose();
+    return template.getInternalBuffer().toByteArray();
+  }
+
+  /** As in the original implementation of the ruler. */
+  private static void rulerWithChains(Graphics2D g) {
+    for (Integer degrees = 1; degrees <= NUM_LABELS; ++degrees) {
+      double yLevel = yLevel(degrees);
+      DrawingContext context = new ChangeCoordsTranslate(g, new Point2D.Double(X_LEVEL, yLevel));
+      Draw tick = new DrawLine(5.0, DrawLine.Direction.right);
+      tick.drawIn(context, g);
+
+      String text = degrees.toString() + "°";
+      context = new ChangeFontSize(g, fontSize(degrees));
+      context = ChangeCoordsTranslate.chain(context, g, new Point2D.Double(X_LEVEL + 10.0, yLevel));
+      context = ChangeCoordsRotate.chain(context, g, -Maths.HALF_PI);
+      context = ChangeCoordsCenterText.chain(context, g, text);
+      Draw label = new DrawText(text);
+      label.drawIn(context, g);
+    }
+  }
+
+  private static void rulerWithStack(Graphics2D g) {
+    DrawingStack stack = new DrawingStack(g);
+    for (Integer degrees = 1; degrees <= NUM_LABELS; ++degrees) {
+      double yLevel = yLevel(degrees);
+      Draw tick = new DrawLine(5.0, DrawLine.Direction.right);
+      tick.drawIn(stack.save().translate(X_LEVEL, yLevel), g);
+
+      String text = degrees.toString() + "°";
+      stack.save().fontSize(fontSize(degrees)).translate(X_LEVEL + 10.0, yLevel).rotate(-Maths.HALF_PI).centerText(text);
+      Draw label = new DrawText(text);
+      label.drawIn(stack, g);
+    }
+  }
+
+  private static double yLevel(int degrees) {
+    return SIZE - degrees * 9.0;
+  }
+
+  private static float fontSize(int degrees) {
+    return (degrees % 5 != 0) ? 0.6f : 0.8f;
+  }
+}
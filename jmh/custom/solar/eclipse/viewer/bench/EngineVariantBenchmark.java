@@ -0,0 +1,46 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.astrocalc.EngineAccuracy;
+import custom.solar.eclipse.viewer.astrocalc.EngineVariant;
+
+/**
+ The speed of each implementation of the local circumstances, over all of the cases checked by {@link EngineAccuracyCheck}:
+ Meeus' example, and every eclipse in the catalog at the same random sites. See {@link EngineAccuracy#computeAll(EngineVariant)}.
+
+ <P>Doesn't read the config file.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineVariantBenchmark {
+
+  @Param
+  public EngineVariant variant;
+  EngineAccuracy cases;
+
+  @Setup public void setUp() {
+    cases = new EngineAccuracy(EngineAccuracyCheck.SITES_PER_ECLIPSE, EngineAccuracyCheck.SEED);
+  }
+
+  @Benchmark public int allCases() {
+    return cases.computeAll(variant);
+  }
+}
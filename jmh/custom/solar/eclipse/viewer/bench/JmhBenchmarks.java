@@ -0,0 +1,38 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ Run the JMH benchmarks, with the GC profiler always on, so that the allocation of each benchmark is reported along with its time.
+
+ <P>Takes the same arguments as JMH's own <code>org.openjdk.jmh.Main</code>: for example, the name of a benchmark class,
+ and <em>-f 1 -wi 3 -i 5</em>. See the pom.xml for running them with Maven.
+*/
+public final class JmhBenchmarks {
+
+  public static void main(String... args) throws Exception {
+    List<String> all = new ArrayList<>(Arrays.asList(args));
+    if (!hasGcProfiler(all)) {
+      all.add(PROFILER);
+      all.add(GC);
+    }
+    org.openjdk.jmh.Main.main(all.toArray(new String[0]));
+  }
+
+  // PRIVATE
+
+  private static final String PROFILER = "-prof";
+  private static final String GC = "gc";
+
+  private static boolean hasGcProfiler(List<String> args) {
+    boolean result = false;
+    for (int idx = 0; idx + 1 < args.size(); ++idx) {
+      if (PROFILER.equals(args.get(idx)) && args.get(idx + 1).startsWith(GC)) {
+        result = true;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,65 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.GeneratePdfABC;
+import custom.solar.eclipse.viewer.GraphicsBackend;
+import custom.solar.eclipse.viewer.OutputProfile;
+import custom.solar.eclipse.viewer.PageComposition;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The time to output with each output profile, for a single viewer and for a booklet. See {@link OutputProfile}.
+
+ <P>Every viewer in the booklet uses the usual config (see {@link ConfigFromFile}).
+ The output is counted, and then discarded.
+ The size of the file for each profile is reported by {@link OutputReport}.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutputProfileBenchmark {
+
+  @Param
+  public OutputProfile profile;
+  @Param({"50"})
+  public int bookletViewers;
+  Config config;
+  GenerateViewer viewer;
+
+  @Setup public void setUp() {
+    config = new ConfigFromFile().init();
+    viewer = new GenerateViewer(config);
+  }
+
+  @Benchmark public long singleViewer() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    viewer.outputTo(out, GraphicsBackend.PDF_GRAPHICS_2D, PageComposition.SERIAL, profile);
+    return out.count();
+  }
+
+  @Benchmark public long booklet() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    GeneratePdfABC.outputAllTo(out, BookletBenchmark.viewers(config, bookletViewers), GraphicsBackend.PDF_GRAPHICS_2D, profile);
+    return out.count();
+  }
+}
@@ -0,0 +1,136 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import custom.solar.eclipse.viewer.GraphicsBackend;
+import custom.solar.eclipse.viewer.OutputProfile;
+import custom.solar.eclipse.viewer.PageComposition;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.output.HttpResponseTarget;
+import custom.solar.eclipse.viewer.output.MemoryTarget;
+import custom.solar.eclipse.viewer.output.OutputTarget;
+import custom.solar.eclipse.viewer.output.SizeEstimate;
+import custom.solar.eclipse.viewer.output.ZipEntryTarget;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The cost of a single viewer with each output target. See {@link OutputTarget}.
+
+ <P>The in-memory target is measured twice: with an estimate that starts far too small (so the buffer grows, as in a plain ByteArrayOutputStream),
+ and with an estimate that has learned the size from earlier runs.
+ The HTTP target is measured with a server on the loopback interface, and a client that reads the whole response.
+ The allocation of the HTTP target is on the server's threads.
+ The server logs the time to the first byte of each response (see {@link custom.solar.eclipse.viewer.server.ViewerServer}).
+
+ <P>Uses the usual config file (see {@link ConfigFromFile}).
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputTargetBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Viewer {
+    GenerateViewer viewer;
+    SizeEstimate tooSmall = new SizeEstimate(TOO_SMALL);
+    SizeEstimate learned = new SizeEstimate(TOO_SMALL);
+
+    @Setup public void setUp() {
+      viewer = new GenerateViewer(new ConfigFromFile().init());
+    }
+  }
+
+  /** A server on the loopback interface, which outputs the viewer as the response to every request. */
+  @State(Scope.Benchmark)
+  public static class Server {
+    HttpServer server;
+    URL url;
+
+    @Setup public void setUp(Viewer v) throws Exception {
+      System.setProperty("sun.net.httpserver.nodelay", "true"); //otherwise small responses wait on delayed acknowledgements
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+      server.createContext("/", exchange -> {
+        HttpResponseTarget target = new HttpResponseTarget(exchange, "application/pdf", "EclipseViewer.pdf");
+        try {
+          output(v.viewer, target);
+        }
+        catch (Exception ex) {
+          if (!target.isCommitted()) {
+            exchange.sendResponseHeaders(500, -1);
+          }
+        }
+        finally {
+          exchange.close();
+        }
+      });
+      server.start();
+      url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    @TearDown public void tearDown() {
+      server.stop(0);
+    }
+  }
+
+  @Benchmark public long memoryGrowing(Viewer v) throws Exception {
+    MemoryTarget target = new MemoryTarget(v.tooSmall);
+    output(v.viewer, target);
+    v.tooSmall.record(TOO_SMALL); //keep the estimate from learning
+    return target.bytes();
+  }
+
+  @Benchmark public long memoryPreSized(Viewer v) throws Exception {
+    MemoryTarget target = new MemoryTarget(v.learned);
+    output(v.viewer, target);
+    return target.bytes();
+  }
+
+  @Benchmark public long zipEntry(Viewer v) throws Exception {
+    try (ZipOutputStream zip = new ZipOutputStream(new CountingOutputStream())) {
+      zip.setLevel(Deflater.BEST_SPEED);
+      ZipEntryTarget target = new ZipEntryTarget(zip, "viewer.pdf");
+      output(v.viewer, target);
+      return target.bytes();
+    }
+  }
+
+  /** Measured by the client: from sending the request to reading the last byte of the response. */
+  @Benchmark public long httpResponse(Server s) throws Exception {
+    HttpURLConnection connection = (HttpURLConnection)s.url.openConnection();
+    try (InputStream input = connection.getInputStream()) {
+      return input.transferTo(new CountingOutputStream());
+    }
+  }
+
+  // PRIVATE
+
+  private static final int TOO_SMALL = 32;
+
+  private static void output(GenerateViewer viewer, OutputTarget target) throws Exception {
+    viewer.outputTo(target.open(), GraphicsBackend.PDF_GRAPHICS_2D, PageComposition.SERIAL, OutputProfile.PRINT_SHOP);
+  }
+}
@@ -0,0 +1,95 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.PagePreview;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The cost of preview images of the viewer, compared with the cost of the PDF. See {@link PagePreview}.
+
+ <P>Three cases are measured, for each page: rendering the whole page, encoding it as a PNG,
+ and rendering again after a single setting (the name of the location) has changed, when only the changed region is painted.
+ The size of the images and of the changed region are reported by {@link OutputReport}, which also saves the images.
+
+ <P>Uses the usual config file (see {@link ConfigFromFile}).
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreviewBenchmark {
+
+  /** The viewer for the usual config, and the same viewer for a location with a different name. */
+  @State(Scope.Benchmark)
+  public static class Viewers {
+    GenerateViewer viewer;
+    GenerateViewer renamed;
+
+    @Setup public void setUp() {
+      Config config = new ConfigFromFile().init();
+      viewer = new GenerateViewer(config);
+      renamed = new GenerateViewer(config.toBuilder().location(config.location() + " (North)").build());
+    }
+  }
+
+  /** A preview of one page, already rendered once. */
+  @State(Scope.Benchmark)
+  public static class Page {
+    @Param({"1", "2"})
+    public int page;
+    @Param({"96"})
+    public int dotsPerInch;
+    PagePreview preview;
+
+    @Setup public void setUp(Viewers v) throws Exception {
+      preview = new PagePreview(page, dotsPerInch);
+      preview.render(v.viewer);
+    }
+  }
+
+  @Benchmark public long pdfBothPages(Viewers v) throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    v.viewer.outputTo(out);
+    return out.count();
+  }
+
+  @Benchmark public PagePreview wholePage(Viewers v, Page p) throws Exception {
+    PagePreview result = new PagePreview(p.page, p.dotsPerInch);
+    result.render(v.viewer);
+    return result;
+  }
+
+  @Benchmark public long pngEncoding(Page p) throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    p.preview.writePngTo(out);
+    return out.count();
+  }
+
+  /** Back and forth between the two versions, so each invocation renders twice. */
+  @Benchmark
+  @OperationsPerInvocation(2)
+  public int afterChangingTheLocation(Viewers v, Page p) throws Exception {
+    int result = p.preview.render(v.renamed).width;
+    result += p.preview.render(v.viewer).width;
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.awt.Graphics2D;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.config.QRCode;
+import custom.solar.eclipse.viewer.draw.mix.DrawQrCode;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ Compare two ways of rendering a QR code: one small rectangle for each dark module (the old way),
+ versus the merged runs of {@link DrawQrCode}.
+
+ <P>The old way also re-encodes the link every time, as it did originally; see {@link OutputReport#drawQrCodePerModule}.
+ The size of the content stream of each is reported by {@link OutputReport}.
+ Uses the first QR code of the usual config file (see {@link ConfigFromFile}).
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QrCodeBenchmark {
+
+  QRCode qrCode;
+  /** Re-used for every rendering, so that the document doesn't grow. */
+  PdfTemplate template;
+
+  @Setup public void setUp() throws Exception {
+    qrCode = new ConfigFromFile().init().qrCode1();
+    Document document = new Document();
+    PdfWriter writer = PdfWriter.getInstance(document, new CountingOutputStream());
+    document.open();
+    template = writer.getDirectContent().createTemplate(SIZE, SIZE);
+  }
+
+  @Benchmark public int perModule() throws Exception {
+    Graphics2D g = graphics();
+    OutputReport.drawQrCodePerModule(qrCode, SIZE, g);
+    g.dispose();
+    return template.getInternalBuffer().size();
+  }
+
+  @Benchmark public int mergedRuns() {
+    Graphics2D g = graphics();
+    new DrawQrCode(qrCode, SIZE).draw(g);
+    g.dispose();
+    return template.getInternalBuffer().size();
+  }
+
+  // PRIVATE
+
+  private static final int SIZE = 90;
+
+  private Graphics2D graphics() {
+    template.reset();
+    return new PdfGraphics2D(template, SIZE, SIZE);
+  }
+}
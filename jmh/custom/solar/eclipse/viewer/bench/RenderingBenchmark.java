@@ -0,0 +1,178 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.awt.Graphics2D;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import custom.solar.eclipse.viewer.GeneratePdfABC;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.draw.ViewerStages;
+import custom.solar.eclipse.viewer.draw.mix.Draw;
+import custom.solar.eclipse.viewer.draw.mix.DrawQrCode;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The cost of rendering a viewer, in whole and in parts. For the cost of the astronomy, see {@link AstronomyBenchmark}.
+
+ <P>Measures:
+ <ul>
+  <li>the whole viewer, written to a stream that discards the bytes;
+  <li>each part of the pages (see {@link ViewerStages}), drawn alone with a single graphics context that is reused;
+  <li>the table of the timeline, both added to a document, and drawn with the graphics context;
+  <li>a single QR code, with {@link DrawQrCode};
+  <li>a cold start: in a new JVM, reading the config, registering the fonts, the astronomy, and the first viewer.
+  That's the cost paid by a command-line build, or by the first request to a new server.
+  Each fork is a new JVM, and the time is of a single call.
+ </ul>
+
+ <P>Uses the usual config file (see {@link ConfigFromFile}). To use another, pass it to the forks:
+ <em>-jvmArgsAppend -DviewerConfigFile=...</em>.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderingBenchmark {
+
+  /** The viewer for the usual config, and a document to draw into. */
+  @State(Scope.Benchmark)
+  public static class Viewer {
+    Config config;
+    GenerateViewer viewer;
+    ViewerStages stages;
+    Document document;
+    Canvas canvas;
+
+    @Setup public void setUp() throws Exception {
+      config = new ConfigFromFile().init();
+      viewer = new GenerateViewer(config);
+      stages = new ViewerStages(viewer);
+      document = new Document(new Rectangle(config.width(), config.height()));
+      PdfWriter writer = PdfWriter.getInstance(document, new CountingOutputStream());
+      document.open();
+      canvas = new Canvas(viewer, writer, config);
+    }
+
+    @TearDown public void tearDown() {
+      canvas.dispose();
+    }
+  }
+
+  /** One part of the pages, named after its page and its class; see {@link ViewerStages#drawers()}. */
+  @State(Scope.Benchmark)
+  public static class Part {
+    @Param({
+      "page 1 static: Border", "page 1 static: Holes", "page 1 static: RulerSeparation", "page 1 static: RulerPositionAngle",
+      "page 1: Title", "page 1: LocationEtc", "page 1: QRLink", "page 1: FooterFinePrint",
+      "page 2 static: Border", "page 2 static: Holes",
+      "page 2: Title", "page 2: LocationEtc", "page 2: PartialPhasesChart", "page 2: QRLink", "page 2: TotalityAdvice", "page 2: ProducedBy"
+    })
+    public String part;
+    Draw drawer;
+
+    @Setup public void setUp(Viewer v) {
+      drawer = v.stages.drawers().get(part);
+      if (drawer == null) {
+        throw new IllegalStateException("The viewer for this config has no part named '" + part + "'. It has: " + v.stages.drawers().keySet());
+      }
+    }
+  }
+
+  @Benchmark public long wholeViewer(Viewer v) throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    v.viewer.outputTo(out);
+    return out.count();
+  }
+
+  @Benchmark public void part(Viewer v, Part p) {
+    v.canvas.draw(p.drawer);
+  }
+
+  @Benchmark public void timelineInDocument(Viewer v) throws Exception {
+    v.stages.timeline(v.document);
+  }
+
+  @Benchmark public void timelineWithGraphicsContext(Viewer v) {
+    v.canvas.draw(g -> v.stages.timeline(g));
+  }
+
+  @Benchmark public void drawQrCode(Viewer v) {
+    v.canvas.draw(new DrawQrCode(v.config.qrCode1(), QR_CODE_SIZE));
+  }
+
+  /** Everything from the start of a new JVM to the first viewer, except the start of the JVM itself. */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(COLD_FORKS)
+  public long coldStart() throws Exception {
+    Config config = new ConfigFromFile().init();
+    GeneratePdfABC.registerFonts(config.fontDir());
+    GenerateViewer viewer = new GenerateViewer(config);
+    CountingOutputStream out = new CountingOutputStream();
+    viewer.outputTo(out);
+    return out.count();
+  }
+
+  // PRIVATE
+
+  private static final int QR_CODE_SIZE = 90;
+  private static final int COLD_FORKS = 10;
+
+  /**
+   A single graphics context, reused for many drawings.
+   So that its content doesn't grow without limit, it's replaced by a new one after a fixed number of drawings;
+   that small cost is spread over the drawings.
+  */
+  private static final class Canvas {
+    Canvas(GenerateViewer viewer, PdfWriter writer, Config config) {
+      this.viewer = viewer;
+      this.writer = writer;
+      this.config = config;
+      renew();
+    }
+    void draw(Draw drawer) {
+      if (++drawings % DRAWINGS_PER_CONTEXT == 0) {
+        g.dispose();
+        renew();
+      }
+      drawer.draw(g);
+    }
+    void dispose() {
+      g.dispose();
+    }
+    private final GenerateViewer viewer;
+    private final PdfWriter writer;
+    private final Config config;
+    private Graphics2D g;
+    private long drawings;
+    private static final int DRAWINGS_PER_CONTEXT = 100;
+    private void renew() {
+      PdfTemplate template = writer.getDirectContent().createTemplate(config.width(), config.height());
+      g = viewer.isolatedGraphicsContextFor(template);
+    }
+  }
+}
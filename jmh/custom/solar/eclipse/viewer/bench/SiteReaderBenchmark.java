@@ -0,0 +1,95 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.sites.SiteChunk;
+import custom.solar.eclipse.viewer.sites.SiteReader;
+
+/**
+ Compare two ways of reading a list of sites into chunks: {@link SiteReader},
+ versus splitting each line with String.split, and parsing each field with Double.parseDouble.
+
+ <P>The list is made up, and held in memory, so that only the parsing is measured, not the disk.
+ The time is for the whole list; divide by the number of sites for the time per site.
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SiteReaderBenchmark {
+
+  @Param({"200000"})
+  public int numSites;
+  String text;
+
+  @Setup public void setUp() {
+    text = madeUpSites(numSites);
+  }
+
+  @Benchmark public long siteReader() throws Exception {
+    long result = 0;
+    try (SiteReader reader = new SiteReader(new StringReader(text), ',')) {
+      SiteChunk chunk = null;
+      while ((chunk = reader.next(CHUNK_SIZE)) != null) {
+        result += chunk.size();
+      }
+    }
+    return result;
+  }
+
+  /** The obvious way. */
+  @Benchmark public long splitThenParseDouble() throws Exception {
+    long result = 0;
+    long number = 0;
+    try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+      reader.readLine(); //the header
+      SiteChunk chunk = new SiteChunk(number++, CHUNK_SIZE);
+      String line = null;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(",");
+        double zone = Double.parseDouble(fields[4].trim());
+        chunk.add(fields[0].trim(), Double.parseDouble(fields[1].trim()), Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim()), (int)Math.round(zone * 60));
+        if (chunk.isFull()) {
+          result += chunk.size();
+          chunk = new SiteChunk(number++, CHUNK_SIZE);
+        }
+      }
+      result += chunk.size();
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private static final int CHUNK_SIZE = 4096;
+
+  private static String madeUpSites(int numSites) {
+    Random random = new Random(1);
+    StringBuilder result = new StringBuilder("name,latitude,longitude,altitude,zone\n");
+    for (int idx = 0; idx < numSites; ++idx) {
+      double longitude = -180 + 360 * random.nextDouble();
+      result.append("Site ").append(idx).append(',');
+      result.append(String.format("%.4f,%.4f,%d,%d", -60 + 120 * random.nextDouble(), longitude, random.nextInt(3000), Math.round(longitude / 15)));
+      result.append('\n');
+    }
+    return result.toString();
+  }
+}
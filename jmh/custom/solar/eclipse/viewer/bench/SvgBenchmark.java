@@ -0,0 +1,67 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.graphics.SvgGraphics2D;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ The cost of SVG output, compared with PDF.
+ Both pages are output in each case; the output is counted, and then discarded.
+
+ <P>The PDF embeds a subset of its font, while SVG text elements only refer to the font by name.
+ So for a fair comparison, SVG is also measured with its text as outlines, which needs no font.
+ The size of each output is reported by {@link OutputReport}.
+ Uses the usual config file (see {@link ConfigFromFile}).
+ Run with {@link JmhBenchmarks}, which reports the allocation of each benchmark as well.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SvgBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Viewer {
+    GenerateViewer viewer;
+
+    @Setup public void setUp() {
+      viewer = new GenerateViewer(new ConfigFromFile().init());
+    }
+  }
+
+  /** Text elements, or outlines. */
+  @State(Scope.Benchmark)
+  public static class Text {
+    @Param
+    public SvgGraphics2D.Text text;
+  }
+
+  @Benchmark public long pdf(Viewer v) throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    v.viewer.outputTo(out);
+    return out.count();
+  }
+
+  @Benchmark public long svg(Viewer v, Text t) throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    v.viewer.outputSvgTo(1, out, t.text);
+    v.viewer.outputSvgTo(2, out, t.text);
+    return out.count();
+  }
+}
@@ -15,6 +15,8 @@ import com.itextpdf.text.DocumentException;
 import custom.solar.eclipse.viewer.config.Config;
 import custom.solar.eclipse.viewer.config.ConfigFromFile;
 import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
 
 /** Build the PDF file for the viewer as a standalone program from the command line. */
 public final class Build {
@@ -30,13 +32,29 @@ public final class Build {
     log("  " + config.toString());
     
     log("Generating PDF file.");
-    GenerateViewer viewer = new GenerateViewer(config);
-    viewer.outputTo(streamFor(OUTPUT_PDF_FILE, config));
+    OutputProfile profile = OutputProfile.fromSystemProperty();
+    long start = System.nanoTime();
+    long bytes = write(config, profile);
+    log("Wrote " + bytes + " bytes in " + (System.nanoTime() - start) / 1_000_000 + " ms, with the " + profile + " output profile.");
     
     log("File saved to " + fullFileName(OUTPUT_PDF_FILE, config));
+    Metrics.saveIfRequested();
     log("Done.");
   }
 
+  /** Generate the viewer, and save it to the output directory of the config. Returns the number of bytes written. */
+  static long write(Config config, OutputProfile profile) throws DocumentException, IOException {
+    GenerateViewer viewer = new GenerateViewer(config);
+    CountingOutputStream output = new CountingOutputStream(streamFor(OUTPUT_PDF_FILE, config));
+    viewer.outputTo(output, GraphicsBackend.fromSystemProperty(), PageComposition.fromSystemProperty(), profile);
+    return output.count();
+  }
+  
+  /** The full name of the file saved by {@link #write(Config, OutputProfile)}. */
+  static String fileName(Config config) {
+    return fullFileName(OUTPUT_PDF_FILE, config);
+  }
+
   //PRIVATE 
   
   private static OutputStream streamFor(String fileName, Config config) throws FileNotFoundException {
@@ -0,0 +1,216 @@
+package custom.solar.eclipse.viewer;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import custom.solar.eclipse.viewer.astrocalc.ApproximateDeltaT;
+import custom.solar.eclipse.viewer.astrocalc.BatchCircumstances;
+import custom.solar.eclipse.viewer.astrocalc.EclipseType;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.sites.SiteChunk;
+import custom.solar.eclipse.viewer.sites.SiteReader;
+import custom.solar.eclipse.viewer.util.DataFileReader;
+
+/**
+ Build a table of the local circumstances of one eclipse, for a long list of sites, as a standalone program from the command line.
+ For a list of cities, for example, to find those where the eclipse is total, and for how long.
+
+ <P>The sites are read in chunks by one thread, and computed by the others, so that reading and computing overlap.
+ The chunks are passed through a bounded queue: when the computation falls behind, the reading waits,
+ so the memory used doesn't depend on the length of the list.
+ The rows of the output are in the same order as the sites.
+ See {@link SiteReader} for the format of the list.
+
+ <P>The output is CSV, with a header. The times are local civil times, using each site's time zone.
+ The central phase is totality or annularity.
+*/
+public final class BuildCircumstances {
+
+  /**
+   Arguments: the file listing the sites, the date of the eclipse (yyyy-mm-dd, UTC), the output file,
+   and optionally ΔT in seconds. By default, ΔT is estimated from the date.
+  */
+  public static void main(String... args) throws IOException, InterruptedException {
+    if (args.length < 3) {
+      log("ERROR. Please pass the file of sites, the date of the eclipse, the output file, and optionally ΔT in seconds.");
+      return;
+    }
+    Path sitesFile = Paths.get(args[0]);
+    LocalDate date = LocalDate.parse(args[1]);
+    Path outputFile = Paths.get(args[2]);
+    double ΔT = args.length > 3 ? Double.parseDouble(args[3]) : ApproximateDeltaT.lookup(date.getYear(), date.getMonthValue());
+    log("Computing the circumstances of the eclipse of " + date + " (ΔT = " + ΔT + "s), for the sites in " + sitesFile);
+
+    BatchCircumstances engine = new BatchCircumstances(date, ΔT);
+    int numWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1); //one core for reading, and writing
+    BlockingQueue<SiteChunk> chunks = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+    BlockingQueue<BatchCircumstances.Results> results = new ArrayBlockingQueue<>(QUEUE_CHUNKS + numWorkers);
+    AtomicReference<Exception> readFailure = new AtomicReference<>();
+    long start = System.nanoTime();
+
+    try (SiteReader reader = SiteReader.open(sitesFile); BufferedWriter out = Files.newBufferedWriter(outputFile, DataFileReader.ENCODING)) {
+      long[] readingNanos = new long[1];
+      Thread reading = new Thread(() -> {
+        long readStart = System.nanoTime();
+        try {
+          reader.sendTo(chunks, CHUNK_SIZE);
+        }
+        catch (IOException | InterruptedException ex) {
+          readFailure.set(ex);
+        }
+        readingNanos[0] = System.nanoTime() - readStart;
+      }, "site-reader");
+
+      reading.setDaemon(true);
+      reading.start();
+
+      AtomicReference<RuntimeException> computeFailure = new AtomicReference<>();
+      List<Thread> workers = startWorkers(numWorkers, engine, chunks, results, computeFailure);
+      long rows = write(results, out);
+      if (computeFailure.get() != null) {
+        throw computeFailure.get();
+      }
+      reading.join();
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      if (readFailure.get() != null) {
+        throw new IOException("Can't read the sites.", readFailure.get());
+      }
+
+      double seconds = (System.nanoTime() - start) / 1.0E9;
+      log("Sites: " + rows + " computed, " + reader.rowsSkipped() + " skipped, with " + numWorkers + " computing threads.");
+      log(String.format("Time: %.2f s in all, %.0f sites/s; reading took %.2f s, overlapping the computation.", seconds, rows / seconds, readingNanos[0] / 1.0E9));
+    }
+    log("File saved to " + outputFile);
+    Metrics.saveIfRequested();
+    log("Done.");
+  }
+
+  // PRIVATE
+
+  /** Large enough that handing over a chunk costs little, compared to computing it. */
+  private static final int CHUNK_SIZE = 4096;
+  /** Bounds the memory used by chunks that have been read, and not yet computed. */
+  private static final int QUEUE_CHUNKS = 8;
+
+  /** Always with the seconds, unlike LocalDateTime.toString(). */
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+  private static final String HEADER = "name,latitude,longitude,zone_hours,type,magnitude,partial_starts,maximum,central_starts,central_ends,partial_ends";
+
+  /**
+   Each worker takes chunks until it sees the end marker, which it puts back for the other workers.
+   The last worker to finish puts an empty result, for the end marker, in the results.
+   If a computation fails, the run is over: the failure is kept, and the end is put in the results as soon as there's room.
+   It must not be lost: the failed worker never counts itself as finished, so no other worker would put the end for it.
+   The threads are daemons, so that any left waiting don't keep the program running.
+  */
+  private static List<Thread> startWorkers(
+    int numWorkers, BatchCircumstances engine, BlockingQueue<SiteChunk> chunks, BlockingQueue<BatchCircumstances.Results> results, 
+    AtomicReference<RuntimeException> failure
+  ) {
+    AtomicInteger running = new AtomicInteger(numWorkers);
+    List<Thread> result = new ArrayList<>();
+    for (int idx = 0; idx < numWorkers; ++idx) {
+      Thread worker = new Thread(() -> {
+        try {
+          try {
+            SiteChunk chunk = null;
+            while ((chunk = chunks.take()) != SiteChunk.END_OF_INPUT) {
+              results.put(engine.compute(chunk));
+            }
+            chunks.put(SiteChunk.END_OF_INPUT);
+            if (running.decrementAndGet() == 0) {
+              results.put(engine.compute(SiteChunk.END_OF_INPUT));
+            }
+          }
+          catch (RuntimeException ex) {
+            failure.compareAndSet(null, ex);
+            //waits for room: the writer keeps taking results until it sees the end
+            results.put(engine.compute(SiteChunk.END_OF_INPUT));
+          }
+        }
+        catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }, "site-circumstances-" + idx);
+      worker.setDaemon(true);
+      worker.start();
+      result.add(worker);
+    }
+    return result;
+  }
+
+  /** Write the results in the order of the chunks, holding back any that arrive early. Returns the number of rows. */
+  private static long write(BlockingQueue<BatchCircumstances.Results> results, Writer out) throws IOException, InterruptedException {
+    out.write(HEADER);
+    out.write('\n');
+    long rows = 0;
+    long nextChunk = 0;
+    Map<Long, BatchCircumstances.Results> early = new TreeMap<>();
+    BatchCircumstances.Results chunk = null;
+    while ((chunk = results.take()).sites() != SiteChunk.END_OF_INPUT) {
+      early.put(chunk.sites().number(), chunk);
+      while ((chunk = early.remove(nextChunk)) != null) {
+        rows += writeRows(chunk, out);
+        ++nextChunk;
+      }
+    }
+    return rows;
+  }
+
+  private static int writeRows(BatchCircumstances.Results results, Writer out) throws IOException {
+    SiteChunk sites = results.sites();
+    StringBuilder line = new StringBuilder();
+    for (int idx = 0; idx < results.size(); ++idx) {
+      int zone = sites.zoneMinutes(idx);
+      line.setLength(0);
+      line.append(csv(sites.name(idx))).append(',');
+      line.append(Math.toDegrees(sites.latitude(idx))).append(',');
+      line.append(Math.toDegrees(sites.longitude(idx))).append(',');
+      line.append(zone / 60.0).append(',');
+      EclipseType type = results.type(idx);
+      line.append(type).append(',');
+      line.append(type == EclipseType.None ? "" : String.format("%.4f", results.magnitude(idx))).append(',');
+      appendTime(results.partialStarts(idx), zone, line).append(',');
+      appendTime(results.maximum(idx), zone, line).append(',');
+      appendTime(results.centralStarts(idx), zone, line).append(',');
+      appendTime(results.centralEnds(idx), zone, line).append(',');
+      appendTime(results.partialEnds(idx), zone, line).append('\n');
+      out.append(line);
+    }
+    return results.size();
+  }
+
+  /** Empty if there's no such time. */
+  private static StringBuilder appendTime(long epochSeconds, int zoneMinutes, StringBuilder line) {
+    if (epochSeconds != BatchCircumstances.NO_TIME) {
+      line.append(TIME_FORMAT.format(LocalDateTime.ofEpochSecond(epochSeconds + zoneMinutes * 60L, 0, ZoneOffset.UTC)));
+    }
+    return line;
+  }
+
+  /** Quoted only if needed. */
+  private static String csv(String text) {
+    if (text.indexOf(',') < 0 && text.indexOf('"') < 0) return text;
+    return "\"" + text.replace("\"", "\"\"") + "\"";
+  }
+}
@@ -0,0 +1,66 @@
+package custom.solar.eclipse.viewer;
+
+import static custom.solar.eclipse.viewer.config.Constants.OUTPUT_IMPOSED_PDF_FILE;
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.itextpdf.text.DocumentException;
+
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/** 
+ Build a single PDF file with several viewers on each sheet, as a standalone program from the command line.
+ Intended for print shops. See {@link Imposition} for the settings.
+*/
+public final class BuildImposed {
+  
+  /**
+   Each argument is the full name of a config file, one for each viewer. 
+   The file is saved to the output directory of the first config file.
+  */
+  public static void main(String... configFiles) throws DocumentException, IOException {
+    log("Building imposed sheets of custom solar eclipse viewers, using data from " + configFiles.length + " config files.");
+    if (configFiles.length == 0) {
+      log("ERROR. Please pass the names of the config files on the command line.");
+      return;
+    }
+    
+    Config first = new ConfigFromFile().init(configFiles[0]);
+    String fileName = first.outputDir() + File.separator + OUTPUT_IMPOSED_PDF_FILE;
+    OutputProfile profile = OutputProfile.fromSystemProperty();
+    long start = System.nanoTime();
+    try (CountingOutputStream output = new CountingOutputStream(new FileOutputStream(fileName))){
+      GeneratePdfABC.outputImposedTo(output, viewersFor(Arrays.asList(configFiles)), Imposition.fromSystemProperties(), GraphicsBackend.fromSystemProperty(), profile);
+      log("Wrote " + output.count() + " bytes in " + (System.nanoTime() - start) / 1_000_000 + " ms, with the " + profile + " output profile.");
+    }
+    
+    log("File saved to " + fileName);
+    Metrics.saveIfRequested();
+    log("Done.");
+  }
+
+  //PRIVATE 
+  
+  /** Each viewer is built only when it's needed. */
+  private static Iterator<GenerateViewer> viewersFor(List<String> configFiles){
+    Iterator<String> files = configFiles.iterator();
+    return new Iterator<GenerateViewer>() {
+      @Override public boolean hasNext() {
+        return files.hasNext();
+      }
+      @Override public GenerateViewer next() {
+        return new GenerateViewer(new ConfigFromFile().init(files.next()));
+      }
+    };
+  }
+}
@@ -0,0 +1,232 @@
+package custom.solar.eclipse.viewer;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import custom.solar.eclipse.viewer.astrocalc.EclipseType;
+import custom.solar.eclipse.viewer.astrocalc.SolverDiagnostics;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.util.DataFileReader;
+
+/**
+ Check how well the solver of the local circumstances converges, for every eclipse in the catalog,
+ over a grid of sites covering the whole globe, as a standalone program from the command line.
+
+ <P>For each eclipse and site, records the iterations of each solve, the last correction (the residual),
+ the solves that didn't converge, and the contacts that came out in an unexpected order.
+ Logs a summary, and saves the worst cases to a CSV file, with a header. The worst cases are those that didn't converge,
+ then those with contacts out of order, then those with the most iterations, then those with the largest residual.
+
+ <P>Each eclipse is a separate task; the tasks are run in parallel, on all of the processors.
+ The time order of the contacts is checked silently here; the warnings are counted, not logged.
+*/
+public final class BuildSolverReport {
+
+  /**
+   Arguments: the output file, and optionally the step of the grid in degrees (default 5),
+   and the number of worst cases to save (default 1000).
+  */
+  public static void main(String... args) throws IOException, InterruptedException, ExecutionException {
+    if (args.length < 1) {
+      log("ERROR. Please pass the output file, and optionally the step of the grid in degrees, and the number of worst cases to save.");
+      return;
+    }
+    Path outputFile = Paths.get(args[0]);
+    double step = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_STEP;
+    int numWorst = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WORST;
+    if (step <= 0 || numWorst < 0) {
+      throw new IllegalArgumentException("The step must be positive, and the number of worst cases can't be negative.");
+    }
+    List<LocalDate> dates = SolverDiagnostics.catalogDates();
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    log("Solving " + dates.size() + " eclipses, on a grid of sites every " + step + " degrees, with " + numThreads + " threads.");
+
+    long start = System.nanoTime();
+    Summary all = new Summary(numWorst);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Summary>> tasks = new ArrayList<>();
+      for (LocalDate date : dates) {
+        tasks.add(executor.submit(() -> solveAllSites(date, step, numWorst)));
+      }
+      for (Future<Summary> task : tasks) {
+        all.add(task.get());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+    double seconds = (System.nanoTime() - start) / 1.0E9;
+
+    logSummary(all, seconds);
+    save(all.worstFirst(), outputFile);
+    log("Worst " + all.worst.size() + " cases saved to " + outputFile);
+    Metrics.saveIfRequested();
+    log("Done.");
+  }
+
+  // PRIVATE
+
+  private static final double DEFAULT_STEP = 5.0;
+  private static final int DEFAULT_WORST = 1000;
+  private static final String HEADER = "date,global_type,latitude,longitude,local_type,worksheets,max_iterations,max_residual_seconds,unconverged_solves,time_order_warnings";
+
+  /** The most troubling first. A NaN residual is the largest. */
+  private static final Comparator<Case> WORST_FIRST = Comparator
+    .comparingInt((Case c) -> c.result.unconverged())
+    .thenComparingInt(c -> c.result.timeOrderWarnings())
+    .thenComparingInt(c -> c.result.maxIterations())
+    .thenComparingDouble(c -> c.result.maxResidualSeconds())
+    .reversed();
+
+  /** The result at one site, for one eclipse. */
+  private static final class Case {
+    Case(LocalDate date, EclipseType globalType, double latitude, double longitude, SolverDiagnostics.Result result) {
+      this.date = date;
+      this.globalType = globalType;
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.result = result;
+    }
+    final LocalDate date;
+    final EclipseType globalType;
+    final double latitude;
+    final double longitude;
+    final SolverDiagnostics.Result result;
+  }
+
+  /** Totals for any number of cases, with only the worst of them kept. Not thread-safe. */
+  private static final class Summary {
+    Summary(int numWorst) {
+      this.numWorst = numWorst;
+      this.worst = new PriorityQueue<>(WORST_FIRST.reversed()); //the least troubling at the head, to be dropped first
+    }
+    void add(Case c) {
+      SolverDiagnostics.Result r = c.result;
+      ++solves;
+      if (r.localEclipseType() != EclipseType.None) {
+        ++visible;
+      }
+      worksheets += r.worksheets();
+      ++iterations[Math.min(r.maxIterations(), SolverDiagnostics.MAX_ITERATIONS)];
+      if (Double.isNaN(r.maxResidualSeconds())) {
+        ++nanResiduals;
+      }
+      else {
+        maxResidualSeconds = Math.max(maxResidualSeconds, r.maxResidualSeconds());
+      }
+      unconverged += r.unconverged();
+      timeOrderWarnings += r.timeOrderWarnings();
+      if (r.unconverged() > 0) {
+        ++sitesUnconverged;
+      }
+      if (r.timeOrderWarnings() > 0) {
+        ++sitesOutOfOrder;
+      }
+      keep(c);
+    }
+    void add(Summary that) {
+      solves += that.solves;
+      visible += that.visible;
+      worksheets += that.worksheets;
+      for (int idx = 0; idx < iterations.length; ++idx) {
+        iterations[idx] += that.iterations[idx];
+      }
+      nanResiduals += that.nanResiduals;
+      maxResidualSeconds = Math.max(maxResidualSeconds, that.maxResidualSeconds);
+      unconverged += that.unconverged;
+      timeOrderWarnings += that.timeOrderWarnings;
+      sitesUnconverged += that.sitesUnconverged;
+      sitesOutOfOrder += that.sitesOutOfOrder;
+      for (Case c : that.worst) {
+        keep(c);
+      }
+    }
+    List<Case> worstFirst() {
+      List<Case> result = new ArrayList<>(worst);
+      result.sort(WORST_FIRST);
+      return result;
+    }
+    private final int numWorst;
+    private final PriorityQueue<Case> worst;
+    private long solves;
+    private long visible;
+    private long worksheets;
+    /** Index: the most iterations taken by any one solve, at a site. */
+    private final long[] iterations = new long[SolverDiagnostics.MAX_ITERATIONS + 1];
+    private long nanResiduals;
+    private double maxResidualSeconds;
+    private long unconverged;
+    private long timeOrderWarnings;
+    private long sitesUnconverged;
+    private long sitesOutOfOrder;
+    private void keep(Case c) {
+      if (numWorst > 0) {
+        worst.add(c);
+        if (worst.size() > numWorst) {
+          worst.poll();
+        }
+      }
+    }
+  }
+
+  /** One task. The latitudes include both poles; the longitudes don't repeat 180 degrees. */
+  private static Summary solveAllSites(LocalDate date, double step, int numWorst) {
+    SolverDiagnostics solver = new SolverDiagnostics(date);
+    EclipseType globalType = solver.eclipseType();
+    Summary result = new Summary(numWorst);
+    for (int lat = 0; -90.0 + lat * step <= 90.0; ++lat) {
+      double latitude = -90.0 + lat * step;
+      for (int lon = 0; -180.0 + lon * step < 180.0; ++lon) {
+        double longitude = -180.0 + lon * step;
+        result.add(new Case(date, globalType, latitude, longitude, solver.solve(latitude, longitude)));
+      }
+    }
+    return result;
+  }
+
+  private static void logSummary(Summary all, double seconds) {
+    log("Solves: " + all.solves + " eclipse-site pairs, of which the eclipse is seen at " + all.visible + ".");
+    log(String.format(Locale.ROOT, "Worksheets: %.2f per site, on average.", all.worksheets / (double)Math.max(1, all.solves)));
+    log("Most iterations of any one solve, at each site (iterations: sites):");
+    for (int idx = 0; idx < all.iterations.length; ++idx) {
+      if (all.iterations[idx] > 0) {
+        String limit = idx == SolverDiagnostics.MAX_ITERATIONS ? " (the limit)" : "";
+        log(String.format(Locale.ROOT, "  %2d: %d%s", idx, all.iterations[idx], limit));
+      }
+    }
+    log(String.format(Locale.ROOT, "Largest residual: %.6f s. Residuals that aren't a number: %d.", all.maxResidualSeconds, all.nanResiduals));
+    log("Solves that didn't converge: " + all.unconverged + ", at " + all.sitesUnconverged + " eclipse-site pairs.");
+    log("Contacts in an unexpected time order: " + all.timeOrderWarnings + ", at " + all.sitesOutOfOrder + " eclipse-site pairs.");
+    log(String.format(Locale.ROOT, "Time: %.2f s, %.0f solves/s.", seconds, all.solves / seconds));
+  }
+
+  private static void save(List<Case> cases, Path outputFile) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(outputFile, DataFileReader.ENCODING)) {
+      out.write(HEADER);
+      out.write('\n');
+      for (Case c : cases) {
+        SolverDiagnostics.Result r = c.result;
+        out.write(String.format(Locale.ROOT, "%s,%s,%s,%s,%s,%d,%d,%.6f,%d,%d\n",
+          c.date, c.globalType, c.latitude, c.longitude, r.localEclipseType(), r.worksheets(), r.maxIterations(),
+          r.maxResidualSeconds(), r.unconverged(), r.timeOrderWarnings()
+        ));
+      }
+    }
+  }
+}
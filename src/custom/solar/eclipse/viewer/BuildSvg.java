@@ -0,0 +1,58 @@
+package custom.solar.eclipse.viewer;
+
+import static custom.solar.eclipse.viewer.config.Constants.OUTPUT_SVG_FILE_1;
+import static custom.solar.eclipse.viewer.config.Constants.OUTPUT_SVG_FILE_2;
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.itextpdf.text.DocumentException;
+
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.graphics.SvgGraphics2D;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+
+/** 
+ Build the viewer as two SVG files, one for each page, as a standalone program from the command line.
+ For web pages, and for laser cutters. 
+*/
+public final class BuildSvg {
+  
+  /** 
+   The files are saved to the output directory (see config.ini).
+   
+   <P>By default, text is output as text. 
+   For tools that only understand paths, text can be output as outlines instead, with the command line setting:
+   
+   {@code -DviewerSvgText=OUTLINES}
+  */
+  public static void main(String... args) throws DocumentException, IOException {
+    log("Building a custom solar eclipse viewer as SVG, using data from a config file.");
+    
+    Config config = new ConfigFromFile().init();
+    log("  " + config.toString());
+    
+    String property = System.getProperty("viewerSvgText");
+    SvgGraphics2D.Text text = property == null ? SvgGraphics2D.Text.ELEMENTS : SvgGraphics2D.Text.valueOf(property.trim().toUpperCase());
+    GenerateViewer viewer = new GenerateViewer(config);
+    output(viewer, 1, OUTPUT_SVG_FILE_1, text, config);
+    output(viewer, 2, OUTPUT_SVG_FILE_2, text, config);
+    Metrics.saveIfRequested();
+    log("Done.");
+  }
+
+  //PRIVATE 
+  
+  private static void output(GenerateViewer viewer, int pageNum, String name, SvgGraphics2D.Text text, Config config) throws DocumentException, IOException {
+    String fileName = config.outputDir() + File.separator + name;
+    try (OutputStream output = new FileOutputStream(fileName)){
+      viewer.outputSvgTo(pageNum, output, text);
+    }
+    log("File saved to " + fileName);
+  }
+}
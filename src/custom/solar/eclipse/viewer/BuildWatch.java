@@ -0,0 +1,159 @@
+package custom.solar.eclipse.viewer;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.itextpdf.text.DocumentException;
+
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+
+/**
+ Build the PDF file for the viewer, and build it again each time the config file is saved, as a standalone program from the command line.
+ Stop it with Ctrl+C.
+
+ <P>For designing a layout: edit the config file, save it, and look at the result a moment later.
+ Running {@link Build} each time starts a new JVM, which reads the catalog of eclipses, registers the fonts,
+ and runs the code cold, before the JIT compiler has done its work.
+ Here, all of that stays warm between builds, so each build after the first is much faster.
+
+ <P>Only what has changed is computed again:
+ <ul>
+  <li>if only the layout has changed (the size of the viewer, the text, the QR codes), the local circumstances of the eclipse are reused
+  (see {@link Config#astronomyDigest()});
+  <li>if only the astronomy has changed (for example ΔT), the geometry of the rulers and other static artwork is reused;
+  <li>if nothing has changed (the file was saved without any edits), nothing is done.
+ </ul>
+
+ <P>Editors often save a file in a few steps (write a temporary file, rename, change the time stamp).
+ The changes are debounced: the build waits until the file has been quiet for a short time.
+ A config file with errors is reported, and the watching goes on.
+*/
+public final class BuildWatch {
+
+  /**
+   The argument is the full name of the config file.
+   If there's no argument, the file named by the setting {@code -DviewerConfigFile} is used.
+  */
+  public static void main(String... args) throws IOException, InterruptedException {
+    String fileName = args.length > 0 ? args[0] : System.getProperty("viewerConfigFile");
+    if (fileName == null) {
+      log("ERROR. Please pass the full name of the config file on the command line.");
+      return;
+    }
+    Path file = Paths.get(fileName).toAbsolutePath();
+    log("Watching " + file + " for changes. Stop with Ctrl+C.");
+
+    BuildWatch watch = new BuildWatch(file);
+    watch.rebuild();
+    try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+      //the directory is watched, not the file, since editors often replace the file instead of changing it
+      file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+      while (true) {
+        if (watch.changed(watcher.take())) {
+          watch.debounce(watcher);
+          watch.rebuild();
+        }
+      }
+    }
+    catch (ClosedWatchServiceException ex) {
+      log("Done.");
+    }
+  }
+
+  // PRIVATE
+
+  private final Path file;
+  private final OutputProfile profile = OutputProfile.fromSystemProperty();
+  /** Null until the first build that succeeds. */
+  private Config previous;
+  private int builds;
+
+  /** How long the file must be quiet before it's read. */
+  private static final long DEBOUNCE_MILLIS = 250;
+
+  private BuildWatch(Path file) {
+    this.file = file;
+  }
+
+  /** Returns true if the event is about the config file. Always resets the key, so that more events are received. */
+  private boolean changed(WatchKey key) {
+    boolean result = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+        result = true;
+      }
+    }
+    key.reset();
+    return result;
+  }
+
+  /** Wait until there are no events about the config file for a short time. */
+  private void debounce(WatchService watcher) throws InterruptedException {
+    WatchKey key = null;
+    while ((key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+      changed(key);
+    }
+  }
+
+  private void rebuild() {
+    long start = System.nanoTime();
+    Config config = null;
+    try {
+      config = new ConfigFromFile().init(file.toString());
+    }
+    catch (RuntimeException ex) {
+      warn("The config file has an error. Fix it, and save it again. " + ex.getMessage());
+      return;
+    }
+    if (config.equals(previous)) {
+      log("The config file was saved, but no setting has changed. Nothing to do.");
+      return;
+    }
+    log("Changed: " + whatChanged(config));
+    try {
+      long bytes = Build.write(config, profile);
+      ++builds;
+      previous = config;
+      log("Build " + builds + ": wrote " + bytes + " bytes to " + Build.fileName(config) + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+    catch (IllegalArgumentException ex) {
+      warn("Nothing built. " + ex.getMessage());
+    }
+    catch (DocumentException | IOException ex) {
+      warn("Nothing built. " + ex);
+    }
+    catch (RuntimeException ex) {
+      //a bug shouldn't stop the watch; the next save tries again
+      warn("Nothing built. " + ex);
+    }
+  }
+
+  private String whatChanged(Config config) {
+    if (previous == null) return "everything (the first build)";
+    List<String> result = new ArrayList<>();
+    if (!config.astronomyDigest().equals(previous.astronomyDigest())) {
+      result.add("the astronomy");
+    }
+    if (!config.layoutDigest().equals(previous.layoutDigest())) {
+      result.add("the layout");
+    }
+    if (!config.outputDir().equals(previous.outputDir())) {
+      result.add("the output directory");
+    }
+    return String.join(", ", result);
+  }
+}
@@ -0,0 +1,65 @@
+package custom.solar.eclipse.viewer;
+
+import static custom.solar.eclipse.viewer.config.Constants.OUTPUT_ZIP_FILE;
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.ZipOutputStream;
+
+import com.itextpdf.text.DocumentException;
+
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.output.ZipEntryTarget;
+
+/** 
+ Build a single ZIP archive containing many viewers, one PDF file for each, as a standalone program from the command line.
+ The archive is streamed as it's built, without any temporary files.
+*/
+public final class BuildZip {
+  
+  /**
+   Each argument is the full name of a config file, one for each viewer. 
+   The archive is saved to the output directory of the first config file.
+   Each PDF file in the archive is named after its config file.
+  */
+  public static void main(String... configFiles) throws DocumentException, IOException {
+    log("Building an archive of custom solar eclipse viewers, using data from " + configFiles.length + " config files.");
+    if (configFiles.length == 0) {
+      log("ERROR. Please pass the names of the config files on the command line.");
+      return;
+    }
+    
+    Config first = new ConfigFromFile().init(configFiles[0]);
+    String fileName = first.outputDir() + File.separator + OUTPUT_ZIP_FILE;
+    OutputProfile profile = OutputProfile.fromSystemProperty();
+    try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))){
+      zip.setLevel(Deflater.BEST_SPEED); //the PDF content is already compressed
+      for (String configFile : configFiles) {
+        GenerateViewer viewer = new GenerateViewer(new ConfigFromFile().init(configFile));
+        ZipEntryTarget target = new ZipEntryTarget(zip, entryNameFor(configFile));
+        viewer.outputTo(target.open(), GraphicsBackend.fromSystemProperty(), PageComposition.fromSystemProperty(), profile);
+        log(entryNameFor(configFile) + ": " + target);
+      }
+    }
+    
+    log("File saved to " + fileName);
+    Metrics.saveIfRequested();
+    log("Done.");
+  }
+
+  //PRIVATE 
+  
+  /** For example, 'config-total.ini' is 'config-total.pdf'. */
+  private static String entryNameFor(String configFile) {
+    String name = new File(configFile).getName();
+    int dot = name.lastIndexOf('.');
+    return (dot > 0 ? name.substring(0, dot) : name) + ".pdf";
+  }
+}
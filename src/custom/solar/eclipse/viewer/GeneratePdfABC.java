@@ -4,7 +4,7 @@ import static custom.solar.eclipse.viewer.config.Constants.AUTHOR;
 import static custom.solar.eclipse.viewer.config.Constants.MARGIN_BOTTOM;
 import static custom.solar.eclipse.viewer.config.Constants.MARGIN_LEFT;
 import static custom.solar.eclipse.viewer.config.Constants.MARGIN_RIGHT;
-import static custom.solar.eclipse.viewer.config.Constants.PDF_VERSION;
+import static custom.solar.eclipse.viewer.util.LogUtil.debug;
 import static custom.solar.eclipse.viewer.util.LogUtil.log;
 
 import java.awt.BasicStroke;
@@ -14,10 +14,18 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
 
-import com.itextpdf.awt.PdfGraphics2D;
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.FontFactory;
@@ -28,7 +36,16 @@ import com.itextpdf.text.pdf.PdfWriter;
 
 import custom.solar.eclipse.viewer.config.Config;
 import custom.solar.eclipse.viewer.config.Constants;
+import custom.solar.eclipse.viewer.graphics.DisplayList;
+import custom.solar.eclipse.viewer.graphics.PdfDirectGraphics2D;
+import custom.solar.eclipse.viewer.graphics.PdfFonts;
+import custom.solar.eclipse.viewer.graphics.RecordingGraphics2D;
+import custom.solar.eclipse.viewer.graphics.StrokeSafePdfGraphics2D;
+import custom.solar.eclipse.viewer.graphics.SvgGraphics2D;
 import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.metrics.DocumentCloseEvent;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
 
 /** 
  Abstract base class for generating a two-page PDF.
@@ -37,6 +54,14 @@ import custom.solar.eclipse.viewer.math.Maths;
  <P>This project creates PDF content using two distinct techniques.
  One is by drawing to the graphics context.
  The other (used for the timeline table) uses a higher level API that adds Paragraph objects to a Document object.
+ 
+ <P>Usually, a single viewer is output as a two-page PDF, with {@link #outputTo(OutputStream)}.
+ For print shops, many viewers can be output as a single large PDF, with {@link #outputAllTo(OutputStream, Iterator)}, 
+ or placed several to a sheet, with {@link #outputImposedTo(OutputStream, Iterator, Imposition, GraphicsBackend)}.
+ 
+ <P>The graphics context can be implemented in different ways; see {@link GraphicsBackend}.
+ The pages of a single viewer can be drawn one after the other, or at the same time; see {@link PageComposition}.
+ The kind of PDF file, for a print shop or for downloading, is set by an {@link OutputProfile}.
 */
 public abstract class GeneratePdfABC {
 
@@ -49,29 +74,263 @@ public abstract class GeneratePdfABC {
    When printing, print as two-sided, to output the viewer on a single page of heavy card stock paper.
    
    <P>This method calls two template methods to create the page content. 
+   Uses the default {@link GraphicsBackend}.
   */
   public void outputTo(OutputStream outputStream) throws DocumentException, MalformedURLException, IOException {
-    openTheDocument(outputStream, config.fontDir());
+    outputTo(outputStream, GraphicsBackend.PDF_GRAPHICS_2D);
+  }
+  
+  /** As in {@link #outputTo(OutputStream)}, but using the given graphics backend. */
+  public void outputTo(OutputStream outputStream, GraphicsBackend backend) throws DocumentException, MalformedURLException, IOException {
+    outputTo(outputStream, backend, PageComposition.SERIAL);
+  }
+  
+  /** 
+   As in {@link #outputTo(OutputStream)}, but using the given graphics backend and page composition. 
+   
+   <P>With {@link PageComposition#PARALLEL}, the content of both pages is drawn into display lists on separate threads, 
+   while this thread opens the document. 
+   The PDF writer isn't thread-safe, so assembling the document is still done on this thread alone: 
+   each display list is painted on the page's graphics context, and then the page's flow content is added. 
+   The template methods that draw the pages must not use the document.
+  */
+  public void outputTo(OutputStream outputStream, GraphicsBackend backend, PageComposition composition) throws DocumentException, MalformedURLException, IOException {
+    outputTo(outputStream, backend, composition, OutputProfile.PRINT_SHOP);
+  }
+  
+  /** As in {@link #outputTo(OutputStream, GraphicsBackend, PageComposition)}, but producing the given kind of PDF file. */
+  public void outputTo(OutputStream outputStream, GraphicsBackend backend, PageComposition composition, OutputProfile profile) throws DocumentException, MalformedURLException, IOException {
+    this.backend = backend;
+    this.profile = profile;
+    if (PageComposition.PARALLEL == composition) {
+      outputComposedTo(outputStream);
+      return;
+    }
+    openTheDocument(outputStream, config.fontDir(), pageSize());
     addMetadataToTheDocument();
 
     initGraphicsContext();
+    pageOneStatic(g);
     pageOne(g);
+    pageOneFlow();
     disposeGraphicsContext();
 
     startNewPage();
     
     initGraphicsContext();
+    pageTwoStatic(g);
     pageTwo(g);
+    pageTwoFlow();
     disposeGraphicsContext();
     
     closeTheDocument();
   }
   
+  /**
+   Build a single PDF file/stream containing many viewers, two pages for each viewer, one viewer after the other.
+   Intended for print shops, which prefer one large file to hundreds of small ones.
+   
+   <P>The first viewer controls the font directory and the metadata of the whole document.
+   Fonts are registered once, and each font is embedded only once.
+   The artwork that doesn't depend on the site (see {@link #pageOneStatic(Graphics2D)}) is drawn only once 
+   for each distinct {@link #staticArtworkKey()}, and is shared by all pages as a form XObject.
+   
+   <P>Each page is flushed to the output stream as soon as it's complete, so memory use stays flat 
+   regardless of the number of viewers. 
+   The iterator is asked for the next viewer only when it's needed, so the caller can build each viewer lazily.
+   
+   <P>Uses the default {@link GraphicsBackend}.
+   
+   @param viewers must have at least one element.
+  */
+  public static void outputAllTo(OutputStream outputStream, Iterator<? extends GeneratePdfABC> viewers) throws DocumentException, MalformedURLException, IOException {
+    outputAllTo(outputStream, viewers, GraphicsBackend.PDF_GRAPHICS_2D);
+  }
+  
+  /** As in {@link #outputAllTo(OutputStream, Iterator)}, but using the given graphics backend. */
+  public static void outputAllTo(OutputStream outputStream, Iterator<? extends GeneratePdfABC> viewers, GraphicsBackend backend) throws DocumentException, MalformedURLException, IOException {
+    outputAllTo(outputStream, viewers, backend, OutputProfile.PRINT_SHOP);
+  }
+  
+  /** As in {@link #outputAllTo(OutputStream, Iterator, GraphicsBackend)}, but producing the given kind of PDF file. */
+  public static void outputAllTo(OutputStream outputStream, Iterator<? extends GeneratePdfABC> viewers, GraphicsBackend backend, OutputProfile profile) throws DocumentException, MalformedURLException, IOException {
+    GeneratePdfABC first = viewers.next();
+    first.backend = backend;
+    first.profile = profile;
+    first.openTheDocument(outputStream, first.config.fontDir(), first.pageSize());
+    first.addBookletMetadataToTheDocument();
+    
+    Map<String, PdfTemplate> sharedArtwork = new HashMap<>();
+    int count = 0;
+    GeneratePdfABC viewer = first;
+    while (viewer != null) {
+      if (count > 0) {
+        viewer.shareTheDocumentOf(first);
+        viewer.startNewPage();
+      }
+      viewer.bookletPages(sharedArtwork);
+      ++count;
+      viewer = viewers.hasNext() ? viewers.next() : null;
+    }
+    log("Number of viewers in the booklet: " + count);
+    first.closeTheDocument();
+  }
+  
+  /**
+   Build a single PDF file/stream in which several viewer cards are placed on each sheet, with crop marks (N-up imposition).
+   Intended for print shops. See {@link Imposition}.
+   
+   <P>Each sheet of fronts is followed by a sheet of backs. 
+   The viewers on a sheet can be for different sites, but all of them must have the same size of card.
+   Each side of each card is drawn as a form XObject whose bounding box is the card itself, and the forms are placed on the sheets.
+   As in a booklet, the static artwork is shared, and each font is embedded only once.
+   
+   <P>Since the forms are placed on sheets, the timeline table is drawn with the graphics context (see {@link #hasDocument()}).
+   Each sheet is flushed to the output stream as soon as it's complete, so memory use stays flat regardless of the number of cards.
+   The iterator is asked for the next viewer only when it's needed.
+   
+   @param viewers must have at least one element.
+   @throws IllegalArgumentException if a card doesn't fit on the sheet, or if the cards aren't all the same size.
+  */
+  public static void outputImposedTo(OutputStream outputStream, Iterator<? extends GeneratePdfABC> viewers, Imposition imposition, GraphicsBackend backend) throws DocumentException, MalformedURLException, IOException {
+    outputImposedTo(outputStream, viewers, imposition, backend, OutputProfile.PRINT_SHOP);
+  }
+  
+  /** As in {@link #outputImposedTo(OutputStream, Iterator, Imposition, GraphicsBackend)}, but producing the given kind of PDF file. */
+  public static void outputImposedTo(OutputStream outputStream, Iterator<? extends GeneratePdfABC> viewers, Imposition imposition, GraphicsBackend backend, OutputProfile profile) throws DocumentException, MalformedURLException, IOException {
+    GeneratePdfABC first = viewers.next();
+    Imposition.Layout layout = imposition.layoutFor(first.config.viewerWidth(), first.config.viewerHeight());
+    log("Imposing " + layout.cardsPerSheet() + " cards on each sheet: " + layout.columns() + " columns and " + layout.rows() + " rows.");
+    first.backend = backend;
+    first.profile = profile;
+    first.openTheDocument(outputStream, first.config.fontDir(), new Rectangle(layout.sheetWidth(), layout.sheetHeight()));
+    first.addImposedMetadataToTheDocument(layout.cardsPerSheet());
+    
+    Map<String, PdfTemplate> sharedArtwork = new HashMap<>();
+    List<PdfTemplate> fronts = new ArrayList<>();
+    List<PdfTemplate> backs = new ArrayList<>();
+    int count = 0;
+    int numSheets = 0;
+    GeneratePdfABC viewer = first;
+    while (viewer != null) {
+      if (count > 0) {
+        viewer.shareTheDocumentOf(first);
+        viewer.checkSameCardSizeAs(first);
+      }
+      fronts.add(viewer.card(1, sharedArtwork));
+      backs.add(viewer.card(2, sharedArtwork));
+      ++count;
+      viewer = viewers.hasNext() ? viewers.next() : null;
+      if (fronts.size() == layout.cardsPerSheet() || viewer == null) {
+        first.imposeSheet(layout, fronts, backs, numSheets > 0);
+        fronts.clear();
+        backs.clear();
+        ++numSheets;
+      }
+    }
+    log("Number of viewers imposed: " + count + ", on " + numSheets + " sheets.");
+    first.closeTheDocument();
+  }
+  
+  /**
+   Draw a single page with the given graphics context alone, without creating a PDF document.
+   Used for preview images (see {@link PagePreview}), and for SVG.
+   
+   <P>While this method runs, {@link #hasDocument()} returns false, and the template methods must draw 
+   everything with the graphics context.
+   
+   @param pageNum 1 or 2.
+  */
+  void drawPage(int pageNum, Graphics2D g) throws DocumentException, MalformedURLException, IOException {
+    graphicsOnly = true;
+    try {
+      setUpGraphicsContext(g);
+      if (pageNum == 1) {
+        pageOneStatic(g);
+        pageOne(g);
+      }
+      else {
+        pageTwoStatic(g);
+        pageTwo(g);
+      }
+    }
+    finally {
+      graphicsOnly = false;
+    }
+  }
+  
+  /**
+   Output a single page as SVG, instead of PDF. 
+   The page is drawn by the same template methods as the PDF. 
+   The stream is flushed, but not closed.
+   
+   @param pageNum 1 or 2.
+  */
+  public void outputSvgTo(int pageNum, OutputStream outputStream, SvgGraphics2D.Text text) throws DocumentException, MalformedURLException, IOException {
+    SvgGraphics2D svg = new SvgGraphics2D(outputStream, config.width(), config.height(), text);
+    drawPage(pageNum, svg);
+    svg.dispose();
+  }
+  
+  /**
+   Register all of the fonts in the given directory, if not already done.
+   Generating the first viewer does this anyway; calling it ahead of time takes the cost out of that first viewer.
+  */
+  public static void registerFonts(String fontDir) {
+    registerAllFontsIn(fontDir, false);
+  }
+  
+  /**
+   A graphics context for drawing on the given template, set up in the same way as for a page of this viewer,
+   using the default {@link GraphicsBackend}.
+   For benchmarks, which draw one part of a page at a time. The fonts must already be registered.
+  */
+  public final Graphics2D isolatedGraphicsContextFor(PdfTemplate template) {
+    Graphics2D result = new StrokeSafePdfGraphics2D(template, template.getWidth(), template.getHeight(), new MyFontMapper());
+    setUpGraphicsContext(result);
+    return result;
+  }
+  
   /** Create the first page of the PDF. Template method. */
   protected abstract void pageOne(Graphics2D g) throws DocumentException, MalformedURLException, IOException;
   
   /** Create the second page of the PDF. Template method. */
   protected abstract void pageTwo(Graphics2D g) throws DocumentException, MalformedURLException, IOException;
+  
+  /** 
+   Artwork for the first page which doesn't depend on the site, only on the layout. Template method.
+   Drawn underneath the content created by {@link #pageOne(Graphics2D)}.
+  */
+  protected abstract void pageOneStatic(Graphics2D g);
+  
+  /** Artwork for the second page which doesn't depend on the site, only on the layout. Template method. */
+  protected abstract void pageTwoStatic(Graphics2D g);
+  
+  /**
+   Content for the first page that is added to the document itself, instead of being drawn with the graphics context. 
+   Called after {@link #pageOne(Graphics2D)}, and only when there is a document (see {@link #hasDocument()}). 
+   Always called on the thread that assembles the document. 
+   Template method. By default, does nothing.
+  */
+  protected void pageOneFlow() throws DocumentException {
+    //nothing
+  }
+  
+  /** As in {@link #pageOneFlow()}, but for the second page. */
+  protected void pageTwoFlow() throws DocumentException {
+    //nothing
+  }
+  
+  /** 
+   Identifies the layout used by the static artwork.
+   In a booklet, viewers having the same key share the same static artwork. 
+  */
+  protected abstract String staticArtworkKey();
+  
+  /** False when a page is drawn with the graphics context alone, without a PDF document. See {@link #drawPage(int, Graphics2D)}. */
+  protected final boolean hasDocument() {
+    return !graphicsOnly;
+  }
 
   // PRIVATE
 
@@ -82,6 +341,16 @@ public abstract class GeneratePdfABC {
   private PdfContentByte contentByte;
   private PdfTemplate template;
   private Graphics2D g;
+  private GraphicsBackend backend = GraphicsBackend.PDF_GRAPHICS_2D;
+  private OutputProfile profile = OutputProfile.PRINT_SHOP;
+  /** Only used by the direct backend. */
+  private PdfFonts pdfFonts;
+  private boolean graphicsOnly;
+  /** The output stream of the document, counting the bytes written. */
+  private CountingOutputStream counted;
+  private static final LongAdder DOCUMENTS = Metrics.counter("documents");
+  private static final LongAdder BYTES_WRITTEN = Metrics.counter("bytes_written");
+  private static final Set<String> REGISTERED_FONT_DIRS = new HashSet<>();
   
   /**
    Read in settings.
@@ -89,31 +358,41 @@ public abstract class GeneratePdfABC {
    Fonts need to be in the system's hard drive somewhere.
    The font is not attached to the Document as a whole; it's attached to lower level items. 
   */
-  private void openTheDocument(OutputStream outputStream, String fontDir) throws FileNotFoundException, DocumentException {
+  private void openTheDocument(OutputStream outputStream, String fontDir, Rectangle pageSize) throws FileNotFoundException, DocumentException {
     log("Open the doc. Initial setup of pdf Document. Setting page size, margins. Reading in fonts.");
     
     embedFonts();
     registerAllFontsIn(fontDir, false);
     
     document = new Document();
-    Rectangle rect = new Rectangle(config.width(), config.height());
-    document.setPageSize(rect);
+    document.setPageSize(pageSize);
     document.setMargins(MARGIN_LEFT, MARGIN_RIGHT, MARGIN_BOTTOM, MARGIN_BOTTOM);
 
     //should this be passed an encoding, I wonder?
-    writer = PdfWriter.getInstance(document, outputStream);
-    writer.setPdfVersion(PDF_VERSION); 
+    counted = new CountingOutputStream(outputStream);
+    writer = PdfWriter.getInstance(document, counted);
+    profile.configure(writer);
     writer.setViewerPreferences(PdfWriter.PageLayoutSinglePage);
     document.open(); //need to call this early!
+    
+    pdfFonts = new PdfFonts(new MyFontMapper());
   }
   
   private void embedFonts() {
     FontFactory.defaultEmbedding = true;
   }
   
-  private void registerAllFontsIn(String fontDir, boolean log) {
-    log("Registering all fonts in " + fontDir);
-    FontFactory.registerDirectory(fontDir);
+  /** 
+   The registry of fonts is global, and shared by all documents. 
+   Scanning a directory of fonts is slow, so each directory is scanned only once.
+  */
+  private static void registerAllFontsIn(String fontDir, boolean log) {
+    synchronized (REGISTERED_FONT_DIRS) {
+      if (REGISTERED_FONT_DIRS.add(fontDir)) {
+        log("Registering all fonts in " + fontDir);
+        FontFactory.registerDirectory(fontDir);
+      }
+    }
     if (log) {
       Set<String> fonts = new TreeSet<String>(FontFactory.getRegisteredFonts());
       for (String fontname : fonts) {
@@ -134,16 +413,219 @@ public abstract class GeneratePdfABC {
     );
   }
 
+  private void addBookletMetadataToTheDocument() {
+    log("Adding booklet metadata to the PDF.");
+    document.addAuthor(AUTHOR); 
+    document.addTitle("Eclipse Viewers");
+    document.addSubject("Custom solar eclipse viewers, two pages for each viewer.");
+  }
+  
+  private void addImposedMetadataToTheDocument(int cardsPerSheet) {
+    log("Adding imposition metadata to the PDF.");
+    document.addAuthor(AUTHOR); 
+    document.addTitle("Eclipse Viewers");
+    document.addSubject("Custom solar eclipse viewers, " + cardsPerSheet + " to a sheet, each sheet followed by its backs.");
+  }
+  
+  /** In a booklet, all viewers write to the same document. */
+  private void shareTheDocumentOf(GeneratePdfABC first) {
+    this.document = first.document;
+    this.writer = first.writer;
+    this.backend = first.backend;
+    this.pdfFonts = first.pdfFonts;
+  }
+  
+  /** 
+   The two pages of a viewer in a booklet.
+   Static artwork goes in a form XObject shared with other pages. 
+   Each page's own template is written out right away, instead of being held in memory until the document is closed. 
+  */
+  private void bookletPages(Map<String, PdfTemplate> sharedArtwork) throws DocumentException, MalformedURLException, IOException {
+    addSharedArtwork(1, sharedArtwork);
+    initGraphicsContext();
+    pageOne(g);
+    pageOneFlow();
+    disposeGraphicsContext();
+    writer.releaseTemplate(template);
+    
+    startNewPage();
+    
+    addSharedArtwork(2, sharedArtwork);
+    initGraphicsContext();
+    pageTwo(g);
+    pageTwoFlow();
+    disposeGraphicsContext();
+    writer.releaseTemplate(template);
+  }
+  
+  /** Draw the static artwork only the first time it's needed. After that, it's simply referenced. */
+  private void addSharedArtwork(int pageNum, Map<String, PdfTemplate> sharedArtwork) throws IOException {
+    addSharedArtwork(pageNum, sharedArtwork, writer.getDirectContent());
+  }
+  
+  /** As above, but adding the artwork to the given content. */
+  private void addSharedArtwork(int pageNum, Map<String, PdfTemplate> sharedArtwork, PdfContentByte target) throws IOException {
+    String key = pageNum + ":" + staticArtworkKey();
+    PdfTemplate artwork = sharedArtwork.get(key);
+    if (artwork == null) {
+      log("Drawing static artwork for page " + pageNum + " of a new layout.");
+      artwork = writer.getDirectContent().createTemplate(config.width(), config.height());
+      Graphics2D artworkGraphics = graphicsContextFor(artwork);
+      if (pageNum == 1) {
+        pageOneStatic(artworkGraphics);
+      }
+      else {
+        pageTwoStatic(artworkGraphics);
+      }
+      artworkGraphics.dispose();
+      sharedArtwork.put(key, artwork);
+    }
+    target.addTemplate(artwork, 0, 0);
+    writer.releaseTemplate(artwork); //only the first call does anything
+  }
+  
+  /** 
+   One side of the viewer card, as a form XObject whose bounding box is the card itself.
+   Everything is drawn with the graphics context, since the form isn't part of the flow of the document.
+  */
+  private PdfTemplate card(int pageNum, Map<String, PdfTemplate> sharedArtwork) throws DocumentException, MalformedURLException, IOException {
+    PdfTemplate result = writer.getDirectContent().createTemplate(config.width(), config.height());
+    float bottom = config.height() - config.viewerTopMargin() - config.viewerHeight();
+    float left = (config.width() - config.viewerWidth()) / 2;
+    result.setBoundingBox(new Rectangle(left, bottom, left + config.viewerWidth(), bottom + config.viewerHeight()));
+    addSharedArtwork(pageNum, sharedArtwork, result);
+    Graphics2D cardGraphics = graphicsContextFor(result);
+    graphicsOnly = true;
+    try {
+      if (pageNum == 1) {
+        pageOne(cardGraphics);
+      }
+      else {
+        pageTwo(cardGraphics);
+      }
+    }
+    finally {
+      graphicsOnly = false;
+    }
+    cardGraphics.dispose();
+    return result;
+  }
+  
+  /**
+   The drawing of both pages is started on other threads, and overlaps the opening of the document.
+   Each page is then assembled as soon as its display list is ready, in page order.
+  */
+  private void outputComposedTo(OutputStream outputStream) throws DocumentException, MalformedURLException, IOException {
+    CompletableFuture<DisplayList> firstPage = CompletableFuture.supplyAsync(() -> recordPage(1));
+    CompletableFuture<DisplayList> secondPage = CompletableFuture.supplyAsync(() -> recordPage(2));
+    openTheDocument(outputStream, config.fontDir(), pageSize());
+    addMetadataToTheDocument();
+    
+    initGraphicsContext();
+    recorded(firstPage).paintOn(g);
+    pageOneFlow();
+    disposeGraphicsContext();
+    
+    startNewPage();
+    
+    initGraphicsContext();
+    recorded(secondPage).paintOn(g);
+    pageTwoFlow();
+    disposeGraphicsContext();
+    
+    closeTheDocument();
+  }
+  
+  /** Called on a worker thread. Uses nothing but the config and the drawing code, so pages can be drawn at the same time. */
+  private DisplayList recordPage(int pageNum) {
+    RecordingGraphics2D recorder = new RecordingGraphics2D(config.width(), config.height());
+    setUpGraphicsContext(recorder);
+    try {
+      if (pageNum == 1) {
+        pageOneStatic(recorder);
+        pageOne(recorder);
+      }
+      else {
+        pageTwoStatic(recorder);
+        pageTwo(recorder);
+      }
+    }
+    catch (DocumentException | IOException ex) {
+      throw new CompletionException(ex);
+    }
+    recorder.dispose();
+    return recorder.displayList();
+  }
+  
+  /** Waits for the page to be drawn, and rethrows any problem as it was originally thrown. */
+  private static DisplayList recorded(CompletableFuture<DisplayList> page) throws DocumentException, IOException {
+    try {
+      return page.join();
+    }
+    catch (CompletionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof DocumentException) throw (DocumentException)cause;
+      if (cause instanceof IOException) throw (IOException)cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw ex;
+    }
+  }
+  
+  private void checkSameCardSizeAs(GeneratePdfABC first) {
+    boolean same = config.viewerWidth().equals(first.config.viewerWidth()) && config.viewerHeight().equals(first.config.viewerHeight());
+    if (!same) {
+      throw new IllegalArgumentException(
+        "All imposed cards must be the same size. Expected " + first.config.viewerWidth() + "x" + first.config.viewerHeight() + 
+        " points, but " + config.location() + " is " + config.viewerWidth() + "x" + config.viewerHeight() + "."
+      );
+    }
+  }
+  
+  /** A sheet of fronts, then a sheet of backs. Each form is written out as soon as it's placed. */
+  private void imposeSheet(Imposition.Layout layout, List<PdfTemplate> fronts, List<PdfTemplate> backs, boolean newPage) throws IOException {
+    if (newPage) {
+      document.newPage();
+    }
+    imposeSide(layout, fronts, false);
+    document.newPage();
+    imposeSide(layout, backs, true);
+  }
+  
+  private void imposeSide(Imposition.Layout layout, List<PdfTemplate> cards, boolean back) throws IOException {
+    PdfContentByte cb = writer.getDirectContent();
+    for (int idx = 0; idx < cards.size(); ++idx) {
+      layout.place(cb, cards.get(idx), idx, back);
+      writer.releaseTemplate(cards.get(idx));
+    }
+    layout.drawCropMarks(cb);
+  }
+
   private void initGraphicsContext() {
-    log("Fresh contentByte, template, and graphics context.");
+    debug("Fresh contentByte, template, and graphics context.");
     contentByte = writer.getDirectContent();
     template = contentByte.createTemplate(config.width(), config.height());
-    g = new PdfGraphics2D(template, config.width(), config.height(), new MyFontMapper());
-    
+    g = graphicsContextFor(template);
+  }
+  
+  private Graphics2D graphicsContextFor(PdfTemplate template) {
+    Graphics2D g = null;
+    if (GraphicsBackend.DIRECT == backend) {
+      g = new PdfDirectGraphics2D(template, config.height(), pdfFonts);
+    }
+    else {
+      g = new StrokeSafePdfGraphics2D(template, config.width(), config.height(), new MyFontMapper());
+    }
+    setUpGraphicsContext(g);
+    return g;
+  }
+  
+  /** The same starting state for every graphics context. */
+  private void setUpGraphicsContext(Graphics2D g) {
     BasicStroke thinStroke = new BasicStroke(Constants.STROKE_WIDTH_DEFAULT);
     g.setStroke(thinStroke);
     g.setFont(Constants.baseFont());
-    log("Graphics font: " + g.getFont().getFontName());
+    debug(() -> "Graphics font: " + g.getFont().getFontName());
     
     //rendering hints 
     g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
@@ -155,18 +637,30 @@ public abstract class GeneratePdfABC {
   
   /** You need to call this to actually draw the items to the page. */
   private void disposeGraphicsContext() {
-    log("Flushing graphics.");
+    debug("Flushing graphics.");
     g.dispose();
     contentByte.addTemplate(template, 0, 0); // x,y positioning of graphics in PDF page; yes, AFTER the disposal
   }
  
+  private Rectangle pageSize() {
+    return new Rectangle(config.width(), config.height());
+  }
+  
+  /** The page size is set each time, since the viewers in a booklet don't necessarily share the same page size. */
   private void startNewPage() {
-    log("Starting a new page.");
+    debug("Starting a new page.");
+    document.setPageSize(pageSize());
     document.newPage();
   }
   
   private void closeTheDocument() {
     log("Closing the doc.");
+    DocumentCloseEvent event = new DocumentCloseEvent();
+    event.pages = writer.getPageNumber();
     document.close(); 
+    event.bytes = counted.count();
+    event.finish();
+    DOCUMENTS.increment();
+    BYTES_WRITTEN.add(counted.count());
   }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package custom.solar.eclipse.viewer;
+
+/**
+ How the graphics context writes to the PDF.
+ Both produce pages that look the same.
+
+ <P>When running as a standalone program, the default can be changed with the command line setting:
+
+ {@code -DviewerGraphicsBackend=DIRECT}
+*/
+public enum GraphicsBackend {
+
+  /**
+   iText's PdfGraphics2D, which translates each java.awt call into PDF operators.
+   See {@link custom.solar.eclipse.viewer.graphics.StrokeSafePdfGraphics2D}.
+  */
+  PDF_GRAPHICS_2D,
+
+  /**
+   A leaner graphics context which writes directly to the page's content, with each font looked up only once.
+   See {@link custom.solar.eclipse.viewer.graphics.PdfDirectGraphics2D}.
+  */
+  DIRECT;
+
+  /** Returns the value of the System property, if present; otherwise, returns {@link #PDF_GRAPHICS_2D}. */
+  public static GraphicsBackend fromSystemProperty() {
+    String value = System.getProperty("viewerGraphicsBackend");
+    return value == null ? PDF_GRAPHICS_2D : valueOf(value.trim().toUpperCase());
+  }
+}
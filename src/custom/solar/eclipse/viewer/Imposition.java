@@ -0,0 +1,213 @@
+package custom.solar.eclipse.viewer;
+
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfTemplate;
+
+/**
+ How to place many viewer cards on large sheets, for a print shop (N-up imposition).
+ See {@link GeneratePdfABC#outputImposedTo(java.io.OutputStream, java.util.Iterator, Imposition, GraphicsBackend)}.
+
+ <P>The cards are placed in a grid, centered on the sheet.
+ The orientation of the sheet (portrait or landscape) is the one that fits the most cards.
+ By default there's no gutter between the cards, so neighbouring cards share a cut.
+ Crop marks are drawn in the margin around the grid, in line with each edge of each card.
+
+ <P>Each sheet is followed by a sheet of backs.
+ The backs are placed so that each one lands behind its front, when the sheet is printed two-sided.
+
+ <P>When running as a standalone program (see {@link BuildImposed}), the defaults can be changed with the command line settings:
+
+ {@code -DviewerSheet=LEGAL -DviewerDuplex=FLIP_ON_SHORT_EDGE}
+*/
+public final class Imposition {
+
+  /** Common sizes of paper, in points, in portrait orientation. */
+  public static enum Sheet {
+    LETTER(612, 792),
+    LEGAL(612, 1008),
+    TABLOID(792, 1224),
+    A4(595, 842),
+    A3(842, 1191);
+
+    private Sheet(float width, float height) {
+      this.width = width;
+      this.height = height;
+    }
+    private final float width;
+    private final float height;
+  }
+
+  /** How the printer turns the sheet over, when printing the backs. */
+  public static enum Duplex {
+    FLIP_ON_LONG_EDGE,
+    FLIP_ON_SHORT_EDGE;
+  }
+
+  /** The given sheet, with no gutter between the cards, and a margin wide enough for crop marks. */
+  public Imposition(Sheet sheet, Duplex duplex) {
+    this(sheet.width, sheet.height, 0, DEFAULT_MARGIN, duplex);
+  }
+
+  /**
+   @param sheetWidth in points, in either orientation.
+   @param sheetHeight in points.
+   @param gutter the space between neighbouring cards, in points.
+   @param margin the minimum space between the cards and the edge of the sheet, in points. Crop marks are drawn in the margin.
+  */
+  public Imposition(float sheetWidth, float sheetHeight, float gutter, float margin, Duplex duplex) {
+    this.sheetWidth = sheetWidth;
+    this.sheetHeight = sheetHeight;
+    this.gutter = gutter;
+    this.margin = margin;
+    this.duplex = duplex;
+  }
+
+  /** Returns the sheet and duplex settings from the System properties, if present; otherwise, tabloid, flipped on the long edge. */
+  public static Imposition fromSystemProperties() {
+    String sheet = System.getProperty("viewerSheet");
+    String duplex = System.getProperty("viewerDuplex");
+    return new Imposition(
+      sheet == null ? Sheet.TABLOID : Sheet.valueOf(sheet.trim().toUpperCase()),
+      duplex == null ? Duplex.FLIP_ON_LONG_EDGE : Duplex.valueOf(duplex.trim().toUpperCase())
+    );
+  }
+
+  /**
+   Where the cards of the given size go on a sheet.
+   @throws IllegalArgumentException if not even one card fits on the sheet.
+  */
+  Layout layoutFor(float cardWidth, float cardHeight) {
+    Layout portrait = new Layout(Math.min(sheetWidth, sheetHeight), Math.max(sheetWidth, sheetHeight), cardWidth, cardHeight);
+    Layout landscape = new Layout(Math.max(sheetWidth, sheetHeight), Math.min(sheetWidth, sheetHeight), cardWidth, cardHeight);
+    Layout result = landscape.cardsPerSheet() > portrait.cardsPerSheet() ? landscape : portrait;
+    if (result.cardsPerSheet() == 0) {
+      throw new IllegalArgumentException("A card of " + cardWidth + "x" + cardHeight + " points doesn't fit on a sheet of " + sheetWidth + "x" + sheetHeight + " points, with a margin of " + margin + ".");
+    }
+    return result;
+  }
+
+  /**
+   A grid of cards on a sheet of a given orientation.
+   The coordinates are those of a PDF page: points, with the origin at the bottom left.
+   Cards are numbered across each row, starting at the top left.
+  */
+  final class Layout {
+
+    float sheetWidth() { return width; }
+    float sheetHeight() { return height; }
+    int columns() { return columns; }
+    int rows() { return rows; }
+    int cardsPerSheet() { return columns * rows; }
+
+    /**
+     Place the given side of a card on the current page.
+     The template's bounding box is the card itself; the rest of the template is ignored.
+     @param idx the position of the card on the sheet, 0..cardsPerSheet-1.
+     @param back true for the reverse side of the card.
+    */
+    void place(PdfContentByte cb, PdfTemplate card, int idx, boolean back) {
+      Rectangle trim = card.getBoundingBox();
+      int column = idx % columns;
+      int row = idx / columns;
+      if (back && isFlippedLeftToRight()) {
+        column = columns - 1 - column;
+      }
+      else if (back) {
+        row = rows - 1 - row;
+      }
+      float x = left + column * (cardWidth + gutter);
+      float y = top - row * (cardHeight + gutter) - cardHeight;
+      if (back && !isFlippedLeftToRight()) {
+        //turned upside down, around the center of the card
+        cb.addTemplate(card, -1, 0, 0, -1, x + cardWidth + trim.getLeft(), y + cardHeight + trim.getBottom());
+      }
+      else {
+        cb.addTemplate(card, 1, 0, 0, 1, x - trim.getLeft(), y - trim.getBottom());
+      }
+    }
+
+    /**
+     Short lines in the margin, in line with the edges of the cards.
+     The grid is centered, so the marks are the same on the fronts and the backs.
+    */
+    void drawCropMarks(PdfContentByte cb) {
+      cb.saveState();
+      cb.setLineWidth(CROP_MARK_WIDTH);
+      for (int column = 0; column < columns; ++column) {
+        float x = left + column * (cardWidth + gutter);
+        verticalMarks(cb, x);
+        verticalMarks(cb, x + cardWidth);
+      }
+      for (int row = 0; row < rows; ++row) {
+        float y = top - row * (cardHeight + gutter);
+        horizontalMarks(cb, y);
+        horizontalMarks(cb, y - cardHeight);
+      }
+      cb.stroke();
+      cb.restoreState();
+    }
+
+    private Layout(float width, float height, float cardWidth, float cardHeight) {
+      this.width = width;
+      this.height = height;
+      this.cardWidth = cardWidth;
+      this.cardHeight = cardHeight;
+      this.columns = fit(width, cardWidth);
+      this.rows = fit(height, cardHeight);
+      float gridWidth = columns * cardWidth + Math.max(0, columns - 1) * gutter;
+      float gridHeight = rows * cardHeight + Math.max(0, rows - 1) * gutter;
+      this.left = (width - gridWidth) / 2;
+      this.top = height - (height - gridHeight) / 2;
+    }
+
+    private final float width;
+    private final float height;
+    private final float cardWidth;
+    private final float cardHeight;
+    private final int columns;
+    private final int rows;
+    private final float left;
+    private final float top;
+
+    private int fit(float sheetSize, float cardSize) {
+      return Math.max(0, (int)Math.floor((sheetSize - 2 * margin + gutter) / (cardSize + gutter)));
+    }
+
+    /** The axis of the flip is vertical when the long edge is vertical (portrait), or when the short edge is vertical (landscape). */
+    private boolean isFlippedLeftToRight() {
+      boolean isPortrait = height >= width;
+      return isPortrait == (Duplex.FLIP_ON_LONG_EDGE == duplex);
+    }
+
+    private void verticalMarks(PdfContentByte cb, float x) {
+      float gridBottom = top - rows * cardHeight - (rows - 1) * gutter;
+      cb.moveTo(x, top + CROP_MARK_OFFSET);
+      cb.lineTo(x, top + CROP_MARK_OFFSET + CROP_MARK_LENGTH);
+      cb.moveTo(x, gridBottom - CROP_MARK_OFFSET);
+      cb.lineTo(x, gridBottom - CROP_MARK_OFFSET - CROP_MARK_LENGTH);
+    }
+
+    private void horizontalMarks(PdfContentByte cb, float y) {
+      float gridRight = left + columns * cardWidth + (columns - 1) * gutter;
+      cb.moveTo(left - CROP_MARK_OFFSET, y);
+      cb.lineTo(left - CROP_MARK_OFFSET - CROP_MARK_LENGTH, y);
+      cb.moveTo(gridRight + CROP_MARK_OFFSET, y);
+      cb.lineTo(gridRight + CROP_MARK_OFFSET + CROP_MARK_LENGTH, y);
+    }
+  }
+
+  // PRIVATE
+
+  private final float sheetWidth;
+  private final float sheetHeight;
+  private final float gutter;
+  private final float margin;
+  private final Duplex duplex;
+
+  /** Enough for the crop marks. */
+  private static final float DEFAULT_MARGIN = 18;
+  private static final float CROP_MARK_OFFSET = 3;
+  private static final float CROP_MARK_LENGTH = 12;
+  private static final float CROP_MARK_WIDTH = 0.25f;
+}
@@ -0,0 +1,59 @@
+package custom.solar.eclipse.viewer;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfStream;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import custom.solar.eclipse.viewer.config.Constants;
+
+/**
+ The kind of PDF file to produce, according to where it's going.
+
+ <P>In both profiles, fonts are embedded as subsets (only the glyphs that are used), and each font is embedded only once per file.
+ The static artwork of a booklet is shared in both profiles as well.
+
+ <P>When running as a standalone program, the default can be changed with the command line setting:
+
+ {@code -DviewerOutputProfile=COMPACT_WEB}
+*/
+public enum OutputProfile {
+
+  /**
+   The safest choice for a print shop: PDF 1.3 (see {@link Constants#PDF_VERSION}), all fonts embedded.
+   Older PDF versions have no compressed object streams, so only the content of the pages and fonts is compressed.
+  */
+  PRINT_SHOP(Constants.PDF_VERSION, false, PdfStream.DEFAULT_COMPRESSION),
+
+  /**
+   The smallest file, for downloading: PDF 1.5, with full compression.
+   The objects are packed into compressed object streams, the cross-reference table is a compressed stream too,
+   and all streams use the best level of compression.
+   Any PDF reader from the last twenty years can open it, but some older prepress tools may not.
+  */
+  COMPACT_WEB(PdfWriter.VERSION_1_5, true, PdfStream.BEST_COMPRESSION);
+
+  /** Returns the value of the System property, if present; otherwise, returns {@link #PRINT_SHOP}. */
+  public static OutputProfile fromSystemProperty() {
+    String value = System.getProperty("viewerOutputProfile");
+    return value == null ? PRINT_SHOP : valueOf(value.trim().toUpperCase());
+  }
+
+  /** Must be called before the document is opened. */
+  void configure(PdfWriter writer) throws DocumentException {
+    writer.setPdfVersion(pdfVersion);
+    writer.setCompressionLevel(compressionLevel);
+    if (fullCompression) {
+      writer.setFullCompression();
+    }
+  }
+
+  private OutputProfile(char pdfVersion, boolean fullCompression, int compressionLevel) {
+    this.pdfVersion = pdfVersion;
+    this.fullCompression = fullCompression;
+    this.compressionLevel = compressionLevel;
+  }
+
+  private final char pdfVersion;
+  private final boolean fullCompression;
+  private final int compressionLevel;
+}
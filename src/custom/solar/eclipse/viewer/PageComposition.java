@@ -0,0 +1,29 @@
+package custom.solar.eclipse.viewer;
+
+/**
+ How the pages of a single viewer are composed into the PDF.
+ Both produce pages that look the same.
+
+ <P>When running as a standalone program, the default can be changed with the command line setting:
+
+ {@code -DviewerPageComposition=PARALLEL}
+*/
+public enum PageComposition {
+
+  /** Each page is drawn directly into the document, one page after the other. */
+  SERIAL,
+
+  /**
+   The content of each page is first drawn into its own display list, with all pages drawn at the same time, on separate threads.
+   The display lists are then painted into the document, one page after the other.
+   On a machine with more than one core, the time taken by the drawing code is mostly overlapped.
+   See {@link custom.solar.eclipse.viewer.graphics.RecordingGraphics2D}.
+  */
+  PARALLEL;
+
+  /** Returns the value of the System property, if present; otherwise, returns {@link #SERIAL}. */
+  public static PageComposition fromSystemProperty() {
+    String value = System.getProperty("viewerPageComposition");
+    return value == null ? SERIAL : valueOf(value.trim().toUpperCase());
+  }
+}
@@ -0,0 +1,140 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import java.time.LocalDate;
+
+import custom.solar.eclipse.viewer.astrocalc.LocalCircumstances.ShowLogging;
+import custom.solar.eclipse.viewer.sites.SiteChunk;
+
+/**
+ Compute the local circumstances of one eclipse for many sites, a chunk at a time.
+
+ <P>Only the local maximum and the contacts are computed for each site, not the partial phases or the timeline of a viewer.
+ The results are stored as columns of primitives, in the same order as the sites of the chunk.
+
+ <P>The Besselian elements are looked up once, and shared by every site.
+ Thread-safe: many threads can compute chunks at the same time.
+*/
+public final class BatchCircumstances {
+
+  /** The value of a time that doesn't apply, such as the start of totality in a partial eclipse. */
+  public static final long NO_TIME = Long.MIN_VALUE;
+
+  /**
+   @param ΔT is in seconds, the difference TT (physics time) - UTC (the basis for civil time).
+   @throws IllegalArgumentException if there's no eclipse on the given date.
+  */
+  public BatchCircumstances(LocalDate dateOfTheEclipse, double ΔT) {
+    this(new BesselianElementsLookup().lookup(dateOfTheEclipse), ΔT);
+    if (bessel == null) {
+      throw new IllegalArgumentException("There's no solar eclipse on " + dateOfTheEclipse + " (UTC).");
+    }
+  }
+
+  /**
+   Uses the value of ΔT in NASA's catalog, so that any eclipse in the catalog can be computed,
+   including those outside the range of {@link ApproximateDeltaT}.
+   @throws IllegalArgumentException if there's no eclipse on the given date.
+  */
+  public static BatchCircumstances withCatalogΔT(LocalDate dateOfTheEclipse) {
+    BesselianElementsLookup lookup = new BesselianElementsLookup();
+    BesselianElements bessel = lookup.lookup(dateOfTheEclipse);
+    if (bessel == null) {
+      throw new IllegalArgumentException("There's no solar eclipse on " + dateOfTheEclipse + " (UTC).");
+    }
+    return new BatchCircumstances(bessel, lookup.catalogΔT());
+  }
+
+  /** For elements that don't come from the catalog, such as Meeus' example. */
+  BatchCircumstances(BesselianElements bessel, double ΔT) {
+    this.bessel = bessel;
+    this.ΔT = ΔT;
+  }
+
+  /** Compute the circumstances of every site in the chunk. */
+  public Results compute(SiteChunk sites) {
+    Results result = new Results(sites);
+    for (int idx = 0; idx < sites.size(); ++idx) {
+      int zone = sites.zoneMinutes(idx);
+      Location location = new Location(sites.name(idx), sites.latitude(idx), sites.longitude(idx), sites.altitude(idx), zone / 60, zone % 60);
+      LocalCircumstances circum = new LocalCircumstances(location, bessel, ΔT, UNUSED_GAP);
+      circum.computeContacts(ShowLogging.No);
+      Worksheet max = circum.maximumEclipse();
+      if (max.magnitude() < 0) {
+        result.types[idx] = EclipseType.None;
+        result.magnitudes[idx] = 0.0;
+        result.maximums[idx] = NO_TIME;
+        result.partialStarts[idx] = NO_TIME;
+        result.partialEnds[idx] = NO_TIME;
+        result.centralStarts[idx] = NO_TIME;
+        result.centralEnds[idx] = NO_TIME;
+      }
+      else {
+        result.types[idx] = max.localEclipseType();
+        result.magnitudes[idx] = max.magnitude();
+        result.maximums[idx] = epochSeconds(max);
+        result.partialStarts[idx] = epochSeconds(circum.startPartialEclipse());
+        result.partialEnds[idx] = epochSeconds(circum.endPartialEclipse());
+        result.centralStarts[idx] = epochSeconds(circum.startTotalOrAnnularEclipse());
+        result.centralEnds[idx] = epochSeconds(circum.endTotalOrAnnularEclipse());
+      }
+    }
+    return result;
+  }
+
+  /**
+   The circumstances of each site in a chunk, in the same order.
+   Times are seconds since 1970-01-01T00:00:00 UTC, rounded to the nearest second, or {@link #NO_TIME}.
+   The central phase is totality or annularity.
+  */
+  public static final class Results {
+    public SiteChunk sites() { return sites; }
+    public int size() { return sites.size(); }
+    public EclipseType type(int idx) { return types[idx]; }
+    public double magnitude(int idx) { return magnitudes[idx]; }
+    public long maximum(int idx) { return maximums[idx]; }
+    public long partialStarts(int idx) { return partialStarts[idx]; }
+    public long partialEnds(int idx) { return partialEnds[idx]; }
+    public long centralStarts(int idx) { return centralStarts[idx]; }
+    public long centralEnds(int idx) { return centralEnds[idx]; }
+
+    private Results(SiteChunk sites) {
+      this.sites = sites;
+      int size = sites.size();
+      types = new EclipseType[size];
+      magnitudes = new double[size];
+      maximums = new long[size];
+      partialStarts = new long[size];
+      partialEnds = new long[size];
+      centralStarts = new long[size];
+      centralEnds = new long[size];
+    }
+    private final SiteChunk sites;
+    private final EclipseType[] types;
+    private final double[] magnitudes;
+    private final long[] maximums;
+    private final long[] partialStarts;
+    private final long[] partialEnds;
+    private final long[] centralStarts;
+    private final long[] centralEnds;
+  }
+
+  // PRIVATE
+
+  private final BesselianElements bessel;
+  private final double ΔT;
+
+  /** Only the contacts are computed, so the gap between partial phases is never used. */
+  private static final Integer UNUSED_GAP = 10;
+  private static final double SECONDS_PER_HOUR = 3600.0;
+  private static final double SECONDS_PER_DAY = 86400.0;
+
+  /**
+   Computed directly from T0 + t - ΔT, instead of with {@link Worksheet#UTC()}.
+   That works for any time, not only those within a day of the date of the eclipse.
+  */
+  private long epochSeconds(Worksheet w) {
+    if (w == null) return NO_TIME;
+    double midnight = bessel.whenMaxEclipse().toLocalDate().toEpochDay() * SECONDS_PER_DAY;
+    return Math.round(midnight + (bessel.T0() + w.t) * SECONDS_PER_HOUR - w.ΔT);
+  }
+}
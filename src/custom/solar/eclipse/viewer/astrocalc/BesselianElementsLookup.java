@@ -3,11 +3,16 @@ package custom.solar.eclipse.viewer.astrocalc;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import custom.solar.eclipse.viewer.math.Maths;
 import custom.solar.eclipse.viewer.math.Polynomial;
+import custom.solar.eclipse.viewer.metrics.CatalogLookupEvent;
 import custom.solar.eclipse.viewer.util.DataFileReader;
 import static custom.solar.eclipse.viewer.util.LogUtil.log;
 import static custom.solar.eclipse.viewer.util.LogUtil.warn;
@@ -17,6 +22,10 @@ import static custom.solar.eclipse.viewer.util.LogUtil.warn;
  The Besselian Elements have been pre-calculated by others.
  This class simply reads in that data from the file system.
  
+ <P>The file is read and indexed by date only once, the first time it's needed. 
+ The index is shared by all lookups, so a server can look up many eclipses without reading the file again. 
+ Each lookup object is still used for a single lookup only, and is not thread-safe; the shared index is.
+ 
  <P>Reference: <a href='https://eclipse.gsfc.nasa.gov/SEpubs/5MCSE.html'>NASA</a>, which has kindly made 
  this data freely available.
  
@@ -26,14 +35,12 @@ final class BesselianElementsLookup {
 
   /** Read in the Besselian Elements of a given eclipse, using the calendar date (UTC/TT) as its identifier. */
   BesselianElements lookup(LocalDate dateOfTheEclipse) {
-    int year = dateOfTheEclipse.getYear();
-    int month = dateOfTheEclipse.getMonthValue();
-    int day = dateOfTheEclipse.getDayOfMonth();
-    
-    DataFileReader reader = new DataFileReader();
-    List<String> lines = reader.readFile(this.getClass(), NASA_FILE);
+    CatalogLookupEvent event = new CatalogLookupEvent();
+    Integer year = dateOfTheEclipse.getYear();
+    Integer month = dateOfTheEclipse.getMonthValue();
+    Integer day = dateOfTheEclipse.getDayOfMonth();
     
-    rawEclipseData = findLineMatching(year, month, day, lines);
+    rawEclipseData = Catalog.ROWS.get(key(year.toString(), month.toString(), day.toString()));
     
     BesselianElements result = null;
     if (rawEclipseData == null) {
@@ -42,6 +49,38 @@ final class BesselianElementsLookup {
     else {
       result = besselianElements();
     }
+    event.date = dateOfTheEclipse.toString();
+    event.found = result != null;
+    event.finish();
+    return result;
+  }
+
+  /** The value of ΔT used by NASA for the eclipse found by the last lookup, in seconds. Null if none was found. */
+  Double catalogΔT() {
+    return rawEclipseData == null ? null : asDouble(DELTA_T);
+  }
+
+  /** The latitude of the point of greatest eclipse found by the last lookup, in degrees. Null if none was found. */
+  Double catalogLatitudeOfGreatestEclipse() {
+    return rawEclipseData == null ? null : asDouble(LATITUDE_GREATEST_ECLIPSE);
+  }
+
+  /** The longitude of the point of greatest eclipse found by the last lookup, in degrees, positive east. Null if none was found. */
+  Double catalogLongitudeOfGreatestEclipse() {
+    return rawEclipseData == null ? null : asDouble(LONGITUDE_GREATEST_ECLIPSE);
+  }
+
+  /** The dates of all of the eclipses in the catalog, in order. */
+  static List<LocalDate> catalogDates() {
+    List<LocalDate> result = new ArrayList<>();
+    for (String key : Catalog.ROWS.keySet()) {
+      String[] parts = key.split(",");
+      if (!Character.isDigit(key.charAt(0))) {
+        continue; //the header
+      }
+      result.add(LocalDate.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+    }
+    Collections.sort(result);
     return result;
   }
 
@@ -76,7 +115,10 @@ final class BesselianElementsLookup {
   private static final int MONTH = 2;
   private static final int DAY = 3;
   private static final int TIME_OF_DAY = 4;
+  private static final int DELTA_T = 5;
   private static final int ECLIPSE_TYPE = 8;
+  private static final int LATITUDE_GREATEST_ECLIPSE = 13;
+  private static final int LONGITUDE_GREATEST_ECLIPSE = 14;
   private static final int JULIAN_DATE = 22;
   private static final int T0 = 23;
 
@@ -109,20 +151,29 @@ final class BesselianElementsLookup {
   private static final int TAN_F1 = 44;
   private static final int TAN_F2 = 45;
   
-  private String[] findLineMatching(Integer year, Integer month, Integer day, List<String> lines) {
-    String[] result = null;
-    for(String line : lines) {
-      String[] parts = line.split(Pattern.quote(","));
-      if (
-        parts[idx(YEAR)].equals(year.toString()) && 
-        parts[idx(MONTH)].equals(month.toString()) && 
-        parts[idx(DAY)].equals(day.toString())
-      ) {
-        result = parts;
-        return result; //early return !
+  /** 
+   All the lines of the file, split into columns, and indexed by date. 
+   Loaded when first used (the JVM guarantees that happens only once, even with many threads).  
+   Never mutated after it's loaded. 
+  */
+  private static final class Catalog {
+    static final Map<String, String[]> ROWS = load();
+    private static Map<String, String[]> load() {
+      List<String> lines = new DataFileReader().readFile(BesselianElementsLookup.class, NASA_FILE);
+      Map<String, String[]> result = new HashMap<>();
+      for(String line : lines) {
+        String[] parts = line.split(Pattern.quote(","));
+        if (parts.length > DAY) {
+          //the first match wins, as in a linear search
+          result.putIfAbsent(key(parts[idx(YEAR)], parts[idx(MONTH)], parts[idx(DAY)]), parts);
+        }
       }
+      return Collections.unmodifiableMap(result);
     }
-    return result; //null in this case
+  }
+  
+  private static String key(String year, String month, String day) {
+    return year + "," + month + "," + day;
   }
 
   private Double asDouble(int columnNumber) {
@@ -147,7 +198,7 @@ final class BesselianElementsLookup {
     return raw.substring(1, raw.length()-1);
   }
   
-  private int idx(int columnNumber) {
+  private static int idx(int columnNumber) {
     return columnNumber - 1; 
   }
   
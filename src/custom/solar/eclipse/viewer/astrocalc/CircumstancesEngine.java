@@ -0,0 +1,56 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import java.util.List;
+
+/**
+ An implementation of the local circumstances of an eclipse, for many sites at a time.
+ The reference is the iteration of worksheets done by {@link LocalCircumstances}.
+ Other implementations trade some accuracy for speed; {@link EngineAccuracy} checks how much.
+
+ <P>Implementations must be thread-safe.
+*/
+interface CircumstancesEngine {
+
+  /** Returns the circumstances at each site, in the same order as the sites. */
+  List<Output> compute(BesselianElements bessel, double ΔT, List<Location> sites);
+
+  /**
+   The circumstances at one site.
+   Times are UTC, in seconds since 1970-01-01T00:00:00.
+   A time that doesn't apply, or that the implementation doesn't compute, is NaN; so are the angles, if not computed.
+   The central phase is totality or annularity.
+  */
+  static final class Output {
+
+    /** The eclipse isn't seen from the site. */
+    static final Output NONE = new Output(EclipseType.None, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+    /** The angles are in degrees. */
+    Output(
+      EclipseType type, double magnitude, double altitude, double azimuth,
+      double maximum, double partialStarts, double centralStarts, double centralEnds, double partialEnds
+    ) {
+      this.type = type;
+      this.magnitude = magnitude;
+      this.altitude = altitude;
+      this.azimuth = azimuth;
+      this.maximum = maximum;
+      this.partialStarts = partialStarts;
+      this.centralStarts = centralStarts;
+      this.centralEnds = centralEnds;
+      this.partialEnds = partialEnds;
+    }
+
+    final EclipseType type;
+    final double magnitude;
+    /** The altitude of the Sun at the local maximum. */
+    final double altitude;
+    /** The azimuth of the Sun at the local maximum, from the North. */
+    final double azimuth;
+    final double maximum;
+    final double partialStarts;
+    final double centralStarts;
+    final double centralEnds;
+    final double partialEnds;
+  }
+}
@@ -0,0 +1,351 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import custom.solar.eclipse.viewer.math.Maths;
+
+/**
+ Compare any implementation of the local circumstances with the reference, for accuracy.
+ The reference is {@link EngineVariant#REFERENCE}: the iteration of worksheets, as when generating a viewer.
+
+ <P>The cases are:
+ <ul>
+  <li>Meeus' example, the eclipse of 1994-05-10 seen from the US Naval Observatory, with his Besselian elements and ΔT;
+  <li>every eclipse in the catalog, with the catalog's ΔT, each at a number of random sites.
+  Half of the sites are anywhere on the globe, and half are near the point of greatest eclipse, where the eclipse is usually seen.
+ </ul>
+ The random sites come from a seed, so that the same seed always gives the same cases.
+
+ <P>Each output has a tolerance: the times in seconds, the magnitude, and the angles (altitude and azimuth of the Sun) in degrees.
+ The report gives the maximum and the percentiles of the error of each output, and the number of errors above the tolerance.
+ For the speed of each implementation over the same cases, see {@link #computeAll(EngineVariant)}.
+ A candidate passes only if no error is above its tolerance, if it agrees with the reference on the type of eclipse
+ and on which contacts exist, and if it never fails. An output that the candidate doesn't compute is skipped, not counted as an error.
+
+ <P>Not thread-safe.
+*/
+public final class EngineAccuracy {
+
+  /** The largest error allowed for each output. */
+  public static final class Tolerances {
+
+    /** One second for the times, about 1/10000 of the Sun's diameter for the magnitude, and 0.01 degrees for the angles. */
+    public static final Tolerances DEFAULT = new Tolerances(1.0, 0.0001, 0.01);
+
+    /** @throws IllegalArgumentException if any tolerance is negative. */
+    public Tolerances(double timeSeconds, double magnitude, double angleDegrees) {
+      if (timeSeconds < 0 || magnitude < 0 || angleDegrees < 0) {
+        throw new IllegalArgumentException("A tolerance can't be negative.");
+      }
+      this.timeSeconds = timeSeconds;
+      this.magnitude = magnitude;
+      this.angleDegrees = angleDegrees;
+    }
+
+    @Override public String toString() {
+      return "times " + timeSeconds + " s, magnitude " + magnitude + ", angles " + angleDegrees + " degrees";
+    }
+
+    private final double timeSeconds;
+    private final double magnitude;
+    private final double angleDegrees;
+  }
+
+  /**
+   Build the cases, and compute the reference for each of them.
+   @param sitesPerEclipse the number of random sites, for each eclipse in the catalog.
+   @param seed for the random sites.
+  */
+  public EngineAccuracy(int sitesPerEclipse, long seed) {
+    if (sitesPerEclipse < 1) {
+      throw new IllegalArgumentException("There must be at least 1 site per eclipse.");
+    }
+    BesselianElementsLookup lookup = new BesselianElementsLookup();
+    meeus = new Case("Meeus' example", lookup.lookupMeeusExample(), MEEUS_ΔT, Arrays.asList(LocalCircumstances.usNavalObservatory()));
+    Random random = new Random(seed);
+    for (LocalDate date : BesselianElementsLookup.catalogDates()) {
+      BesselianElements bessel = lookup.lookup(date);
+      List<Location> sites = randomSites(sitesPerEclipse, lookup, random);
+      catalog.add(new Case(date.toString(), bessel, lookup.catalogΔT(), sites));
+    }
+    for (Case c : allCases()) {
+      c.reference = EngineVariant.REFERENCE.engine.compute(c.bessel, c.ΔT, c.sites);
+    }
+  }
+
+  /** The number of eclipse-site pairs, including Meeus' example. */
+  public int numCases() {
+    return numSites(allCases());
+  }
+
+  /** Compare the candidate with the reference. */
+  public Report compare(EngineVariant candidate, Tolerances tolerances) {
+    Comparison meeusErrors = new Comparison(tolerances);
+    meeusErrors.add(meeus, candidate);
+    Comparison catalogErrors = new Comparison(tolerances);
+    for (Case c : catalog) {
+      catalogErrors.add(c, candidate);
+    }
+    return new Report(candidate, tolerances, meeusErrors, catalogErrors);
+  }
+
+  /**
+   Compute every case with the given implementation, without comparing anything. For measuring its speed.
+   Returns the number of outputs.
+  */
+  public int computeAll(EngineVariant variant) {
+    int result = 0;
+    for (Case c : allCases()) {
+      result += variant.engine.compute(c.bessel, c.ΔT, c.sites).size();
+    }
+    return result;
+  }
+
+  /** The result of comparing a candidate with the reference. */
+  public static final class Report {
+
+    /** True only if every error is within its tolerance, and the candidate agrees with the reference about what is seen. */
+    public boolean withinTolerances() {
+      return meeus.passes() && catalog.passes();
+    }
+
+    /** A small table, one line per output, for logging. */
+    public List<String> lines() {
+      List<String> result = new ArrayList<>();
+      result.add("Candidate: " + candidate + ", compared with " + EngineVariant.REFERENCE + ". Tolerances: " + tolerances + ".");
+      result.add("Meeus' example:");
+      meeus.addLinesTo(result);
+      result.add("The catalog, at random sites:");
+      catalog.addLinesTo(result);
+      result.add(withinTolerances() ? "PASSED: within the tolerances." : "FAILED: outside the tolerances.");
+      return result;
+    }
+
+    private Report(EngineVariant candidate, Tolerances tolerances, Comparison meeus, Comparison catalog) {
+      this.candidate = candidate;
+      this.tolerances = tolerances;
+      this.meeus = meeus;
+      this.catalog = catalog;
+    }
+    private final EngineVariant candidate;
+    private final Tolerances tolerances;
+    private final Comparison meeus;
+    private final Comparison catalog;
+  }
+
+  // PRIVATE
+
+  private final Case meeus;
+  private final List<Case> catalog = new ArrayList<>();
+
+  /** The value used by Meeus for his example. */
+  private static final double MEEUS_ΔT = 61.0;
+  /** Half of the width of the box around the point of greatest eclipse, in degrees. */
+  private static final double NEAR_GREATEST_ECLIPSE = 30.0;
+  private static final double MAX_HEIGHT = 2000.0; //meters
+  private static final double[] PERCENTILES = {50.0, 95.0, 99.0};
+
+  /** One eclipse, with its sites, and the output of the reference at each site. */
+  private static final class Case {
+    Case(String name, BesselianElements bessel, double ΔT, List<Location> sites) {
+      this.name = name;
+      this.bessel = bessel;
+      this.ΔT = ΔT;
+      this.sites = sites;
+    }
+    final String name;
+    final BesselianElements bessel;
+    final double ΔT;
+    final List<Location> sites;
+    List<CircumstancesEngine.Output> reference;
+  }
+
+  /** Uniform over the globe, or uniform in latitude and longitude near the point of greatest eclipse. */
+  private static List<Location> randomSites(int numSites, BesselianElementsLookup lookup, Random random) {
+    List<Location> result = new ArrayList<>();
+    for (int idx = 0; idx < numSites; ++idx) {
+      double latitude = 0;
+      double longitude = 0;
+      if (idx % 2 == 0) {
+        latitude = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+        longitude = 360 * random.nextDouble() - 180;
+      }
+      else {
+        latitude = lookup.catalogLatitudeOfGreatestEclipse() + NEAR_GREATEST_ECLIPSE * (2 * random.nextDouble() - 1);
+        latitude = Math.max(-90.0, Math.min(90.0, latitude));
+        longitude = lookup.catalogLongitudeOfGreatestEclipse() + NEAR_GREATEST_ECLIPSE * (2 * random.nextDouble() - 1);
+      }
+      double height = MAX_HEIGHT * random.nextDouble();
+      result.add(new Location("random " + idx, Maths.degToRads(latitude), Maths.degToRads(longitude), height, 0, 0));
+    }
+    return result;
+  }
+
+  private List<Case> allCases() {
+    List<Case> result = new ArrayList<>();
+    result.add(meeus);
+    result.addAll(catalog);
+    return result;
+  }
+
+  private static int numSites(List<Case> cases) {
+    int result = 0;
+    for (Case c : cases) {
+      result += c.sites.size();
+    }
+    return result;
+  }
+
+  /** The errors of a candidate over a number of cases. */
+  private static final class Comparison {
+    Comparison(Tolerances tolerances) {
+      errors.put("maximum (s)", new Errors(tolerances.timeSeconds));
+      errors.put("contacts (s)", new Errors(tolerances.timeSeconds));
+      errors.put("magnitude", new Errors(tolerances.magnitude));
+      errors.put("altitude (deg)", new Errors(tolerances.angleDegrees));
+      errors.put("azimuth (deg)", new Errors(tolerances.angleDegrees));
+    }
+
+    /** If the candidate fails for an eclipse, its sites are counted as failures. */
+    void add(Case c, EngineVariant variant) {
+      List<CircumstancesEngine.Output> candidate = null;
+      try {
+        candidate = variant.engine.compute(c.bessel, c.ΔT, c.sites);
+      }
+      catch (RuntimeException ex) {
+        failures += c.sites.size();
+        firstFailure = firstFailure == null ? c.name + ": " + ex : firstFailure;
+        return;
+      }
+      for (int idx = 0; idx < c.sites.size(); ++idx) {
+        CircumstancesEngine.Output ref = c.reference.get(idx);
+        CircumstancesEngine.Output cand = candidate.get(idx);
+        ++sites;
+        if (ref.type == EclipseType.None && cand.type == EclipseType.None) {
+          continue;
+        }
+        if (ref.type != cand.type) {
+          ++typeMismatches;
+          firstMismatch = firstMismatch == null ? c.name + " at " + c.sites.get(idx) : firstMismatch;
+          if (ref.type == EclipseType.None || cand.type == EclipseType.None) {
+            continue;
+          }
+        }
+        ++seen;
+        errors.get("maximum (s)").add(ref.maximum, cand.maximum);
+        addContact(ref.partialStarts, cand.partialStarts);
+        addContact(ref.centralStarts, cand.centralStarts);
+        addContact(ref.centralEnds, cand.centralEnds);
+        addContact(ref.partialEnds, cand.partialEnds);
+        errors.get("magnitude").add(ref.magnitude, cand.magnitude);
+        errors.get("altitude (deg)").add(ref.altitude, cand.altitude);
+        errors.get("azimuth (deg)").addAngle(ref.azimuth, cand.azimuth);
+      }
+    }
+
+    boolean passes() {
+      boolean result = failures == 0 && typeMismatches == 0 && missingContacts == 0;
+      for (Errors e : errors.values()) {
+        result = result && e.aboveTolerance == 0;
+      }
+      return result;
+    }
+
+    void addLinesTo(List<String> lines) {
+      lines.add("  sites: " + sites + ", where the eclipse is seen: " + seen + ", type of eclipse differs: " + typeMismatches + ", contacts missing or extra: " + missingContacts);
+      if (failures > 0) {
+        lines.add("  sites not computed, because the candidate failed: " + failures + "; the first failure: " + firstFailure);
+      }
+      if (firstMismatch != null) {
+        lines.add("  first type that differs: " + firstMismatch);
+      }
+      for (Map.Entry<String, Errors> entry : errors.entrySet()) {
+        lines.add(String.format(Locale.ROOT, "  %-15s %s", entry.getKey(), entry.getValue()));
+      }
+    }
+
+    private final Map<String, Errors> errors = new LinkedHashMap<>();
+    private int sites;
+    private int seen;
+    private int typeMismatches;
+    private int missingContacts;
+    private String firstMismatch;
+    private int failures;
+    private String firstFailure;
+
+    /** A contact that exists for only one of the two is counted apart, not as an error. */
+    private void addContact(double ref, double cand) {
+      if (Double.isNaN(ref) != Double.isNaN(cand)) {
+        ++missingContacts;
+      }
+      else {
+        errors.get("contacts (s)").add(ref, cand);
+      }
+    }
+  }
+
+  /** The absolute errors of one output. */
+  private static final class Errors {
+    Errors(double tolerance) {
+      this.tolerance = tolerance;
+    }
+
+    /** Skipped if either value is NaN: the candidate doesn't compute it, or it doesn't apply. */
+    void add(double ref, double cand) {
+      if (!Double.isNaN(ref) && !Double.isNaN(cand)) {
+        record(Math.abs(cand - ref));
+      }
+    }
+
+    /** The smaller of the two ways around the circle. */
+    void addAngle(double refDegrees, double candDegrees) {
+      if (!Double.isNaN(refDegrees) && !Double.isNaN(candDegrees)) {
+        double diff = Math.abs(candDegrees - refDegrees) % 360.0;
+        record(Math.min(diff, 360.0 - diff));
+      }
+    }
+
+    @Override public String toString() {
+      if (size == 0) {
+        return "not computed";
+      }
+      double[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+      StringBuilder result = new StringBuilder();
+      result.append(String.format(Locale.ROOT, "n %7d  max %.3g", size, sorted[size - 1]));
+      for (double p : PERCENTILES) {
+        result.append(String.format(Locale.ROOT, "  p%.0f %.3g", p, percentile(sorted, p)));
+      }
+      result.append("  above tolerance: ").append(aboveTolerance);
+      return result.toString();
+    }
+
+    private final double tolerance;
+    private double[] values = new double[1024];
+    private int size;
+    private int aboveTolerance;
+
+    private void record(double error) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      values[size++] = error;
+      if (error > tolerance) {
+        ++aboveTolerance;
+      }
+    }
+
+    /** The nearest rank. */
+    private static double percentile(double[] sorted, double p) {
+      int rank = (int)Math.ceil(p / 100.0 * sorted.length);
+      return sorted[Math.max(0, rank - 1)];
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import java.time.LocalDate;
+
+import custom.solar.eclipse.viewer.astrocalc.LocalCircumstances.ShowLogging;
+import custom.solar.eclipse.viewer.config.Config;
+
+/**
+ The stages of the calculation of the local circumstances, one at a time, for benchmarks.
+ Generating a viewer never uses this class; it calls {@link LocalCircumstances#buildFrom(Config, ShowLogging)}.
+
+ <P>Each method repeats one stage, exactly as the full calculation does it, and returns a number taken from its result,
+ so that the caller can consume it (and the JIT compiler can't remove the work).
+ The local maximum eclipse is computed once, when this object is built, and is the starting point for each contact.
+
+ <P>Not thread-safe.
+*/
+public final class EngineStages {
+
+  /** The 4 contacts, in time order. The central contacts are the start and end of totality or annularity. */
+  public enum Contact {
+    START_PARTIAL(LocalCircumstances.START, LocalCircumstances.PENUMBRA),
+    START_CENTRAL(LocalCircumstances.START, LocalCircumstances.UMBRA),
+    END_CENTRAL(LocalCircumstances.END, LocalCircumstances.UMBRA),
+    END_PARTIAL(LocalCircumstances.END, LocalCircumstances.PENUMBRA);
+
+    private Contact(boolean isBefore, boolean isPenumbra) {
+      this.isBefore = isBefore;
+      this.isPenumbra = isPenumbra;
+    }
+    private final boolean isBefore;
+    private final boolean isPenumbra;
+  }
+
+  /**
+   @throws IllegalArgumentException if there's no eclipse at all on the date of the config,
+   or if the eclipse isn't seen from its location.
+  */
+  public EngineStages(Config config) {
+    this.config = config;
+    this.date = LocalDate.parse(config.eclipseDateUTC());
+    this.bessel = new BesselianElementsLookup().lookup(date);
+    if (bessel == null) {
+      throw new IllegalArgumentException("There's no solar eclipse on " + config.eclipseDateUTC() + " (UTC).");
+    }
+    Location location = new Location(config.location(), config.latitude(), config.longitude(), config.altitude(), config.hoursOffsetFromUT(), config.minutesOffsetFromUT());
+    this.circum = new LocalCircumstances(location, bessel, config.ΔT(), config.gapBetweenPartialPhases());
+    this.localMax = circum.computeLocalMax();
+    if (localMax.magnitude() < 0) {
+      throw new IllegalArgumentException("The eclipse of " + config.eclipseDateUTC() + " isn't seen from " + config.location() + ".");
+    }
+  }
+
+  /** The type of the eclipse at the location of the config. */
+  public EclipseType localEclipseType() {
+    return localMax.localEclipseType();
+  }
+
+  /** The central contacts apply only if the eclipse is total or annular at the location. */
+  public boolean has(Contact contact) {
+    boolean isCentral = contact == Contact.START_CENTRAL || contact == Contact.END_CENTRAL;
+    return !isCentral || localEclipseType() != EclipseType.Partial;
+  }
+
+  /** Look up the Besselian elements in the catalog. Returns the time T0 of the elements, in hours. */
+  public double lookup() {
+    return new BesselianElementsLookup().lookup(date).T0();
+  }
+
+  /** A single worksheet, at the time T0 of the elements. Returns the magnitude. */
+  public double worksheet() {
+    Worksheet w = new Worksheet(0.0, config.ΔT(), bessel, circum.location());
+    w.compute();
+    return w.magnitude();
+  }
+
+  /** Iterate to the local maximum eclipse. Returns its time, in hours from T0. */
+  public double localMax() {
+    return circum.computeLocalMax().t;
+  }
+
+  /** Iterate to the given contact, starting from the local maximum eclipse. Returns its time, in hours from T0. */
+  public double contact(Contact contact) {
+    return circum.computeContact(contact.isBefore, contact.isPenumbra, localMax).t;
+  }
+
+  /** The full calculation, as used to generate a viewer: the lookup, the contacts, the partial phases, and the timeline. */
+  public EclipseDisplay buildFrom() {
+    return LocalCircumstances.buildFrom(config, ShowLogging.No);
+  }
+
+  // PRIVATE
+
+  private final Config config;
+  private final LocalDate date;
+  private final BesselianElements bessel;
+  private final LocalCircumstances circum;
+  private final Worksheet localMax;
+}
@@ -0,0 +1,97 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import custom.solar.eclipse.viewer.astrocalc.LocalCircumstances.ShowLogging;
+import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.sites.SiteChunk;
+
+/**
+ The implementations of the local circumstances that can be compared with {@link EngineAccuracy}.
+ A new, faster implementation is added here, and checked against {@link #REFERENCE} before it's used elsewhere.
+*/
+public enum EngineVariant {
+
+  /**
+   The iteration of worksheets, exactly as when generating a viewer.
+   Its times come from the local civil time of each worksheet, which is what a viewer shows. They aren't rounded.
+  */
+  REFERENCE(EngineVariant::reference),
+
+  /**
+   The engine of a table of sites, {@link BatchCircumstances}.
+   Its times are rounded to the nearest second, and it doesn't compute the angles.
+  */
+  BATCH(EngineVariant::batch);
+
+  // PRIVATE
+
+  private EngineVariant(CircumstancesEngine engine) {
+    this.engine = engine;
+  }
+
+  final CircumstancesEngine engine;
+
+  /** Only the contacts are computed, so the gap between partial phases is never used. */
+  private static final Integer UNUSED_GAP = 10;
+  private static final int SECONDS_PER_HOUR = 3600;
+  private static final int SECONDS_PER_MINUTE = 60;
+  private static final double NANOS_PER_SECOND = 1.0E9;
+
+  private static List<CircumstancesEngine.Output> reference(BesselianElements bessel, double ΔT, List<Location> sites) {
+    List<CircumstancesEngine.Output> result = new ArrayList<>();
+    for (Location site : sites) {
+      LocalCircumstances circum = new LocalCircumstances(site, bessel, ΔT, UNUSED_GAP);
+      circum.computeContacts(ShowLogging.No);
+      Worksheet max = circum.maximumEclipse();
+      if (max.magnitude() < 0) {
+        result.add(CircumstancesEngine.Output.NONE);
+      }
+      else {
+        result.add(new CircumstancesEngine.Output(
+          max.localEclipseType(), max.magnitude(), Maths.radsToDegs(max.h), Maths.radsToDegs(max.az),
+          epochSeconds(max, site), epochSeconds(circum.startPartialEclipse(), site), epochSeconds(circum.startTotalOrAnnularEclipse(), site),
+          epochSeconds(circum.endTotalOrAnnularEclipse(), site), epochSeconds(circum.endPartialEclipse(), site)
+        ));
+      }
+    }
+    return result;
+  }
+
+  private static List<CircumstancesEngine.Output> batch(BesselianElements bessel, double ΔT, List<Location> sites) {
+    SiteChunk chunk = new SiteChunk(0, sites.size());
+    for (Location site : sites) {
+      chunk.add(site.name(), Maths.radsToDegs(site.φ()), Maths.radsToDegs(site.λ()), site.height(), site.offsetHours() * 60 + site.offsetMinutes());
+    }
+    BatchCircumstances.Results results = new BatchCircumstances(bessel, ΔT).compute(chunk);
+    List<CircumstancesEngine.Output> result = new ArrayList<>();
+    for (int idx = 0; idx < results.size(); ++idx) {
+      if (results.type(idx) == EclipseType.None) {
+        result.add(CircumstancesEngine.Output.NONE);
+      }
+      else {
+        result.add(new CircumstancesEngine.Output(
+          results.type(idx), results.magnitude(idx), Double.NaN, Double.NaN,
+          seconds(results.maximum(idx)), seconds(results.partialStarts(idx)), seconds(results.centralStarts(idx)),
+          seconds(results.centralEnds(idx)), seconds(results.partialEnds(idx))
+        ));
+      }
+    }
+    return result;
+  }
+
+  /** From {@link Worksheet#localCivilTime()}, the time shown on a viewer, less the site's offset from UTC. */
+  private static double epochSeconds(Worksheet w, Location site) {
+    if (w == null) return Double.NaN;
+    LocalDateTime civil = w.localCivilTime();
+    long offsetSeconds = site.offsetHours() * SECONDS_PER_HOUR + site.offsetMinutes() * SECONDS_PER_MINUTE;
+    return civil.toEpochSecond(ZoneOffset.UTC) - offsetSeconds + civil.getNano() / NANOS_PER_SECOND;
+  }
+
+  private static double seconds(long epochSeconds) {
+    return epochSeconds == BatchCircumstances.NO_TIME ? Double.NaN : epochSeconds;
+  }
+}
@@ -2,6 +2,7 @@ package custom.solar.eclipse.viewer.astrocalc;
 
 import static custom.solar.eclipse.viewer.config.Constants.NL;
 import static custom.solar.eclipse.viewer.util.LogUtil.log;
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
 
 import java.time.Duration;
 import java.time.LocalDate;
@@ -9,10 +10,14 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import custom.solar.eclipse.viewer.config.Config;
 import custom.solar.eclipse.viewer.draw.TimelineEvent;
 import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.metrics.CircumstancesEvent;
+import custom.solar.eclipse.viewer.metrics.Metrics;
 
 /** 
  Compute the local circumstances of a given solar eclipse.
@@ -61,44 +66,55 @@ public final class LocalCircumstances {
   
   /** Compute the local circumstances of a solar eclipse. */
   void compute(ShowLogging showLogging) {
-    this.showLogging = showLogging;
-    maximumEclipse = computeLocalMax();
+    computeContacts(showLogging);
     if (maximumEclipse.magnitude() < 0) {
       log("There is no eclipse on that date for the given location.");
     }
     else {
-      logger("Local Maximum Eclipse " + maximumEclipse);
-      logger("TT of local max eclipse: " + maximumEclipse.TT() + NL);
-      logger("UTC of local max eclipse: " + maximumEclipse.UTC() + NL);
-      logger("Civil time of local max eclipse: " + maximumEclipse.localCivilTime() + NL);
+      partialPhasesStart = computePartialPhases(evenlySpacedTimesWithRespectToPeak(START));
+      partialPhasesEnd = computePartialPhases(evenlySpacedTimesWithRespectToPeak(END));
       
+      timelineEvents = computeTimelineEvents();
+    }
+  }
+  
+  /** 
+   Compute only the local maximum, and the contacts. 
+   Enough for a table of many sites (see {@link BatchCircumstances}), which has no use for the partial phases and the timeline.
+  */
+  void computeContacts(ShowLogging showLogging) {
+    this.showLogging = showLogging;
+    CircumstancesEvent event = new CircumstancesEvent();
+    int worksheetsBefore = worksheets;
+    maximumEclipse = computeLocalMax();
+    if (maximumEclipse.magnitude() >= 0) {
+      logger(() -> "Local Maximum Eclipse " + maximumEclipse);
+      logger(() -> "TT of local max eclipse: " + maximumEclipse.TT() + NL);
+      logger(() -> "UTC of local max eclipse: " + maximumEclipse.UTC() + NL);
+      logger(() -> "Civil time of local max eclipse: " + maximumEclipse.localCivilTime() + NL);
       startPartialEclipse = computeContact(START, PENUMBRA, maximumEclipse);
-      logger("Start Partial Eclipse " + startPartialEclipse);
-      logger("UTC of start of partial eclipse: " + startPartialEclipse.UTC() + NL);
-      
+      logger(() -> "Start Partial Eclipse " + startPartialEclipse);
+      logger(() -> "UTC of start of partial eclipse: " + startPartialEclipse.UTC() + NL);
       endPartialEclipse = computeContact(END, PENUMBRA, maximumEclipse);
-      logger("End Partial Eclipse " + endPartialEclipse);
-      logger("UTC of end of partial eclipse: " + endPartialEclipse.UTC() + NL);
-      
+      logger(() -> "End Partial Eclipse " + endPartialEclipse);
+      logger(() -> "UTC of end of partial eclipse: " + endPartialEclipse.UTC() + NL);
       confirmTheOrderOf(startPartialEclipse, endPartialEclipse);
       
       if (maximumEclipse.localEclipseType() != EclipseType.Partial) {
         startTotalOrAnnularEclipse = computeContact(START, UMBRA, maximumEclipse);
-        logger("Start Total/Annular Eclipse " + startTotalOrAnnularEclipse);
-        logger("UTC of start of total/annular eclipse: " + startTotalOrAnnularEclipse.UTC() + NL);
-        
+        logger(() -> "Start Total/Annular Eclipse " + startTotalOrAnnularEclipse);
+        logger(() -> "UTC of start of total/annular eclipse: " + startTotalOrAnnularEclipse.UTC() + NL);
         endTotalOrAnnularEclipse = computeContact(END, UMBRA, maximumEclipse);
-        logger("End Total/Annular Eclipse " + endTotalOrAnnularEclipse);
-        logger("UTC of end of total/annular eclipse: " + endTotalOrAnnularEclipse.UTC() + NL);
-        
+        logger(() -> "End Total/Annular Eclipse " + endTotalOrAnnularEclipse);
+        logger(() -> "UTC of end of total/annular eclipse: " + endTotalOrAnnularEclipse.UTC() + NL);
         confirmTheOrderOf(startPartialEclipse, startTotalOrAnnularEclipse, endTotalOrAnnularEclipse, endPartialEclipse);
       }
-      
-      partialPhasesStart = computePartialPhases(evenlySpacedTimesWithRespectToPeak(START));
-      partialPhasesEnd = computePartialPhases(evenlySpacedTimesWithRespectToPeak(END));
-      
-      timelineEvents = computeTimelineEvents();
     }
+    event.location = location.name();
+    event.eclipseType = maximumEclipse.localEclipseType().toString();
+    event.iterations = worksheets - worksheetsBefore;
+    event.finish();
+    WORKSHEETS.add(event.iterations);
   }
   
   Location location() {  return location;  }
@@ -107,13 +123,27 @@ public final class LocalCircumstances {
   
   Double ΔT() {  return ΔT;  }
   
-  /** Warning: returns null if no eclipse occurs for the given configuration. */
+  /** These are null until computed, and the contacts remain null if there's no eclipse at the location. */
+  Worksheet maximumEclipse() { return maximumEclipse; }
+  Worksheet startPartialEclipse() { return startPartialEclipse; }
+  Worksheet endPartialEclipse() { return endPartialEclipse; }
+  /** Also null for a partial eclipse. */
+  Worksheet startTotalOrAnnularEclipse() { return startTotalOrAnnularEclipse; }
+  Worksheet endTotalOrAnnularEclipse() { return endTotalOrAnnularEclipse; }
+  
+  /** 
+   Warning: returns null if no eclipse occurs for the given configuration.
+   @throws IllegalArgumentException if there's no eclipse at all on the given date.
+  */
   public static EclipseDisplay buildFrom(Config config, ShowLogging showLogging) {
     EclipseDisplay result = null;
     Location location = new Location(config.location(), config.latitude(), config.longitude(), config.altitude(), config.hoursOffsetFromUT(), config.minutesOffsetFromUT());
     Double ΔT = config.ΔT();
     BesselianElementsLookup lookup = new BesselianElementsLookup();
     BesselianElements bessel = lookup.lookup(LocalDate.parse(config.eclipseDateUTC()));
+    if (bessel == null) {
+      throw new IllegalArgumentException("There's no solar eclipse on " + config.eclipseDateUTC() + " (UTC).");
+    }
     LocalCircumstances circum = new LocalCircumstances(location, bessel, ΔT, config.gapBetweenPartialPhases());
     circum.compute(showLogging);
     if(circum.maximumEclipse.localEclipseType() == EclipseType.None) {
@@ -156,42 +186,91 @@ public final class LocalCircumstances {
   private List<TimelineEvent> timelineEvents;
 
   private ShowLogging showLogging = ShowLogging.Yes;
+  /** The number of worksheets computed by the solver so far. */
+  private int worksheets;
+  private int maxIterations;
+  private double maxResidual;
+  private int unconverged;
+  private int timeOrderWarnings;
+  private static final LongAdder WORKSHEETS = Metrics.counter("worksheets");
+  private static final LongAdder UNCONVERGED = Metrics.counter("unconverged_solves");
+  private static final LongAdder TIME_ORDER_WARNINGS = Metrics.counter("time_order_warnings");
   
   private static final double FRACTION_OF_A_SECOND = 0.00001; //unit of hours = 0.036s
   
-  private Worksheet computeLocalMax() {
+  /** Iterate from T0 of the Besselian elements until the correction is less than a fraction of a second. */
+  Worksheet computeLocalMax() {
     double t = 0.0; //hours difference from T0
     Worksheet w = new Worksheet(t, ΔT, bessel, location);
     w.compute();
-    while(Math.abs(w.correctionToTimeOfMaxEclipse()) > FRACTION_OF_A_SECOND) {
+    int iterations = 1;
+    while(Math.abs(w.correctionToTimeOfMaxEclipse()) > FRACTION_OF_A_SECOND && iterations < MAX_ITERATIONS) {
       t = w.t + w.correctionToTimeOfMaxEclipse();
       w = new Worksheet(t, ΔT, bessel, location);
       w.compute();
+      ++iterations;
     }
+    solved("local maximum", iterations, w.correctionToTimeOfMaxEclipse());
     return w;
   }
   
-  private static final boolean START = true;
-  private static final boolean END = false;
+  static final boolean START = true;
+  static final boolean END = false;
   
-  private static final boolean PENUMBRA = true;
-  private static final boolean UMBRA = false;
+  static final boolean PENUMBRA = true;
+  static final boolean UMBRA = false;
   
-  private Worksheet computeContact(boolean isBefore, boolean isPenumbra, Worksheet localMaxEclipse) {
+  /** Iterate from the local maximum eclipse until the correction is less than a fraction of a second. */
+  Worksheet computeContact(boolean isBefore, boolean isPenumbra, Worksheet localMaxEclipse) {
     double t = localMaxEclipse.t;
     double initialCorr = localMaxEclipse.initialCorrectionToTimeOfContact(isBefore, isPenumbra);
     
     Worksheet w = new Worksheet(t + initialCorr, ΔT, bessel, location);
     w.compute();
-    while (Math.abs(w.correctionToTimeOfContact(isBefore, isPenumbra)) > FRACTION_OF_A_SECOND) {
+    int iterations = 1;
+    while (Math.abs(w.correctionToTimeOfContact(isBefore, isPenumbra)) > FRACTION_OF_A_SECOND && iterations < MAX_ITERATIONS) {
       t = w.t + w.correctionToTimeOfContact(isBefore, isPenumbra);
       w = new Worksheet(t, ΔT, bessel, location);
       w.compute();
+      ++iterations;
     }
+    solved("contact", iterations, w.correctionToTimeOfContact(isBefore, isPenumbra));
     return w;
   }
   
-  private static Location usNavalObservatory() {
+  /** 
+   Diagnostics of the solver, since this object was built. 
+   The residual is the size of the last correction of each solve, in hours; it's NaN if a correction couldn't be computed. 
+  */
+  int worksheets() { return worksheets; }
+  int maxIterations() { return maxIterations; }
+  double maxResidual() { return maxResidual; }
+  /** The number of solves that stopped at {@link #MAX_ITERATIONS}, or whose residual isn't a number. */
+  int unconverged() { return unconverged; }
+  /** The number of times the contacts came out in an unexpected order; see {@link #confirmTheOrderOf(Worksheet...)}. */
+  int timeOrderWarnings() { return timeOrderWarnings; }
+  
+  /** A limit, in case the iteration doesn't converge. It usually takes fewer than 10. */
+  static final int MAX_ITERATIONS = 50;
+  
+  private void solved(String what, int iterations, double residual) {
+    worksheets += iterations;
+    maxIterations = Math.max(maxIterations, iterations);
+    if (Double.isNaN(residual) || Double.isNaN(maxResidual)) {
+      maxResidual = Double.NaN;
+    }
+    else {
+      maxResidual = Math.max(maxResidual, Math.abs(residual));
+    }
+    if (Double.isNaN(residual) || Math.abs(residual) > FRACTION_OF_A_SECOND) {
+      ++unconverged;
+      UNCONVERGED.increment();
+      //always shown, whatever the logging setting: the result for this site can't be trusted
+      warn(() -> "The solver didn't converge for the " + what + ", after " + iterations + " iterations; the last correction is " + residual + " hours.");
+    }
+  }
+  
+  static Location usNavalObservatory() {
     return new Location("USNO", Maths.degToRads(38.921389), Maths.degToRads(-77.06556), 84.0, 0, 0);
   }
   
@@ -212,8 +291,12 @@ public final class LocalCircumstances {
   */
   private void  confirmTheOrderOf(Worksheet... ws) {
     for(int idx = 0; idx < ws.length - 1; ++idx) {
-      if ((ws[idx].UTC()).isAfter( ws[idx+1].UTC())){
-        log("Unexpected time order: " + ws[idx].UTC() + " is after " + ws[idx+1].UTC() );
+      if (ws[idx].t > ws[idx+1].t){
+        Worksheet earlier = ws[idx];
+        Worksheet later = ws[idx+1];
+        ++timeOrderWarnings;
+        TIME_ORDER_WARNINGS.increment();
+        logger(() -> "Unexpected time order: " + earlier.UTC() + " is after " + later.UTC() );
       }
     }
   }
@@ -296,7 +379,8 @@ public final class LocalCircumstances {
     return result;
   }
   
-  private void logger(Object thing) {
+  /** The message is built only if it's shown; building it can be expensive, and this is called in the solver. */
+  private void logger(Supplier<?> thing) {
     if(ShowLogging.Yes == showLogging) {
       log(thing);
     }
@@ -28,6 +28,8 @@ final class Location {
     compute();
   }
   
+  String name() { return name; }
+  
   /** In units of the Earth's radius. Accounts for the flattening of the Earth. */
   Double ρsinφ() { return ρsinφ; }
   /** In units of the Earth's radius. Accounts for the flattening of the Earth. */
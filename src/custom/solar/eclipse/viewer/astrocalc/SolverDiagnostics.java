@@ -0,0 +1,90 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import custom.solar.eclipse.viewer.astrocalc.LocalCircumstances.ShowLogging;
+import custom.solar.eclipse.viewer.math.Maths;
+
+/**
+ How well the solver of the local circumstances converges, for one eclipse, at any site.
+ The solver iterates to find the local maximum eclipse, and each contact; see {@link LocalCircumstances}.
+
+ <P>The value of ΔT is the one used by NASA in the catalog, so that any eclipse in the catalog can be checked,
+ including those outside the range of {@link ApproximateDeltaT}.
+
+ <P>Thread-safe: many threads can solve for different sites at the same time.
+*/
+public final class SolverDiagnostics {
+
+  /** The most iterations allowed for any one solve. A solve that reaches it hasn't converged. */
+  public static final int MAX_ITERATIONS = LocalCircumstances.MAX_ITERATIONS;
+
+  /** The dates of all of the eclipses in the catalog, in order. */
+  public static List<LocalDate> catalogDates() {
+    return BesselianElementsLookup.catalogDates();
+  }
+
+  /** @throws IllegalArgumentException if there's no eclipse on the given date. */
+  public SolverDiagnostics(LocalDate dateOfTheEclipse) {
+    BesselianElementsLookup lookup = new BesselianElementsLookup();
+    this.bessel = lookup.lookup(dateOfTheEclipse);
+    if (bessel == null) {
+      throw new IllegalArgumentException("There's no solar eclipse on " + dateOfTheEclipse + " (UTC).");
+    }
+    this.ΔT = lookup.catalogΔT();
+  }
+
+  /** The type of the eclipse as a whole, not at any one site. */
+  public EclipseType eclipseType() {
+    return bessel.eclipseType();
+  }
+
+  /** Solve for the local maximum and the contacts at the given site, at sea level. */
+  public Result solve(double latitudeDegrees, double longitudeDegrees) {
+    Location location = new Location("", Maths.degToRads(latitudeDegrees), Maths.degToRads(longitudeDegrees), 0.0, 0, 0);
+    LocalCircumstances circum = new LocalCircumstances(location, bessel, ΔT, UNUSED_GAP);
+    circum.computeContacts(ShowLogging.No);
+    return new Result(circum);
+  }
+
+  /** What the solver did at one site. */
+  public static final class Result {
+    /** The type of the eclipse at the site. */
+    public EclipseType localEclipseType() { return localEclipseType; }
+    /** The number of worksheets computed, for the local maximum and all of the contacts. */
+    public int worksheets() { return worksheets; }
+    /** The most iterations taken by any one solve. */
+    public int maxIterations() { return maxIterations; }
+    /** The largest of the last corrections of each solve, in seconds. NaN if a correction couldn't be computed. */
+    public double maxResidualSeconds() { return maxResidualSeconds; }
+    /** The number of solves that didn't converge. */
+    public int unconverged() { return unconverged; }
+    /** The number of times the contacts came out in an unexpected order. */
+    public int timeOrderWarnings() { return timeOrderWarnings; }
+
+    private Result(LocalCircumstances circum) {
+      this.localEclipseType = circum.maximumEclipse().localEclipseType();
+      this.worksheets = circum.worksheets();
+      this.maxIterations = circum.maxIterations();
+      this.maxResidualSeconds = circum.maxResidual() * SECONDS_PER_HOUR;
+      this.unconverged = circum.unconverged();
+      this.timeOrderWarnings = circum.timeOrderWarnings();
+    }
+    private final EclipseType localEclipseType;
+    private final int worksheets;
+    private final int maxIterations;
+    private final double maxResidualSeconds;
+    private final int unconverged;
+    private final int timeOrderWarnings;
+  }
+
+  // PRIVATE
+
+  private final BesselianElements bessel;
+  private final Double ΔT;
+
+  /** Only the contacts are computed, so the gap between partial phases is never used. */
+  private static final Integer UNUSED_GAP = 10;
+  private static final double SECONDS_PER_HOUR = 3600.0;
+}
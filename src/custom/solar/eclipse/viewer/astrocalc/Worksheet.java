@@ -299,24 +299,16 @@ final class Worksheet {
   }
   
   /**
+   The hours are added to midnight at the start of the day of maximum eclipse.
+   The result can be any time of day, including the last hour (23:00 to 24:00), and it can fall on an earlier or later day.
    @param t fractional hours from T0.
    @param ΔT in seconds
   */
   private LocalDateTime convertToDateTime(double t , double ΔT) {
     LocalDate date = bessel.whenMaxEclipse().toLocalDate();
     double hours = bessel.T0() + t - ΔT/SECONDS_PER_HOUR; //hours
-    if (hours < 0) {
-      //need to go to the previous day
-      date = date.minusDays(1);
-      hours = hours + 24.0;
-    }
-    else if (hours > 23) {
-      //need to go to the next day
-      date = date.plusDays(1);
-      hours = hours - 24.0;
-    }
+    //hours can be negative, or 24 or more: adding them to midnight moves to another day as needed
     long nanos = Math.round(hours * NANOS_PER_HOUR);
-    LocalTime time = LocalTime.ofNanoOfDay(nanos);
-    return LocalDateTime.of(date, time);
+    return LocalDateTime.of(date, LocalTime.MIDNIGHT).plusNanos(nanos);
   }
 }
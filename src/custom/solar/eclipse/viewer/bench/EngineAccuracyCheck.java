@@ -0,0 +1,50 @@
+package custom.solar.eclipse.viewer.bench;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
+
+import custom.solar.eclipse.viewer.astrocalc.EngineAccuracy;
+import custom.solar.eclipse.viewer.astrocalc.EngineVariant;
+import custom.solar.eclipse.viewer.config.Constants;
+
+/**
+ Check that an implementation of the local circumstances still agrees with the reference.
+ See {@link EngineAccuracy} for the cases, and {@link EngineVariant} for the implementations.
+ Their speed over the same cases is measured by the JMH benchmark <code>EngineVariantBenchmark</code>.
+
+ <P>Doesn't read the config file. Any failure is logged as a warning, at the end.
+*/
+public final class EngineAccuracyCheck {
+
+  /**
+   Optional arguments: the candidate (default BATCH), the number of random sites per eclipse (default 20),
+   and the tolerances: for the times in seconds, the magnitude, and the angles in degrees (see {@link EngineAccuracy.Tolerances#DEFAULT}).
+  */
+  public static void main(String... args) {
+    EngineVariant candidate = args.length > 0 ? EngineVariant.valueOf(args[0].trim().toUpperCase()) : EngineVariant.BATCH;
+    int sitesPerEclipse = args.length > 1 ? Integer.parseInt(args[1]) : SITES_PER_ECLIPSE;
+    EngineAccuracy.Tolerances tolerances = EngineAccuracy.Tolerances.DEFAULT;
+    if (args.length > 4) {
+      tolerances = new EngineAccuracy.Tolerances(Double.parseDouble(args[2]), Double.parseDouble(args[3]), Double.parseDouble(args[4]));
+    }
+    else if (args.length > 2) {
+      log("ERROR. Please pass all 3 tolerances, or none of them.");
+      return;
+    }
+    log("Astronomy engine, version " + Constants.CODE_VERSION + ". Building the cases, and computing the reference...");
+    EngineAccuracy accuracy = new EngineAccuracy(sitesPerEclipse, SEED);
+    EngineAccuracy.Report report = accuracy.compare(candidate, tolerances);
+    for (String line : report.lines()) {
+      log(line);
+    }
+    if (!report.withinTolerances()) {
+      warn(candidate + " doesn't agree with the reference, within the tolerances.");
+    }
+    log("Done.");
+  }
+
+  /** The default number of random sites for each eclipse. Also used by the benchmark, so that it times the same cases. */
+  static final int SITES_PER_ECLIPSE = 20;
+  /** Fixed, so that each run checks the same sites. */
+  static final long SEED = 20240408L;
+}
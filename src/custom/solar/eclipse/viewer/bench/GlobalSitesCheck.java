@@ -0,0 +1,108 @@
+package custom.solar.eclipse.viewer.bench;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import custom.solar.eclipse.viewer.astrocalc.BatchCircumstances;
+import custom.solar.eclipse.viewer.astrocalc.EclipseType;
+import custom.solar.eclipse.viewer.astrocalc.SolverDiagnostics;
+import custom.solar.eclipse.viewer.sites.SiteChunk;
+
+/**
+ Check that a table of sites covering the whole globe is computed without failing, for every eclipse in the catalog.
+ See {@link BatchCircumstances}, the engine of {@link custom.solar.eclipse.viewer.BuildCircumstances}.
+
+ <P>A single site that fails stops a whole run of <code>BuildCircumstances</code>, so every site must succeed.
+ For each site that sees the eclipse, the contacts must also be in time order.
+
+ <P>Uses the value of ΔT in the catalog. Doesn't read the config file. Any failure is logged as a warning, at the end.
+*/
+public final class GlobalSitesCheck {
+
+  /** Optional argument: the step of the grid, in degrees (default 10). */
+  public static void main(String... args) {
+    double step = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_STEP;
+    if (step <= 0) {
+      log("ERROR. Please pass a step that's greater than 0.");
+      return;
+    }
+    SiteChunk sites = globalGrid(step);
+    List<LocalDate> dates = SolverDiagnostics.catalogDates();
+    log("Computing " + dates.size() + " eclipses, for " + sites.size() + " sites every " + step + " degrees.");
+
+    long start = System.nanoTime();
+    List<String> failures = new ArrayList<>();
+    long visible = 0;
+    for (LocalDate date : dates) {
+      try {
+        BatchCircumstances.Results results = BatchCircumstances.withCatalogΔT(date).compute(sites);
+        for (int idx = 0; idx < results.size(); ++idx) {
+          if (results.type(idx) != EclipseType.None) {
+            ++visible;
+            if (!inTimeOrder(results, idx)) {
+              failures.add(date + " at " + sites.latitude(idx) + ", " + sites.longitude(idx) + ": the contacts are out of order.");
+            }
+          }
+        }
+      }
+      catch (RuntimeException ex) {
+        failures.add(date + ": " + ex);
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1.0E9;
+
+    log(String.format("Eclipse-site pairs: %d, of which the eclipse is seen at %d. Time: %.2f s.", (long)dates.size() * sites.size(), visible, seconds));
+    for (int idx = 0; idx < Math.min(failures.size(), MAX_FAILURES_LOGGED); ++idx) {
+      log("  " + failures.get(idx));
+    }
+    if (failures.isEmpty()) {
+      log("Every site was computed, for every eclipse.");
+    }
+    else {
+      warn(failures.size() + " failures. The first " + Math.min(failures.size(), MAX_FAILURES_LOGGED) + " are listed above.");
+    }
+    log("Done.");
+  }
+
+  // PRIVATE
+
+  private static final double DEFAULT_STEP = 10.0;
+  private static final int MAX_FAILURES_LOGGED = 20;
+
+  /** At sea level, with the time zone of the nearest multiple of 15 degrees of longitude. Includes both poles. */
+  private static SiteChunk globalGrid(double step) {
+    List<double[]> points = new ArrayList<>();
+    for (int lat = 0; -90.0 + lat * step <= 90.0; ++lat) {
+      for (int lon = 0; -180.0 + lon * step < 180.0; ++lon) {
+        points.add(new double[] {-90.0 + lat * step, -180.0 + lon * step});
+      }
+    }
+    SiteChunk result = new SiteChunk(0, points.size());
+    for (double[] point : points) {
+      result.add("", point[0], point[1], 0.0, (int)Math.round(point[1] / 15) * 60);
+    }
+    return result;
+  }
+
+  /** The times that don't apply are skipped. */
+  private static boolean inTimeOrder(BatchCircumstances.Results results, int idx) {
+    long[] times = {
+      results.partialStarts(idx), results.centralStarts(idx), results.maximum(idx), results.centralEnds(idx), results.partialEnds(idx)
+    };
+    boolean result = true;
+    long previous = Long.MIN_VALUE;
+    for (long time : times) {
+      if (time != BatchCircumstances.NO_TIME) {
+        if (time < previous) {
+          result = false;
+        }
+        previous = time;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,334 @@
+package custom.solar.eclipse.viewer.bench;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PRStream;
+import com.itextpdf.text.pdf.PRTokeniser;
+import com.itextpdf.text.pdf.PdfContentParser;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfLiteral;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+
+import custom.solar.eclipse.viewer.GeneratePdfABC;
+import custom.solar.eclipse.viewer.GraphicsBackend;
+import custom.solar.eclipse.viewer.OutputProfile;
+import custom.solar.eclipse.viewer.PageComposition;
+import custom.solar.eclipse.viewer.PagePreview;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromFile;
+import custom.solar.eclipse.viewer.config.QRCode;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.draw.mix.DrawQrCode;
+import custom.solar.eclipse.viewer.draw.mix.TextMetrics;
+import custom.solar.eclipse.viewer.graphics.SvgGraphics2D;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ Report on what each way of producing a viewer actually outputs: whether the pages look the same, and how big the output is.
+ Nothing here is timed; the time and allocation of each of these are measured by the JMH benchmarks.
+
+ <P>The report has these parts:
+ <ul>
+  <li>the graphics backends (see {@link GraphicsBackend}): the size of the file, and the pixels and the text that differ from the reference;
+  <li>the page compositions (see {@link PageComposition}): the size of the file, and the pixels that differ from the serial composition;
+  <li>the content streams: the number of operators on each page, with the most common ones, which show what kind of drawing dominates;
+  <li>the output profiles (see {@link OutputProfile}): the size of a single viewer, and of a booklet;
+  <li>SVG, with text as elements and as outlines, compared with PDF;
+  <li>QR codes: the size of the content stream, for one rectangle per dark module (the old way), and for {@link DrawQrCode};
+  <li>booklets: the size per viewer, and the retained heap, versus the number of viewers, and then the hit rate of {@link TextMetrics};
+  <li>the preview images (see {@link PagePreview}): their size, and the region painted again after a single setting changes.
+  The images are saved to the output directory, for inspection.
+ </ul>
+
+ <P>The pages are compared by rendering each of them to an image with {@link PdfRaster}, and counting the pixels that differ.
+ That rasterizer draws each glyph as a box, so the pixels don't show the shapes of the glyphs.
+ The text is compared separately: the font, the glyph codes, and the render state of each piece of text.
+ Operators in form XObjects (templates) are counted as part of the page that uses them.
+
+ <P>The retained heap of a booklet is sampled after a garbage collection, each time the next viewer is requested.
+ When pages are flushed as they are completed, it stays flat as the number of viewers grows.
+
+ <P>Uses the usual config file (see {@link ConfigFromFile}). Every viewer in a booklet uses the same config.
+*/
+public final class OutputReport {
+
+  /** Optional argument: the resolution of the page images used to compare pages, in dots per inch. */
+  public static void main(String... args) throws Exception {
+    int dotsPerInch = args.length > 0 ? Integer.parseInt(args[0]) : DOTS_PER_INCH;
+    if (dotsPerInch <= 0) {
+      log("ERROR. Please pass a resolution that's greater than 0.");
+      return;
+    }
+    Config config = new ConfigFromFile().init();
+    GenerateViewer viewer = new GenerateViewer(config);
+    backends(viewer, dotsPerInch);
+    compositions(viewer, dotsPerInch);
+    contentStreams(viewer);
+    profiles(config, viewer);
+    svg(viewer);
+    qrCodes(config);
+    booklets(config);
+    previews(config, viewer);
+    log("Done.");
+  }
+
+  /**
+   The original implementation of {@link DrawQrCode}, kept for comparison: it encodes the link every time,
+   and fills one small rectangle for each dark module.
+  */
+  static void drawQrCodePerModule(QRCode qrCode, int size, Graphics2D g) throws Exception {
+    Hashtable<EncodeHintType, ErrorCorrectionLevel> hints = new Hashtable<>();
+    hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.L);
+    QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    BitMatrix matrix = qrCodeWriter.encode(qrCode.url(), BarcodeFormat.QR_CODE, size, size, hints);
+    for (int i = 0; i < matrix.getWidth(); i++) {
+      for (int j = 0; j < matrix.getWidth(); j++) {
+        if (matrix.get(i, j)) {
+          g.fillRect(i, j, 1, 1);
+        }
+      }
+    }
+  }
+
+  // PRIVATE
+
+  private static final int DOTS_PER_INCH = 150;
+  private static final int PREVIEW_DOTS_PER_INCH = 96;
+  private static final int MAX_TEXT_DIFFERENCES = 5;
+  private static final int NUM_MOST_COMMON = 8;
+  private static final int PROFILE_BOOKLET_VIEWERS = 50;
+  private static final int[] BOOKLET_VIEWERS = {1, 10, 50, 100, 200};
+  private static final int QR_CODE_SIZE = 90;
+  private static final int KB = 1024;
+
+  private static void backends(GenerateViewer viewer, int dotsPerInch) throws Exception {
+    log("Graphics backends. Glyphs are rendered as boxes, so the pixels show their positions and sizes, but not their shapes. The text is compared on its own.");
+    byte[] reference = pdf(viewer, GraphicsBackend.PDF_GRAPHICS_2D, PageComposition.SERIAL);
+    BufferedImage[] referencePages = PdfRaster.pagesOf(reference, dotsPerInch);
+    List<List<String>> referenceText = PdfRaster.textRunsOf(reference);
+    for (GraphicsBackend backend : GraphicsBackend.values()) {
+      byte[] pdf = pdf(viewer, backend, PageComposition.SERIAL);
+      log(backend + ": " + pdf.length + " bytes in the file");
+      logPixelDifferences(referencePages, PdfRaster.pagesOf(pdf, dotsPerInch), GraphicsBackend.PDF_GRAPHICS_2D, dotsPerInch);
+      List<List<String>> text = PdfRaster.textRunsOf(pdf);
+      for (int idx = 0; idx < text.size(); ++idx) {
+        logTextDifferences(idx + 1, referenceText.get(idx), text.get(idx));
+      }
+    }
+  }
+
+  private static void compositions(GenerateViewer viewer, int dotsPerInch) throws Exception {
+    log("Page compositions.");
+    for (GraphicsBackend backend : GraphicsBackend.values()) {
+      BufferedImage[] referencePages = PdfRaster.pagesOf(pdf(viewer, backend, PageComposition.SERIAL), dotsPerInch);
+      for (PageComposition composition : PageComposition.values()) {
+        byte[] pdf = pdf(viewer, backend, composition);
+        log(backend + ", " + composition + ": " + pdf.length + " bytes in the file");
+        logPixelDifferences(referencePages, PdfRaster.pagesOf(pdf, dotsPerInch), PageComposition.SERIAL, dotsPerInch);
+      }
+    }
+  }
+
+  private static void contentStreams(GenerateViewer viewer) throws Exception {
+    log("Content streams.");
+    for (GraphicsBackend backend : GraphicsBackend.values()) {
+      log(backend + ":");
+      PdfReader reader = new PdfReader(pdf(viewer, backend, PageComposition.SERIAL));
+      for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); ++pageNum) {
+        Map<String, Integer> counts = new TreeMap<>();
+        countOperators(reader.getPageContent(pageNum), reader.getPageN(pageNum).getAsDict(PdfName.RESOURCES), counts);
+        log("  Page " + pageNum + ": " + total(counts) + " operators, most common " + mostCommon(counts));
+      }
+      reader.close();
+    }
+  }
+
+  private static void profiles(Config config, GenerateViewer viewer) throws Exception {
+    log("Output profiles.");
+    for (OutputProfile profile : OutputProfile.values()) {
+      CountingOutputStream single = new CountingOutputStream();
+      viewer.outputTo(single, GraphicsBackend.PDF_GRAPHICS_2D, PageComposition.SERIAL, profile);
+      CountingOutputStream booklet = new CountingOutputStream();
+      GeneratePdfABC.outputAllTo(booklet, viewers(config, PROFILE_BOOKLET_VIEWERS, null), GraphicsBackend.PDF_GRAPHICS_2D, profile);
+      log(profile + ": single viewer " + single.count() + " bytes; booklet of " + PROFILE_BOOKLET_VIEWERS + " viewers " + booklet.count() + " bytes");
+    }
+  }
+
+  private static void svg(GenerateViewer viewer) throws Exception {
+    log("SVG, both pages, compared with PDF.");
+    CountingOutputStream pdf = new CountingOutputStream();
+    viewer.outputTo(pdf);
+    log("PDF: " + pdf.count() + " bytes");
+    for (SvgGraphics2D.Text text : SvgGraphics2D.Text.values()) {
+      CountingOutputStream svg = new CountingOutputStream();
+      viewer.outputSvgTo(1, svg, text);
+      viewer.outputSvgTo(2, svg, text);
+      log("SVG, text as " + text + ": " + svg.count() + " bytes");
+    }
+  }
+
+  private static void qrCodes(Config config) throws Exception {
+    log("QR codes: the size of the content stream.");
+    Document document = new Document();
+    PdfWriter writer = PdfWriter.getInstance(document, new CountingOutputStream());
+    document.open();
+    QRCode qrCode = config.qrCode1();
+    PdfTemplate perModule = writer.getDirectContent().createTemplate(QR_CODE_SIZE, QR_CODE_SIZE);
+    Graphics2D g = new PdfGraphics2D(perModule, QR_CODE_SIZE, QR_CODE_SIZE);
+    drawQrCodePerModule(qrCode, QR_CODE_SIZE, g);
+    g.dispose();
+    PdfTemplate mergedRuns = writer.getDirectContent().createTemplate(QR_CODE_SIZE, QR_CODE_SIZE);
+    g = new PdfGraphics2D(mergedRuns, QR_CODE_SIZE, QR_CODE_SIZE);
+    new DrawQrCode(qrCode, QR_CODE_SIZE).draw(g);
+    g.dispose();
+    log("One rectangle per module: " + perModule.getInternalBuffer().size() + " bytes");
+    log("Merged runs: " + mergedRuns.getInternalBuffer().size() + " bytes");
+  }
+
+  private static void booklets(Config config) throws Exception {
+    log("Booklets.");
+    log("Viewers, Bytes, Bytes per viewer, Max retained heap (KB)");
+    for (int viewerCount : BOOKLET_VIEWERS) {
+      CountingOutputStream output = new CountingOutputStream();
+      HeapSampler heap = new HeapSampler();
+      GeneratePdfABC.outputAllTo(output, viewers(config, viewerCount, heap));
+      log(viewerCount + ", " + output.count() + ", " + (output.count() / viewerCount) + ", " + (heap.max / KB));
+    }
+    log(TextMetrics.stats());
+  }
+
+  private static void previews(Config config, GenerateViewer viewer) throws Exception {
+    log("Preview images.");
+    GenerateViewer renamed = new GenerateViewer(config.toBuilder().location(config.location() + " (North)").build());
+    for (int page = 1; page <= 2; ++page) {
+      PagePreview preview = new PagePreview(page, PREVIEW_DOTS_PER_INCH);
+      preview.render(viewer);
+      Rectangle region = preview.render(renamed);
+      log("Page " + page + " at " + PREVIEW_DOTS_PER_INCH + " dpi, " + preview.image().getWidth() + "x" + preview.image().getHeight() + " pixels.");
+      log("  After changing the location, painting " + region.width + "x" + region.height + " pixels");
+      preview.render(viewer);
+      File file = new File(config.outputDir(), "preview-page-" + page + ".png");
+      try (OutputStream output = new FileOutputStream(file)) {
+        preview.writePngTo(output);
+      }
+      log("  Saved to " + file);
+    }
+  }
+
+  private static byte[] pdf(GenerateViewer viewer, GraphicsBackend backend, PageComposition composition) throws Exception {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    viewer.outputTo(result, backend, composition);
+    return result.toByteArray();
+  }
+
+  private static void logPixelDifferences(BufferedImage[] referencePages, BufferedImage[] pages, Object reference, int dotsPerInch) {
+    for (int idx = 0; idx < pages.length; ++idx) {
+      long differing = PdfRaster.differingPixels(referencePages[idx], pages[idx]);
+      log("  Page " + (idx + 1) + ": " + differing + " pixels differ from " + reference + ", at " + dotsPerInch + " dpi");
+    }
+  }
+
+  /** The font, glyph codes, and render state of each piece of text, in order. */
+  private static void logTextDifferences(int pageNum, List<String> expected, List<String> actual) {
+    int differing = 0;
+    int count = Math.max(expected.size(), actual.size());
+    for (int idx = 0; idx < count; ++idx) {
+      String a = idx < expected.size() ? expected.get(idx) : "(none)";
+      String b = idx < actual.size() ? actual.get(idx) : "(none)";
+      if (!a.equals(b)) {
+        if (differing < MAX_TEXT_DIFFERENCES) {
+          log("    Text " + (idx + 1) + ": " + b + " instead of " + a);
+        }
+        ++differing;
+      }
+    }
+    log("  Page " + pageNum + ": " + differing + " of " + count + " pieces of text differ in font, glyphs, or render state");
+  }
+
+  /** Recurses into the form XObjects drawn by the content. */
+  private static void countOperators(byte[] content, PdfDictionary resources, Map<String, Integer> counts) throws Exception {
+    PdfDictionary xObjects = resources == null ? null : resources.getAsDict(PdfName.XOBJECT);
+    PRTokeniser tokeniser = new PRTokeniser(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(content)));
+    PdfContentParser parser = new PdfContentParser(tokeniser);
+    ArrayList<PdfObject> operands = new ArrayList<>();
+    while (parser.parse(operands).size() > 0) {
+      String operator = ((PdfLiteral)operands.get(operands.size() - 1)).toString();
+      counts.merge(operator, 1, Integer::sum);
+      if ("Do".equals(operator) && xObjects != null) {
+        PdfObject xObject = PdfReader.getPdfObject(xObjects.get((PdfName)operands.get(0)));
+        if (xObject instanceof PRStream && PdfName.FORM.equals(((PRStream)xObject).getAsName(PdfName.SUBTYPE))) {
+          PRStream form = (PRStream)xObject;
+          countOperators(PdfReader.getStreamBytes(form), form.getAsDict(PdfName.RESOURCES), counts);
+        }
+      }
+    }
+  }
+
+  private static int total(Map<String, Integer> counts) {
+    return counts.values().stream().mapToInt(Integer::intValue).sum();
+  }
+
+  private static String mostCommon(Map<String, Integer> counts) {
+    StringBuilder result = new StringBuilder();
+    counts.entrySet().stream()
+      .sorted((a, b) -> b.getValue() - a.getValue())
+      .limit(NUM_MOST_COMMON)
+      .forEach(entry -> result.append(entry.getKey()).append('=').append(entry.getValue()).append(' '))
+    ;
+    return result.toString().trim();
+  }
+
+  /** A new viewer each time, all with the same config. The heap is sampled before each one, if there's a sampler. */
+  private static Iterator<GeneratePdfABC> viewers(Config config, int viewerCount, HeapSampler heap){
+    return new Iterator<GeneratePdfABC>() {
+      @Override public boolean hasNext() {
+        return count < viewerCount;
+      }
+      @Override public GeneratePdfABC next() {
+        if (heap != null) {
+          heap.sample();
+        }
+        ++count;
+        return new GenerateViewer(config);
+      }
+      private int count;
+    };
+  }
+
+  private static final class HeapSampler {
+    void sample() {
+      System.gc();
+      long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+      max = Math.max(max, used);
+    }
+    long max;
+  }
+}
@@ -0,0 +1,375 @@
+package custom.solar.eclipse.viewer.bench;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfLiteral;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.ContentByteUtils;
+import com.itextpdf.text.pdf.parser.ContentOperator;
+import com.itextpdf.text.pdf.parser.ExtRenderListener;
+import com.itextpdf.text.pdf.parser.ImageRenderInfo;
+import com.itextpdf.text.pdf.parser.LineDashPattern;
+import com.itextpdf.text.pdf.parser.LineSegment;
+import com.itextpdf.text.pdf.parser.Matrix;
+import com.itextpdf.text.pdf.parser.Path;
+import com.itextpdf.text.pdf.parser.PathConstructionRenderInfo;
+import com.itextpdf.text.pdf.parser.PathPaintingRenderInfo;
+import com.itextpdf.text.pdf.parser.PdfContentStreamProcessor;
+import com.itextpdf.text.pdf.parser.TextRenderInfo;
+import com.itextpdf.text.pdf.parser.Vector;
+
+/**
+ A minimal rasterizer for the PDFs made by this project, for comparing the output of different graphics backends.
+ There's no PDF renderer among the project's libraries, so this uses iText's content parser, and java.awt to paint.
+
+ <P>Paths are filled and stroked with their colors, line widths, caps, joins and dashes, inside their clipping paths.
+ Text is painted as a box for each glyph, from its ascent line to its descent line; the box is also stroked,
+ when the text render mode strokes the glyphs (as when simulating a bold font).
+ The boxes show the position, size and spacing of each glyph, but not its shape.
+ So identical images don't prove that the text is identical: {@link #textRunsOf(byte[])} lists what the boxes leave out,
+ the font, the glyph codes, and the render state of each piece of text.
+
+ <P>Images, shadings, and patterns aren't supported, since this project doesn't use them.
+*/
+final class PdfRaster {
+
+  /** Render each page of the given PDF, at the given resolution. */
+  static BufferedImage[] pagesOf(byte[] pdf, int dotsPerInch) throws IOException {
+    PdfReader reader = new PdfReader(pdf);
+    try {
+      BufferedImage[] result = new BufferedImage[reader.getNumberOfPages()];
+      for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); ++pageNum) {
+        result[pageNum - 1] = page(reader, pageNum, dotsPerInch);
+      }
+      return result;
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  /**
+   Describe each piece of text on each page of the given PDF, in the order in which it's written.
+   Each item has the font's PostScript name (without the tag of a subset), the text render mode, the line width when the mode strokes the glyphs,
+   and the glyph codes, in hex.
+  */
+  static List<List<String>> textRunsOf(byte[] pdf) throws IOException {
+    PdfReader reader = new PdfReader(pdf);
+    try {
+      List<List<String>> result = new ArrayList<>();
+      BufferedImage ignored = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+      for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); ++pageNum) {
+        Graphics2D g = ignored.createGraphics();
+        result.add(process(reader, pageNum, g).textRuns);
+        g.dispose();
+      }
+      return result;
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  /** The number of pixels that differ between the two images. Images of different sizes differ in every pixel. */
+  static long differingPixels(BufferedImage a, BufferedImage b) {
+    if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+      return Math.max((long)a.getWidth() * a.getHeight(), (long)b.getWidth() * b.getHeight());
+    }
+    long result = 0;
+    for (int y = 0; y < a.getHeight(); ++y) {
+      for (int x = 0; x < a.getWidth(); ++x) {
+        if (a.getRGB(x, y) != b.getRGB(x, y)) {
+          ++result;
+        }
+      }
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private static final float POINTS_PER_INCH = 72.0f;
+
+  private static BufferedImage page(PdfReader reader, int pageNum, int dotsPerInch) throws IOException {
+    Rectangle size = reader.getPageSize(pageNum);
+    double scale = dotsPerInch / POINTS_PER_INCH;
+    int width = (int)Math.ceil(size.getWidth() * scale);
+    int height = (int)Math.ceil(size.getHeight() * scale);
+    BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = result.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, width, height);
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+    //PDF coordinates go up the page
+    g.translate(0, height);
+    g.scale(scale, -scale);
+    g.translate(-size.getLeft(), -size.getBottom());
+    process(reader, pageNum, g);
+    g.dispose();
+    return result;
+  }
+
+  private static Painter process(PdfReader reader, int pageNum, Graphics2D g) throws IOException {
+    Painter painter = new Painter(g);
+    PdfContentStreamProcessor processor = new PdfContentStreamProcessor(painter);
+    painter.processor = processor;
+    ContentOperator save = processor.registerContentOperator("q", null);
+    processor.registerContentOperator("q", new ClipStackOperator(save, painter, true));
+    ContentOperator restore = processor.registerContentOperator("Q", null);
+    processor.registerContentOperator("Q", new ClipStackOperator(restore, painter, false));
+    PdfDictionary resources = reader.getPageN(pageNum).getAsDict(PdfName.RESOURCES);
+    processor.processContent(ContentByteUtils.getContentBytesForPage(reader, pageNum), resources);
+    return painter;
+  }
+
+  /** Keeps the clip in step with the graphics state, which the parser doesn't report to its listener. */
+  private static final class ClipStackOperator implements ContentOperator {
+    ClipStackOperator(ContentOperator original, Painter painter, boolean isSave) {
+      this.original = original;
+      this.painter = painter;
+      this.isSave = isSave;
+    }
+    @Override public void invoke(PdfContentStreamProcessor processor, PdfLiteral operator, ArrayList<PdfObject> operands) throws Exception {
+      original.invoke(processor, operator, operands);
+      if (isSave) {
+        painter.saveClip();
+      }
+      else {
+        painter.restoreClip();
+      }
+    }
+    private ContentOperator original;
+    private Painter painter;
+    private boolean isSave;
+  }
+
+  private static final class Painter implements ExtRenderListener {
+    Painter(Graphics2D g) {
+      this.g = g;
+    }
+
+    @Override public void modifyPath(PathConstructionRenderInfo info) {
+      List<Float> data = info.getSegmentData();
+      Matrix ctm = info.getCtm();
+      switch (info.getOperation()) {
+        case PathConstructionRenderInfo.MOVETO:
+          moveTo(ctm, data.get(0), data.get(1));
+          break;
+        case PathConstructionRenderInfo.LINETO:
+          lineTo(ctm, data.get(0), data.get(1));
+          break;
+        case PathConstructionRenderInfo.CURVE_123:
+          curveTo(ctm, data.get(0), data.get(1), data.get(2), data.get(3), data.get(4), data.get(5));
+          break;
+        case PathConstructionRenderInfo.CURVE_23:
+          curveTo(ctm, lastX, lastY, data.get(0), data.get(1), data.get(2), data.get(3));
+          break;
+        case PathConstructionRenderInfo.CURVE_13:
+          curveTo(ctm, data.get(0), data.get(1), data.get(2), data.get(3), data.get(2), data.get(3));
+          break;
+        case PathConstructionRenderInfo.CLOSE:
+          path.closePath();
+          break;
+        case PathConstructionRenderInfo.RECT:
+          float x = data.get(0);
+          float y = data.get(1);
+          float w = data.get(2);
+          float h = data.get(3);
+          moveTo(ctm, x, y);
+          lineTo(ctm, x + w, y);
+          lineTo(ctm, x + w, y + h);
+          lineTo(ctm, x, y + h);
+          path.closePath();
+          break;
+      }
+    }
+
+    @Override public Path renderPath(PathPaintingRenderInfo info) {
+      int rule = info.getRule() == PathPaintingRenderInfo.EVEN_ODD_RULE ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO;
+      path.setWindingRule(rule);
+      g.setClip(clip);
+      if ((info.getOperation() & PathPaintingRenderInfo.FILL) != 0) {
+        g.setColor(colorOf(processor.gs().getFillColor()));
+        g.fill(path);
+      }
+      if ((info.getOperation() & PathPaintingRenderInfo.STROKE) != 0) {
+        g.setColor(colorOf(processor.gs().getStrokeColor()));
+        g.setStroke(strokeFor(info));
+        g.draw(path);
+      }
+      if (pendingClip) {
+        Area area = new Area(path);
+        if (clip != null) {
+          area.intersect(new Area(clip));
+        }
+        clip = area;
+        pendingClip = false;
+      }
+      path = new GeneralPath();
+      return null;
+    }
+
+    @Override public void clipPath(int rule) {
+      pendingClip = true;
+    }
+
+    @Override public void renderText(TextRenderInfo info) {
+      int mode = info.getTextRenderMode();
+      boolean fills = mode == FILL || mode == FILL_STROKE;
+      boolean strokes = mode == STROKE || mode == FILL_STROKE;
+      float lineWidth = processor.gs().getLineWidth();
+      textRuns.add(describe(info, strokes, lineWidth));
+      g.setClip(clip);
+      for (TextRenderInfo glyph : info.getCharacterRenderInfos()) {
+        LineSegment ascent = glyph.getAscentLine();
+        LineSegment descent = glyph.getDescentLine();
+        GeneralPath box = new GeneralPath();
+        box.moveTo(x(descent.getStartPoint()), y(descent.getStartPoint()));
+        box.lineTo(x(descent.getEndPoint()), y(descent.getEndPoint()));
+        box.lineTo(x(ascent.getEndPoint()), y(ascent.getEndPoint()));
+        box.lineTo(x(ascent.getStartPoint()), y(ascent.getStartPoint()));
+        box.closePath();
+        if (fills) {
+          g.setColor(colorOf(info.getFillColor()));
+          g.fill(box);
+        }
+        if (strokes) {
+          g.setColor(colorOf(info.getStrokeColor()));
+          g.setStroke(new BasicStroke(lineWidth * scaleOf(processor.gs().getCtm())));
+          g.draw(box);
+        }
+      }
+    }
+
+    @Override public void beginTextBlock() { }
+    @Override public void endTextBlock() { }
+    @Override public void renderImage(ImageRenderInfo info) { }
+
+    void saveClip() {
+      clips.push(clip == null ? NO_CLIP : clip);
+    }
+
+    void restoreClip() {
+      Shape saved = clips.isEmpty() ? NO_CLIP : clips.pop();
+      clip = (saved == NO_CLIP) ? null : saved;
+    }
+
+    PdfContentStreamProcessor processor;
+    final List<String> textRuns = new ArrayList<>();
+    private Graphics2D g;
+    private GeneralPath path = new GeneralPath();
+    private float lastX;
+    private float lastY;
+    private Shape clip;
+    private boolean pendingClip;
+    private final Deque<Shape> clips = new ArrayDeque<>();
+    /** The deque doesn't accept nulls. */
+    private static final Shape NO_CLIP = new GeneralPath();
+    /** The text render modes, as in the PDF spec. */
+    private static final int FILL = 0;
+    private static final int STROKE = 1;
+    private static final int FILL_STROKE = 2;
+
+    private static String describe(TextRenderInfo info, boolean strokes, float lineWidth) {
+      StringBuilder result = new StringBuilder();
+      result.append(withoutSubsetTag(info.getFont().getPostscriptFontName())).append(" mode ").append(info.getTextRenderMode());
+      if (strokes) {
+        result.append(" width ").append(lineWidth);
+      }
+      result.append(" [");
+      for (byte b : info.getPdfString().getBytes()) {
+        result.append(String.format("%02x", b & 0xFF));
+      }
+      return result.append("]").toString();
+    }
+
+    /** The tag of an embedded subset, as in "ABCDEF+Name", is random, so it differs between any two files. */
+    private static String withoutSubsetTag(String fontName) {
+      return fontName.length() > 7 && fontName.charAt(6) == '+' ? fontName.substring(7) : fontName;
+    }
+
+    private void moveTo(Matrix ctm, float x, float y) {
+      Vector v = new Vector(x, y, 1).cross(ctm);
+      path.moveTo(v.get(Vector.I1), v.get(Vector.I2));
+      lastX = x;
+      lastY = y;
+    }
+
+    private void lineTo(Matrix ctm, float x, float y) {
+      Vector v = new Vector(x, y, 1).cross(ctm);
+      path.lineTo(v.get(Vector.I1), v.get(Vector.I2));
+      lastX = x;
+      lastY = y;
+    }
+
+    private void curveTo(Matrix ctm, float x1, float y1, float x2, float y2, float x3, float y3) {
+      Vector a = new Vector(x1, y1, 1).cross(ctm);
+      Vector b = new Vector(x2, y2, 1).cross(ctm);
+      Vector c = new Vector(x3, y3, 1).cross(ctm);
+      path.curveTo(a.get(Vector.I1), a.get(Vector.I2), b.get(Vector.I1), b.get(Vector.I2), c.get(Vector.I1), c.get(Vector.I2));
+      lastX = x3;
+      lastY = y3;
+    }
+
+    private static float x(Vector v) {
+      return v.get(Vector.I1);
+    }
+
+    private static float y(Vector v) {
+      return v.get(Vector.I2);
+    }
+
+    private static Color colorOf(BaseColor color) {
+      return color == null ? Color.BLACK : new Color(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+    }
+
+    private static float scaleOf(Matrix ctm) {
+      AffineTransform tx = new AffineTransform(ctm.get(Matrix.I11), ctm.get(Matrix.I12), ctm.get(Matrix.I21), ctm.get(Matrix.I22), 0, 0);
+      return (float)Math.sqrt(Math.abs(tx.getDeterminant()));
+    }
+
+    /** The line width is in user space, so it's scaled by the current transformation matrix. */
+    private static BasicStroke strokeFor(PathPaintingRenderInfo info) {
+      float scale = scaleOf(info.getCtm());
+      float[] dashes = dashesFor(info.getLineDashPattern(), scale);
+      LineDashPattern pattern = info.getLineDashPattern();
+      float phase = pattern == null ? 0 : pattern.getDashPhase() * scale;
+      return new BasicStroke(
+        info.getLineWidth() * scale, info.getLineCapStyle(), info.getLineJoinStyle(), Math.max(1.0f, info.getMiterLimit()), dashes, phase
+      );
+    }
+
+    private static float[] dashesFor(LineDashPattern pattern, float scale) {
+      float[] result = null;
+      if (pattern != null && pattern.getDashArray() != null && pattern.getDashArray().size() > 0) {
+        PdfArray array = pattern.getDashArray();
+        result = new float[array.size()];
+        for (int idx = 0; idx < array.size(); ++idx) {
+          result[idx] = array.getAsNumber(idx).floatValue() * scale;
+        }
+      }
+      return result;
+    }
+  }
+}
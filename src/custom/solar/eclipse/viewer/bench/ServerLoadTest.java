@@ -0,0 +1,124 @@
+package custom.solar.eclipse.viewer.bench;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import custom.solar.eclipse.viewer.config.ConfigFromParams;
+import custom.solar.eclipse.viewer.output.DiskCache;
+import custom.solar.eclipse.viewer.server.ViewerServer;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ Load test for the web service: latency percentiles, and requests per second.
+ See {@link ViewerServer}.
+
+ <P>A server is started in the same JVM, on a free port, with the default settings.
+ A number of clients then send requests as fast as they can, each client waiting for one response before sending the next request.
+ Each request is for a different site (the latitude changes a little each time), unless the sites are all the same.
+ The latency is measured by the client, from sending the request to reading the last byte of the response.
+
+ <P>The number of responses of each status is listed too.
+ Status 503 means the request was turned away by admission control.
+*/
+public final class ServerLoadTest {
+
+  /**
+   Optional arguments: the number of clients, the number of requests for each client, 'same' to request the same site every time
+   (or 'different'), and a directory for a disk cache.
+   By default, 8 clients each sending 25 requests, for different sites, with no disk cache.
+  */
+  public static void main(String... args) throws Exception {
+    int numClients = args.length > 0 ? Integer.parseInt(args[0]) : NUM_CLIENTS;
+    int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : REQUESTS_PER_CLIENT;
+    boolean sameSite = args.length > 2 && "same".equalsIgnoreCase(args[2]);
+    DiskCache diskCache = args.length > 3 ? new DiskCache(Paths.get(args[3]), DISK_CACHE_BYTES) : null;
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    ViewerServer server = new ViewerServer(new InetSocketAddress("127.0.0.1", 0), new ConfigFromParams(), processors, MAX_WAITING, MAX_WAIT_MILLIS, CACHE_MILLIS, diskCache);
+    server.start();
+    String base = "http://127.0.0.1:" + server.port() + "/viewer?location_name=Load%20test&location_latitude=";
+
+    ExecutorService clients = Executors.newFixedThreadPool(numClients);
+    List<Future<List<Sample>>> results = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int client = 0; client < numClients; ++client) {
+      int clientId = client;
+      results.add(clients.submit(() -> {
+        List<Sample> samples = new ArrayList<>();
+        for (int idx = 0; idx < requestsPerClient; ++idx) {
+          double latitude = sameSite ? BASE_LATITUDE : BASE_LATITUDE + (clientId * requestsPerClient + idx) * LATITUDE_STEP;
+          samples.add(request(new URL(base + latitude)));
+        }
+        return samples;
+      }));
+    }
+    List<Sample> samples = new ArrayList<>();
+    for (Future<List<Sample>> result : results) {
+      samples.addAll(result.get());
+    }
+    double seconds = (System.nanoTime() - start) / 1.0E9;
+    clients.shutdown();
+    server.stop();
+
+    long[] nanos = samples.stream().filter(s -> s.status == 200).mapToLong(s -> s.nanos).sorted().toArray();
+    Map<Integer, Integer> statuses = new TreeMap<>();
+    for (Sample sample : samples) {
+      statuses.merge(sample.status, 1, Integer::sum);
+    }
+    log("Clients: " + numClients + ", requests: " + samples.size() + (sameSite ? ", all for the same site" : ", each for a different site") + ", processors: " + processors);
+    log("Statuses: " + statuses);
+    log(String.format("Throughput: %.1f requests/s", samples.size() / seconds));
+    log(String.format("Latency of successful requests: p50 %.1f ms, p99 %.1f ms, max %.1f ms", millis(nanos, 0.50), millis(nanos, 0.99), millis(nanos, 1.0)));
+    log("Server: " + server.stats());
+  }
+
+  private static final int NUM_CLIENTS = 8;
+  private static final int REQUESTS_PER_CLIENT = 25;
+  private static final int MAX_WAITING = 64;
+  private static final long MAX_WAIT_MILLIS = 10_000;
+  private static final long CACHE_MILLIS = 60_000;
+  private static final long DISK_CACHE_BYTES = 256 * 1024 * 1024;
+  private static final double BASE_LATITUDE = 46.0;
+  private static final double LATITUDE_STEP = 0.001;
+
+  private static final class Sample {
+    Sample(int status, long nanos){
+      this.status = status;
+      this.nanos = nanos;
+    }
+    final int status;
+    final long nanos;
+  }
+
+  private static Sample request(URL url) throws Exception {
+    long start = System.nanoTime();
+    HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+    int status = connection.getResponseCode();
+    try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+      if (input != null) {
+        input.transferTo(new CountingOutputStream());
+      }
+    }
+    return new Sample(status, System.nanoTime() - start);
+  }
+
+  /** The value at the given fraction of the sorted values, in milliseconds. */
+  private static double millis(long[] sortedNanos, double fraction) {
+    if (sortedNanos.length == 0) return Double.NaN;
+    int idx = (int)Math.ceil(fraction * sortedNanos.length) - 1;
+    return sortedNanos[Math.max(0, Math.min(idx, sortedNanos.length - 1))] / 1.0E6;
+  }
+}
@@ -0,0 +1,11 @@
+/**
+ Programs that check or report on the output, and a load test for the server. Run as standalone programs from the command line.
+
+ <P>Nothing here measures speed, apart from the load test.
+ Every benchmark is built on JMH, and kept apart in the <code>jmh</code> directory, so that the code never needs the JMH jars.
+ They're compiled and run only with the <code>jmh</code> profile of the pom.xml; see <code>JmhBenchmarks</code>.
+
+ <P>Most programs here read the usual config file (see {@link custom.solar.eclipse.viewer.config.ConfigFromFile}),
+ and log their results as they go.
+*/
+package custom.solar.eclipse.viewer.bench;
@@ -1,111 +1,103 @@
 package custom.solar.eclipse.viewer.config;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import custom.solar.eclipse.viewer.math.Maths;
 
 /** 
  Configuration data for the generation of the viewer.
- 
+
  The configuration data can come from different sources. 
  When run as a standalone program, the data can come from a text file.
  If this project is deployed in a servlet environment, the data may come from user input in a web form.
- 
+
  <P>This object is 'pilgrim data'. It's passed around from the top-level object to many lower-level objects.
  This design avoids storing data in static fields, and can be used both in a standalone program, and in 
  server environments. 
+
+ <P>Built with a {@link Builder}, which checks the settings.
+ Two configs with the same settings are equal, so a config can be used as the key of a cache.
+ For keys that are shorter, and stable across runs, see the digests:
+ {@link #digest()}, {@link #astronomyDigest()}, and {@link #layoutDigest()}.
+
+ <P>Immutable, and thread-safe.
 */
 public final class Config {
-  
-  public Config(
-    String eclipseDateUTC, 
-    String location, Double latitude, Double longitude, Integer hoursOffsetFromUT, Integer minutesOffsetFromUT, Double altitude, QRCode qrCode1, QRCode qrCode2, 
-    Float width, Float height, Float viewerWidth, Float viewerHeight, Float viewerTopMargin, Float eyeholeWidth, Float eyeholeHeight, Float eyeholeCenter, String outputDir, 
-    String fontDir, Double armsLength, List<String> totalityAdvice, String producedBy, Double deltaT, Integer gapBetweenPartialPhases
-  ){
-    this.eclipseDateUTC = eclipseDateUTC;
-    this.location = location;
-    this.latitude = latitude;
-    this.longitude = longitude;
-    this.hoursOffsetFromUT = hoursOffsetFromUT;
-    this.minutesOffsetFromUT = minutesOffsetFromUT;
-    this.altitude = altitude;
-    this.qrCode1 = qrCode1;
-    this.qrCode2 = qrCode2;
-    this.width = width;
-    this.height = height;
-    this.viewerWidth = viewerWidth;
-    this.viewerHeight = viewerHeight;
-    this.viewerTopMargin = viewerTopMargin;
-    this.eyeholeWidth = eyeholeWidth;
-    this.eyeholeHeight = eyeholeHeight;
-    this.eyeholeCenter = eyeholeCenter;
-    this.outputDir = outputDir;
-    this.fontDir = fontDir;
-    this.armsLength = armsLength;
-    this.totalityAdvice = totalityAdvice;
-    this.producedBy = producedBy;
-    this.deltaT = deltaT;
-    this.gapBetweenPartialPhases = gapBetweenPartialPhases;
+
+  /** A builder with no settings, other than empty text. */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** A builder with the same settings as this config, to make a config that differs in only a few of them. */
+  public Builder toBuilder() {
+    return new Builder(this);
   }
 
   /** The date of the solar eclipse (UTC, using the Greenwich meridian), in format yyyy-mm-dd.  */
   public String eclipseDateUTC() { return eclipseDateUTC; }
-  
+
   /** Simple description of the observer's location. */
   public String location() {return location;  }
-  
+
   /** The observer's geographical latitude in radians. */
   public Double latitude() { return latitude; }
-  
+
   /** The observer's geographical longitude in radians. */
   public Double longitude() { return longitude; }
 
   /** Height (meters) of the location above a standard geoid. */
   public Double altitude() { return altitude; }
-  
+
   /** How many hours between the observer's time zone and the prime meridian. */
   public Integer hoursOffsetFromUT() { return hoursOffsetFromUT;  }
-  
+
   /** 
    How many minutes (0..59) to be added to {@link #hoursOffsetFromUT()}.
    For most jurisdictions, this number is 0, since most time zones are offset by a whole
    number of hours from UT. 
   */
   public Integer minutesOffsetFromUT() {  return minutesOffsetFromUT;  }
-  
+
   /** A link of the user's choosing, to be rendered as a QRCode. */
   public QRCode qrCode1() { return qrCode1; }
-  
+
   /** A link of the user's choosing, to be rendered as a QRCode. */
   public QRCode qrCode2() { return qrCode2; }
-  
+
   /** 
    Page width in points (72 points per inch).
    Not the width of the viewer, but the width of the page that contains the chart.
    Same for the height. 
   */
   public Float width() {return width; }
-  
+
   /** Page height in points (72 points per inch). */
   public Float height() { return height; }
-  
+
   /** Viewer width in points (72 points per inch). */
   public Float viewerWidth() {return viewerWidth; }
 
   /** Viewer height in points (72 points per inch). */
   public Float viewerHeight() {return viewerHeight; }
-  
+
   /** Margin at the top of the viewer, in points (72 points per inch). */
   public Float viewerTopMargin() {return viewerTopMargin; }
-  
+
   /** The width of the eyehole(s) as a fraction of the {@link #viewerWidth()}. */
   public Float eyeholeWidth() {return eyeholeWidth; }
-  
+
   /** The height of the eyehole(s) as a fraction of the {@link #viewerHeight()}. */
   public Float eyeholeHeight() {return eyeholeHeight; }
-  
+
   /** 
    Controls the placement of the center of the eyehole.
    A fraction of the {@link #viewerWidth()}.
@@ -113,38 +105,154 @@ public final class Config {
    Any other value implies two eyeholes, placed this fraction of the viewer-width away from the center. 
   */
   public Float eyeholeCenter() {return eyeholeCenter; }
-  
-  /**
+
+  /** 
    The directory where the PDF file is generated. The directory must already exist.
    This setting may not be needed in a servlet environment, where the files are served as a byte stream to the browser. 
   */
   public String outputDir() { return outputDir; }
-  
+
   /** 
    The directory on the computer that contains the Times New Roman font.
    This tool is hard-coded to that specific font. 
    Times New Roman is pre-installed on almost all computers. 
   */
   public String fontDir() { return fontDir; }
-  
+
   /** Distance in centimeters from your eye to the viewer. */
   public Double armsLength() { return armsLength; }
 
-  /** Remarks about what to do during totality. */
+  /** Remarks about what to do during totality. Unmodifiable. */
   public List<String> totalityAdvice(){ return totalityAdvice; }
-  
+
   /** The person or organization that produced this eclipse viewer. */
   public String producedBy() { return producedBy; }
 
   /** The difference TT (physics time) -  UTC (civil time), in seconds. */
   public Double ΔT() { return deltaT; }
-  
+
   /** Integral number of minutes between partial phases, used in charting the phase. */
   public Integer gapBetweenPartialPhases() { return gapBetweenPartialPhases; }
-  
+
   /** Calculated field. */
   public boolean isNorthernHemisphere() { return latitude >= 0; }
-  
+
+  /** 
+   A hash of every setting that affects the content of the viewer, as 64 hex digits (SHA-256).
+   Two configs with the same digest produce the same viewer, so the digest can be used as a key for caching the output. 
+   The output directory is the only setting left out, since it doesn't change the content. 
+
+   <P>Made from the two digests below, so it changes when either of them changes.
+  */
+  public String digest() {
+    String result = digest;
+    if (result == null) {
+      result = sha256("astronomy=" + astronomyDigest() + "\nlayout=" + layoutDigest() + "\n");
+      digest = result;
+    }
+    return result;
+  }
+
+  /** 
+   A hash of the settings used to calculate the eclipse as seen from the site, as 64 hex digits (SHA-256):
+   the date, the latitude, longitude and altitude, ΔT, and the gap between partial phases.
+   The key for caching anything computed from the astronomy alone, such as the local circumstances.
+   Numbers are included at full precision, and the angles in radians, not as formatted for display.
+  */
+  public String astronomyDigest() {
+    String result = astronomyDigest;
+    if (result == null) {
+      StringBuilder canonical = new StringBuilder();
+      digestLine(Setting.eclipse_date_utc, eclipseDateUTC, canonical);
+      digestLine(Setting.location_latitude, latitude, canonical);
+      digestLine(Setting.location_longitude, longitude, canonical);
+      digestLine(Setting.location_altitude, altitude, canonical);
+      digestLine(Setting.delta_t, deltaT, canonical);
+      digestLine(Setting.gap_between_partial_phases, gapBetweenPartialPhases, canonical);
+      result = sha256(canonical.toString());
+      astronomyDigest = result;
+    }
+    return result;
+  }
+
+  /** 
+   A hash of the settings for everything else on the viewer, as 64 hex digits (SHA-256):
+   the dimensions of the page, the viewer and the eyeholes, the QR codes, the text, the fonts, and the time zone in which times are shown.
+   The output directory is left out.
+  */
+  public String layoutDigest() {
+    String result = layoutDigest;
+    if (result == null) {
+      StringBuilder canonical = new StringBuilder();
+      digestLine(Setting.location_name, location, canonical);
+      digestLine(Setting.location_hours_offset_from_ut, hoursOffsetFromUT, canonical);
+      digestLine(Setting.location_minutes_offset_from_ut, minutesOffsetFromUT, canonical);
+      digestLine(Setting.qr_code_1, qrCode1, canonical);
+      digestLine(Setting.qr_code_2, qrCode2, canonical);
+      digestLine(Setting.width, width, canonical);
+      digestLine(Setting.height, height, canonical);
+      digestLine(Setting.viewer_width, viewerWidth, canonical);
+      digestLine(Setting.viewer_height, viewerHeight, canonical);
+      digestLine(Setting.viewer_top_margin, viewerTopMargin, canonical);
+      digestLine(Setting.eyehole_width, eyeholeWidth, canonical);
+      digestLine(Setting.eyehole_height, eyeholeHeight, canonical);
+      digestLine(Setting.eyehole_center, eyeholeCenter, canonical);
+      digestLine(Setting.font_directory, fontDir, canonical);
+      digestLine(Setting.arms_length, armsLength, canonical);
+      digestLine(Setting.totality_advice, String.join(QRCode.SEP, totalityAdvice), canonical);
+      digestLine(Setting.produced_by, producedBy, canonical);
+      result = sha256(canonical.toString());
+      layoutDigest = result;
+    }
+    return result;
+  }
+
+  /** Every setting, including the output directory. */
+  @Override public boolean equals(Object aThat) {
+    if (this == aThat) return true;
+    if (!(aThat instanceof Config)) return false;
+    Config that = (Config)aThat;
+    return
+      Objects.equals(eclipseDateUTC, that.eclipseDateUTC) &&
+      Objects.equals(location, that.location) &&
+      Objects.equals(latitude, that.latitude) &&
+      Objects.equals(longitude, that.longitude) &&
+      Objects.equals(hoursOffsetFromUT, that.hoursOffsetFromUT) &&
+      Objects.equals(minutesOffsetFromUT, that.minutesOffsetFromUT) &&
+      Objects.equals(altitude, that.altitude) &&
+      Objects.equals(qrCode1, that.qrCode1) &&
+      Objects.equals(qrCode2, that.qrCode2) &&
+      Objects.equals(width, that.width) &&
+      Objects.equals(height, that.height) &&
+      Objects.equals(viewerWidth, that.viewerWidth) &&
+      Objects.equals(viewerHeight, that.viewerHeight) &&
+      Objects.equals(viewerTopMargin, that.viewerTopMargin) &&
+      Objects.equals(eyeholeWidth, that.eyeholeWidth) &&
+      Objects.equals(eyeholeHeight, that.eyeholeHeight) &&
+      Objects.equals(eyeholeCenter, that.eyeholeCenter) &&
+      Objects.equals(outputDir, that.outputDir) &&
+      Objects.equals(fontDir, that.fontDir) &&
+      Objects.equals(armsLength, that.armsLength) &&
+      Objects.equals(totalityAdvice, that.totalityAdvice) &&
+      Objects.equals(producedBy, that.producedBy) &&
+      Objects.equals(deltaT, that.deltaT) &&
+      Objects.equals(gapBetweenPartialPhases, that.gapBetweenPartialPhases)
+    ;
+  }
+
+  @Override public int hashCode() {
+    int result = hashCode;
+    if (result == 0) {
+      result = Objects.hash(
+        eclipseDateUTC, location, latitude, longitude, hoursOffsetFromUT, minutesOffsetFromUT, altitude, qrCode1, qrCode2,
+        width, height, viewerWidth, viewerHeight, viewerTopMargin, eyeholeWidth, eyeholeHeight, eyeholeCenter, outputDir,
+        fontDir, armsLength, totalityAdvice, producedBy, deltaT, gapBetweenPartialPhases
+      );
+      hashCode = result;
+    }
+    return result;
+  }
+
   /** For debugging. All config settings. */
   @Override public String toString() {
     StringBuilder result = new StringBuilder();
@@ -165,7 +273,7 @@ public final class Config {
     toStringLine(Setting.viewer_top_margin, viewerTopMargin(), result);
     toStringLine(Setting.eyehole_width, eyeholeWidth(), result);
     toStringLine(Setting.eyehole_height, eyeholeHeight(), result);
-    toStringLine(Setting.eyehole_center, eyeholeHeight(), result);
+    toStringLine(Setting.eyehole_center, eyeholeCenter(), result);
     toStringLine(Setting.font_directory, fontDir(), result);
     toStringLine(Setting.arms_length, armsLength(), result);
     toStringLine(Setting.totality_advice, totalityAdvice(), result);
@@ -174,37 +282,284 @@ public final class Config {
     toStringLine(Setting.gap_between_partial_phases, gapBetweenPartialPhases(), result);
     return result.toString().trim();
   }
-  
-  private String eclipseDateUTC = "";
-  private String location = "";
-  private Double latitude;
-  private Double longitude;
-  private Integer hoursOffsetFromUT;
-  private Integer minutesOffsetFromUT;
-  private Double altitude;
-  private QRCode qrCode1;
-  private QRCode qrCode2;
-  
-  private Float width;
-  private Float height;
-  
-  private Float viewerWidth;
-  private Float viewerHeight;
-  private Float viewerTopMargin;
-  
-  private Float eyeholeWidth;
-  private Float eyeholeHeight;
-  private Float eyeholeCenter;
-  
-  private String outputDir = "";
-  private String fontDir = "";
-  private Double armsLength;
-  private List<String> totalityAdvice = new ArrayList<>();
-  private String producedBy = "";
-  private Double deltaT;
-  private Integer gapBetweenPartialPhases;
+
+  /** 
+   Gathers the settings for a {@link Config}.
+   The names of the methods are those of the config's methods, except for {@link #deltaT(Double)}.
+   Angles are in radians, and lengths on the page are in points, as in the config.
+
+   <P>Not thread-safe.
+  */
+  public static final class Builder {
+
+    public Builder eclipseDateUTC(String eclipseDateUTC) { this.eclipseDateUTC = eclipseDateUTC; return this; }
+    public Builder location(String location) { this.location = location; return this; }
+    public Builder latitude(Double radians) { this.latitude = radians; return this; }
+    public Builder longitude(Double radians) { this.longitude = radians; return this; }
+    public Builder altitude(Double altitude) { this.altitude = altitude; return this; }
+    public Builder hoursOffsetFromUT(Integer hoursOffsetFromUT) { this.hoursOffsetFromUT = hoursOffsetFromUT; return this; }
+    public Builder minutesOffsetFromUT(Integer minutesOffsetFromUT) { this.minutesOffsetFromUT = minutesOffsetFromUT; return this; }
+    public Builder qrCode1(QRCode qrCode1) { this.qrCode1 = qrCode1; return this; }
+    public Builder qrCode2(QRCode qrCode2) { this.qrCode2 = qrCode2; return this; }
+    public Builder width(Float width) { this.width = width; return this; }
+    public Builder height(Float height) { this.height = height; return this; }
+    public Builder viewerWidth(Float viewerWidth) { this.viewerWidth = viewerWidth; return this; }
+    public Builder viewerHeight(Float viewerHeight) { this.viewerHeight = viewerHeight; return this; }
+    public Builder viewerTopMargin(Float viewerTopMargin) { this.viewerTopMargin = viewerTopMargin; return this; }
+    public Builder eyeholeWidth(Float eyeholeWidth) { this.eyeholeWidth = eyeholeWidth; return this; }
+    public Builder eyeholeHeight(Float eyeholeHeight) { this.eyeholeHeight = eyeholeHeight; return this; }
+    public Builder eyeholeCenter(Float eyeholeCenter) { this.eyeholeCenter = eyeholeCenter; return this; }
+    public Builder outputDir(String outputDir) { this.outputDir = outputDir; return this; }
+    public Builder fontDir(String fontDir) { this.fontDir = fontDir; return this; }
+    public Builder armsLength(Double armsLength) { this.armsLength = armsLength; return this; }
+    public Builder totalityAdvice(List<String> totalityAdvice) { this.totalityAdvice = totalityAdvice; return this; }
+    public Builder producedBy(String producedBy) { this.producedBy = producedBy; return this; }
+    public Builder deltaT(Double deltaT) { this.deltaT = deltaT; return this; }
+    public Builder gapBetweenPartialPhases(Integer gapBetweenPartialPhases) { this.gapBetweenPartialPhases = gapBetweenPartialPhases; return this; }
+
+    /**
+     Check the settings, and build the config. The builder can be used again afterwards.
+     @throws IllegalArgumentException if a setting is missing, or out of range. The message lists every problem found.
+    */
+    public Config build() {
+      List<String> problems = new ArrayList<>();
+      checkDate(problems);
+      required(Setting.location_latitude, latitude, problems);
+      if (latitude != null && !(Math.abs(latitude) <= Math.PI / 2)) {
+        problems.add(Setting.location_latitude + " must be between -90 and 90 degrees");
+      }
+      required(Setting.location_longitude, longitude, problems);
+      if (longitude != null && !(Math.abs(longitude) <= Math.PI)) {
+        problems.add(Setting.location_longitude + " must be between -180 and 180 degrees");
+      }
+      required(Setting.location_altitude, altitude, problems);
+      range(Setting.location_hours_offset_from_ut, hoursOffsetFromUT, -12, 14, problems);
+      range(Setting.location_minutes_offset_from_ut, minutesOffsetFromUT, -59, 59, problems);
+      required(Setting.qr_code_1, qrCode1, problems);
+      required(Setting.qr_code_2, qrCode2, problems);
+      positive(Setting.width, width, problems);
+      positive(Setting.height, height, problems);
+      positive(Setting.viewer_width, viewerWidth, problems);
+      positive(Setting.viewer_height, viewerHeight, problems);
+      required(Setting.viewer_top_margin, viewerTopMargin, problems);
+      if (viewerTopMargin != null && !(viewerTopMargin >= 0)) {
+        problems.add(Setting.viewer_top_margin + " can't be negative");
+      }
+      if (width != null && viewerWidth != null && viewerWidth > width) {
+        problems.add(Setting.viewer_width + " is larger than the " + Setting.width + " of the page");
+      }
+      if (height != null && viewerHeight != null && viewerTopMargin != null && viewerHeight + viewerTopMargin > height) {
+        problems.add(Setting.viewer_height + " plus the " + Setting.viewer_top_margin + " is larger than the " + Setting.height + " of the page");
+      }
+      fraction(Setting.eyehole_width, eyeholeWidth, problems);
+      fraction(Setting.eyehole_height, eyeholeHeight, problems);
+      required(Setting.eyehole_center, eyeholeCenter, problems);
+      if (eyeholeCenter != null && !(eyeholeCenter >= 0 && eyeholeCenter < 0.5)) {
+        problems.add(Setting.eyehole_center + " must be at least 0, and less than 0.5");
+      }
+      positive(Setting.arms_length, armsLength, problems);
+      required(Setting.totality_advice, totalityAdvice, problems);
+      required(Setting.delta_t, deltaT, problems);
+      if (deltaT != null && !Double.isFinite(deltaT)) {
+        problems.add(Setting.delta_t + " must be a finite number");
+      }
+      range(Setting.gap_between_partial_phases, gapBetweenPartialPhases, 1, MINUTES_PER_DAY, problems);
+      if (location == null || outputDir == null || fontDir == null || producedBy == null) {
+        problems.add("text settings can be empty, but not null");
+      }
+      if (!problems.isEmpty()) {
+        throw new IllegalArgumentException("Invalid config: " + String.join("; ", problems) + ".");
+      }
+      return new Config(this);
+    }
+
+    private Builder() {}
+
+    private Builder(Config config) {
+      eclipseDateUTC = config.eclipseDateUTC;
+      location = config.location;
+      latitude = config.latitude;
+      longitude = config.longitude;
+      hoursOffsetFromUT = config.hoursOffsetFromUT;
+      minutesOffsetFromUT = config.minutesOffsetFromUT;
+      altitude = config.altitude;
+      qrCode1 = config.qrCode1;
+      qrCode2 = config.qrCode2;
+      width = config.width;
+      height = config.height;
+      viewerWidth = config.viewerWidth;
+      viewerHeight = config.viewerHeight;
+      viewerTopMargin = config.viewerTopMargin;
+      eyeholeWidth = config.eyeholeWidth;
+      eyeholeHeight = config.eyeholeHeight;
+      eyeholeCenter = config.eyeholeCenter;
+      outputDir = config.outputDir;
+      fontDir = config.fontDir;
+      armsLength = config.armsLength;
+      totalityAdvice = config.totalityAdvice;
+      producedBy = config.producedBy;
+      deltaT = config.deltaT;
+      gapBetweenPartialPhases = config.gapBetweenPartialPhases;
+    }
+
+    private String eclipseDateUTC;
+    private String location = "";
+    private Double latitude;
+    private Double longitude;
+    private Integer hoursOffsetFromUT;
+    private Integer minutesOffsetFromUT;
+    private Double altitude;
+    private QRCode qrCode1;
+    private QRCode qrCode2;
+    private Float width;
+    private Float height;
+    private Float viewerWidth;
+    private Float viewerHeight;
+    private Float viewerTopMargin;
+    private Float eyeholeWidth;
+    private Float eyeholeHeight;
+    private Float eyeholeCenter;
+    private String outputDir = "";
+    private String fontDir = "";
+    private Double armsLength;
+    private List<String> totalityAdvice = new ArrayList<>();
+    private String producedBy = "";
+    private Double deltaT;
+    private Integer gapBetweenPartialPhases;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private void checkDate(List<String> problems) {
+      if (eclipseDateUTC == null) {
+        problems.add(Setting.eclipse_date_utc + " is missing");
+      }
+      else {
+        try {
+          LocalDate.parse(eclipseDateUTC);
+        }
+        catch (DateTimeParseException ex) {
+          problems.add(Setting.eclipse_date_utc + " must have the format yyyy-mm-dd: " + eclipseDateUTC);
+        }
+      }
+    }
+
+    private static void required(Setting setting, Object value, List<String> problems) {
+      if (value == null) {
+        problems.add(setting + " is missing, or can't be read");
+      }
+    }
+
+    /** NaN is not positive. */
+    private static void positive(Setting setting, Number value, List<String> problems) {
+      required(setting, value, problems);
+      if (value != null && !(value.doubleValue() > 0)) {
+        problems.add(setting + " must be greater than 0");
+      }
+    }
+
+    private static void fraction(Setting setting, Float value, List<String> problems) {
+      required(setting, value, problems);
+      if (value != null && !(value > 0 && value <= 1)) {
+        problems.add(setting + " must be a fraction greater than 0, and at most 1");
+      }
+    }
+
+    private static void range(Setting setting, Integer value, int min, int max, List<String> problems) {
+      required(setting, value, problems);
+      if (value != null && (value < min || value > max)) {
+        problems.add(setting + " must be from " + min + " to " + max);
+      }
+    }
+  }
+
+  // PRIVATE
+
+  private Config(Builder builder){
+    this.eclipseDateUTC = builder.eclipseDateUTC;
+    this.location = builder.location;
+    this.latitude = builder.latitude;
+    this.longitude = builder.longitude;
+    this.hoursOffsetFromUT = builder.hoursOffsetFromUT;
+    this.minutesOffsetFromUT = builder.minutesOffsetFromUT;
+    this.altitude = builder.altitude;
+    this.qrCode1 = builder.qrCode1;
+    this.qrCode2 = builder.qrCode2;
+    this.width = builder.width;
+    this.height = builder.height;
+    this.viewerWidth = builder.viewerWidth;
+    this.viewerHeight = builder.viewerHeight;
+    this.viewerTopMargin = builder.viewerTopMargin;
+    this.eyeholeWidth = builder.eyeholeWidth;
+    this.eyeholeHeight = builder.eyeholeHeight;
+    this.eyeholeCenter = builder.eyeholeCenter;
+    this.outputDir = builder.outputDir;
+    this.fontDir = builder.fontDir;
+    this.armsLength = builder.armsLength;
+    this.totalityAdvice = Collections.unmodifiableList(new ArrayList<>(builder.totalityAdvice));
+    this.producedBy = builder.producedBy;
+    this.deltaT = builder.deltaT;
+    this.gapBetweenPartialPhases = builder.gapBetweenPartialPhases;
+  }
+
+  private final String eclipseDateUTC;
+  private final String location;
+  private final Double latitude;
+  private final Double longitude;
+  private final Integer hoursOffsetFromUT;
+  private final Integer minutesOffsetFromUT;
+  private final Double altitude;
+  private final QRCode qrCode1;
+  private final QRCode qrCode2;
+
+  private final Float width;
+  private final Float height;
+
+  private final Float viewerWidth;
+  private final Float viewerHeight;
+  private final Float viewerTopMargin;
+
+  private final Float eyeholeWidth;
+  private final Float eyeholeHeight;
+  private final Float eyeholeCenter;
+
+  private final String outputDir;
+  private final String fontDir;
+  private final Double armsLength;
+  private final List<String> totalityAdvice;
+  private final String producedBy;
+  private final Double deltaT;
+  private final Integer gapBetweenPartialPhases;
+
+  /** 
+   Calculated lazily. A race only repeats the calculation, with the same result.
+   (A String can be shared between threads without synchronization, since its fields are final.)
+  */
+  private String digest;
+  private String astronomyDigest;
+  private String layoutDigest;
+  private int hashCode;
+
+  /** The length of each value is included, so that no two different sets of values can run together into the same text. */
+  private static void digestLine(Setting setting, Object value, StringBuilder result) {
+    String text = String.valueOf(value);
+    result.append(setting).append('=').append(text.length()).append(':').append(text).append('\n');
+  }
+
+  private static String sha256(String text) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+      StringBuilder result = new StringBuilder();
+      for (byte b : hash) {
+        result.append(String.format("%02x", b));
+      }
+      return result.toString();
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("Every JVM supports SHA-256.", ex);
+    }
+  }
 
   private void toStringLine(Setting setting, Object value, StringBuilder result) {
-    result.append("  " + setting.toString() + " = " + value.toString() + Constants.NL); 
+    result.append("  " + setting.toString() + " = " + value + Constants.NL);
   }
 }
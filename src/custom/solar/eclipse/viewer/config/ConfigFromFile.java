@@ -2,7 +2,6 @@ package custom.solar.eclipse.viewer.config;
 
 import static custom.solar.eclipse.viewer.util.LogUtil.log;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -24,61 +23,67 @@ public final class ConfigFromFile {
    {@code -DviewerConfigFile=C:\mydirectory\myfile}
    
    <P>in which the full file name in required, including the directory.
+   @throws IllegalArgumentException if a setting is missing or invalid; see {@link Config.Builder#build()}.
   */
   public Config init() {
+    return configFrom(defaultLines());
+  }
+  
+  /** 
+   Read the given config file, instead of the default one. 
+   Used when building many viewers at once. 
+   @param fileName the full file name, including the directory. 
+  */
+  public Config init(String fileName) {
+    log("Reading config file: " + fileName);
+    return configFrom(new DataFileReader().readFile(fileName));
+  }
+
+  /** 
+   Read one of the sample config files that sit beside this class, such as <em>config-total.ini</em>. 
+   Used by benchmarks, which need the same representative eclipses on every machine. 
+  */
+  public Config initSample(String fileName) {
+    log("Reading sample config file: " + fileName);
+    return configFrom(new DataFileReader().readFile(ConfigFromFile.class, fileName));
+  }
+
+  /** The lines of the default config file, as used by {@link #init()}. */
+  static List<String> defaultLines() {
     DataFileReader reader = new DataFileReader();
     String fileLocationOverride = System.getProperty("viewerConfigFile");
     List<String> lines = null;
     if (fileLocationOverride == null) {
       log("Reading config file: " + CONFIG_INI);
-      lines = reader.readFile(this.getClass(), CONFIG_INI);
+      lines = reader.readFile(ConfigFromFile.class, CONFIG_INI);
     }
     else {
       log("Reading config file from System property: " + fileLocationOverride);
       lines = reader.readFile(fileLocationOverride);
     }
-
-    for(String line : lines) {
-      processEach(line.trim());
-    }
-    return buildConfigObjectFromSettings();
+    return lines;
   }
-
+  
+  /** Lines in the same format as the config file. When a setting appears more than once, the last one wins. */
+  Config init(List<String> lines) {
+    return configFrom(lines);
+  }
+  
   // PRIVATE 
 
   private static final String CONFIG_INI = "config.ini";
   private static final String SEPARATOR = "=";
   private static final int NOT_FOUND = -1;
 
-  private String eclipseDateUTC;
-  private String location = "";
-  private Double latitude;
-  private Double longitude;
-  private Integer hoursOffsetFromUT;
-  private Integer minutesOffsetFromUT;
-  private Double altitude;
-  private QRCode qrCode1;
-  private QRCode qrCode2;
-  
-  private Float width;
-  private Float height;
-  
-  private Float viewerWidth;
-  private Float viewerHeight;
-  private Float viewerTopMargin;
-  
-  private Float eyeholeWidth;
-  private Float eyeholeHeight;
-  private Float eyeholeCenter;
-  
-  private String outputDir = "";
-  
-  private String fontDir = "";
-  private Double armsLength;
-  private List<String> totalityAdvice = new ArrayList<>();
-  private String producedBy = "";
-  private Double deltaT;
-  private Integer gapBetweenPartialPhases;
+  /** Holds the settings read so far. When a setting appears more than once, the last one wins. */
+  private final Config.Builder builder = Config.builder();
+
+  private Config configFrom(List<String> lines) {
+    for(String line : lines) {
+      processEach(line.trim());
+    }
+    return builder.build();
+  }
 
   private void processEach(String line) {
     if (line.startsWith(DataFileReader.COMMENT) || line.length() == 0) {
@@ -88,76 +93,76 @@ public final class ConfigFromFile {
       //there must be a name-value pair on the line
       NameValuePair pair = parse(line);
       if (matches(Setting.output_directory, pair.name)) {
-        outputDir = pair.value;
+        builder.outputDir(pair.value);
       }
       else if (matches(Setting.width, pair.name)) {
-        width = asPoints(pair.value);
+        builder.width(asPoints(pair.value));
       }
       else if (matches(Setting.height, pair.name)) {
-        height = asPoints(pair.value);
+        builder.height(asPoints(pair.value));
       }
       else if (matches(Setting.viewer_width, pair.name)) {
-        viewerWidth = asPoints(pair.value);
+        builder.viewerWidth(asPoints(pair.value));
       }
       else if (matches(Setting.viewer_height, pair.name)) {
-        viewerHeight = asPoints(pair.value);
+        builder.viewerHeight(asPoints(pair.value));
       }
       else if (matches(Setting.viewer_top_margin, pair.name)) {
-        viewerTopMargin = asPoints(pair.value);
+        builder.viewerTopMargin(asPoints(pair.value));
       }
       else if (matches(Setting.eyehole_width, pair.name)) {
-        eyeholeWidth = asFloat(pair.value);
+        builder.eyeholeWidth(asFloat(pair.value));
       }
       else if (matches(Setting.eyehole_height, pair.name)) {
-        eyeholeHeight = asFloat(pair.value);
+        builder.eyeholeHeight(asFloat(pair.value));
       }
       else if (matches(Setting.eyehole_center, pair.name)) {
-        eyeholeCenter = asFloat(pair.value);
+        builder.eyeholeCenter(asFloat(pair.value));
       }
       else if (matches(Setting.location_name, pair.name)) {
-        location = pair.value;
+        builder.location(pair.value);
       }
       else if (matches(Setting.location_latitude, pair.name)) {
-        latitude = asRads(pair.value);
+        builder.latitude(asRads(pair.value));
       }
       else if (matches(Setting.location_longitude, pair.name)) {
-        longitude = asRads(pair.value);
+        builder.longitude(asRads(pair.value));
       }
       else if (matches(Setting.location_altitude, pair.name)) {
-        altitude = asDouble(pair.value);
+        builder.altitude(asDouble(pair.value));
       }
       else if (matches(Setting.location_hours_offset_from_ut, pair.name)) {
-        hoursOffsetFromUT = asInteger(pair.value);
+        builder.hoursOffsetFromUT(asInteger(pair.value));
       }
       else if (matches(Setting.location_minutes_offset_from_ut, pair.name)) {
-        minutesOffsetFromUT = asInteger(pair.value);
+        builder.minutesOffsetFromUT(asInteger(pair.value));
       }
       else if (matches(Setting.qr_code_1, pair.name)) {
-        qrCode1 = asQRCode(pair.value);
+        builder.qrCode1(asQRCode(pair.value));
       }
       else if (matches(Setting.qr_code_2, pair.name)) {
-        qrCode2 = asQRCode(pair.value);
+        builder.qrCode2(asQRCode(pair.value));
       }
       else if (matches(Setting.eclipse_date_utc, pair.name)) {
-        eclipseDateUTC = pair.value;
+        builder.eclipseDateUTC(pair.value);
       }
       else if (matches(Setting.font_directory, pair.name)) {
-        fontDir = pair.value;
+        builder.fontDir(pair.value);
       }
       else if (matches(Setting.arms_length, pair.name)) {
-        armsLength = asDouble(pair.value);
+        builder.armsLength(asDouble(pair.value));
       }
       else if (matches(Setting.totality_advice, pair.name)) {
-        totalityAdvice = asStringList(pair.value);
+        builder.totalityAdvice(asStringList(pair.value));
       }
       else if (matches(Setting.produced_by, pair.name)) {
-        producedBy = pair.value;
+        builder.producedBy(pair.value);
       }
       else if (matches(Setting.delta_t, pair.name)) {
-        deltaT = asDouble(pair.value);
+        builder.deltaT(asDouble(pair.value));
       }
       else if (matches(Setting.gap_between_partial_phases, pair.name)) {
-        gapBetweenPartialPhases = asInteger(pair.value);
+        builder.gapBetweenPartialPhases(asInteger(pair.value));
       }
     }
   }
@@ -226,13 +231,4 @@ public final class ConfigFromFile {
     
     return result;
   }
-
-  private Config buildConfigObjectFromSettings() {
-    return new Config(
-      eclipseDateUTC, 
-      location, latitude, longitude, hoursOffsetFromUT, minutesOffsetFromUT, altitude, qrCode1, qrCode2,  
-      width, height, viewerWidth, viewerHeight, viewerTopMargin, eyeholeWidth, eyeholeHeight, eyeholeCenter, outputDir, 
-      fontDir, armsLength, totalityAdvice, producedBy, deltaT, gapBetweenPartialPhases 
-    );
-  }
 }
@@ -0,0 +1,93 @@
+package custom.solar.eclipse.viewer.config;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ Build a {@link Config} from request parameters, such as those of a web form.
+
+ <P>The parameters have the same names and formats as the settings in the config file (for example, <em>location_latitude</em>).
+ Any setting that isn't in the parameters is taken from a base config file, which also holds the settings
+ that belong to the server and not to the user: the directories, and the size of the page.
+ Only the settings for the site, the eclipse, and the content of the viewer can be passed as parameters.
+
+ <P>Immutable, and thread-safe.
+*/
+public final class ConfigFromParams {
+
+  /** Uses the default config file as the base (see {@link ConfigFromFile#init()}). */
+  public ConfigFromParams() {
+    this(ConfigFromFile.defaultLines());
+  }
+
+  /** @param baseLines lines in the same format as the config file, holding every setting. */
+  public ConfigFromParams(List<String> baseLines) {
+    this.baseLines = Collections.unmodifiableList(new ArrayList<>(baseLines));
+  }
+
+  /**
+   The base config, with the given parameters overriding its settings.
+   @throws IllegalArgumentException if a parameter is unknown, can't be set by a request, or has an invalid value.
+  */
+  public Config configFrom(Map<String, String> params) {
+    List<String> lines = new ArrayList<>(baseLines);
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      Setting setting = settingFor(param.getKey());
+      String value = param.getValue().trim();
+      if (value.contains("\n") || value.contains("\r")) {
+        throw new IllegalArgumentException("The value of " + setting + " can't contain a line break.");
+      }
+      if (Setting.eclipse_date_utc == setting) {
+        checkDate(value);
+      }
+      lines.add(setting + " = " + value);
+    }
+    Config result = null;
+    try {
+      result = new ConfigFromFile().init(lines);
+    }
+    catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("Not a number: " + ex.getMessage(), ex);
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private final List<String> baseLines;
+
+  /** The output directory and the font directory belong to the server, and are never set by a request. */
+  private static final Set<Setting> SETTABLE = EnumSet.of(
+    Setting.eclipse_date_utc,
+    Setting.location_name, Setting.location_latitude, Setting.location_longitude, Setting.location_altitude,
+    Setting.location_hours_offset_from_ut, Setting.location_minutes_offset_from_ut,
+    Setting.qr_code_1, Setting.qr_code_2,
+    Setting.eyehole_width, Setting.eyehole_height, Setting.eyehole_center,
+    Setting.arms_length, Setting.totality_advice, Setting.produced_by,
+    Setting.delta_t, Setting.gap_between_partial_phases
+  );
+
+  private static Setting settingFor(String name) {
+    for (Setting setting : SETTABLE) {
+      if (setting.toString().equalsIgnoreCase(name.trim())) {
+        return setting;
+      }
+    }
+    throw new IllegalArgumentException("Unknown setting, or one that can't be set by a request: " + name);
+  }
+
+  private static void checkDate(String value) {
+    try {
+      LocalDate.parse(value);
+    }
+    catch (DateTimeParseException ex) {
+      throw new IllegalArgumentException("The eclipse date must have the format yyyy-mm-dd: " + value, ex);
+    }
+  }
+}
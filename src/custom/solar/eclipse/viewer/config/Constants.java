@@ -14,9 +14,28 @@ public final class Constants {
   /** File name for the output PDF file - {@value}.  */
   public static final String OUTPUT_PDF_FILE = "EclipseViewer.pdf";
   
+  /** File name for the output PDF file containing many viewers - {@value}.  */
+  public static final String OUTPUT_BOOKLET_PDF_FILE = "EclipseViewers.pdf";
+  
+  /** File name for the output PDF file containing many viewers, several to a sheet - {@value}.  */
+  public static final String OUTPUT_IMPOSED_PDF_FILE = "EclipseViewers-imposed.pdf";
+  
+  /** File name for the ZIP archive containing many viewers, one PDF file for each - {@value}.  */
+  public static final String OUTPUT_ZIP_FILE = "EclipseViewers.zip";
+  
+  /** File names for the SVG files, one for each page - {@value}, and the next.  */
+  public static final String OUTPUT_SVG_FILE_1 = "EclipseViewer-1.svg";
+  public static final String OUTPUT_SVG_FILE_2 = "EclipseViewer-2.svg";
+  
   /** Name of the document's creator. */
   public static final String AUTHOR = "John O'Hanley";
   
+  /** 
+   The version of the code that generates the viewers - {@value}.
+   Part of the key for cached files: change it whenever a change to the code changes the output, so that old files are no longer used. 
+  */
+  public static final String CODE_VERSION = "2026.10.1";
+  
   public static final char PDF_VERSION = PdfWriter.VERSION_1_3;
   public static final float MARGIN_LEFT = pointsFromIn(0.75f);
   public static final float MARGIN_RIGHT = pointsFromIn(0.75f);
@@ -1,6 +1,8 @@
 package custom.solar.eclipse.viewer.config;
 
-/** Value class for a QR code: link (URL) plus label-text. */
+import java.util.Objects;
+
+/** Value class for a QR code: link (URL) plus label-text. Immutable. */
 public final class QRCode {
 
   /**
@@ -23,7 +25,18 @@ public final class QRCode {
   public String label() { return label;}
   public String url() { return url; }
   
-  private String label;
-  private String url;
+  @Override public boolean equals(Object aThat) {
+    if (this == aThat) return true;
+    if (!(aThat instanceof QRCode)) return false;
+    QRCode that = (QRCode)aThat;
+    return Objects.equals(label, that.label) && Objects.equals(url, that.url);
+  }
+  
+  @Override public int hashCode() {
+    return Objects.hash(label, url);
+  }
+  
+  private final String label;
+  private final String url;
 
 }
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
+import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 
 import custom.solar.eclipse.viewer.GeneratePdfABC;
@@ -17,52 +18,67 @@ import custom.solar.eclipse.viewer.astrocalc.EclipseType;
 import custom.solar.eclipse.viewer.astrocalc.LocalCircumstances;
 import custom.solar.eclipse.viewer.config.Config;
 import custom.solar.eclipse.viewer.draw.mix.Draw;
+import custom.solar.eclipse.viewer.metrics.DrawEvent;
+import custom.solar.eclipse.viewer.util.LruCache;
 
 /** Build the PDF file for the viewer. */
 public final class GenerateViewer extends GeneratePdfABC {
   
+  /** @throws IllegalArgumentException if the eclipse isn't visible from the site. */
   public GenerateViewer(Config config) {
     super(config);
     this.eclipse = eclipse(config);
+    if (eclipse == null) {
+      throw new IllegalArgumentException("The eclipse of " + config.eclipseDateUTC() + " isn't visible from " + config.location() + ".");
+    }
   }
 
   @Override protected void pageOne(Graphics2D g) throws DocumentException, MalformedURLException, IOException {
     log("Building page 1.");
+    drawThe(pageOneDrawers(), g);
     
-    Set<Draw> drawers = new LinkedHashSet<>(); //iteration will mirror insertion-order
-    drawers.add(new Border(config, BORDER_WIDTH));
-    drawers.add(new Holes(config, false, HOLE_RADIUS));
-    drawers.add(new Title(config, eclipse.eclipseType(), eclipse.maxEclipse().when(), Y_LEVEL.TITLE));
-    drawers.add(new LocationEtc(config, eclipse, false, Y_LEVEL.LOCATION_ETC));
-    drawers.add(new QRLink(config, config.qrCode1(), 0.46, Y_LEVEL.QR_1));
-    drawers.add(new FooterFinePrint(config, eclipse.magnitude(), Y_LEVEL.FOOTER_FINE_PRINT));
-    drawers.add(new RulerSeparation(config));
-    drawers.add(new RulerPositionAngle(config));
-    drawThe(drawers, g);
-    
-    //the table isn't drawn using the graphics context; it's added directly to the document object itself.
-    TimelineTable timeline = new TimelineTable(eclipse.eclipseType(), eclipse.timelineEvents(), document);
-    timeline.draw();
+    //previews and SVG have no document, so there the table is drawn using the graphics context instead; see pageOneFlow
+    if (!hasDocument()) {
+      timeline().draw(g);
+    }
+  }
+  
+  /** The table isn't drawn using the graphics context; it's added directly to the document object itself. */
+  @Override protected void pageOneFlow() throws DocumentException {
+    timeline().draw();
   }
   
   @Override protected void pageTwo(Graphics2D g) throws DocumentException, MalformedURLException, IOException {
     log("Building page 2.");
-    Set<Draw> drawers = new LinkedHashSet<>(); //iteration will mirror insertion-order
-    drawers.add(new Border(config, BORDER_WIDTH));
-    drawers.add(new Title(config, eclipse.eclipseType(), eclipse.maxEclipse().when(), Y_LEVEL.TITLE - 0.01));
-    drawers.add(new Holes(config, true, HOLE_RADIUS));
-    drawers.add(new LocationEtc(config, eclipse, true, Y_LEVEL.LOCATION_ETC));
-    drawers.add(new PartialPhasesChart(config, eclipse, Y_LEVEL.PARTIAL_PHASES));
-    drawers.add(new QRLink(config, config.qrCode2(), 0.50, Y_LEVEL.QR_2));
-    if (EclipseType.Total == eclipse.eclipseType()) {
-      drawers.add(new TotalityAdvice(config, Y_LEVEL.TOTALITY_ADVICE));
-    }
-    drawers.add(new ProducedBy(config, Y_LEVEL.PRODUCED_BY));
-    drawThe(drawers, g);
+    drawThe(pageTwoDrawers(), g);
+  }
+  
+  /** The border, holes, and rulers depend only on the layout, not on the site. */
+  @Override protected void pageOneStatic(Graphics2D g) {
+    drawThe(pageOneStaticDrawers(), g);
+  }
+  
+  @Override protected void pageTwoStatic(Graphics2D g) {
+    drawThe(pageTwoStaticDrawers(), g);
+  }
+  
+  /** All of the settings used by the static artwork. */
+  @Override protected String staticArtworkKey() {
+    return 
+      config.width() + "|" + config.height() + "|" + 
+      config.viewerWidth() + "|" + config.viewerHeight() + "|" + config.viewerTopMargin() + "|" +  
+      config.eyeholeWidth() + "|" + config.eyeholeHeight() + "|" + config.eyeholeCenter() + "|" + 
+      config.armsLength()
+    ;
   }
   
   private EclipseDisplay eclipse;
   
+  private static final int MAX_CACHE_SIZE = 64;
+
+  /** Null values are kept too: the eclipse isn't visible from the site. */
+  private static final LruCache<String, EclipseDisplay> ECLIPSES = new LruCache<>(MAX_CACHE_SIZE);
+  
   private static final float BORDER_WIDTH = 2.0F;
   private static final Double HOLE_RADIUS = 4.0;
   
@@ -78,13 +94,68 @@ public final class GenerateViewer extends GeneratePdfABC {
     static double PARTIAL_PHASES = 0.5;
   }
   
+  private TimelineTable timeline() {
+    return timeline(document);
+  }
+  
+  /** The table, added to the given document. */
+  TimelineTable timeline(Document target) {
+    return new TimelineTable(config, eclipse.eclipseType(), eclipse.timelineEvents(), target);
+  }
+  
+  /** The drawers of each part of the pages, in the order in which they're drawn. Iteration mirrors insertion-order. */
+  Set<Draw> pageOneDrawers() {
+    Set<Draw> result = new LinkedHashSet<>();
+    result.add(new Title(config, eclipse.eclipseType(), eclipse.maxEclipse().when(), Y_LEVEL.TITLE));
+    result.add(new LocationEtc(config, eclipse, false, Y_LEVEL.LOCATION_ETC));
+    result.add(new QRLink(config, config.qrCode1(), 0.46, Y_LEVEL.QR_1));
+    result.add(new FooterFinePrint(config, eclipse.magnitude(), Y_LEVEL.FOOTER_FINE_PRINT));
+    return result;
+  }
+  
+  Set<Draw> pageTwoDrawers() {
+    Set<Draw> result = new LinkedHashSet<>();
+    result.add(new Title(config, eclipse.eclipseType(), eclipse.maxEclipse().when(), Y_LEVEL.TITLE - 0.01));
+    result.add(new LocationEtc(config, eclipse, true, Y_LEVEL.LOCATION_ETC));
+    result.add(new PartialPhasesChart(config, eclipse, Y_LEVEL.PARTIAL_PHASES));
+    result.add(new QRLink(config, config.qrCode2(), 0.50, Y_LEVEL.QR_2));
+    if (EclipseType.Total == eclipse.eclipseType()) {
+      result.add(new TotalityAdvice(config, Y_LEVEL.TOTALITY_ADVICE));
+    }
+    result.add(new ProducedBy(config, Y_LEVEL.PRODUCED_BY));
+    return result;
+  }
+  
+  Set<Draw> pageOneStaticDrawers() {
+    Set<Draw> result = new LinkedHashSet<>();
+    result.add(new Border(config, BORDER_WIDTH));
+    result.add(new Holes(config, false, HOLE_RADIUS));
+    result.add(new RulerSeparation(config));
+    result.add(new RulerPositionAngle(config));
+    return result;
+  }
+  
+  Set<Draw> pageTwoStaticDrawers() {
+    Set<Draw> result = new LinkedHashSet<>();
+    result.add(new Border(config, BORDER_WIDTH));
+    result.add(new Holes(config, true, HOLE_RADIUS));
+    return result;
+  }
+  
   private void drawThe(Collection<Draw> drawers, Graphics2D g) {
     for(Draw drawer : drawers) {
+      DrawEvent event = new DrawEvent(drawer.getClass());
       drawer.draw(g);
+      event.finish();
     }
   }
   
+  /** 
+   Computed only once for the same astronomy and time zone, since the times shown are local civil times.
+   A change to the layout alone doesn't recompute the local circumstances.
+  */
   private EclipseDisplay eclipse(Config config) {
-    return LocalCircumstances.buildFrom(config, LocalCircumstances.ShowLogging.Yes);
+    String key = config.astronomyDigest() + "|" + config.hoursOffsetFromUT() + "|" + config.minutesOffsetFromUT();
+    return ECLIPSES.get(key, k -> LocalCircumstances.buildFrom(config, LocalCircumstances.ShowLogging.Yes));
   }
 }
@@ -0,0 +1,372 @@
+package custom.solar.eclipse.viewer.draw;
+
+import static custom.solar.eclipse.viewer.math.Maths.sqr;
+
+import java.awt.Shape;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import custom.solar.eclipse.viewer.astrocalc.EclipseDisplay;
+import custom.solar.eclipse.viewer.astrocalc.EclipseType;
+import custom.solar.eclipse.viewer.astrocalc.PartialPhase;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.math.Maths;
+
+/**
+ The shapes and labels of the {@link PartialPhasesChart}, in page coordinates.
+
+ <P>For each partial phase, the part of the Moon's outline that lies on the Sun's disk is calculated directly, as an arc.
+ No clipping is needed. The points where the two outlines cross are found in the same pass, and are used to place the labels.
+ For the maximum eclipse, the overlap of the two disks is a closed shape made of two arcs: one from each circle.
+
+ <P>Immutable. The geometry depends only on the site and the dimensions of the card, so it can be cached.
+*/
+final class PartialPhasesGeometry {
+
+  PartialPhasesGeometry(Config config, EclipseDisplay eclipse, double yLevel){
+    this.config = config;
+    this.eclipse = eclipse;
+    this.yLevel = yLevel;
+    phasesChart(ON_LEFT, eclipse.phasesBefore());
+    phasesChart(ON_RIGHT, eclipse.phasesAfter());
+    if (EclipseType.Total != eclipse.eclipseType()) {
+      maximumEclipseChart();
+    }
+    //only needed during construction
+    this.config = null;
+    this.eclipse = null;
+  }
+
+  /** A piece of text, and the point where it's anchored. */
+  static final class Label {
+    Label(String text, double x, double y, boolean rightAligned){
+      this.text = text;
+      this.x = x;
+      this.y = y;
+      this.rightAligned = rightAligned;
+    }
+    final String text;
+    final double x;
+    final double y;
+    /** Otherwise the text starts at the anchor. */
+    final boolean rightAligned;
+  }
+
+  /** The outline of each Sun, and each lunar arc, as a single path. The arcs are open, and need to be stroked with butt caps. */
+  Shape outlines() {
+    return outlines;
+  }
+
+  /** The overlap of the Sun and the Moon at maximum eclipse; null if there's no maximum eclipse chart. */
+  Shape maximum() {
+    return maximum;
+  }
+
+  /** Centered on their anchor, in the current font. */
+  List<Label> titles() {
+    return Collections.unmodifiableList(titles);
+  }
+
+  /** The times of the partial phases, in a smaller font. */
+  List<Label> times() {
+    return Collections.unmodifiableList(times);
+  }
+
+  // PRIVATE
+
+  private Config config;
+  private EclipseDisplay eclipse;
+  private double yLevel;
+
+  private final GeneralPath outlines = new GeneralPath();
+  private Shape maximum;
+  private final List<Label> titles = new ArrayList<>();
+  private final List<Label> times = new ArrayList<>();
+
+  private static final double SOLAR_RADIUS = 0.18;
+  private static final double TEXT_JUST_OUTSIDE_SOLAR_DISK = 1.02;
+  private static final double MAX_DESIRED_DISTANCE = 1.95;
+  private static final int ON_LEFT = 1;
+  private static final int ON_RIGHT = -1;
+
+  private void phasesChart(int parity, List<PartialPhase> phases) {
+    Point2D.Double sun = solarCenter(parity);
+    addTitle(phasesTitle(parity), sun, -1);
+    outlines.append(solarDisk(sun), false);
+
+    for (PartialPhase phase : phases) {
+      if (phase.lunarSolarDistance() < MAX_DESIRED_DISTANCE) {
+        Overlap overlap = new Overlap(phase, sun, solarRadius());
+        overlap.addLunarArcTo(outlines);
+        addTimes(overlap, phase, sun);
+      }
+    }
+  }
+
+  private void maximumEclipseChart() {
+    Point2D.Double sun = solarCenterForMaximum();
+    String time = eclipse.maxEclipse().when().format(DateTimeFormatter.ofPattern("hh:mm:ss"));
+    addTitle("Maximum " + Maths.roundToThreePlaces(eclipse.magnitude()) + " at " + time, sun, +1);
+    outlines.append(solarDisk(sun), false);
+    maximum = new Overlap(eclipse.maxEclipse(), sun, solarRadius()).lune();
+  }
+
+  private String phasesTitle(int parity) {
+    String middle = parity == ON_LEFT ? "Before" : "After";
+    String type = EclipseType.Total == eclipse.eclipseType() ? " Totality" : " Maximum";
+    return middle + type;
+  }
+
+  private void addTitle(String title, Point2D.Double sun, int parity) {
+    titles.add(new Label(title, sun.x, sun.y + nearThe(parity), false));
+  }
+
+  /** The vertical offset of a title from the center of the Sun. */
+  private double nearThe(int sign){
+    return sign * solarRadius() * 1.2;
+  }
+
+  private Shape solarDisk(Point2D.Double sun) {
+    double radius = solarRadius();
+    //this constructor uses the upper-left corner, not the center
+    return new Ellipse2D.Double(sun.x - radius, sun.y - radius, radius*2, radius*2);
+  }
+
+  private double solarRadius() {
+    return config.viewerWidth() * SOLAR_RADIUS;
+  }
+
+  private Point2D.Double solarCenter(int parity){
+    return new Point2D.Double(config.width() * 0.5 - parity * config.viewerWidth() * 0.25, config.viewerHeight() * yLevel + config.viewerTopMargin()) ;
+  }
+
+  private Point2D.Double solarCenterForMaximum(){
+    return new Point2D.Double(config.width() * 0.5, config.viewerHeight() * (yLevel + 0.25) + config.viewerTopMargin()) ;
+  }
+
+  /**
+   The Sun and the Moon of a single phase, and where their outlines cross.
+
+   <P>Angles are measured at the center of each circle, in page coordinates (x to the right, y down), in radians.
+   Distances are in units of the Sun's radius, until they're converted to points.
+  */
+  private static final class Overlap {
+    Overlap(PartialPhase phase, Point2D.Double sun, double solarRadius){
+      this.sun = sun;
+      this.solarRadius = solarRadius;
+      this.distance = phase.lunarSolarDistance();
+      this.lunarRadius = phase.lunarRadius();
+      this.zenithAngle = phase.zenithAngle();
+      this.moon = new Point2D.Double(
+        sun.x - Math.sin(zenithAngle) * distance * solarRadius,
+        sun.y - Math.cos(zenithAngle) * distance * solarRadius
+      );
+      this.towardMoon = Math.atan2(moon.y - sun.y, moon.x - sun.x);
+      //cosine law cos(a) = (B^2 + C^2 - A^2) / 2BC
+      this.angleMoonSunPoint = Math.acos(clamp((1 + sqr(distance) - sqr(lunarRadius)) / (2 * 1 * distance))); //0..pi
+      this.angleSunMoonPoint = Math.acos(clamp((sqr(lunarRadius) + sqr(distance) - 1) / (2 * lunarRadius * distance))); //0..pi
+    }
+
+    /** The part of the Moon's outline that's on the Sun's disk. */
+    void addLunarArcTo(GeneralPath path) {
+      if (isSeparate() || isSunInsideMoon()) {
+        return; //nothing to draw
+      }
+      if (isMoonInsideSun()) {
+        path.append(disk(moon, lunarRadius * solarRadius), false);
+      }
+      else {
+        path.append(lunarArc(), false);
+      }
+    }
+
+    /** The part of the Sun's disk that's covered by the Moon. */
+    Shape lune() {
+      Shape result = null;
+      if (isSeparate()) {
+        result = new GeneralPath();
+      }
+      else if (isSunInsideMoon()) {
+        result = disk(sun, solarRadius);
+      }
+      else if (isMoonInsideSun()) {
+        result = disk(moon, lunarRadius * solarRadius);
+      }
+      else {
+        Arc2D lunarArc = lunarArc();
+        Point2D end = lunarArc.getEndPoint();
+        //the arc of the Sun goes back from the end of the lunar arc to its start, passing the point nearest the Moon
+        double plus = towardMoon + angleMoonSunPoint;
+        double minus = towardMoon - angleMoonSunPoint;
+        boolean endsAtPlus = end.distance(pointOnSun(plus)) < end.distance(pointOnSun(minus));
+        GeneralPath path = new GeneralPath();
+        path.append(lunarArc, false);
+        path.append(arc(sun, solarRadius, endsAtPlus ? plus : minus, endsAtPlus ? -2 * angleMoonSunPoint : 2 * angleMoonSunPoint), true);
+        path.closePath();
+        result = path;
+      }
+      return result;
+    }
+
+    /**
+     The two points where the outlines cross, relative to the center of the Sun.
+     The 'base' point is found first, and the other is its mirror image; they're labeled with different times.
+    */
+    Intersection[] intersections() {
+      Intersection base = Intersection.from(new Point2D.Double(Math.sin(angleMoonSunPoint) * solarRadius, - Math.cos(angleMoonSunPoint) * solarRadius), true);
+      Intersection flipped = base.flipped();
+      Intersection[] result = {base.rotate(zenithAngle), flipped.rotate(zenithAngle)};
+      return result;
+    }
+
+    private final Point2D.Double sun;
+    private final double solarRadius;
+    private final Point2D.Double moon;
+    private final double distance;
+    private final double lunarRadius;
+    private final double zenithAngle;
+    private final double towardMoon;
+    /** The angle formed by MoonCenter > SunCenter > intersection point. */
+    private final double angleMoonSunPoint;
+    /** The angle formed by SunCenter > MoonCenter > intersection point. */
+    private final double angleSunMoonPoint;
+
+    private boolean isSeparate() {
+      return distance >= 1 + lunarRadius;
+    }
+    private boolean isSunInsideMoon() {
+      return distance + 1 <= lunarRadius;
+    }
+    private boolean isMoonInsideSun() {
+      return distance + lunarRadius <= 1;
+    }
+
+    /** Centered on the direction from the Moon to the Sun. */
+    private Arc2D lunarArc() {
+      double towardSun = towardMoon + Math.PI;
+      return arc(moon, lunarRadius * solarRadius, towardSun - angleSunMoonPoint, 2 * angleSunMoonPoint);
+    }
+
+    private Point2D pointOnSun(double angle) {
+      return new Point2D.Double(sun.x + Math.cos(angle) * solarRadius, sun.y + Math.sin(angle) * solarRadius);
+    }
+
+    /** Arc2D measures its angles in degrees, and counter-clockwise as seen on the page. */
+    private static Arc2D arc(Point2D.Double center, double radius, double start, double extent) {
+      return new Arc2D.Double(center.x - radius, center.y - radius, radius * 2, radius * 2, -Math.toDegrees(start), -Math.toDegrees(extent), Arc2D.OPEN);
+    }
+
+    private static Shape disk(Point2D.Double center, double radius) {
+      return new Ellipse2D.Double(center.x - radius, center.y - radius, radius * 2, radius * 2);
+    }
+
+    /** Rounding can take a cosine slightly out of range, when the circles are tangent. */
+    private static double clamp(double cosine) {
+      return Math.max(-1.0, Math.min(1.0, cosine));
+    }
+  }
+
+  private static final class Intersection {
+    static Intersection from(Point2D.Double point, boolean isBase) {
+      Intersection result = new Intersection();
+      result.point = point;
+      result.isBase = isBase;
+      return result;
+    }
+    Intersection flipped(){
+      return Intersection.from(new Point2D.Double(-point.x, point.y), false);
+    }
+    Intersection rotate(double angle){
+      double x = Math.cos(angle) * point.x + Math.sin(angle) * point.y;
+      double y = - Math.sin(angle) * point.x + Math.cos(angle) * point.y;
+      return Intersection.from(new Point2D.Double(x, y), isBase);
+    }
+    Point2D.Double point;
+    boolean isBase;
+  }
+
+  /** Add text near the intersection points between the two circles (Sun and Moon). */
+  private void addTimes(Overlap overlap, PartialPhase phase, Point2D.Double sun) {
+    for (Intersection intersection : overlap.intersections()) {
+      Quadrant quadrant = Quadrant.forPoint(intersection.point);
+      double scale = TEXT_JUST_OUTSIDE_SOLAR_DISK; //just outside the rim
+      times.add(new Label(
+        displayText(intersection, phase),
+        sun.x + intersection.point.x * scale + quadrant.dx,
+        sun.y + intersection.point.y * scale + quadrant.dy,
+        Quadrant.SW == quadrant || Quadrant.NW == quadrant
+      ));
+    }
+  }
+
+  private static enum Quadrant {
+    NE(0,0), SE(0,4), SW(0,4), NW(0,0);
+    static Quadrant forPoint(Point2D.Double point) {
+      Quadrant result = null;
+      boolean isNorth = point.y < 0;
+      boolean isEast = point.x > 0;
+      if (isNorth && isEast) {
+        result = NE;
+      }
+      else if (isNorth && !isEast) {
+        result = NW;
+      }
+      else if (!isNorth && isEast) {
+        result = SE;
+      }
+      else if (!isNorth && !isEast) {
+        result = SW;
+      }
+      return result;
+    }
+    private double dx;
+    private double dy;
+
+    private Quadrant(double dx, double dy) {
+      this.dx = dx;
+      this.dy = dy;
+    }
+  }
+
+  private String hourMin(PartialPhase phase) {
+    return phase.when().format(DateTimeFormatter.ofPattern("h:mm"));
+  }
+
+  /** Hours and minutes from either the start or end of totality/annularity. */
+  private String timeFromTotalityAnnularity(PartialPhase phase) {
+    //assume the phase is NOT between the start and end of totality
+    Boolean beforeTotality = phase.when().isBefore(eclipse.totalityAnnularityStarts());
+    LocalDateTime totality = beforeTotality ? eclipse.totalityAnnularityStarts() : eclipse.totalityAnnularityEnds();
+    Duration duration = Duration.between(totality, phase.when());
+    return Maths.hhmm(duration);
+  }
+
+  /** Hours and minutes from max eclipse. */
+  private String timeFromMaxEclipse(PartialPhase phase) {
+    Duration duration = Duration.between(eclipse.maxEclipse().when(), phase.when());
+    return Maths.hhmm(duration);
+  }
+
+  private boolean isBefore(PartialPhase phase) {
+    return phase.when().isBefore(eclipse.maxEclipse().when());
+  }
+
+  private String displayText(Intersection intersection, PartialPhase phase) {
+    String timeFrom = eclipse.eclipseType() == EclipseType.Partial ? timeFromMaxEclipse(phase) : timeFromTotalityAnnularity(phase);
+    boolean isBefore = isBefore(phase);
+    String result = timeFrom;
+    boolean switchIt = (!intersection.isBase && isBefore) || (intersection.isBase && !isBefore);
+    if (switchIt) {
+      result = hourMin(phase);
+    }
+    return result;
+  }
+}
@@ -5,19 +5,17 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Shape;
-import java.awt.geom.Area;
+import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
 
 import custom.solar.eclipse.viewer.config.Config;
-import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsCenterText;
-import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsRotate;
-import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsTranslate;
-import custom.solar.eclipse.viewer.draw.mix.ChangeFontSize;
 import custom.solar.eclipse.viewer.draw.mix.Draw;
-import custom.solar.eclipse.viewer.draw.mix.DrawLine;
 import custom.solar.eclipse.viewer.draw.mix.DrawText;
-import custom.solar.eclipse.viewer.draw.mix.DrawingContext;
+import custom.solar.eclipse.viewer.draw.mix.DrawingStack;
 import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.util.LruCache;
 
 /** 
  Ruled edge, for measuring the position angle of objects with respect to the Sun.
@@ -27,6 +25,11 @@ import custom.solar.eclipse.viewer.math.Maths;
  
  <P>The central point for measuring the angle is the pin-hole near the middle of the viewer.
  That way, the pin-hole can be used to center the Sun versus this scale.
+ 
+ <P>Each tick is the part of a ray from the pin-hole that lies between the border and an inset rectangle.
+ The ends of the ticks are calculated directly, instead of clipping long lines to the space between the two rectangles. 
+ All of the ticks are drawn as a single path, and the labels are drawn together, with a single change of font.
+ The geometry depends only on the dimensions of the card, and is cached.
 */
 final class RulerPositionAngle implements Draw {
   
@@ -40,25 +43,25 @@ final class RulerPositionAngle implements Draw {
    Thus, to get the actual position angle a mental calculation is needed.
   */
   @Override public void draw(Graphics2D g) {
-    double angle = 0.0;
-    double maxAngle = Maths.degToRads(180.0);
-    int degrees = 0;
-    while (angle < maxAngle) {
-      Point2D.Double shadowHole = shadowHole();
-      CornerAngle cornerAngle = new CornerAngle(shadowHole);
-      radialTickLine(g, angle, shadowHole);
-      if (degrees > 0) {
-        renderNumDegrees(g, angle, degrees, shadowHole, cornerAngle);
-      }
-      angle = angle + ANGULAR_INTERVAL;
-      degrees = degrees + DEGREE_INTERVAL;
+    Geometry geometry = geometry();
+    DrawingStack stack = new DrawingStack(g);
+    //the ends of the ticks are exactly on the edges of the rectangles
+    stack.save().buttCaps();
+    g.draw(geometry.ticks);
+    stack.restore();
+    stack.save().fontSize(0.6f);
+    for (int idx = 0; idx < geometry.labels.length; ++idx) {
+      Draw draw = new DrawText(geometry.labels[idx]);
+      draw.drawIn(stack.save().translate(geometry.labelX[idx], geometry.labelY[idx]).centerText(geometry.labels[idx]), g);
     }
+    stack.restore();
   }
 
   private Config config;
   private static final int DEGREE_INTERVAL = 5;
   private static final double ANGULAR_INTERVAL = Maths.degToRads(DEGREE_INTERVAL);
   private static final double OFFSET = 0.97;
+  private static final int MAX_CACHE_SIZE = 16;
 
   /** Offset the text a bit from the tick line. */
   private static final class OffsetText {
@@ -67,35 +70,85 @@ final class RulerPositionAngle implements Draw {
     static double side = 0.94;
   }
   
+  /** The ticks, and the labels centered on the given points, in page coordinates. Never mutated after construction. */
+  private static final class Geometry {
+    Geometry(Shape ticks, List<String> labels, List<Point2D.Double> where){
+      this.ticks = ticks;
+      this.labels = labels.toArray(new String[0]);
+      this.labelX = new double[where.size()];
+      this.labelY = new double[where.size()];
+      for (int idx = 0; idx < where.size(); ++idx) {
+        labelX[idx] = where.get(idx).x;
+        labelY[idx] = where.get(idx).y;
+      }
+    }
+    final Shape ticks;
+    final String[] labels;
+    final double[] labelX;
+    final double[] labelY;
+  }
+
+  /** Keyed by the dimensions of the card. */
+  private static final LruCache<String, Geometry> CACHE = new LruCache<>(MAX_CACHE_SIZE);
+  
+  private Geometry geometry() {
+    String key = config.width() + "|" + config.viewerWidth() + "|" + config.viewerHeight() + "|" + config.viewerTopMargin();
+    return CACHE.get(key, k -> calculateGeometry());
+  }
+  
+  private Geometry calculateGeometry() {
+    GeneralPath ticks = new GeneralPath();
+    List<String> labels = new ArrayList<>();
+    List<Point2D.Double> where = new ArrayList<>();
+    Point2D.Double shadowHole = shadowHole();
+    CornerAngle cornerAngle = new CornerAngle(shadowHole);
+    Rectangle border = rectangle(1.0);
+    Rectangle insetBorder = rectangle(OFFSET);
+    double angle = 0.0;
+    double maxAngle = Maths.degToRads(180.0);
+    int degrees = 0;
+    while (angle < maxAngle) {
+      radialTickLine(ticks, angle, shadowHole, border, insetBorder);
+      if (degrees > 0) {
+        Point2D.Double offset = whereToWriteNumber(angle, shadowHole, cornerAngle);
+        labels.add((180 - degrees) + "°");
+        where.add(new Point2D.Double(shadowHole.x + offset.x, shadowHole.y + offset.y));
+      }
+      angle = angle + ANGULAR_INTERVAL;
+      degrees = degrees + DEGREE_INTERVAL;
+    }
+    return new Geometry(ticks, labels, where);
+  }
+  
   private Point2D.Double shadowHole(){
     return new Point2D.Double(config.width()*0.5, config.viewerHeight()*Holes.AT_SHADOW_HOLE_LEVEL + config.viewerTopMargin()); 
   }
   
-  private void radialTickLine(Graphics2D g, double angle, Point2D.Double shadowHole) {
-    //straight lines from the shadow-hole to an edge
-    DrawingContext context = new ChangeCoordsTranslate(g, shadowHole);
-    context = ChangeCoordsRotate.chain(context, g, -angle);
-    
-    //use a rectangular clipping region to block off most of radial lines drawn below, such that the line is only rendered near the edge of the card
-    g.setClip(rectangularMask()); //NOTE: the clipping region is not sensitive to the above changes in the coord system
-    Draw draw = new DrawLine(config.width()*4, DrawLine.Direction.down); //any large length will do here
-    draw.drawIn(context, g);
-    g.setClip(null); //removes the clipping region
-  }
-
   /** 
-   Take the border rectangle, and subtract an 'inner' rectangle similar to it.
-   These operations are done when the context is already at the center of the viewer. 
+   The part of a ray from the shadow-hole that lies between the inset rectangle and the border.
+   The angle sweeps from '6:00' (straight down), in the counter-clockwise direction.
   */
-  private Shape rectangularMask() {
-    Shape border = rectangle(1.0);
-    Shape insetBorder = rectangle(OFFSET);
-    Area result = new Area(border);
-    result.subtract(new Area(insetBorder));
+  private void radialTickLine(GeneralPath ticks, double angle, Point2D.Double shadowHole, Rectangle border, Rectangle insetBorder) {
+    double dx = Math.sin(angle);
+    double dy = Math.cos(angle);
+    double start = distanceToEdge(shadowHole, dx, dy, insetBorder);
+    double end = distanceToEdge(shadowHole, dx, dy, border);
+    ticks.moveTo(shadowHole.x + start * dx, shadowHole.y + start * dy);
+    ticks.lineTo(shadowHole.x + end * dx, shadowHole.y + end * dy);
+  }
+  
+  /** The distance along a ray from a point inside the given rectangle, to where the ray leaves the rectangle. */
+  private static double distanceToEdge(Point2D.Double from, double dx, double dy, Rectangle rect) {
+    double result = Double.MAX_VALUE;
+    if (dx > 0) result = Math.min(result, (rect.getMaxX() - from.x) / dx);
+    if (dx < 0) result = Math.min(result, (rect.getMinX() - from.x) / dx);
+    if (dy > 0) result = Math.min(result, (rect.getMaxY() - from.y) / dy);
+    if (dy < 0) result = Math.min(result, (rect.getMinY() - from.y) / dy);
     return result;
   }
   
-  private Shape rectangle(double factor) {
+  /** The border rectangle, or an 'inner' rectangle similar to it, with the same center. */
+  private Rectangle rectangle(double factor) {
     Point topLeft = new Point(
       Maths.round((config.width()*0.5 - config.viewerWidth()*0.5*factor)), 
       Maths.round(config.viewerTopMargin() + config.viewerHeight()*0.5*(1-factor)) 
@@ -106,20 +159,6 @@ final class RulerPositionAngle implements Draw {
     );
     return new Rectangle(topLeft, dim);
   }
-  
-  /** This is trickier because the clipping region can't be used; we need to tediously calculate a 'where'. */
-  private void renderNumDegrees(Graphics2D g, double angle, int degrees, Point2D.Double shadowHole, CornerAngle cornerAngle) {
-    Point2D.Double where = whereToWriteNumber(angle, shadowHole, cornerAngle);
-    String numDegrees = (180 - degrees) + "°";
-    
-    DrawingContext context = new ChangeFontSize(g, 0.6f); 
-    context = ChangeCoordsTranslate.chain(context, g, shadowHole);
-    context = ChangeCoordsTranslate.chain(context, g, where);
-    context = ChangeCoordsCenterText.chain(context, g, numDegrees);
-    
-    Draw draw = new DrawText(numDegrees);
-    draw.drawIn(context, g);
-  }
 
   /** 
    The angles defining the transition points between the side and the top/bottom of the view.
@@ -137,7 +176,7 @@ final class RulerPositionAngle implements Draw {
     private double bottom;
   }
   
-  /** THESE CALCULATIONS ARE A BIT TRICKY (error-prone). Is there a simpler technique, I wonder? */
+  /** With respect to the shadow-hole. THESE CALCULATIONS ARE A BIT TRICKY (error-prone). Is there a simpler technique, I wonder? */
   private Point2D.Double whereToWriteNumber(double angle, Point2D.Double shadowHole, CornerAngle cornerAngle){
     return new Point2D.Double(
       degreesXPosition(angle, cornerAngle, shadowHole), 
@@ -1,19 +1,18 @@
 package custom.solar.eclipse.viewer.draw;
 
 import java.awt.Graphics2D;
-import java.awt.geom.Point2D;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.util.ArrayList;
+import java.util.List;
 
 import custom.solar.eclipse.viewer.config.Config;
 import custom.solar.eclipse.viewer.config.Constants;
-import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsCenterText;
-import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsRotate;
-import custom.solar.eclipse.viewer.draw.mix.ChangeCoordsTranslate;
-import custom.solar.eclipse.viewer.draw.mix.ChangeFontSize;
 import custom.solar.eclipse.viewer.draw.mix.Draw;
-import custom.solar.eclipse.viewer.draw.mix.DrawLine;
 import custom.solar.eclipse.viewer.draw.mix.DrawText;
-import custom.solar.eclipse.viewer.draw.mix.DrawingContext;
+import custom.solar.eclipse.viewer.draw.mix.DrawingStack;
 import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.util.LruCache;
 
 /** 
  Ruled edge, for measuring the angular separation of objects in the sky.
@@ -23,6 +22,9 @@ import custom.solar.eclipse.viewer.math.Maths;
  
  <P>One tick for each degree, 0 up to a maximum angle.
   The maximum depends on the configured nominal distance from the user's eye to the viewer.
+  
+ <P>All of the ticks are drawn as a single path, and the labels are drawn in two batches, one for each font size.
+ The geometry depends only on the dimensions of the card and the distance to the eye, and is cached.
 */
 final class RulerSeparation implements Draw {
   
@@ -35,28 +37,62 @@ final class RulerSeparation implements Draw {
    Zero degrees is at the bottom left, and it increases upward.
   */
   @Override public void draw(Graphics2D g) {
+    Geometry geometry = geometry();
+    DrawingStack stack = new DrawingStack(g);
+    stack.save().strokeWidth(TICK_WIDTH);
+    g.draw(geometry.ticks);
+    stack.restore();
+    drawLabels(geometry, false, stack, g);
+    drawLabels(geometry, true, stack, g);
+  }
+
+  private Config config;
+  private static final double TICK_SIZE = 5.0;
+  /** 
+   The width the ticks have always been printed with. 
+   It was once inherited from the bold title drawn just before the ruler; it's now set explicitly, 
+   so that it doesn't depend on the order of drawing. 
+  */
+  private static final float TICK_WIDTH = 0.85f;
+  private static final double ANGULAR_INTERVAL = Maths.degToRads(1.0);
+  private static final double CM_PER_INCH = 2.54;
+  private static final int MAX_CACHE_SIZE = 16;
+  
+  /** The ticks, and the y-level of each label, in page coordinates. Never mutated after construction. */
+  private static final class Geometry {
+    Geometry(Shape ticks, double[] yLevels){
+      this.ticks = ticks;
+      this.yLevels = yLevels;
+    }
+    final Shape ticks;
+    /** Indexed by the number of degrees. */
+    final double[] yLevels;
+  }
+
+  /** Keyed by the dimensions of the card, and the distance to the eye. */
+  private static final LruCache<String, Geometry> CACHE = new LruCache<>(MAX_CACHE_SIZE);
+  
+  private Geometry geometry() {
+    String key = config.width() + "|" + config.viewerWidth() + "|" + config.viewerHeight() + "|" + config.viewerTopMargin() + "|" + config.armsLength();
+    return CACHE.get(key, k -> calculateGeometry());
+  }
+  
+  private Geometry calculateGeometry() {
+    GeneralPath ticks = new GeneralPath();
+    List<Double> yLevels = new ArrayList<>();
     double angle = 0.0;
     double maxAngle = maxAngle();
     double armsLength = cmToPoints(config.armsLength()); //points
-    int degrees = 0;
     while (angle < maxAngle) {
       double distanceFromBottomUp = Math.tan(angle) * armsLength; //points
       double yLevel = config.viewerHeight() - distanceFromBottomUp + config.viewerTopMargin(); //points
-      
-      horizontalLineAt(yLevel, degrees, g);
-      if (degrees > 0) {
-        numDegreesAt(yLevel, degrees, g);
-      }
-        
+      ticks.moveTo(xLevel(), yLevel);
+      ticks.lineTo(xLevel() + TICK_SIZE, yLevel);
+      yLevels.add(yLevel);
       angle = angle + ANGULAR_INTERVAL;
-      ++degrees;
     }
+    return new Geometry(ticks, yLevels.stream().mapToDouble(Double::doubleValue).toArray());
   }
-
-  private Config config;
-  private static final double TICK_SIZE = 5.0;
-  private static final double ANGULAR_INTERVAL = Maths.degToRads(1.0);
-  private static final double CM_PER_INCH = 2.54;
   
   /** Radians. Always within the range 0..pi/4. */
   private double maxAngle() {
@@ -67,34 +103,21 @@ final class RulerSeparation implements Draw {
     return (cm / CM_PER_INCH) * Constants.POINTS_PER_INCH;
   }
   
-  private void horizontalLineAt(double yLevel, int count, Graphics2D g) {
-    Point2D.Double where = new Point2D.Double(xLevel(), yLevel);
-    DrawingContext context = new ChangeCoordsTranslate(g, where);
-    Draw draw = new DrawLine(tickLen(count), DrawLine.Direction.right);
-    draw.drawIn(context, g);
-  }
-  
-  /** Rotate ninety degrees anti-clockwise. */
-  private void numDegreesAt(double yLevel, Integer degrees, Graphics2D g) {
-    Point2D.Double where = new Point2D.Double(xLevel() + 10.0, yLevel);
-    Float fontSize = (degrees % 5 != 0) ? 0.6f : 0.8f;
-    String text = degrees.toString() + "°";
-    
-    DrawingContext context = new ChangeFontSize(g, fontSize);
-    context = ChangeCoordsTranslate.chain(context, g, where);
-    context = ChangeCoordsRotate.chain(context, g, -Maths.HALF_PI);
-    context = ChangeCoordsCenterText.chain(context, g, text);
-    
-    Draw drawer = new DrawText(text);
-    drawer.drawIn(context, g);
+  /** Either every fifth degree (in a larger font), or all the others. Rotate ninety degrees anti-clockwise. */
+  private void drawLabels(Geometry geometry, boolean everyFifth, DrawingStack stack, Graphics2D g) {
+    stack.save().fontSize(everyFifth ? 0.8f : 0.6f);
+    for (int degrees = 1; degrees < geometry.yLevels.length; ++degrees) {
+      if ((degrees % 5 == 0) == everyFifth) {
+        String text = degrees + "°";
+        Draw drawer = new DrawText(text);
+        drawer.drawIn(stack.save().translate(xLevel() + 10.0, geometry.yLevels[degrees]).rotate(-Maths.HALF_PI).centerText(text), g);
+      }
+    }
+    stack.restore();
   }
   
   /** The left border */
   private double xLevel() {
     return config.width() * 0.5 - config.viewerWidth() * 0.5;
   }
-  
-  private double tickLen(int count) {
-    return TICK_SIZE;
-  }
 }
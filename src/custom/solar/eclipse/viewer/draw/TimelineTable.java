@@ -1,7 +1,14 @@
 package custom.solar.eclipse.viewer.draw;
 
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
 import java.text.DecimalFormat;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -19,13 +26,16 @@ import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 
 import custom.solar.eclipse.viewer.astrocalc.EclipseType;
+import custom.solar.eclipse.viewer.config.Config;
 import custom.solar.eclipse.viewer.config.Constants;
 import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.metrics.TimelineTableEvent;
 
 /** Timeline for eclipse milestones. */
 final class TimelineTable {
   
-  TimelineTable(EclipseType eclipseType, List<TimelineEvent> timelineEvents, Document document) {
+  TimelineTable(Config config, EclipseType eclipseType, List<TimelineEvent> timelineEvents, Document document) {
+    this.config = config;
     this.eclipseType = eclipseType;
     this.timelineEvents = timelineEvents;
     this.document = document;
@@ -38,10 +48,70 @@ final class TimelineTable {
    to add parts to a Document object. 
   */
   void draw() throws DocumentException {
+    TimelineTableEvent event = new TimelineTableEvent();
     emptyLines(NUM_EMPTY_LINES);
     tableFor(timelineEvents);
+    event.rows = timelineEvents.size();
+    event.inDocument = true;
+    event.finish();
+  }
+  
+  /**
+   The same table, drawn with the graphics context instead of being added to the document.
+   Used for preview images, where there's no document.
+   
+   <P>The layout mimics what iText does with the document: the same position on the page, 
+   the same column widths, cell padding, line height, and line-wrapping.
+  */
+  void draw(Graphics2D g) {
+    TimelineTableEvent event = new TimelineTableEvent();
+    float usableWidth = config.width() - Constants.MARGIN_LEFT - Constants.MARGIN_RIGHT;
+    float tableWidth = usableWidth * PERCENTAGE_WIDTH / 100f;
+    float[] colWidths = relativeColWidths();
+    float totalRelativeWidth = 0;
+    for (float width : colWidths) {
+      totalRelativeWidth += width;
+    }
+    float[] cellWidths = new float[colWidths.length];
+    for(int idx = 0; idx < colWidths.length; ++idx) {
+      cellWidths[idx] = tableWidth * colWidths[idx] / totalRelativeWidth;
+    }
+    
+    Font font = Constants.baseFont().deriveFont(FONT_SIZE);
+    FontMetrics metrics = g.getFontMetrics(font);
+    g.setFont(font);
+    g.setStroke(new BasicStroke(BORDER_WIDTH, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
+    float y = Constants.MARGIN_BOTTOM + NUM_EMPTY_LINES * EMPTY_LINE_LEADING; //the document's top margin is the same as its bottom margin
+    boolean isHeader = true;
+    for(List<String> row : rowsFor(timelineEvents)) {
+      List<List<String>> cellLines = new ArrayList<>();
+      int maxLines = 1;
+      for(int col = 0; col < row.size(); ++col) {
+        List<String> lines = wrap(row.get(col), cellWidths[col] - 2 * CELL_PADDING, metrics);
+        cellLines.add(lines);
+        maxLines = Math.max(maxLines, lines.size());
+      }
+      float rowHeight = maxLines * FONT_SIZE + 2 * CELL_PADDING;
+      float x = Constants.MARGIN_LEFT + (usableWidth - tableWidth) / 2;
+      for(int col = 0; col < row.size(); ++col) {
+        Rectangle2D cell = new Rectangle2D.Float(x, y, cellWidths[col], rowHeight);
+        if (isHeader) {
+          g.setColor(HEADER_GREY);
+          g.fill(cell);
+        }
+        g.setColor(Color.BLACK);
+        g.draw(cell);
+        drawLines(g, cellLines.get(col), cell, isLeftAligned(col), metrics);
+        x = x + cellWidths[col];
+      }
+      y = y + rowHeight;
+      isHeader = false;
+    }
+    event.rows = timelineEvents.size();
+    event.finish();
   }
 
+  private Config config;
   private List<TimelineEvent> timelineEvents;
   private Document document;
   private EclipseType eclipseType;
@@ -50,6 +120,13 @@ final class TimelineTable {
   private static final int PERCENTAGE_WIDTH = 68;
   private static final float FONT_SIZE = 9.0F;
   
+  /** iText's default leading for a Paragraph. Controls the position of the table. */
+  private static final float EMPTY_LINE_LEADING = 16.0F;
+  /** iText's defaults for a PdfPCell. */
+  private static final float CELL_PADDING = 2.0F;
+  private static final float BORDER_WIDTH = 0.5F;
+  private static final Color HEADER_GREY = new Color(0.8f, 0.8f, 0.8f);
+  
   private static final List<String> COLUMN_NAMES = Arrays.asList("-/+ Tot.", "Time", "Mag.", "Comment");
   private static final float[] RELATIVE_COL_WIDTHS = {1.0f, 1.0f, 1.0f, 5.0f};
   
@@ -70,24 +147,49 @@ final class TimelineTable {
     table.setHorizontalAlignment(Element.ALIGN_CENTER);
     table.setWidths(relativeColWidths());
     
-    for(String columnName : columnNames()) {
-      int align = (columnName.equals("Comment") ? Element.ALIGN_LEFT : Element.ALIGN_CENTER);
-      addHeaderCell(table, columnName, align); 
+    boolean isHeader = true;
+    for(List<String> row : rowsFor(events)) {
+      for(int col = 0; col < row.size(); ++col) {
+        int align = isLeftAligned(col) ? Element.ALIGN_LEFT : Element.ALIGN_CENTER;
+        if (isHeader) {
+          addHeaderCell(table, row.get(col), align);
+        }
+        else {
+          addRowCell(table, row.get(col), align);
+        }
+      }
+      if (isHeader) {
+        table.setHeaderRows(1);
+        isHeader = false;
+      }
     }
-    table.setHeaderRows(1);
+    
+    document.add(table);
+  }
+  
+  /** The text of each cell, starting with the header row. */
+  private List<List<String>> rowsFor(List<TimelineEvent> events) {
+    List<List<String>> result = new ArrayList<>();
+    result.add(columnNames());
     DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("hh:mm:ss");
     DecimalFormat magFormat = new DecimalFormat("0.000");
     for(TimelineEvent event : events) {
-      addRowCell(table, Maths.hhmmss(event.plusMinus()), Element.ALIGN_CENTER);
-      addRowCell(table, event.when().format(dateFormat), Element.ALIGN_CENTER);
-      addRowCell(table, magFormat.format(Maths.roundToThreePlaces(event.magnitude())), Element.ALIGN_CENTER);
+      List<String> row = new ArrayList<>();
+      row.add(Maths.hhmmss(event.plusMinus()));
+      row.add(event.when().format(dateFormat));
+      row.add(magFormat.format(Maths.roundToThreePlaces(event.magnitude())));
       if (EclipseType.Total != eclipseType) {
-        addRowCell(table, event.altitude().toString() + "°", Element.ALIGN_CENTER);
+        row.add(event.altitude().toString() + "°");
       }
-      addRowCell(table, event.text(), Element.ALIGN_LEFT);
+      row.add(event.text());
+      result.add(row);
     }
-    
-    document.add(table);
+    return result;
+  }
+  
+  /** Only the comment, which is always the last column. */
+  private boolean isLeftAligned(int col) {
+    return col == columnNames().size() - 1;
   }
 
   private void addHeaderCell(PdfPTable table, String text, int alignment) {
@@ -124,6 +226,56 @@ final class TimelineTable {
     return FontFactory.getFont(Constants.FONT_NAME, BaseFont.IDENTITY_H, FONT_SIZE, com.itextpdf.text.Font.NORMAL);
   }
 
+  /** 
+   Break the text into lines which fit in the given width, as iText does in a cell. 
+   Lines are broken at spaces; a word which is too long by itself is broken between characters.
+  */
+  private List<String> wrap(String text, float width, FontMetrics metrics) {
+    List<String> result = new ArrayList<>();
+    StringBuilder line = new StringBuilder();
+    for(String word : text.split(" ")) {
+      String candidate = line.length() == 0 ? word : line + " " + word;
+      if (widthOf(candidate, metrics) <= width) {
+        line.setLength(0);
+        line.append(candidate);
+      }
+      else {
+        if (line.length() > 0) {
+          result.add(line.toString());
+          line.setLength(0);
+        }
+        for(char c : word.toCharArray()) {
+          if (line.length() > 0 && widthOf(line.toString() + c, metrics) > width) {
+            result.add(line.toString());
+            line.setLength(0);
+          }
+          line.append(c);
+        }
+      }
+    }
+    result.add(line.toString());
+    return result;
+  }
+  
+  private double widthOf(String text, FontMetrics metrics) {
+    return metrics.getStringBounds(text, null).getWidth();
+  }
+  
+  /** Each line takes the height of the font. The lines are centered vertically in the cell. */
+  private void drawLines(Graphics2D g, List<String> lines, Rectangle2D cell, boolean isLeftAligned, FontMetrics metrics) {
+    double contentHeight = lines.size() * FONT_SIZE;
+    double baseline = cell.getY() + (cell.getHeight() - contentHeight) / 2 + FONT_SIZE;
+    double innerWidth = cell.getWidth() - 2 * CELL_PADDING;
+    for(String line : lines) {
+      double x = cell.getX() + CELL_PADDING;
+      if (!isLeftAligned) {
+        x = x + (innerWidth - widthOf(line, metrics)) / 2;
+      }
+      g.drawString(line, (float)x, (float)baseline);
+      baseline = baseline + FONT_SIZE;
+    }
+  }
+
   /** Used only to control the vertical placement of the table on the page. */
   private void emptyLines(int num) throws DocumentException {
     Chunk chunk = new Chunk(someEmptyLines(num), normalFont());
@@ -0,0 +1,59 @@
+package custom.solar.eclipse.viewer.draw;
+
+import java.awt.Graphics2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+
+import custom.solar.eclipse.viewer.draw.mix.Draw;
+
+/**
+ The parts of the pages of a viewer, one at a time, for benchmarks.
+ Generating a viewer never uses this class; it calls {@link GenerateViewer#outputTo(java.io.OutputStream)}.
+
+ <P>Each part is drawn by the same object as when generating the viewer, built with the same settings.
+ Not thread-safe.
+*/
+public final class ViewerStages {
+
+  public ViewerStages(GenerateViewer viewer) {
+    this.viewer = viewer;
+  }
+
+  /**
+   The drawers of both pages, in the order in which they're drawn.
+   Each is named after its page and its class, for example <em>page 2: PartialPhasesChart</em>.
+   The static artwork is marked as such.
+  */
+  public Map<String, Draw> drawers() {
+    Map<String, Draw> result = new LinkedHashMap<>();
+    addAll("page 1 static", viewer.pageOneStaticDrawers(), result);
+    addAll("page 1", viewer.pageOneDrawers(), result);
+    addAll("page 2 static", viewer.pageTwoStaticDrawers(), result);
+    addAll("page 2", viewer.pageTwoDrawers(), result);
+    return result;
+  }
+
+  /** Add the table of the timeline to the given document, as when generating a PDF file. */
+  public void timeline(Document document) throws DocumentException {
+    viewer.timeline(document).draw();
+  }
+
+  /** Draw the table of the timeline with the given graphics context, as when generating a preview. */
+  public void timeline(Graphics2D g) {
+    viewer.timeline(null).draw(g);
+  }
+
+  // PRIVATE
+
+  private final GenerateViewer viewer;
+
+  private static void addAll(String page, Set<Draw> drawers, Map<String, Draw> result) {
+    for (Draw drawer : drawers) {
+      result.put(page + ": " + drawer.getClass().getSimpleName(), drawer);
+    }
+  }
+}
@@ -35,11 +35,6 @@ public class ChangeCoordsRightAlignText extends ChangeCoords {
   
   /** Render text centered on the given spot. */
   private Point2D.Double tweakedWhere(Graphics2D g) {
-    return new Point2D.Double(- textWidth(text, g), 0);
-  }
-  
-  /** Return the width of the given text, when rendered in the given context. */
-  private int textWidth(String str, Graphics2D g) {
-    return g.getFontMetrics().stringWidth(str);
+    return new Point2D.Double(- TextMetrics.textWidth(text, g), 0);
   }
 }
@@ -1,6 +1,9 @@
 package custom.solar.eclipse.viewer.draw.mix;
 
 import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.util.Arrays;
 import java.util.Hashtable;
 
 import com.google.zxing.BarcodeFormat;
@@ -11,39 +14,117 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
 import custom.solar.eclipse.viewer.config.QRCode;
+import custom.solar.eclipse.viewer.util.LruCache;
 
-/** 
+/**
  Render a QR code in the origin of the current graphics context.
- This class uses the google <code>zxing</code> library to render the QR code graphic. 
+ This class uses the google <code>zxing</code> library to render the QR code graphic.
+
+ <P>The dark modules are rendered as a single filled path, made of merged runs, instead of one small
+ rectangle per module. Runs of dark modules in a row are merged horizontally, and identical rows are merged vertically.
+ This keeps the PDF content stream small.
+
+ <P>Encoding is cached by (url, size, error correction level), since every viewer in a batch usually shares the same links.
 */
 public final class DrawQrCode implements Draw {
-  
+
   public DrawQrCode(QRCode qrCode, int size){
     this.qrCode = qrCode;
     this.size = size;
   }
-  
+
   @Override public void draw(Graphics2D g) {
-    Hashtable<EncodeHintType, ErrorCorrectionLevel> hints = new Hashtable<>();
-    hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.L);
-    QRCodeWriter qrCodeWriter = new QRCodeWriter();
     try {
-      BitMatrix matrix = qrCodeWriter.encode(qrCode.url(), BarcodeFormat.QR_CODE, size, size, hints);
-      //g.setColor(Color.BLACK);
-      for (int i = 0; i < matrix.getWidth(); i++) {
-        for (int j = 0; j < matrix.getWidth(); j++) {
-          if (matrix.get(i, j)) {
-            g.fillRect(i, j, 1, 1);
-          }
-        }
-      }
-    } 
+      g.fill(encodingFor(qrCode.url(), size).darkModules);
+    }
     catch (WriterException e) {
       e.printStackTrace();
     }
   }
-  
+
   private QRCode qrCode;
   private int size;
 
+  private static final ErrorCorrectionLevel ECC_LEVEL = ErrorCorrectionLevel.L;
+  private static final int MAX_CACHE_SIZE = 64;
+
+  private static final LruCache<String, Encoding> CACHE = new LruCache<>(MAX_CACHE_SIZE);
+
+  /** The path covering the dark modules of an encoded matrix. Never mutated after construction. */
+  private static final class Encoding {
+    Encoding(BitMatrix matrix){
+      this.darkModules = mergedRunsFor(matrix);
+    }
+    final Shape darkModules;
+  }
+
+  private static Encoding encodingFor(String url, int size) throws WriterException {
+    String key = size + "|" + ECC_LEVEL + "|" + url;
+    return CACHE.get(key, k -> new Encoding(encode(url, size)));
+  }
+
+  private static BitMatrix encode(String url, int size) throws WriterException {
+    Hashtable<EncodeHintType, ErrorCorrectionLevel> hints = new Hashtable<>();
+    hints.put(EncodeHintType.ERROR_CORRECTION, ECC_LEVEL);
+    QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    return qrCodeWriter.encode(url, BarcodeFormat.QR_CODE, size, size, hints);
+  }
+
+  /**
+   Scan each row for runs of dark modules.
+   The encoder scales each module to a square block of pixels, so a row is usually identical to the row above it;
+   in that case the pending rectangles simply get taller.
+  */
+  private static Shape mergedRunsFor(BitMatrix matrix) {
+    GeneralPath result = new GeneralPath(GeneralPath.WIND_NON_ZERO);
+    int[] runs = new int[matrix.getWidth() + 1]; //start-end pairs
+    int[] pendingRuns = new int[matrix.getWidth() + 1];
+    int numPending = 0;
+    int pendingTop = 0;
+    for (int y = 0; y < matrix.getHeight(); ++y) {
+      int numRuns = runsInRow(matrix, y, runs);
+      boolean sameAsPending = numRuns == numPending && Arrays.equals(runs, 0, numRuns, pendingRuns, 0, numPending);
+      if (!sameAsPending) {
+        addRectangles(result, pendingRuns, numPending, pendingTop, y);
+        System.arraycopy(runs, 0, pendingRuns, 0, numRuns);
+        numPending = numRuns;
+        pendingTop = y;
+      }
+    }
+    addRectangles(result, pendingRuns, numPending, pendingTop, matrix.getHeight());
+    return result;
+  }
+
+  /** Returns the number of ints placed in the result, as start-end pairs (end is exclusive). */
+  private static int runsInRow(BitMatrix matrix, int y, int[] result) {
+    int count = 0;
+    int x = 0;
+    int width = matrix.getWidth();
+    while (x < width) {
+      if (matrix.get(x, y)) {
+        int start = x;
+        while (x < width && matrix.get(x, y)) {
+          ++x;
+        }
+        result[count++] = start;
+        result[count++] = x;
+      }
+      else {
+        ++x;
+      }
+    }
+    return count;
+  }
+
+  private static void addRectangles(GeneralPath path, int[] runs, int numRuns, int top, int bottom) {
+    for (int idx = 0; idx < numRuns; idx = idx + 2) {
+      int left = runs[idx];
+      int right = runs[idx + 1];
+      path.moveTo(left, top);
+      path.lineTo(right, top);
+      path.lineTo(right, bottom);
+      path.lineTo(left, bottom);
+      path.closePath();
+    }
+  }
 }
@@ -0,0 +1,218 @@
+package custom.solar.eclipse.viewer.draw.mix;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+
+/**
+ Alternative to a chain of {@link DrawingContextWrapper} objects, backed by an explicit save/restore stack
+ on the state of a graphics context.
+
+ <P>A chain allocates several objects for every label: each link snapshots the transform, font, stroke and color,
+ and the coordinate changes allocate their own AffineTransform and Point2D objects.
+ Here, a single object serves all of the items drawn by a given drawer.
+ {@link #save()} copies the current state into a slot that is re-used from one item to the next.
+ The changes are then applied directly and immediately to the graphics context, in the order in which they are called:
+ translations and rotations are composed in place with <code>Graphics2D.translate/rotate</code>,
+ without building any intermediate objects.
+ {@link #restore()} puts back the saved state, touching only the items that have actually changed.
+
+ <P>Just as with the chains, centering or right-aligning text needs to be the last change, since it uses
+ the font and coordinates that are in effect at that moment.
+
+ <P>This class is also a {@link DrawingContext}: since the changes are already in place, {@link #change()} does nothing,
+ and {@link #reverse()} simply restores the most recently saved state.
+ That means that the usual <code>Draw.drawIn(context, g)</code> works with it:
+ <pre>
+ DrawingStack stack = new DrawingStack(g);
+ ...
+ Draw drawer = new DrawText(text);
+ drawer.drawIn(stack.save().fontSize(0.6f).translate(x, y).rotate(-Maths.HALF_PI).centerText(text), g);
+ </pre>
+
+ <P>Not thread-safe. Each call to <code>save</code> needs to be matched by exactly one call to <code>restore</code>.
+ While a state is saved, the coordinate system must only be changed by this class, or by code that puts it back itself.
+*/
+public final class DrawingStack implements DrawingContext {
+
+  public DrawingStack(Graphics2D g) {
+    this.g = g;
+  }
+
+  /** Push a copy of the current state of the graphics context. Returns this object, to allow chaining calls. */
+  public DrawingStack save() {
+    if (depth == frames.length) {
+      Frame[] bigger = new Frame[frames.length * 2];
+      System.arraycopy(frames, 0, bigger, 0, frames.length);
+      frames = bigger;
+    }
+    if (frames[depth] == null) {
+      frames[depth] = new Frame();
+    }
+    frames[depth].copyFrom(g);
+    ++depth;
+    return this;
+  }
+
+  /** Pop the most recently saved state, and put it back into the graphics context. */
+  public void restore() {
+    if (depth == 0) {
+      throw new IllegalStateException("Nothing to restore. Calls to save and restore are not balanced.");
+    }
+    --depth;
+    frames[depth].copyTo(g);
+  }
+
+  /** Translate the origin. */
+  public DrawingStack translate(double x, double y) {
+    g.translate(x, y);
+    return this;
+  }
+
+  /** Rotate about the current origin. Positive angles rotate clockwise (in a page's coordinates). Radians. */
+  public DrawingStack rotate(double angle) {
+    g.rotate(angle);
+    return this;
+  }
+
+  /** Change the current font size by a given factor. */
+  public DrawingStack fontSize(float factor) {
+    Font font = g.getFont();
+    g.setFont(derived(font, font.getSize() * factor, font.getStyle()));
+    return this;
+  }
+
+  /** Change the current font to bold. */
+  public DrawingStack bold() {
+    Font font = g.getFont();
+    g.setFont(derived(font, font.getSize2D(), Font.BOLD));
+    return this;
+  }
+
+  /** Change the current font to italic. */
+  public DrawingStack italic() {
+    Font font = g.getFont();
+    g.setFont(derived(font, font.getSize2D(), Font.ITALIC));
+    return this;
+  }
+
+  /** Change the current color. */
+  public DrawingStack color(Color color) {
+    g.setColor(color);
+    return this;
+  }
+
+  /** Change the current stroke width. */
+  public DrawingStack strokeWidth(float width) {
+    if (lastStroke == null || lastStroke.getLineWidth() != width) {
+      lastStroke = new BasicStroke(width);
+    }
+    g.setStroke(lastStroke);
+    return this;
+  }
+
+  /** 
+   Cut the ends of lines square, exactly at their end points, instead of extending them by half the line width.
+   Keeps the current line width. 
+  */
+  public DrawingStack buttCaps() {
+    Stroke stroke = g.getStroke();
+    if (stroke instanceof BasicStroke) {
+      BasicStroke basic = (BasicStroke)stroke;
+      g.setStroke(new BasicStroke(basic.getLineWidth(), BasicStroke.CAP_BUTT, basic.getLineJoin(), basic.getMiterLimit()));
+    }
+    return this;
+  }
+
+  /** Center the given text at the current origin, using the current font. Must be the last change. */
+  public DrawingStack centerText(String text) {
+    //the same integer arithmetic as ChangeCoordsCenterText
+    int dx = - TextMetrics.textWidth(text, g) / 2;
+    int dy = TextMetrics.textHeight(text, g) / 2;
+    g.translate(dx, dy);
+    return this;
+  }
+
+  /** Right-align the given text at the current origin, using the current font. Must be the last change. */
+  public DrawingStack rightAlignText(String text) {
+    g.translate(- TextMetrics.textWidth(text, g), 0);
+    return this;
+  }
+
+  /** Does nothing, since the changes have already been applied. */
+  @Override public void change() {
+    //the changes are applied as they are called
+  }
+
+  /** Same as {@link #restore()}. */
+  @Override public void reverse() {
+    restore();
+  }
+
+  // PRIVATE
+
+  private Graphics2D g;
+  private Frame[] frames = new Frame[4];
+  private int depth;
+
+  /** Derived fonts are remembered, since a drawer usually derives the same few fonts over and over again. */
+  private static final int MAX_DERIVED_FONTS = 8;
+  private Font[] baseFonts = new Font[MAX_DERIVED_FONTS];
+  private float[] derivedSizes = new float[MAX_DERIVED_FONTS];
+  private int[] derivedStyles = new int[MAX_DERIVED_FONTS];
+  private Font[] derivedFonts = new Font[MAX_DERIVED_FONTS];
+  private int numDerivedFonts;
+  private int nextSlot;
+
+  private BasicStroke lastStroke;
+
+  /** A saved copy of the graphics state. The transform is copied into an object owned by the frame. */
+  private static final class Frame {
+    void copyFrom(Graphics2D g) {
+      transform.setTransform(g.getTransform());
+      font = g.getFont();
+      stroke = g.getStroke();
+      color = g.getColor();
+    }
+    void copyTo(Graphics2D g) {
+      g.setTransform(transform);
+      if (g.getFont() != font) {
+        g.setFont(font);
+      }
+      if (g.getStroke() != stroke) {
+        g.setStroke(stroke);
+      }
+      if (g.getColor() != color) {
+        g.setColor(color);
+      }
+      //don't hold on to anything after the restore
+      font = null;
+      stroke = null;
+      color = null;
+    }
+    private final AffineTransform transform = new AffineTransform();
+    private Font font;
+    private Stroke stroke;
+    private Color color;
+  }
+
+  private Font derived(Font base, float size, int style) {
+    for (int idx = 0; idx < numDerivedFonts; ++idx) {
+      if (baseFonts[idx] == base && derivedSizes[idx] == size && derivedStyles[idx] == style) {
+        return derivedFonts[idx];
+      }
+    }
+    Font result = base.deriveFont(style, size);
+    int slot = nextSlot;
+    nextSlot = (nextSlot + 1) % MAX_DERIVED_FONTS;
+    numDerivedFonts = Math.max(numDerivedFonts, nextSlot == 0 ? MAX_DERIVED_FONTS : nextSlot);
+    baseFonts[slot] = base;
+    derivedSizes[slot] = size;
+    derivedStyles[slot] = style;
+    derivedFonts[slot] = result;
+    return result;
+  }
+}
@@ -0,0 +1,110 @@
+package custom.solar.eclipse.viewer.draw.mix;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+
+import custom.solar.eclipse.viewer.math.Maths;
+import custom.solar.eclipse.viewer.util.LruCache;
+
+/**
+ The size of a piece of text, as used for centering and right-aligning it.
+
+ <P>The same few labels (degrees, times, column headers) are measured over and over again, on every viewer.
+ The results are cached by (font, text), where the font includes its face, size, and style.
+ The font render context of the graphics context is also part of the key, since measurements can depend on it.
+ The cache is shared by all pages and documents, and is bounded in size: the least-recently used entries are dropped first.
+
+ <P>The number of hits and misses is counted, for reporting.
+ Thread-safe.
+*/
+public final class TextMetrics {
+
+  /** The width of the given text, when rendered with the current font of the given context. */
+  public static int textWidth(String text, Graphics2D g) {
+    return measure(text, g).width;
+  }
+
+  /**
+   The height of the given text, when rendered with the current font of the given context.
+   Not the full height: a fraction of it, chosen to make centered text look centered.
+  */
+  public static int textHeight(String text, Graphics2D g) {
+    return measure(text, g).height;
+  }
+
+  /** The number of measurements found in the cache. */
+  public static long hits() {
+    return CACHE.hits();
+  }
+
+  /** The number of measurements that weren't found in the cache. */
+  public static long misses() {
+    return CACHE.misses();
+  }
+
+  /** For example, "text metrics: 1234 hits, 56 misses, 95.7% hit rate". */
+  public static String stats() {
+    long hits = hits();
+    long misses = misses();
+    long total = hits + misses;
+    double hitRate = total == 0 ? 0.0 : (hits * 100.0) / total;
+    return String.format("text metrics: %d hits, %d misses, %.1f%% hit rate", hits, misses, hitRate);
+  }
+
+  // PRIVATE
+
+  private TextMetrics() {
+    //static methods only
+  }
+
+  private static final int MAX_CACHE_SIZE = 1024;
+  private static final float FUDGE_FACTOR_FOR_AESTHETIC_PURPOSES = 0.60F; //without this the centering is off - too low
+  private static final LruCache<Key, Size> CACHE = new LruCache<>(MAX_CACHE_SIZE);
+
+  private static final class Key {
+    Key(Font font, FontRenderContext context, String text){
+      this.font = font;
+      this.context = context;
+      this.text = text;
+      this.hash = 31 * (31 * font.hashCode() + context.hashCode()) + text.hashCode();
+    }
+    @Override public boolean equals(Object aThat) {
+      if (this == aThat) return true;
+      if (!(aThat instanceof Key)) return false;
+      Key that = (Key)aThat;
+      return this.hash == that.hash && this.text.equals(that.text) && this.font.equals(that.font) && this.context.equals(that.context);
+    }
+    @Override public int hashCode() {
+      return hash;
+    }
+    private final Font font;
+    private final FontRenderContext context;
+    private final String text;
+    private final int hash;
+  }
+
+  /** Never mutated after construction. */
+  private static final class Size {
+    Size(int width, int height){
+      this.width = width;
+      this.height = height;
+    }
+    final int width;
+    final int height;
+  }
+
+  private static Size measure(String text, Graphics2D g) {
+    Key key = new Key(g.getFont(), g.getFontRenderContext(), text);
+    return CACHE.get(key, k -> new Size(g.getFontMetrics().stringWidth(text), heightOf(text, g)));
+  }
+
+  private static int heightOf(String text, Graphics2D g) {
+    LineMetrics lm = g.getFont().getLineMetrics(text, g.getFontRenderContext());
+    float ascent = lm.getAscent();
+    float descent = lm.getDescent();
+    float height = ascent + descent; //don't include the leading!
+    return Maths.round(height * FUDGE_FACTOR_FOR_AESTHETIC_PURPOSES);
+  }
+}
@@ -0,0 +1,324 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ The drawing operations for a page, in the order they were made, recorded by a {@link RecordingGraphics2D}.
+
+ <P>A display list can be painted on any Graphics2D, any number of times.
+ Painting it on the graphics context of an image gives a preview of the page.
+
+ <P>Two display lists can be compared, to find the part of the page where they differ.
+ When a single setting changes, usually only a few items on the page change, and only that part of a preview needs to be painted again.
+
+ <P>All coordinates are in page space: points, with the origin at the top-left of the page.
+ Immutable.
+*/
+public final class DisplayList {
+
+  /** Paint every operation, on top of whatever is already in the graphics context. */
+  public void paintOn(Graphics2D g) {
+    paintOn(g, null);
+  }
+
+  /**
+   Paint only the operations that touch the given region, clipped to the region.
+   The current transform of the graphics context maps page space to its device space.
+   @param region in page space; null for the whole page.
+  */
+  public void paintOn(Graphics2D g, Rectangle2D region) {
+    AffineTransform base = g.getTransform();
+    Shape baseClip = g.getClip();
+    AffineTransform opTransform = new AffineTransform();
+    boolean first = true;
+    PathKey clip = null;
+    for (Op op : ops) {
+      if (region != null && !op.bounds.intersects(region)) {
+        continue;
+      }
+      if (first || op.clip != clip || op.clipSet) {
+        g.setTransform(base);
+        g.setClip(baseClip);
+        if (op.clip != null) {
+          g.clip(op.clip.shape());
+        }
+        if (region != null) {
+          g.clip(region);
+        }
+        clip = op.clip;
+        first = false;
+      }
+      opTransform.setTransform(base);
+      opTransform.concatenate(op.transform);
+      g.setTransform(opTransform);
+      if (Op.IMAGE == op.kind) {
+        g.drawImage(op.image, 0, 0, null);
+        continue;
+      }
+      g.setPaint(op.paint);
+      if (Op.FILL == op.kind) {
+        g.fill(op.path.path);
+      }
+      else if (Op.STROKE == op.kind) {
+        g.setStroke(op.stroke);
+        g.draw(op.path.path);
+      }
+      else {
+        g.setFont(op.font);
+        g.drawString(op.text, op.x, op.y);
+      }
+    }
+    g.setTransform(base);
+    g.setClip(baseClip);
+  }
+
+  /**
+   The part of the page where this display list and the given one differ.
+   Returns null if both lists draw exactly the same thing.
+
+   <P>Operations are matched by their content, not by their position in the list:
+   an item that is drawn in exactly the same way in both lists is not part of the result.
+   The region includes where each unmatched operation is drawn in each list.
+   If the matched operations aren't in the same order, then the whole page is returned.
+  */
+  public Rectangle2D regionChangedFrom(DisplayList that) {
+    List<Op> matchedHere = new ArrayList<>();
+    List<Op> matchedThere = new ArrayList<>();
+    Rectangle2D result = unmatched(this.ops, that.ops, matchedHere, null);
+    result = unmatched(that.ops, this.ops, matchedThere, result);
+    if (!matchedHere.equals(matchedThere)) {
+      result = union(result, this.pageBounds());
+      result = union(result, that.pageBounds());
+    }
+    return result;
+  }
+
+  /** The number of drawing operations. */
+  public int size() {
+    return ops.size();
+  }
+
+  /** The size of the page, in points. */
+  public Rectangle2D pageBounds() {
+    return new Rectangle2D.Float(0, 0, width, height);
+  }
+
+  // PRIVATE
+
+  DisplayList(List<Op> ops, float width, float height) {
+    this.ops = Collections.unmodifiableList(ops);
+    this.width = width;
+    this.height = height;
+  }
+
+  private final List<Op> ops;
+  private final float width;
+  private final float height;
+
+  /** A shape whose content can be compared with another. Never mutated after construction. */
+  static final class PathKey {
+    PathKey(Shape shape) {
+      this.path = new Path2D.Float(shape);
+      this.hash = hashOf(path);
+      this.rectangle = asRectangle(path);
+    }
+    final Path2D.Float path;
+    /** Java2D clips to a rectangle much faster than to a general shape. */
+    Shape shape() {
+      return rectangle != null ? rectangle : path;
+    }
+    @Override public boolean equals(Object aThat) {
+      if (this == aThat) return true;
+      if (!(aThat instanceof PathKey)) return false;
+      PathKey that = (PathKey)aThat;
+      return this.hash == that.hash && sameSegments(this.path, that.path);
+    }
+    @Override public int hashCode() {
+      return hash;
+    }
+    private final int hash;
+    private final Rectangle2D rectangle;
+    /** Returns null if the path isn't a rectangle aligned with the axes. */
+    private static Rectangle2D asRectangle(Path2D path) {
+      Rectangle2D bounds = path.getBounds2D();
+      float[] coords = new float[6];
+      int numCorners = 0;
+      for (PathIterator iter = path.getPathIterator(null); !iter.isDone(); iter.next()) {
+        int type = iter.currentSegment(coords);
+        if (PathIterator.SEG_CLOSE == type) continue;
+        boolean isCorner = (PathIterator.SEG_MOVETO == type || PathIterator.SEG_LINETO == type) && 
+          (coords[0] == bounds.getMinX() || coords[0] == bounds.getMaxX()) && 
+          (coords[1] == bounds.getMinY() || coords[1] == bounds.getMaxY())
+        ;
+        if (!isCorner || (PathIterator.SEG_MOVETO == type && numCorners > 0)) return null;
+        ++numCorners;
+      }
+      return (numCorners == 4 || numCorners == 5) ? bounds : null;
+    }
+    private static int hashOf(Path2D path) {
+      int result = path.getWindingRule();
+      float[] coords = new float[6];
+      for (PathIterator iter = path.getPathIterator(null); !iter.isDone(); iter.next()) {
+        int type = iter.currentSegment(coords);
+        result = 31 * result + type;
+        for (int idx = 0; idx < numCoords(type); ++idx) {
+          result = 31 * result + Float.floatToIntBits(coords[idx]);
+        }
+      }
+      return result;
+    }
+    private static boolean sameSegments(Path2D a, Path2D b) {
+      if (a.getWindingRule() != b.getWindingRule()) return false;
+      float[] coordsA = new float[6];
+      float[] coordsB = new float[6];
+      PathIterator iterA = a.getPathIterator(null);
+      PathIterator iterB = b.getPathIterator(null);
+      while (!iterA.isDone() && !iterB.isDone()) {
+        int type = iterA.currentSegment(coordsA);
+        if (type != iterB.currentSegment(coordsB)) return false;
+        for (int idx = 0; idx < numCoords(type); ++idx) {
+          if (coordsA[idx] != coordsB[idx]) return false;
+        }
+        iterA.next();
+        iterB.next();
+      }
+      return iterA.isDone() && iterB.isDone();
+    }
+    private static int numCoords(int type) {
+      int result = 0;
+      if (PathIterator.SEG_MOVETO == type || PathIterator.SEG_LINETO == type) result = 2;
+      else if (PathIterator.SEG_QUADTO == type) result = 4;
+      else if (PathIterator.SEG_CUBICTO == type) result = 6;
+      return result;
+    }
+  }
+
+  /**
+   A single drawing operation, with all of the state that affects it.
+   Equal operations draw exactly the same pixels. Never mutated after construction.
+  */
+  static final class Op {
+    static final int FILL = 0;
+    static final int STROKE = 1;
+    static final int TEXT = 2;
+    static final int IMAGE = 3;
+
+    /** Fill or stroke a shape. The stroke is null for a fill. */
+    Op(int kind, PathKey path, Stroke stroke, Paint paint, AffineTransform transform, PathKey clip, boolean clipSet, Rectangle2D bounds) {
+      this(kind, path, stroke, null, null, 0, 0, paint, null, transform, clip, clipSet, bounds);
+    }
+
+    /** Draw text. */
+    Op(String text, float x, float y, Font font, Paint paint, AffineTransform transform, PathKey clip, boolean clipSet, Rectangle2D bounds) {
+      this(TEXT, null, null, text, font, x, y, paint, null, transform, clip, clipSet, bounds);
+    }
+
+    /** Draw an image, placed in page space by the transform. The image is compared by identity, and must not be changed afterwards. */
+    Op(BufferedImage image, AffineTransform transform, PathKey clip, boolean clipSet, Rectangle2D bounds) {
+      this(IMAGE, null, null, null, null, 0, 0, null, image, transform, clip, clipSet, bounds);
+    }
+
+    final int kind;
+    final PathKey path;
+    final Stroke stroke;
+    final String text;
+    final Font font;
+    final float x;
+    final float y;
+    final Paint paint;
+    final BufferedImage image;
+    final AffineTransform transform;
+    final PathKey clip;
+    /**
+     The clip was set just before this operation, even if it was set to the same clip as before.
+     Painting sets it again at the same point, since some graphics contexts reset their state when the clip is set.
+     Not part of equality, since it doesn't change any pixels.
+    */
+    final boolean clipSet;
+    /** Where the operation can change pixels, in page space. Not part of equality, since it's derived from the rest. */
+    final Rectangle2D bounds;
+
+    @Override public boolean equals(Object aThat) {
+      if (this == aThat) return true;
+      if (!(aThat instanceof Op)) return false;
+      Op that = (Op)aThat;
+      return
+        this.hash == that.hash && this.kind == that.kind && this.x == that.x && this.y == that.y &&
+        Objects.equals(this.text, that.text) && Objects.equals(this.font, that.font) &&
+        Objects.equals(this.paint, that.paint) && this.image == that.image && Objects.equals(this.stroke, that.stroke) &&
+        Objects.equals(this.transform, that.transform) && Objects.equals(this.clip, that.clip) &&
+        Objects.equals(this.path, that.path)
+      ;
+    }
+
+    @Override public int hashCode() {
+      return hash;
+    }
+
+    private final int hash;
+
+    private Op(int kind, PathKey path, Stroke stroke, String text, Font font, float x, float y, Paint paint, BufferedImage image, AffineTransform transform, PathKey clip, boolean clipSet, Rectangle2D bounds) {
+      this.kind = kind;
+      this.path = path;
+      this.stroke = stroke;
+      this.text = text;
+      this.font = font;
+      this.x = x;
+      this.y = y;
+      this.paint = paint;
+      this.image = image;
+      this.transform = transform;
+      this.clip = clip;
+      this.clipSet = clipSet;
+      this.bounds = bounds;
+      this.hash = Objects.hash(kind, path, stroke, text, font, x, y, paint, System.identityHashCode(image), transform, clip);
+    }
+  }
+
+  /**
+   Returns the union of the bounds of the operations in the first list having no match in the second, added to the given region.
+   The operations that do match are added to the given list.
+  */
+  private static Rectangle2D unmatched(List<Op> ops, List<Op> others, List<Op> matched, Rectangle2D region) {
+    Map<Op, Integer> remaining = new HashMap<>();
+    for (Op other : others) {
+      remaining.merge(other, 1, Integer::sum);
+    }
+    Rectangle2D result = region;
+    for (Op op : ops) {
+      Integer count = remaining.get(op);
+      if (count != null && count > 0) {
+        remaining.put(op, count - 1);
+        matched.add(op);
+      }
+      else {
+        result = union(result, op.bounds);
+      }
+    }
+    return result;
+  }
+
+  /** Empty bounds (for an operation that is entirely clipped away) are ignored. */
+  private static Rectangle2D union(Rectangle2D a, Rectangle2D b) {
+    Rectangle2D result = a;
+    if (!b.isEmpty()) {
+      result = (a == null) ? b : a.createUnion(b);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,550 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.ExceptionConverter;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfFunction;
+import com.itextpdf.text.pdf.PdfGState;
+import com.itextpdf.text.pdf.PdfShading;
+import com.itextpdf.text.pdf.PdfShadingPattern;
+
+/**
+ Writes lines, shapes, text, and clips directly to a {@link PdfContentByte}.
+ An alternative to iText's <code>PdfGraphics2D</code>, which does a lot of extra work for each call.
+
+ <P>Compared with <code>PdfGraphics2D</code>, this class:
+ <ul>
+ <li>looks up each font only once per document, not once per page (see {@link PdfFonts})
+ <li>changes the transform in place, instead of copying it for each piece of text
+ <li>doesn't build an Area each time the clip changes
+ <li>re-uses its buffers for path coordinates
+ </ul>
+
+ <P>Gradients that pad their ends with their end colors, and whose colors are opaque, are written as PDF shadings.
+ Other gradients and paints are drawn as images.
+ Each image is embedded once, however many times it's drawn.
+ Errors from iText are thrown as its <code>ExceptionConverter</code>, since the Graphics2D API has no checked exceptions.
+
+ <P>The output looks the same as <code>PdfGraphics2D</code>.
+ The same coordinates, line widths, and text positions are written, using the same rules for simulating bold and italic fonts,
+ and the same character spacing for fitting text to its width as measured by java.awt.
+ One difference: the line width used for simulating a bold font is tracked, so that the next line is drawn with its own width.
+ <code>PdfGraphics2D</code> leaves the bold width in place, and a line drawn after the text can come out too thick,
+ unless {@link StrokeSafePdfGraphics2D} is used.
+
+ <P>Not thread-safe.
+*/
+public final class PdfDirectGraphics2D extends VectorGraphics2D {
+
+  /**
+   @param content the page or template to write to.
+   @param height of the page, in points; java.awt coordinates go down the page, while PDF coordinates go up.
+   @param fonts shared by all pages of the same document.
+  */
+  public PdfDirectGraphics2D(PdfContentByte content, float height, PdfFonts fonts) {
+    this.cb = content;
+    this.height = height;
+    this.fonts = fonts;
+    this.current = new PdfState();
+    this.base = new PdfState();
+    this.fillAlphas = new PdfGState[256];
+    this.strokeAlphas = new PdfGState[256];
+    this.images = new IdentityHashMap<>();
+    cb.saveState();
+    current.reset();
+    useStroke(new BasicStroke()); //the java.awt defaults differ from the PDF defaults
+    base.copyFrom(current);
+    cb.saveState(); //the clip is always placed in a nested state, which is restored whenever the clip changes
+  }
+
+  /** Shares the content, and what has been written to it. */
+  private PdfDirectGraphics2D(PdfDirectGraphics2D that) {
+    this.cb = that.cb;
+    this.height = that.height;
+    this.fonts = that.fonts;
+    this.current = that.current;
+    this.base = that.base;
+    this.fillAlphas = that.fillAlphas;
+    this.strokeAlphas = that.strokeAlphas;
+    this.images = that.images;
+  }
+
+  @Override protected void drawShape(Shape shape, boolean fill) {
+    Paint paint = getPaint();
+    if (!(paint instanceof Color)) {
+      drawShapeWithPaint(shape, fill, paint);
+    }
+    else if (fill) {
+      useFillColor(getColor());
+      if (writePath(shape.getPathIterator(userToDevice()))) {
+        if (windingRule == PathIterator.WIND_EVEN_ODD) {
+          cb.eoFill();
+        }
+        else {
+          cb.fill();
+        }
+      }
+    }
+    else if (getStroke() instanceof BasicStroke) {
+      useStroke((BasicStroke)getStroke());
+      useStrokeColor(getColor());
+      if (writePath(shape.getPathIterator(userToDevice()))) {
+        cb.stroke();
+      }
+    }
+    else {
+      drawShape(getStroke().createStrokedShape(shape), true);
+    }
+  }
+
+  @Override protected void drawText(String text, float x, float y) {
+    Font font = getFont();
+    PdfFonts.Entry entry = fonts.entryFor(font);
+    useFillColor(getColor());
+
+    textMatrix.setTransform(1, 0, 0, -1, 0, height);
+    textMatrix.concatenate(userToDevice());
+    textMatrix.translate(x, y);
+    if (font.isTransformed()) {
+      textMatrix.concatenate(font.getTransform());
+    }
+    textMatrix.scale(1, -1);
+    if (entry.italicShear != 0) {
+      textMatrix.shear(entry.italicShear, 0);
+    }
+
+    cb.beginText();
+    cb.setFontAndSize(entry.baseFont, font.getSize2D());
+    cb.setTextMatrix(
+      (float)textMatrix.getScaleX(), (float)textMatrix.getShearY(), (float)textMatrix.getShearX(),
+      (float)textMatrix.getScaleY(), (float)textMatrix.getTranslateX(), (float)textMatrix.getTranslateY()
+    );
+    if (entry.widthAttribute != null) {
+      cb.setHorizontalScaling(100.0f / entry.widthAttribute);
+    }
+    boolean simulatedBold = entry.boldStrokeWidth != 0;
+    if (simulatedBold) {
+      cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE);
+      cb.setLineWidth(entry.boldStrokeWidth);
+      current.lineWidth = entry.boldStrokeWidth;
+      useStrokeColor(getColor());
+    }
+    if (text.length() > 1) {
+      float spacing = ((float)awtWidth(text, font, entry) - entry.baseFont.getWidthPoint(text, font.getSize2D())) / (text.length() - 1);
+      cb.setCharacterSpacing(spacing);
+    }
+    cb.showText(text);
+    if (text.length() > 1) {
+      cb.setCharacterSpacing(0);
+    }
+    if (entry.widthAttribute != null) {
+      cb.setHorizontalScaling(100);
+    }
+    if (simulatedBold) {
+      cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL);
+    }
+    cb.endText();
+  }
+
+  @Override protected void drawPixels(BufferedImage image, AffineTransform imageToDevice) {
+    Image pdfImage = images.get(image);
+    try {
+      if (pdfImage == null) {
+        pdfImage = Image.getInstance(image, null);
+        images.put(image, pdfImage);
+      }
+      useFillAlpha(OPAQUE);
+      //from the unit square of a PDF image, y upward, to the pixels, then to the device, then to the page, y upward
+      AffineTransform tx = AffineTransform.getTranslateInstance(0, height);
+      tx.scale(1, -1);
+      tx.concatenate(imageToDevice);
+      tx.translate(0, image.getHeight());
+      tx.scale(image.getWidth(), -image.getHeight());
+      cb.addImage(pdfImage, tx.getScaleX(), tx.getShearY(), tx.getShearX(), tx.getScaleY(), tx.getTranslateX(), tx.getTranslateY());
+    }
+    catch (DocumentException | IOException ex) {
+      throw new ExceptionConverter(ex);
+    }
+  }
+
+  @Override protected void clipChanged(Shape deviceClip) {
+    cb.restoreState();
+    cb.saveState();
+    current.copyFrom(base);
+    if (deviceClip != null) {
+      if (!writePath(deviceClip.getPathIterator(null))) {
+        cb.rectangle(0, 0, 0, 0);
+      }
+      if (windingRule == PathIterator.WIND_EVEN_ODD) {
+        cb.eoClip();
+      }
+      else {
+        cb.clip();
+      }
+      cb.newPath();
+    }
+  }
+
+  @Override protected void finish() {
+    cb.restoreState();
+    cb.restoreState();
+  }
+
+  @Override protected VectorGraphics2D copy() {
+    return new PdfDirectGraphics2D(this);
+  }
+
+  // PRIVATE
+
+  private PdfContentByte cb;
+  private float height;
+  private PdfFonts fonts;
+
+  /** The state that has been written to the content. */
+  private final PdfState current;
+  /** The state in effect just after the clip changes. */
+  private final PdfState base;
+
+  private final float[] coords = new float[6];
+  private int windingRule;
+  private final AffineTransform textMatrix = new AffineTransform();
+  private final PdfGState[] fillAlphas;
+  private final PdfGState[] strokeAlphas;
+  /** Each image is embedded only once. Shared with copies. */
+  private final Map<BufferedImage, Image> images;
+
+  private static final int OPAQUE = 255;
+  /** Never equal to the RGB of a color, which always has its alpha bits set. */
+  private static final int NO_RGB = 0;
+
+  /** Only the items that have been changed need to be written. */
+  private static final class PdfState {
+    /** The PDF defaults. */
+    void reset() {
+      lineWidth = 1.0f;
+      cap = PdfContentByte.LINE_CAP_BUTT;
+      join = PdfContentByte.LINE_JOIN_MITER;
+      miterLimit = 10.0f;
+      dash = null;
+      dashPhase = 0;
+      fillRgb = Color.BLACK.getRGB();
+      strokeRgb = Color.BLACK.getRGB();
+      fillAlpha = 255;
+      strokeAlpha = 255;
+    }
+    void copyFrom(PdfState that) {
+      lineWidth = that.lineWidth;
+      cap = that.cap;
+      join = that.join;
+      miterLimit = that.miterLimit;
+      dash = that.dash;
+      dashPhase = that.dashPhase;
+      fillRgb = that.fillRgb;
+      strokeRgb = that.strokeRgb;
+      fillAlpha = that.fillAlpha;
+      strokeAlpha = that.strokeAlpha;
+    }
+    float lineWidth;
+    int cap;
+    int join;
+    float miterLimit;
+    float[] dash;
+    float dashPhase;
+    int fillRgb;
+    int strokeRgb;
+    int fillAlpha;
+    int strokeAlpha;
+  }
+
+  /** Widths and dashes are scaled by the current transform, as in PdfGraphics2D. */
+  private void useStroke(BasicStroke stroke) {
+    AffineTransform tx = userToDevice();
+    float scale = (float)Math.sqrt(Math.abs(tx.getDeterminant()));
+    float width = stroke.getLineWidth() * scale;
+    if (width != current.lineWidth) {
+      cb.setLineWidth(width);
+      current.lineWidth = width;
+    }
+    int cap = capFor(stroke.getEndCap());
+    if (cap != current.cap) {
+      cb.setLineCap(cap);
+      current.cap = cap;
+    }
+    int join = joinFor(stroke.getLineJoin());
+    if (join != current.join) {
+      cb.setLineJoin(join);
+      current.join = join;
+    }
+    if (stroke.getMiterLimit() != current.miterLimit) {
+      cb.setMiterLimit(stroke.getMiterLimit());
+      current.miterLimit = stroke.getMiterLimit();
+    }
+    float[] dash = scaled(stroke.getDashArray(), scale);
+    float phase = stroke.getDashPhase() * scale;
+    if (!Arrays.equals(dash, current.dash) || (dash != null && phase != current.dashPhase)) {
+      if (dash == null) {
+        cb.setLineDash(0);
+      }
+      else {
+        cb.setLineDash(dash, phase);
+      }
+      current.dash = dash;
+      current.dashPhase = phase;
+    }
+  }
+
+  private void useFillColor(Color color) {
+    int rgb = color.getRGB() | 0xFF000000;
+    if (rgb != current.fillRgb) {
+      cb.setColorFill(new BaseColor(color.getRed(), color.getGreen(), color.getBlue()));
+      current.fillRgb = rgb;
+    }
+    useFillAlpha(color.getAlpha());
+  }
+
+  private void useFillAlpha(int alpha) {
+    if (alpha != current.fillAlpha) {
+      if (fillAlphas[alpha] == null) {
+        fillAlphas[alpha] = new PdfGState();
+        fillAlphas[alpha].setFillOpacity(alpha / 255f);
+      }
+      cb.setGState(fillAlphas[alpha]);
+      current.fillAlpha = alpha;
+    }
+  }
+
+  private void useStrokeColor(Color color) {
+    int rgb = color.getRGB() | 0xFF000000;
+    if (rgb != current.strokeRgb) {
+      cb.setColorStroke(new BaseColor(color.getRed(), color.getGreen(), color.getBlue()));
+      current.strokeRgb = rgb;
+    }
+    useStrokeAlpha(color.getAlpha());
+  }
+
+  private void useStrokeAlpha(int alpha) {
+    if (alpha != current.strokeAlpha) {
+      if (strokeAlphas[alpha] == null) {
+        strokeAlphas[alpha] = new PdfGState();
+        strokeAlphas[alpha].setStrokeOpacity(alpha / 255f);
+      }
+      cb.setGState(strokeAlphas[alpha]);
+      current.strokeAlpha = alpha;
+    }
+  }
+
+  /** A shading when the gradient can be written as one; otherwise an image. */
+  private void drawShapeWithPaint(Shape shape, boolean fill, Paint paint) {
+    MultipleGradientPaint gradient = gradientOf(paint);
+    boolean asShading = gradient != null && isShading(gradient) && (fill || getStroke() instanceof BasicStroke);
+    if (!asShading) {
+      drawShapeAsImage(shape, fill);
+    }
+    else if (fill) {
+      cb.setShadingFill(shadingFor(gradient));
+      current.fillRgb = NO_RGB;
+      useFillAlpha(OPAQUE);
+      if (writePath(shape.getPathIterator(userToDevice()))) {
+        if (windingRule == PathIterator.WIND_EVEN_ODD) {
+          cb.eoFill();
+        }
+        else {
+          cb.fill();
+        }
+      }
+    }
+    else {
+      useStroke((BasicStroke)getStroke());
+      cb.setShadingStroke(shadingFor(gradient));
+      current.strokeRgb = NO_RGB;
+      useStrokeAlpha(OPAQUE);
+      if (writePath(shape.getPathIterator(userToDevice()))) {
+        cb.stroke();
+      }
+    }
+  }
+
+  /** A PDF shading pads its ends with the end colors, and has no alpha. */
+  private static boolean isShading(MultipleGradientPaint gradient) {
+    boolean result = MultipleGradientPaint.CycleMethod.NO_CYCLE == gradient.getCycleMethod();
+    for (Color color : gradient.getColors()) {
+      result = result && color.getAlpha() == OPAQUE;
+    }
+    return result;
+  }
+
+  /** The pattern space is the space of the gradient: its own transform, then the current transform, then to the page, y upward. */
+  private PdfShadingPattern shadingFor(MultipleGradientPaint gradient) {
+    PdfShading shading = null;
+    PdfFunction function = functionFor(gradient);
+    float[] domain = {0, 1};
+    boolean[] extend = {true, true};
+    if (gradient instanceof LinearGradientPaint) {
+      LinearGradientPaint linear = (LinearGradientPaint)gradient;
+      float[] coords = {
+        (float)linear.getStartPoint().getX(), (float)linear.getStartPoint().getY(), (float)linear.getEndPoint().getX(), (float)linear.getEndPoint().getY()
+      };
+      shading = PdfShading.type2(cb.getPdfWriter(), BaseColor.BLACK, coords, domain, function, extend);
+    }
+    else {
+      RadialGradientPaint radial = (RadialGradientPaint)gradient;
+      float[] coords = {
+        (float)radial.getFocusPoint().getX(), (float)radial.getFocusPoint().getY(), 0,
+        (float)radial.getCenterPoint().getX(), (float)radial.getCenterPoint().getY(), radial.getRadius()
+      };
+      shading = PdfShading.type3(cb.getPdfWriter(), BaseColor.BLACK, coords, domain, function, extend);
+    }
+    AffineTransform tx = AffineTransform.getTranslateInstance(0, height);
+    tx.scale(1, -1);
+    tx.concatenate(userToDevice());
+    tx.concatenate(gradient.getTransform());
+    PdfShadingPattern result = new PdfShadingPattern(shading);
+    result.setMatrix(new float[] {
+      (float)tx.getScaleX(), (float)tx.getShearY(), (float)tx.getShearX(), (float)tx.getScaleY(), (float)tx.getTranslateX(), (float)tx.getTranslateY()
+    });
+    return result;
+  }
+
+  /**
+   One function from each color to the next, stitched together.
+   The first and last colors are repeated out to 0 and 1, if the gradient's fractions don't reach that far.
+  */
+  private PdfFunction functionFor(MultipleGradientPaint gradient) {
+    float[] fractions = gradient.getFractions();
+    Color[] colors = gradient.getColors();
+    int first = fractions[0] > 0 ? 1 : 0;
+    int last = fractions[fractions.length - 1] < 1 ? 1 : 0;
+    int numStops = fractions.length + first + last;
+    float[] stops = new float[numStops];
+    Color[] stopColors = new Color[numStops];
+    stops[0] = 0;
+    stopColors[0] = colors[0];
+    System.arraycopy(fractions, 0, stops, first, fractions.length);
+    System.arraycopy(colors, 0, stopColors, first, colors.length);
+    stops[numStops - 1] = 1;
+    stopColors[numStops - 1] = colors[colors.length - 1];
+
+    float[] domain = {0, 1};
+    PdfFunction[] pieces = new PdfFunction[numStops - 1];
+    float[] bounds = new float[numStops - 2];
+    float[] encode = new float[2 * pieces.length];
+    for (int idx = 0; idx < pieces.length; ++idx) {
+      pieces[idx] = PdfFunction.type2(cb.getPdfWriter(), domain, null, rgb(stopColors[idx]), rgb(stopColors[idx + 1]), 1);
+      encode[2 * idx] = 0;
+      encode[2 * idx + 1] = 1;
+      if (idx > 0) {
+        bounds[idx - 1] = stops[idx];
+      }
+    }
+    return pieces.length == 1 ? pieces[0] : PdfFunction.type3(cb.getPdfWriter(), domain, null, pieces, bounds, encode);
+  }
+
+  private static float[] rgb(Color color) {
+    return new float[] {color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f};
+  }
+
+  /**
+   Write the path in PDF coordinates, in which y increases upward.
+   Returns false if the path is empty.
+   Quadratic segments are converted to cubic segments.
+  */
+  private boolean writePath(PathIterator path) {
+    windingRule = path.getWindingRule();
+    boolean result = false;
+    float lastX = 0;
+    float lastY = 0;
+    while (!path.isDone()) {
+      result = true;
+      int segment = path.currentSegment(coords);
+      for (int idx = 1; idx < 6; idx = idx + 2) {
+        coords[idx] = height - coords[idx];
+      }
+      switch (segment) {
+        case PathIterator.SEG_MOVETO:
+          cb.moveTo(coords[0], coords[1]);
+          lastX = coords[0];
+          lastY = coords[1];
+          break;
+        case PathIterator.SEG_LINETO:
+          cb.lineTo(coords[0], coords[1]);
+          lastX = coords[0];
+          lastY = coords[1];
+          break;
+        case PathIterator.SEG_CUBICTO:
+          cb.curveTo(coords[0], coords[1], coords[2], coords[3], coords[4], coords[5]);
+          lastX = coords[4];
+          lastY = coords[5];
+          break;
+        case PathIterator.SEG_QUADTO:
+          cb.curveTo(
+            lastX + 2f/3f * (coords[0] - lastX), lastY + 2f/3f * (coords[1] - lastY),
+            coords[2] + 2f/3f * (coords[0] - coords[2]), coords[3] + 2f/3f * (coords[1] - coords[3]),
+            coords[2], coords[3]
+          );
+          lastX = coords[2];
+          lastY = coords[3];
+          break;
+        case PathIterator.SEG_CLOSE:
+          cb.closePath();
+          break;
+      }
+      path.next();
+    }
+    return result;
+  }
+
+  private double awtWidth(String text, Font font, PdfFonts.Entry entry) {
+    return textWidth(text, font, entry.scaledFont, entry.scale);
+  }
+
+  private static float[] scaled(float[] dash, float scale) {
+    float[] result = dash;
+    if (dash != null && scale != 1.0f) {
+      result = new float[dash.length];
+      for (int idx = 0; idx < dash.length; ++idx) {
+        result[idx] = dash[idx] * scale;
+      }
+    }
+    return result;
+  }
+
+  private static int capFor(int awtCap) {
+    int result = PdfContentByte.LINE_CAP_PROJECTING_SQUARE;
+    if (awtCap == BasicStroke.CAP_BUTT) {
+      result = PdfContentByte.LINE_CAP_BUTT;
+    }
+    else if (awtCap == BasicStroke.CAP_ROUND) {
+      result = PdfContentByte.LINE_CAP_ROUND;
+    }
+    return result;
+  }
+
+  private static int joinFor(int awtJoin) {
+    int result = PdfContentByte.LINE_JOIN_MITER;
+    if (awtJoin == BasicStroke.JOIN_BEVEL) {
+      result = PdfContentByte.LINE_JOIN_BEVEL;
+    }
+    else if (awtJoin == BasicStroke.JOIN_ROUND) {
+      result = PdfContentByte.LINE_JOIN_ROUND;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,114 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.Font;
+import java.awt.font.TextAttribute;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.itextpdf.awt.FontMapper;
+import com.itextpdf.text.pdf.BaseFont;
+
+/**
+ The PDF fonts used by a document, looked up only once for each java.awt.Font.
+ Shared by all of the pages in a document.
+
+ <P>For each font, this class also remembers the items that <code>PdfGraphics2D</code> re-calculates each time it draws text:
+ whether bold or italic needs to be simulated, and a copy of the font scaled up for measuring text accurately.
+
+ <P>Not thread-safe.
+*/
+public final class PdfFonts {
+
+  public PdfFonts(FontMapper fontMapper) {
+    this.fontMapper = fontMapper;
+  }
+
+  /** Details about a font, needed when writing text. Never mutated after construction. */
+  static final class Entry {
+    final BaseFont baseFont;
+    /** Zero if bold isn't simulated. */
+    final float boldStrokeWidth;
+    /** Zero if italic isn't simulated. */
+    final double italicShear;
+    /** Null unless the font has a non-regular width. */
+    final Float widthAttribute;
+    /** The font scaled up to 1000 units, for measuring text. Null if the font has no size. */
+    final Font scaledFont;
+    final float scale;
+
+    private Entry(Font font, BaseFont baseFont) {
+      this.baseFont = baseFont;
+      Map<TextAttribute, ?> attributes = font.getAttributes();
+      this.boldStrokeWidth = boldStrokeWidth(font, baseFont, (Float)attributes.get(TextAttribute.WEIGHT));
+      this.italicShear = italicShear(font, baseFont);
+      Float width = (Float)attributes.get(TextAttribute.WIDTH);
+      this.widthAttribute = (width == null || TextAttribute.WIDTH_REGULAR.equals(width)) ? null : width;
+      this.scale = VectorGraphics2D.scaleFor(font);
+      this.scaledFont = VectorGraphics2D.scaledUp(font);
+    }
+  }
+
+  /** Returns the details for the given font, creating them only the first time. */
+  Entry entryFor(Font font) {
+    if (font == lastFont) {
+      return lastEntry;
+    }
+    Entry result = entries.get(font);
+    if (result == null) {
+      result = new Entry(font, baseFontFor(font));
+      entries.put(font, result);
+    }
+    lastFont = font;
+    lastEntry = result;
+    return result;
+  }
+
+  // PRIVATE
+
+  private FontMapper fontMapper;
+  private Map<Font, Entry> entries = new HashMap<>();
+  /** Keyed by the font name, as in PdfGraphics2D. */
+  private Map<String, BaseFont> baseFonts = new HashMap<>();
+  private Font lastFont;
+  private Entry lastEntry;
+
+  private BaseFont baseFontFor(Font font) {
+    BaseFont result = baseFonts.get(font.getFontName());
+    if (result == null) {
+      result = fontMapper.awtToPdf(font);
+      baseFonts.put(font.getFontName(), result);
+    }
+    return result;
+  }
+
+  /** The same rules as PdfGraphics2D. Zero if bold isn't simulated. */
+  static float boldStrokeWidth(Font font, BaseFont baseFont, Float weightAttribute) {
+    float result = 0;
+    if (baseFont.getPostscriptFontName().toLowerCase().indexOf("bold") < 0) {
+      Float weight = weightAttribute;
+      if (weight == null) {
+        weight = font.isBold() ? TextAttribute.WEIGHT_BOLD : TextAttribute.WEIGHT_REGULAR;
+      }
+      boolean simulate = font.isBold() && (weight >= TextAttribute.WEIGHT_SEMIBOLD || font.getFontName().equals(font.getName()));
+      if (simulate) {
+        result = font.getSize2D() * (weight - TextAttribute.WEIGHT_REGULAR) / 20f;
+      }
+    }
+    return result;
+  }
+
+  /** The same rules as PdfGraphics2D. */
+  private static double italicShear(Font font, BaseFont baseFont) {
+    double result = 0;
+    if (font.isItalic()) {
+      float pdfAngle = baseFont.getFontDescriptor(BaseFont.ITALICANGLE, 1000);
+      float awtAngle = font.getItalicAngle();
+      boolean simulate = font.getFontName().equals(font.getName()) || (pdfAngle == 0 && awtAngle == 0);
+      if (simulate && pdfAngle == 0) {
+        float angle = (awtAngle == 0) ? 10.0f : -awtAngle;
+        result = (float)Math.tan(angle * Math.PI / 180.0);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,130 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import custom.solar.eclipse.viewer.graphics.DisplayList.Op;
+import custom.solar.eclipse.viewer.graphics.DisplayList.PathKey;
+
+/**
+ Records drawing operations in a {@link DisplayList}, instead of drawing them.
+
+ <P>Recording is much cheaper than rendering, since nothing is rasterized and nothing is written out.
+ Text is measured in the same way as in the PDF, so that centered and right-aligned text lands in the same place.
+
+ <P>Not thread-safe.
+*/
+public final class RecordingGraphics2D extends VectorGraphics2D {
+
+  /** The size of the page, in points. */
+  public RecordingGraphics2D(float width, float height) {
+    this.width = width;
+    this.height = height;
+    this.ops = new ArrayList<>();
+    this.clips = new HashMap<>();
+  }
+
+  /** Records to the same display list. */
+  private RecordingGraphics2D(RecordingGraphics2D that) {
+    this.width = that.width;
+    this.height = that.height;
+    this.ops = that.ops;
+    this.clips = that.clips;
+    this.clip = that.clip;
+  }
+
+  /** The operations recorded so far. */
+  public DisplayList displayList() {
+    return new DisplayList(new ArrayList<>(ops), width, height);
+  }
+
+  @Override protected void drawShape(Shape shape, boolean fill) {
+    PathKey path = new PathKey(shape);
+    Stroke stroke = fill ? null : getStroke();
+    AffineTransform transform = transform();
+    Shape painted = fill ? path.path : stroke.createStrokedShape(path.path);
+    Rectangle2D bounds = clipped(transform.createTransformedShape(painted).getBounds2D());
+    ops.add(new Op(fill ? Op.FILL : Op.STROKE, path, stroke, getPaint(), transform, clip, clipSet, bounds));
+    clipSet = false;
+  }
+
+  /** The bounds of text are padded by a fraction of the font size, for italic overhang and simulated bold. */
+  @Override protected void drawText(String text, float x, float y) {
+    Font font = getFont();
+    Rectangle2D logical = font.getStringBounds(text, getFontRenderContext());
+    float pad = font.getSize2D() * TEXT_PADDING;
+    Rectangle2D userBounds = new Rectangle2D.Double(
+      x + logical.getX() - pad, y + logical.getY() - pad, logical.getWidth() + 2 * pad, logical.getHeight() + 2 * pad
+    );
+    AffineTransform transform = transform();
+    Rectangle2D bounds = clipped(transform.createTransformedShape(userBounds).getBounds2D());
+    ops.add(new Op(text, x, y, font, getColor(), transform, clip, clipSet, bounds));
+    clipSet = false;
+  }
+
+  @Override protected void drawPixels(BufferedImage image, AffineTransform imageToDevice) {
+    AffineTransform transform = new AffineTransform(imageToDevice);
+    Rectangle2D imageBounds = new Rectangle2D.Float(0, 0, image.getWidth(), image.getHeight());
+    Rectangle2D bounds = clipped(transform.createTransformedShape(imageBounds).getBounds2D());
+    ops.add(new Op(image, transform, clip, clipSet, bounds));
+    clipSet = false;
+  }
+
+  /** The same clip is often set and unset many times, so each distinct clip is kept only once. */
+  @Override protected void clipChanged(Shape deviceClip) {
+    clipSet = true;
+    clip = null;
+    if (deviceClip != null) {
+      PathKey key = new PathKey(deviceClip);
+      clip = clips.putIfAbsent(key, key);
+      if (clip == null) {
+        clip = key;
+      }
+    }
+  }
+
+  @Override protected void finish() {
+    //nothing to flush
+  }
+
+  @Override protected VectorGraphics2D copy() {
+    return new RecordingGraphics2D(this);
+  }
+
+  // PRIVATE
+
+  private final float width;
+  private final float height;
+  private final List<Op> ops;
+  private PathKey clip;
+  private boolean clipSet;
+  private final Map<PathKey, PathKey> clips;
+  /** Shared by consecutive operations, while the transform doesn't change. */
+  private AffineTransform lastTransform;
+
+  private static final float TEXT_PADDING = 0.25f;
+
+  /** An immutable copy of the current transform. */
+  private AffineTransform transform() {
+    if (lastTransform == null || !lastTransform.equals(userToDevice())) {
+      lastTransform = new AffineTransform(userToDevice());
+    }
+    return lastTransform;
+  }
+
+  private Rectangle2D clipped(Rectangle2D bounds) {
+    Rectangle2D result = bounds;
+    if (clip != null) {
+      result = bounds.createIntersection(clip.path.getBounds2D());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,45 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.BasicStroke;
+import java.awt.font.TextAttribute;
+import java.awt.geom.GeneralPath;
+
+import com.itextpdf.awt.FontMapper;
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.pdf.PdfContentByte;
+
+/**
+ iText's <code>PdfGraphics2D</code>, without its leak of the line width used for simulating a bold font.
+
+ <P><code>PdfGraphics2D</code> writes the stroke lazily: only the items that differ from the last stroke it wrote.
+ When it simulates a bold font, it writes a new line width for the text, but doesn't remember doing so.
+ A line drawn later with the same width as the last stroke is then drawn with the width of the bold text.
+
+ <P>After any text in a simulated bold font, this class writes the width of the current stroke back into the content,
+ so that what's in the content once again matches what <code>PdfGraphics2D</code> thinks is there.
+
+ <P>Not thread-safe.
+*/
+public final class StrokeSafePdfGraphics2D extends PdfGraphics2D {
+
+  public StrokeSafePdfGraphics2D(PdfContentByte content, float width, float height, FontMapper fontMapper) {
+    super(content, width, height, fontMapper);
+  }
+
+  @Override public void drawString(String text, float x, float y) {
+    super.drawString(text, x, y);
+    if (text.length() > 0 && simulatesBold() && stroke instanceof BasicStroke) {
+      //an empty path writes nothing but the changes to the stroke, and makes the current stroke the last one written
+      draw(EMPTY);
+      cb.setLineWidth(((BasicStroke)stroke).getLineWidth());
+    }
+  }
+
+  // PRIVATE
+
+  private static final GeneralPath EMPTY = new GeneralPath();
+
+  private boolean simulatesBold() {
+    return PdfFonts.boldStrokeWidth(font, baseFont, (Float)font.getAttributes().get(TextAttribute.WEIGHT)) != 0;
+  }
+}
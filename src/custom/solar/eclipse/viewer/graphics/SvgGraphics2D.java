@@ -0,0 +1,545 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ Writes SVG, streaming each element to the output as it's drawn, without building a document in memory.
+
+ <P>Shapes are written in page coordinates (points), with the transform already applied.
+ Lines and circles get their own elements; everything else is a path.
+ A filled shape is a single path, no matter how many pieces it has (a QR code, for example).
+ A clip is written once as a <code>clipPath</code>, and the elements it applies to are grouped under it.
+ Likewise, each gradient is written once, and each image is embedded once as a PNG, and then referenced as often as it's drawn.
+ Paints other than colors and gradients are drawn as images.
+
+ <P>Text is written either as <code>text</code> elements, or as the outlines of its glyphs.
+ Text elements are smaller, and can be selected and searched, but they need the font to be installed where the SVG is viewed.
+ Outlines need nothing, and suit laser cutters and other tools that only understand paths.
+ The width of each text element is fixed with <code>textLength</code>, to the same width as in the PDF.
+
+ <P>The output stream is flushed, but not closed, by {@link #dispose()}.
+ Write errors are thrown as {@link UncheckedIOException}, since the Graphics2D API has no checked exceptions.
+ Not thread-safe.
+*/
+public final class SvgGraphics2D extends VectorGraphics2D {
+
+  /** How text is written. */
+  public enum Text {
+    /** Text elements, which need the font to be present when viewed. */
+    ELEMENTS,
+    /** Filled paths, the outlines of each glyph. */
+    OUTLINES;
+  }
+
+  /** The size of the page, in points. */
+  public SvgGraphics2D(OutputStream output, float width, float height, Text text) {
+    this.out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+    this.text = text;
+    this.clipIds = new HashMap<>();
+    this.gradientIds = new HashMap<>();
+    this.imageIds = new IdentityHashMap<>();
+    this.clipGroup = new ClipGroup();
+    sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\" xml:space=\"preserve\"");
+    sb.append(" width=\"").append(number(width)).append("pt\" height=\"").append(number(height)).append("pt\"");
+    sb.append(" viewBox=\"0 0 ").append(number(width)).append(' ').append(number(height)).append("\">\n");
+    sb.append("<g stroke-linecap=\"square\" stroke-miterlimit=\"10\">\n"); //the java.awt defaults, inherited by all elements
+    flushElement();
+  }
+
+  /** Writes to the same output, inside the same clip group. */
+  private SvgGraphics2D(SvgGraphics2D that) {
+    this.out = that.out;
+    this.text = that.text;
+    this.clipIds = that.clipIds;
+    this.gradientIds = that.gradientIds;
+    this.imageIds = that.imageIds;
+    this.clipGroup = that.clipGroup;
+  }
+
+  @Override protected void drawShape(Shape shape, boolean fill) {
+    Stroke stroke = getStroke();
+    if (!fill && !(stroke instanceof BasicStroke)) {
+      drawShape(stroke.createStrokedShape(shape), true);
+      return;
+    }
+    Paint paint = getPaint();
+    String gradientId = null;
+    if (!(paint instanceof Color)) {
+      MultipleGradientPaint gradient = gradientOf(paint);
+      if (gradient == null) {
+        drawShapeAsImage(shape, fill);
+        return;
+      }
+      gradientId = gradientIdFor(gradient);
+    }
+    AffineTransform transform = userToDevice();
+    if (shape instanceof Line2D && !fill) {
+      Line2D line = (Line2D)shape;
+      double[] points = {line.getX1(), line.getY1(), line.getX2(), line.getY2()};
+      transform.transform(points, 0, points, 0, 2);
+      sb.append("<line x1=\"").append(number(points[0])).append("\" y1=\"").append(number(points[1]));
+      sb.append("\" x2=\"").append(number(points[2])).append("\" y2=\"").append(number(points[3])).append('"');
+    }
+    else if (isCircle(shape) && isSimilarity(transform)) {
+      Ellipse2D circle = (Ellipse2D)shape;
+      double[] center = {circle.getCenterX(), circle.getCenterY()};
+      transform.transform(center, 0, center, 0, 1);
+      double radius = circle.getWidth() / 2 * scaleOf(transform);
+      sb.append("<circle cx=\"").append(number(center[0])).append("\" cy=\"").append(number(center[1]));
+      sb.append("\" r=\"").append(number(radius)).append('"');
+    }
+    else {
+      sb.append("<path d=\"");
+      int start = sb.length();
+      appendPathData(shape.getPathIterator(transform));
+      if (sb.length() == start) {
+        sb.setLength(0); //nothing to draw
+        return;
+      }
+      sb.append('"');
+      if (fill && PathIterator.WIND_EVEN_ODD == shape.getPathIterator(null).getWindingRule()) {
+        sb.append(" fill-rule=\"evenodd\"");
+      }
+    }
+    if (fill && gradientId != null) {
+      sb.append(" fill=\"url(#").append(gradientId).append(")\"");
+    }
+    else if (fill) {
+      appendFill(getColor());
+    }
+    else {
+      appendStroke((BasicStroke)stroke, getColor(), gradientId, scaleOf(transform));
+    }
+    sb.append("/>\n");
+    flushElement();
+  }
+
+  @Override protected void drawText(String string, float x, float y) {
+    Font font = getFont();
+    if (Text.OUTLINES == text) {
+      drawShape(font.createGlyphVector(getFontRenderContext(), string).getOutline(x, y), true);
+      return;
+    }
+    textTransform.setTransform(userToDevice());
+    textTransform.translate(x, y);
+    if (font.isTransformed()) {
+      textTransform.concatenate(font.getTransform());
+    }
+    sb.append("<text");
+    if (textTransform.getType() == AffineTransform.TYPE_TRANSLATION || textTransform.isIdentity()) {
+      sb.append(" x=\"").append(number(textTransform.getTranslateX())).append("\" y=\"").append(number(textTransform.getTranslateY())).append('"');
+    }
+    else {
+      sb.append(" transform=\"matrix(");
+      sb.append(number(textTransform.getScaleX())).append(' ').append(number(textTransform.getShearY())).append(' ');
+      sb.append(number(textTransform.getShearX())).append(' ').append(number(textTransform.getScaleY())).append(' ');
+      sb.append(number(textTransform.getTranslateX())).append(' ').append(number(textTransform.getTranslateY())).append(")\"");
+    }
+    sb.append(" font-family=\"");
+    escape(font.getName());
+    sb.append("\" font-size=\"").append(number(font.getSize2D())).append('"');
+    if (font.isBold()) {
+      sb.append(" font-weight=\"bold\"");
+    }
+    if (font.isItalic()) {
+      sb.append(" font-style=\"italic\"");
+    }
+    if (string.length() > 1) {
+      if (font != lastFont) {
+        lastFont = font;
+        lastScaledFont = scaledUp(font);
+      }
+      double width = textWidth(string, font, lastScaledFont, scaleFor(font));
+      sb.append(" textLength=\"").append(number(width)).append("\" lengthAdjust=\"spacing\"");
+    }
+    appendFill(getColor());
+    sb.append('>');
+    escape(string);
+    sb.append("</text>\n");
+    flushElement();
+  }
+
+  /** The image is defined the first time it's drawn, and used from then on. */
+  @Override protected void drawPixels(BufferedImage image, AffineTransform imageToDevice) {
+    String id = imageIds.get(image);
+    if (id == null) {
+      id = "image" + imageIds.size();
+      imageIds.put(image, id);
+      sb.append("<defs><image id=\"").append(id).append("\" width=\"").append(image.getWidth()).append("\" height=\"").append(image.getHeight());
+      sb.append("\" xlink:href=\"data:image/png;base64,").append(Base64.getEncoder().encodeToString(png(image))).append("\"/></defs>\n");
+    }
+    sb.append("<use xlink:href=\"#").append(id).append('"');
+    appendTransform(imageToDevice);
+    sb.append("/>\n");
+    flushElement();
+  }
+
+  /** Identical clips are defined only once. */
+  @Override protected void clipChanged(Shape deviceClip) {
+    if (clipGroup.isOpen) {
+      sb.append("</g>\n");
+      clipGroup.isOpen = false;
+    }
+    if (deviceClip != null) {
+      int start = sb.length();
+      appendPathData(deviceClip.getPathIterator(null));
+      String pathData = sb.substring(start);
+      sb.setLength(start);
+      String id = clipIds.get(pathData);
+      if (id == null) {
+        id = "clip" + clipIds.size();
+        clipIds.put(pathData, id);
+        sb.append("<clipPath id=\"").append(id).append("\"><path d=\"").append(pathData).append("\"/></clipPath>\n");
+      }
+      sb.append("<g clip-path=\"url(#").append(id).append(")\">\n");
+      clipGroup.isOpen = true;
+    }
+    flushElement();
+  }
+
+  @Override protected void finish() {
+    if (clipGroup.isOpen) {
+      sb.append("</g>\n");
+      clipGroup.isOpen = false;
+    }
+    sb.append("</g>\n</svg>\n");
+    flushElement();
+    try {
+      out.flush();
+    }
+    catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  @Override protected VectorGraphics2D copy() {
+    return new SvgGraphics2D(this);
+  }
+
+  // PRIVATE
+
+  private final Writer out;
+  private final Text text;
+  /** Holds the element being built. Re-used for every element. */
+  private final StringBuilder sb = new StringBuilder();
+  private final StringBuilder numberText = new StringBuilder();
+  private final AffineTransform textTransform = new AffineTransform();
+  /** Path data of each clip, mapped to its id. */
+  private final Map<String, String> clipIds;
+  /** The content of each gradient, mapped to its id. */
+  private final Map<String, String> gradientIds;
+  /** Each image drawn so far, mapped to its id. */
+  private final Map<BufferedImage, String> imageIds;
+  /** Shared with copies, which write to the same output. */
+  private final ClipGroup clipGroup;
+  /** The same font is usually used many times in a row. */
+  private Font lastFont;
+  private Font lastScaledFont;
+
+  /** Whether the elements being written are inside a group for a clip. */
+  private static final class ClipGroup {
+    boolean isOpen;
+  }
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+  /** Coordinates are written to this many decimal places. */
+  private static final int PRECISION = 100;
+  private static final float AWT_MITER_LIMIT = 10.0f;
+  private static final double TOLERANCE = 1.0E-9;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private void flushElement() {
+    try {
+      out.append(sb);
+    }
+    catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    sb.setLength(0);
+  }
+
+  private void appendPathData(PathIterator iter) {
+    double[] coords = new double[6];
+    while (!iter.isDone()) {
+      int type = iter.currentSegment(coords);
+      if (PathIterator.SEG_MOVETO == type) {
+        sb.append('M');
+        appendPoints(coords, 1);
+      }
+      else if (PathIterator.SEG_LINETO == type) {
+        sb.append('L');
+        appendPoints(coords, 1);
+      }
+      else if (PathIterator.SEG_QUADTO == type) {
+        sb.append('Q');
+        appendPoints(coords, 2);
+      }
+      else if (PathIterator.SEG_CUBICTO == type) {
+        sb.append('C');
+        appendPoints(coords, 3);
+      }
+      else {
+        sb.append('Z');
+      }
+      iter.next();
+    }
+  }
+
+  private void appendPoints(double[] coords, int numPoints) {
+    for (int idx = 0; idx < numPoints * 2; ++idx) {
+      if (idx > 0) {
+        sb.append(' ');
+      }
+      appendNumber(coords[idx]);
+    }
+  }
+
+  /** Black is the default fill. */
+  private void appendFill(Color color) {
+    if (color.getRGB() != Color.BLACK.getRGB()) {
+      sb.append(" fill=\"");
+      appendColor(color);
+      sb.append('"');
+      if (color.getAlpha() < 255) {
+        sb.append(" fill-opacity=\"").append(number(color.getAlpha() / 255.0)).append('"');
+      }
+    }
+  }
+
+  /**
+   Only the items which differ from the java.awt defaults are written. The width is scaled, as in the PDF.
+   @param gradientId replaces the color, if not null.
+  */
+  private void appendStroke(BasicStroke stroke, Color color, String gradientId, double scale) {
+    sb.append(" fill=\"none\" stroke=\"");
+    if (gradientId != null) {
+      sb.append("url(#").append(gradientId).append(')');
+    }
+    else {
+      appendColor(color);
+    }
+    sb.append("\" stroke-width=\"").append(number(stroke.getLineWidth() * scale)).append('"');
+    if (gradientId == null && color.getAlpha() < 255) {
+      sb.append(" stroke-opacity=\"").append(number(color.getAlpha() / 255.0)).append('"');
+    }
+    if (BasicStroke.CAP_ROUND == stroke.getEndCap()) {
+      sb.append(" stroke-linecap=\"round\"");
+    }
+    else if (BasicStroke.CAP_BUTT == stroke.getEndCap()) {
+      sb.append(" stroke-linecap=\"butt\"");
+    }
+    if (BasicStroke.JOIN_ROUND == stroke.getLineJoin()) {
+      sb.append(" stroke-linejoin=\"round\"");
+    }
+    else if (BasicStroke.JOIN_BEVEL == stroke.getLineJoin()) {
+      sb.append(" stroke-linejoin=\"bevel\"");
+    }
+    else if (stroke.getMiterLimit() != AWT_MITER_LIMIT) {
+      sb.append(" stroke-miterlimit=\"").append(number(stroke.getMiterLimit())).append('"');
+    }
+    float[] dashes = stroke.getDashArray();
+    if (dashes != null && dashes.length > 0) {
+      sb.append(" stroke-dasharray=\"");
+      for (int idx = 0; idx < dashes.length; ++idx) {
+        if (idx > 0) {
+          sb.append(' ');
+        }
+        appendNumber(dashes[idx] * scale);
+      }
+      sb.append('"');
+      if (stroke.getDashPhase() != 0) {
+        sb.append(" stroke-dashoffset=\"").append(number(stroke.getDashPhase() * scale)).append('"');
+      }
+    }
+  }
+
+  /**
+   Identical gradients are defined only once. Returns the id of the gradient.
+   The gradient is placed in page coordinates, like the shapes: its own transform, then the current transform.
+  */
+  private String gradientIdFor(MultipleGradientPaint gradient) {
+    String tag = (gradient instanceof LinearGradientPaint) ? "linearGradient" : "radialGradient";
+    int start = sb.length();
+    sb.append(" gradientUnits=\"userSpaceOnUse\"");
+    if (gradient instanceof LinearGradientPaint) {
+      LinearGradientPaint linear = (LinearGradientPaint)gradient;
+      sb.append(" x1=\"").append(number(linear.getStartPoint().getX())).append("\" y1=\"").append(number(linear.getStartPoint().getY()));
+      sb.append("\" x2=\"").append(number(linear.getEndPoint().getX())).append("\" y2=\"").append(number(linear.getEndPoint().getY())).append('"');
+    }
+    else {
+      RadialGradientPaint radial = (RadialGradientPaint)gradient;
+      sb.append(" cx=\"").append(number(radial.getCenterPoint().getX())).append("\" cy=\"").append(number(radial.getCenterPoint().getY()));
+      sb.append("\" r=\"").append(number(radial.getRadius()));
+      sb.append("\" fx=\"").append(number(radial.getFocusPoint().getX())).append("\" fy=\"").append(number(radial.getFocusPoint().getY())).append('"');
+    }
+    AffineTransform transform = new AffineTransform(userToDevice());
+    transform.concatenate(gradient.getTransform());
+    sb.append(" gradientTransform=\"matrix(");
+    sb.append(number(transform.getScaleX())).append(' ').append(number(transform.getShearY())).append(' ');
+    sb.append(number(transform.getShearX())).append(' ').append(number(transform.getScaleY())).append(' ');
+    sb.append(number(transform.getTranslateX())).append(' ').append(number(transform.getTranslateY())).append(")\"");
+    if (MultipleGradientPaint.CycleMethod.REFLECT == gradient.getCycleMethod()) {
+      sb.append(" spreadMethod=\"reflect\"");
+    }
+    else if (MultipleGradientPaint.CycleMethod.REPEAT == gradient.getCycleMethod()) {
+      sb.append(" spreadMethod=\"repeat\"");
+    }
+    if (MultipleGradientPaint.ColorSpaceType.LINEAR_RGB == gradient.getColorSpace()) {
+      sb.append(" color-interpolation=\"linearRGB\"");
+    }
+    sb.append('>');
+    float[] fractions = gradient.getFractions();
+    Color[] colors = gradient.getColors();
+    for (int idx = 0; idx < fractions.length; ++idx) {
+      sb.append("<stop offset=\"").append(number(fractions[idx])).append("\" stop-color=\"");
+      appendColor(colors[idx]);
+      sb.append('"');
+      if (colors[idx].getAlpha() < 255) {
+        sb.append(" stop-opacity=\"").append(number(colors[idx].getAlpha() / 255.0)).append('"');
+      }
+      sb.append("/>");
+    }
+    String content = sb.substring(start);
+    sb.setLength(start);
+    String key = tag + content;
+    String result = gradientIds.get(key);
+    if (result == null) {
+      result = "gradient" + gradientIds.size();
+      gradientIds.put(key, result);
+      sb.append('<').append(tag).append(" id=\"").append(result).append('"').append(content).append("</").append(tag).append(">\n");
+      flushElement();
+    }
+    return result;
+  }
+
+  private void appendTransform(AffineTransform transform) {
+    sb.append(" transform=\"matrix(");
+    sb.append(number(transform.getScaleX())).append(' ').append(number(transform.getShearY())).append(' ');
+    sb.append(number(transform.getShearX())).append(' ').append(number(transform.getScaleY())).append(' ');
+    sb.append(number(transform.getTranslateX())).append(' ').append(number(transform.getTranslateY())).append(")\"");
+  }
+
+  private static byte[] png(BufferedImage image) {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try {
+      if (!ImageIO.write(image, "png", result)) {
+        //a color model that the PNG writer doesn't handle
+        BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        argb.createGraphics().drawImage(image, 0, 0, null);
+        result.reset();
+        ImageIO.write(argb, "png", result);
+      }
+    }
+    catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return result.toByteArray();
+  }
+
+  /** Uses the short form, such as #ccc, when possible. */
+  private void appendColor(Color color) {
+    sb.append('#');
+    boolean isShort = isDoubled(color.getRed()) && isDoubled(color.getGreen()) && isDoubled(color.getBlue());
+    appendHex(color.getRed(), isShort);
+    appendHex(color.getGreen(), isShort);
+    appendHex(color.getBlue(), isShort);
+  }
+
+  private static boolean isDoubled(int value) {
+    return (value >> 4) == (value & 0xF);
+  }
+
+  private void appendHex(int value, boolean isShort) {
+    if (!isShort) {
+      sb.append(HEX[value >> 4]);
+    }
+    sb.append(HEX[value & 0xF]);
+  }
+
+  /** For attributes. Path data is appended directly, without creating a String. */
+  private String number(double value) {
+    numberText.setLength(0);
+    appendNumber(numberText, value);
+    return numberText.toString();
+  }
+
+  private void appendNumber(double value) {
+    appendNumber(sb, value);
+  }
+
+  /** Rounded, with no trailing zeros, and no decimal point for whole numbers. Avoids String.format, which is slow. */
+  private static void appendNumber(StringBuilder sb, double value) {
+    long scaled = Math.round(value * PRECISION);
+    if (scaled < 0) {
+      sb.append('-');
+      scaled = -scaled;
+    }
+    sb.append(scaled / PRECISION);
+    long fraction = scaled % PRECISION;
+    if (fraction != 0) {
+      sb.append('.');
+      if (fraction < 10) {
+        sb.append('0').append(fraction);
+      }
+      else {
+        sb.append(fraction % 10 == 0 ? fraction / 10 : fraction);
+      }
+    }
+  }
+
+  private void escape(String string) {
+    for (int idx = 0; idx < string.length(); ++idx) {
+      char c = string.charAt(idx);
+      if (c == '&') sb.append("&amp;");
+      else if (c == '<') sb.append("&lt;");
+      else if (c == '>') sb.append("&gt;");
+      else if (c == '"') sb.append("&quot;");
+      else if (c < ' ') sb.append(' '); //control characters aren't allowed in XML 1.0
+      else sb.append(c);
+    }
+  }
+
+  private static boolean isCircle(Shape shape) {
+    return shape instanceof Ellipse2D && ((Ellipse2D)shape).getWidth() == ((Ellipse2D)shape).getHeight();
+  }
+
+  /** True if the transform keeps circles round: no stretching in one direction, and no shear. */
+  private static boolean isSimilarity(AffineTransform tx) {
+    double lengthX = tx.getScaleX() * tx.getScaleX() + tx.getShearY() * tx.getShearY();
+    double lengthY = tx.getShearX() * tx.getShearX() + tx.getScaleY() * tx.getScaleY();
+    double dot = tx.getScaleX() * tx.getShearX() + tx.getShearY() * tx.getScaleY();
+    return Math.abs(lengthX - lengthY) < TOLERANCE && Math.abs(dot) < TOLERANCE;
+  }
+
+  private static double scaleOf(AffineTransform tx) {
+    return Math.sqrt(Math.abs(tx.getDeterminant()));
+  }
+}
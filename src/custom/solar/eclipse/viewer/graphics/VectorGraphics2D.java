@@ -0,0 +1,719 @@
+package custom.solar.eclipse.viewer.graphics;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ColorModel;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+/**
+ Base class for a Graphics2D that writes vector output.
+
+ <P>This class holds the state of the graphics context (transform, clip, font, color, stroke, and rendering hints),
+ and reduces the many methods of the Graphics2D API to a few primitive operations, implemented by subclasses:
+ drawing a shape, drawing a string, and changing the clip.
+
+ <P>The transform is changed in place; translating and rotating don't create any objects.
+
+ <P>Text is measured in the same way as iText's <code>PdfGraphics2D</code>: with the font metrics of a small
+ off-screen image, and a font render context with an identity transform.
+ So text is centered and aligned in exactly the same way, whichever implementation is used.
+
+ <P>{@link #create()} returns a copy of the state, which writes to the same output.
+ The output has only one clip at a time, so the clip of each context is written again, if needed, before it draws.
+
+ <P>Images of all kinds are reduced to a single primitive, which draws a <code>BufferedImage</code> with a given transform.
+ Any <code>Paint</code> can be used. Subclasses write gradients in the output's own terms when they can (see {@link #gradientOf(Paint)}).
+ For any other paint, the shape is drawn as an image, with {@link #drawShapeAsImage(Shape, boolean)}.
+ Text drawn with a paint other than a color is filled as outlines.
+
+ <P>Not supported, and throwing an <code>UnsupportedOperationException</code>: <code>setXORMode</code>, and <code>copyArea</code>.
+ Both need to read back what has already been drawn, and vector output can't be read back.
+ The <code>Composite</code> is kept, but has no effect.
+ Not thread-safe.
+*/
+public abstract class VectorGraphics2D extends Graphics2D {
+
+  /** Stroke or fill the given shape, which is in user space. The current transform applies. */
+  protected abstract void drawShape(Shape shape, boolean fill);
+
+  /** Draw the given text, starting at the given point on the baseline, in user space. Never passed an empty string. */
+  protected abstract void drawText(String text, float x, float y);
+
+  /**
+   Draw the image, with its pixels mapped to device space by the given transform: pixel (0,0) is the top-left corner of the image.
+   The image has an alpha channel; the current transform and paint don't apply.
+  */
+  protected abstract void drawPixels(BufferedImage image, AffineTransform imageToDevice);
+
+  /** The clip has changed. The new clip is in device space, and is null when nothing is clipped. */
+  protected abstract void clipChanged(Shape deviceClip);
+
+  /**
+   Called only once, the first time {@link #dispose()} is called.
+   Not called when disposing a copy made by {@link #create()}, since the output isn't finished until the original is disposed.
+  */
+  protected abstract void finish();
+
+  /**
+   A new context, which writes to the same output as this one.
+   Its graphics state is copied from this one by {@link #create()}.
+  */
+  protected abstract VectorGraphics2D copy();
+
+  /** The live transform from user space to device space. Subclasses must not change it. */
+  protected final AffineTransform userToDevice() {
+    return transform;
+  }
+
+  /**
+   The width of the text as measured by java.awt, in the same way as PdfGraphics2D.
+   Text in the output is spaced out to match this width.
+   @param scaledFont the font scaled up to 1000 units, for accuracy; see {@link #scaledUp(Font)}.
+   @param scale the scale factor of the scaled font.
+  */
+  protected final double textWidth(String text, Font font, Font scaledFont, float scale) {
+    double result = 0;
+    if (font.getSize2D() > 0) {
+      if (RenderingHints.VALUE_FRACTIONALMETRICS_OFF.equals(getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS))) {
+        result = font.getStringBounds(text, getFontRenderContext()).getWidth();
+      }
+      else {
+        result = scaledFont.getStringBounds(text, getFontRenderContext()).getWidth();
+        if (scaledFont.isTransformed()) {
+          result = result / scale;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** The scale factor used by {@link #scaledUp(Font)}. */
+  protected static float scaleFor(Font font) {
+    return font.getSize2D() > 0 ? 1000 / font.getSize2D() : 0;
+  }
+
+  /** The font scaled up to 1000 units, for measuring text accurately. Null if the font has no size. */
+  protected static Font scaledUp(Font font) {
+    float scale = scaleFor(font);
+    return font.getSize2D() > 0 ? font.deriveFont(AffineTransform.getScaleInstance(scale, scale)) : null;
+  }
+
+  /**
+   The given paint as a gradient, with any <code>GradientPaint</code> converted into the equivalent <code>LinearGradientPaint</code>.
+   Returns null if the paint isn't a gradient, or is a gradient with no length.
+  */
+  protected static MultipleGradientPaint gradientOf(Paint paint) {
+    MultipleGradientPaint result = null;
+    if (paint instanceof MultipleGradientPaint) {
+      result = (MultipleGradientPaint)paint;
+    }
+    else if (paint instanceof GradientPaint) {
+      GradientPaint gradient = (GradientPaint)paint;
+      if (!gradient.getPoint1().equals(gradient.getPoint2())) {
+        result = new LinearGradientPaint(
+          gradient.getPoint1(), gradient.getPoint2(), new float[] {0.0f, 1.0f}, new Color[] {gradient.getColor1(), gradient.getColor2()},
+          gradient.isCyclic() ? MultipleGradientPaint.CycleMethod.REFLECT : MultipleGradientPaint.CycleMethod.NO_CYCLE
+        );
+      }
+    }
+    return result;
+  }
+
+  /**
+   Draw the shape with the current paint, as an image, for a paint that the output can't express.
+   The image covers the part of the shape that's inside the clip, at {@link #PIXELS_PER_POINT}.
+   Its pixels outside the shape are transparent, so the shape's edges are only as sharp as the image.
+  */
+  protected final void drawShapeAsImage(Shape shape, boolean fill) {
+    Shape painted = fill ? shape : stroke.createStrokedShape(shape);
+    Rectangle2D bounds = transform.createTransformedShape(painted).getBounds2D();
+    if (clip != null) {
+      bounds = bounds.createIntersection(clip.getBounds2D());
+    }
+    if (bounds.getWidth() > 0 && bounds.getHeight() > 0) {
+      double scale = Math.min(PIXELS_PER_POINT, Math.sqrt(MAX_PIXELS / (bounds.getWidth() * bounds.getHeight())));
+      BufferedImage image = new BufferedImage(
+        (int)Math.ceil(bounds.getWidth() * scale), (int)Math.ceil(bounds.getHeight() * scale), BufferedImage.TYPE_INT_ARGB
+      );
+      Graphics2D g = image.createGraphics();
+      g.setRenderingHints(hints);
+      g.scale(scale, scale);
+      g.translate(-bounds.getX(), -bounds.getY());
+      g.transform(transform);
+      g.setPaint(paint);
+      g.fill(painted);
+      g.dispose();
+      AffineTransform imageToDevice = AffineTransform.getTranslateInstance(bounds.getX(), bounds.getY());
+      imageToDevice.scale(1 / scale, 1 / scale);
+      drawPixels(image, imageToDevice);
+    }
+  }
+
+  @Override public void draw(Shape shape) {
+    syncClip();
+    drawShape(shape, false);
+  }
+
+  @Override public void fill(Shape shape) {
+    syncClip();
+    drawShape(shape, true);
+  }
+
+  @Override public void drawString(String text, int x, int y) {
+    drawString(text, (float)x, (float)y);
+  }
+
+  /** With a paint other than a color, the text is filled as outlines, since text in the output only has a color. */
+  @Override public void drawString(String text, float x, float y) {
+    if (text.length() > 0) {
+      if (paint instanceof Color) {
+        syncClip();
+        drawText(text, x, y);
+      }
+      else {
+        fill(font.createGlyphVector(getFontRenderContext(), text).getOutline(x, y));
+      }
+    }
+  }
+
+  /** Rendered as filled outlines. */
+  @Override public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+    drawString(iterator, (float)x, (float)y);
+  }
+
+  /** Rendered as filled outlines. */
+  @Override public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+    TextLayout layout = new TextLayout(iterator, getFontRenderContext());
+    fill(layout.getOutline(AffineTransform.getTranslateInstance(x, y)));
+  }
+
+  /** Rendered as filled outlines. */
+  @Override public void drawGlyphVector(GlyphVector glyphs, float x, float y) {
+    fill(glyphs.getOutline(x, y));
+  }
+
+  @Override public boolean hit(Rectangle rect, Shape shape, boolean onStroke) {
+    Shape target = onStroke ? stroke.createStrokedShape(shape) : shape;
+    return transform.createTransformedShape(target).intersects(rect);
+  }
+
+  @Override public GraphicsConfiguration getDeviceConfiguration() {
+    return metrics().getDeviceConfiguration();
+  }
+
+  @Override public void setComposite(Composite composite) {
+    this.composite = composite;
+  }
+
+  @Override public Composite getComposite() {
+    return composite;
+  }
+
+  /** A color is also the current color, as in java.awt. Any other paint leaves the current color unchanged. */
+  @Override public void setPaint(Paint paint) {
+    if (paint instanceof Color) {
+      setColor((Color)paint);
+    }
+    else if (paint != null) {
+      this.paint = paint;
+    }
+  }
+
+  @Override public Paint getPaint() {
+    return paint;
+  }
+
+  @Override public void setStroke(Stroke stroke) {
+    if (stroke != null) {
+      this.stroke = stroke;
+    }
+  }
+
+  @Override public Stroke getStroke() {
+    return stroke;
+  }
+
+  @Override public void setRenderingHint(RenderingHints.Key key, Object value) {
+    if (value == null) {
+      hints.remove(key);
+    }
+    else {
+      hints.put(key, value);
+    }
+    metrics().setRenderingHints(hints);
+    fontRenderContext = null;
+  }
+
+  @Override public Object getRenderingHint(RenderingHints.Key key) {
+    return hints.get(key);
+  }
+
+  @Override public void setRenderingHints(Map<?, ?> newHints) {
+    hints.clear();
+    hints.putAll(newHints);
+    metrics().setRenderingHints(hints);
+    fontRenderContext = null;
+  }
+
+  @Override public void addRenderingHints(Map<?, ?> moreHints) {
+    hints.putAll(moreHints);
+    metrics().setRenderingHints(hints);
+    fontRenderContext = null;
+  }
+
+  @Override public RenderingHints getRenderingHints() {
+    return (RenderingHints)hints.clone();
+  }
+
+  @Override public void translate(int x, int y) {
+    transform.translate(x, y);
+  }
+
+  @Override public void translate(double x, double y) {
+    transform.translate(x, y);
+  }
+
+  @Override public void rotate(double theta) {
+    transform.rotate(theta);
+  }
+
+  @Override public void rotate(double theta, double x, double y) {
+    transform.rotate(theta, x, y);
+  }
+
+  @Override public void scale(double sx, double sy) {
+    transform.scale(sx, sy);
+  }
+
+  @Override public void shear(double shx, double shy) {
+    transform.shear(shx, shy);
+  }
+
+  @Override public void transform(AffineTransform tx) {
+    transform.concatenate(tx);
+  }
+
+  @Override public void setTransform(AffineTransform tx) {
+    transform.setTransform(tx);
+  }
+
+  /** Returns a copy. */
+  @Override public AffineTransform getTransform() {
+    return new AffineTransform(transform);
+  }
+
+  @Override public void setBackground(Color color) {
+    background = color;
+  }
+
+  @Override public Color getBackground() {
+    return background;
+  }
+
+  @Override public void clip(Shape shape) {
+    if (shape == null) {
+      setClip(null);
+    }
+    else {
+      Shape deviceShape = transform.createTransformedShape(shape);
+      if (clip == null) {
+        clip = deviceShape;
+      }
+      else {
+        Area intersection = new Area(clip);
+        intersection.intersect(new Area(deviceShape));
+        clip = intersection;
+      }
+      writeClip();
+    }
+  }
+
+  /** Same as <code>PdfGraphics2D</code>: an identity transform, with antialiasing and fractional metrics taken from the hints. */
+  @Override public FontRenderContext getFontRenderContext() {
+    if (fontRenderContext == null) {
+      boolean antialias = RenderingHints.VALUE_TEXT_ANTIALIAS_ON.equals(getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING));
+      boolean fractions = RenderingHints.VALUE_FRACTIONALMETRICS_ON.equals(getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS));
+      fontRenderContext = new FontRenderContext(new AffineTransform(), antialias, fractions);
+    }
+    return fontRenderContext;
+  }
+
+  /** A copy of the graphics state, which writes to the same output. Disposing the copy doesn't finish the output. */
+  @Override public Graphics create() {
+    VectorGraphics2D result = copy();
+    result.transform.setTransform(transform);
+    result.clip = clip;
+    result.writtenClip = writtenClip;
+    result.font = font;
+    result.color = color;
+    result.paint = paint;
+    result.background = background;
+    result.stroke = stroke;
+    result.composite = composite;
+    result.hints.putAll(hints);
+    result.isCopy = true;
+    return result;
+  }
+
+  @Override public Color getColor() {
+    return color;
+  }
+
+  /** Also the current paint. */
+  @Override public void setColor(Color color) {
+    if (color != null) {
+      this.color = color;
+      this.paint = color;
+    }
+  }
+
+  @Override public void setPaintMode() {
+    //the only mode there is
+  }
+
+  /** Not supported: it needs to read back what has already been drawn. */
+  @Override public void setXORMode(Color color) {
+    throw new UnsupportedOperationException("XOR mode needs to read back what has been drawn, and vector output can't be read back.");
+  }
+
+  @Override public Font getFont() {
+    return font;
+  }
+
+  @Override public void setFont(Font font) {
+    if (font != null) {
+      this.font = font;
+    }
+  }
+
+  @Override public FontMetrics getFontMetrics(Font font) {
+    return metrics().getFontMetrics(font);
+  }
+
+  @Override public Rectangle getClipBounds() {
+    Shape userClip = getClip();
+    return userClip == null ? null : userClip.getBounds();
+  }
+
+  @Override public void clipRect(int x, int y, int width, int height) {
+    clip(new Rectangle(x, y, width, height));
+  }
+
+  @Override public void setClip(int x, int y, int width, int height) {
+    setClip(new Rectangle(x, y, width, height));
+  }
+
+  /** In user space. */
+  @Override public Shape getClip() {
+    Shape result = null;
+    if (clip != null) {
+      try {
+        result = transform.createInverse().createTransformedShape(clip);
+      }
+      catch (NoninvertibleTransformException ex) {
+        result = null;
+      }
+    }
+    return result;
+  }
+
+  @Override public void setClip(Shape shape) {
+    clip = (shape == null) ? null : transform.createTransformedShape(shape);
+    writeClip();
+  }
+
+  /** Not supported: it needs to read back what has already been drawn. */
+  @Override public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+    throw new UnsupportedOperationException("Copying an area needs to read back what has been drawn, and vector output can't be read back.");
+  }
+
+  @Override public void drawLine(int x1, int y1, int x2, int y2) {
+    draw(new Line2D.Float(x1, y1, x2, y2));
+  }
+
+  @Override public void fillRect(int x, int y, int width, int height) {
+    fill(new Rectangle(x, y, width, height));
+  }
+
+  @Override public void clearRect(int x, int y, int width, int height) {
+    Color original = color;
+    setColor(background);
+    fillRect(x, y, width, height);
+    setColor(original);
+  }
+
+  @Override public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+    draw(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+  }
+
+  @Override public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+    fill(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+  }
+
+  @Override public void drawOval(int x, int y, int width, int height) {
+    draw(new Ellipse2D.Float(x, y, width, height));
+  }
+
+  @Override public void fillOval(int x, int y, int width, int height) {
+    fill(new Ellipse2D.Float(x, y, width, height));
+  }
+
+  @Override public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+    draw(new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+  }
+
+  @Override public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+    fill(new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+  }
+
+  @Override public void drawPolyline(int[] xPoints, int[] yPoints, int numPoints) {
+    if (numPoints > 0) {
+      Path2D.Float path = new Path2D.Float();
+      path.moveTo(xPoints[0], yPoints[0]);
+      for (int idx = 1; idx < numPoints; ++idx) {
+        path.lineTo(xPoints[idx], yPoints[idx]);
+      }
+      draw(path);
+    }
+  }
+
+  @Override public void drawPolygon(int[] xPoints, int[] yPoints, int numPoints) {
+    draw(new Polygon(xPoints, yPoints, numPoints));
+  }
+
+  @Override public void fillPolygon(int[] xPoints, int[] yPoints, int numPoints) {
+    fill(new Polygon(xPoints, yPoints, numPoints));
+  }
+
+  @Override public void drawRenderedImage(RenderedImage image, AffineTransform xform) {
+    AffineTransform imageToUser = new AffineTransform(xform);
+    imageToUser.translate(image.getMinX(), image.getMinY());
+    drawBuffered(buffered(image), imageToUser);
+  }
+
+  /** Drawn with its default rendering. */
+  @Override public void drawRenderableImage(RenderableImage image, AffineTransform xform) {
+    drawRenderedImage(image.createDefaultRendering(), xform);
+  }
+
+  @Override public boolean drawImage(Image image, AffineTransform xform, ImageObserver observer) {
+    BufferedImage buffered = buffered(image, observer);
+    if (buffered != null) {
+      drawBuffered(buffered, xform == null ? new AffineTransform() : xform);
+    }
+    return buffered != null;
+  }
+
+  /** The operation is applied first, if there is one. */
+  @Override public void drawImage(BufferedImage image, BufferedImageOp op, int x, int y) {
+    drawImage(op == null ? image : op.filter(image, null), x, y, null);
+  }
+
+  @Override public boolean drawImage(Image image, int x, int y, ImageObserver observer) {
+    return drawImage(image, AffineTransform.getTranslateInstance(x, y), observer);
+  }
+
+  @Override public boolean drawImage(Image image, int x, int y, int width, int height, ImageObserver observer) {
+    BufferedImage buffered = buffered(image, observer);
+    if (buffered != null) {
+      AffineTransform imageToUser = AffineTransform.getTranslateInstance(x, y);
+      imageToUser.scale((double)width / buffered.getWidth(), (double)height / buffered.getHeight());
+      drawBuffered(buffered, imageToUser);
+    }
+    return buffered != null;
+  }
+
+  @Override public boolean drawImage(Image image, int x, int y, Color bgcolor, ImageObserver observer) {
+    BufferedImage buffered = buffered(image, observer);
+    if (buffered != null) {
+      fillBackground(bgcolor, x, y, buffered.getWidth(), buffered.getHeight());
+      drawBuffered(buffered, AffineTransform.getTranslateInstance(x, y));
+    }
+    return buffered != null;
+  }
+
+  @Override public boolean drawImage(Image image, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+    BufferedImage buffered = buffered(image, observer);
+    if (buffered != null) {
+      fillBackground(bgcolor, x, y, width, height);
+      drawImage(buffered, x, y, width, height, observer);
+    }
+    return buffered != null;
+  }
+
+  @Override public boolean drawImage(Image image, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+    return drawImage(image, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
+  }
+
+  /** The corners may be given in any order; swapping them flips the image. */
+  @Override public boolean drawImage(Image image, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+    BufferedImage buffered = buffered(image, observer);
+    if (buffered != null && sx1 != sx2 && sy1 != sy2) {
+      int left = Math.max(0, Math.min(sx1, sx2));
+      int top = Math.max(0, Math.min(sy1, sy2));
+      int right = Math.min(buffered.getWidth(), Math.max(sx1, sx2));
+      int bottom = Math.min(buffered.getHeight(), Math.max(sy1, sy2));
+      if (right > left && bottom > top) {
+        fillBackground(bgcolor, Math.min(dx1, dx2), Math.min(dy1, dy2), Math.abs(dx2 - dx1), Math.abs(dy2 - dy1));
+        AffineTransform imageToUser = AffineTransform.getTranslateInstance(dx1, dy1);
+        imageToUser.scale((double)(dx2 - dx1) / (sx2 - sx1), (double)(dy2 - dy1) / (sy2 - sy1));
+        imageToUser.translate(left - sx1, top - sy1);
+        drawBuffered(buffered.getSubimage(left, top, right - left, bottom - top), imageToUser);
+      }
+    }
+    return buffered != null;
+  }
+
+  @Override public void dispose() {
+    if (!disposed) {
+      disposed = true;
+      if (!isCopy) {
+        finish();
+      }
+      if (metrics != null) {
+        metrics.dispose();
+      }
+    }
+  }
+
+  // PRIVATE
+
+  private final AffineTransform transform = new AffineTransform();
+  private Shape clip;
+  private Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+  private Color color = Color.BLACK;
+  private Paint paint = color;
+  private Color background = Color.WHITE;
+  private Stroke stroke = new BasicStroke(1.0f);
+  private Composite composite;
+  private final RenderingHints hints = new RenderingHints(null);
+  private FontRenderContext fontRenderContext;
+  private Graphics2D metrics;
+  private boolean disposed;
+  /** Made by {@link #create()}. */
+  private boolean isCopy;
+  /** Shared with all copies, since they write to the same output. */
+  private WrittenClip writtenClip = new WrittenClip();
+
+  /** The resolution of {@link #drawShapeAsImage(Shape, boolean)}: 288 pixels per inch. */
+  private static final double PIXELS_PER_POINT = 4.0;
+  /** Bounds the memory used by {@link #drawShapeAsImage(Shape, boolean)}; the resolution is lowered for large shapes. */
+  private static final double MAX_PIXELS = 16 * 1024 * 1024;
+
+  /** The clip that was last written to the output, by any of the contexts that share it. */
+  private static final class WrittenClip {
+    Shape clip;
+  }
+
+  private void writeClip() {
+    writtenClip.clip = clip;
+    clipChanged(clip);
+  }
+
+  /** Another context may have changed the clip in the output since this one last drew. */
+  private void syncClip() {
+    if (writtenClip.clip != clip) {
+      writeClip();
+    }
+  }
+
+  private void drawBuffered(BufferedImage image, AffineTransform imageToUser) {
+    syncClip();
+    AffineTransform imageToDevice = new AffineTransform(transform);
+    imageToDevice.concatenate(imageToUser);
+    drawPixels(image, imageToDevice);
+  }
+
+  /** Nothing is drawn when there's no background color. */
+  private void fillBackground(Color bgcolor, int x, int y, int width, int height) {
+    if (bgcolor != null) {
+      Paint original = paint;
+      Color originalColor = color;
+      setColor(bgcolor);
+      fillRect(x, y, width, height);
+      color = originalColor;
+      paint = original;
+    }
+  }
+
+  /** Returns null if the image isn't loaded yet, as with java.awt. The observer is told when it is. */
+  private static BufferedImage buffered(Image image, ImageObserver observer) {
+    BufferedImage result = null;
+    if (image instanceof BufferedImage) {
+      result = (BufferedImage)image;
+    }
+    else {
+      int width = image.getWidth(observer);
+      int height = image.getHeight(observer);
+      if (width > 0 && height > 0) {
+        result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = result.createGraphics();
+        boolean complete = g.drawImage(image, 0, 0, observer);
+        g.dispose();
+        if (!complete) {
+          result = null;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** The pixels of the image, starting at its minimum x and y. */
+  private static BufferedImage buffered(RenderedImage image) {
+    BufferedImage result = null;
+    if (image instanceof BufferedImage) {
+      result = (BufferedImage)image;
+    }
+    else {
+      ColorModel colorModel = image.getColorModel();
+      WritableRaster raster = colorModel.createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+      image.copyData(raster.createWritableTranslatedChild(image.getMinX(), image.getMinY()));
+      result = new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+    return result;
+  }
+
+  /** Measures text. Created only when needed. */
+  private Graphics2D metrics() {
+    if (metrics == null) {
+      metrics = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB).createGraphics();
+      metrics.setRenderingHints(hints);
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ Lean implementations of java.awt.Graphics2D, which write vector output directly, or record it to be painted later.
+
+ <P>The drawing code (see {@link custom.solar.eclipse.viewer.draw.mix.Draw}) only ever talks to a Graphics2D.
+ The classes here let that same drawing code write to different kinds of output.
+ Shapes, text, transforms, clipping, strokes, colors and gradients are written as vectors; images and other paints are embedded as pixels.
+ Only XOR mode and copying an area are not supported, since vector output can't be read back; see {@link custom.solar.eclipse.viewer.graphics.VectorGraphics2D}.
+*/
+package custom.solar.eclipse.viewer.graphics;
@@ -0,0 +1,23 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Looking up the Besselian elements of an eclipse in the catalog. */
+@Name("custom.solar.eclipse.viewer.CatalogLookup")
+@Label("Catalog Lookup")
+public final class CatalogLookupEvent extends StageEvent {
+
+  @Label("Date") @Description("The date of the eclipse, UTC.")
+  public String date;
+
+  @Label("Found")
+  public boolean found;
+
+  public CatalogLookupEvent() {
+    super(HISTOGRAM);
+  }
+
+  private static final Histogram HISTOGRAM = Metrics.histogram("catalog_lookup");
+}
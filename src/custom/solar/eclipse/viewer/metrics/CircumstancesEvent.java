@@ -0,0 +1,26 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Solving for the local maximum of an eclipse, and its contacts, at one site. */
+@Name("custom.solar.eclipse.viewer.Circumstances")
+@Label("Circumstances Solve")
+public final class CircumstancesEvent extends StageEvent {
+
+  @Label("Location")
+  public String location;
+
+  @Label("Eclipse Type") @Description("As seen from the location: None, Partial, Annular, or Total.")
+  public String eclipseType;
+
+  @Label("Iterations") @Description("The number of worksheets computed, for the local maximum and all of the contacts.")
+  public int iterations;
+
+  public CircumstancesEvent() {
+    super(HISTOGRAM);
+  }
+
+  private static final Histogram HISTOGRAM = Metrics.histogram("circumstances");
+}
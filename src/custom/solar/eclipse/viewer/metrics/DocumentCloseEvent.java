@@ -0,0 +1,24 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Closing a PDF document, which writes out whatever is still held in memory: the fonts, and the cross-reference table. */
+@Name("custom.solar.eclipse.viewer.DocumentClose")
+@Label("Document Close")
+public final class DocumentCloseEvent extends StageEvent {
+
+  @Label("Pages")
+  public int pages;
+
+  @Label("Bytes Written") @Description("The size of the whole document.") @DataAmount
+  public long bytes;
+
+  public DocumentCloseEvent() {
+    super(HISTOGRAM);
+  }
+
+  private static final Histogram HISTOGRAM = Metrics.histogram("document_close");
+}
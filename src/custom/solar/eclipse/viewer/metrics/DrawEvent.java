@@ -0,0 +1,25 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Drawing one part of a page. Each kind of drawer has its own histogram, named after its class. */
+@Name("custom.solar.eclipse.viewer.Draw")
+@Label("Draw")
+public final class DrawEvent extends StageEvent {
+
+  @Label("Drawer")
+  public String drawer;
+
+  public DrawEvent(Class<?> drawer) {
+    super(HISTOGRAMS.get(drawer));
+    this.drawer = drawer.getSimpleName();
+  }
+
+  /** Looked up once for each class. */
+  private static final ClassValue<Histogram> HISTOGRAMS = new ClassValue<Histogram>() {
+    @Override protected Histogram computeValue(Class<?> type) {
+      return Metrics.histogram("draw." + type.getSimpleName());
+    }
+  };
+}
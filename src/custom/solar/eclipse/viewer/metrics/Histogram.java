@@ -0,0 +1,93 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ The distribution of the durations of a stage.
+
+ <P>The durations are counted in buckets whose bounds are powers of 2 nanoseconds, 
+ so a percentile is known only to within a factor of 2. 
+ That's enough to see which stage is slow, and recording a duration costs only a few atomic additions.
+
+ <P>Thread-safe.
+*/
+public final class Histogram {
+
+  /** Add a duration, in nanoseconds. */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+    buckets.incrementAndGet(bucketOf(value));
+  }
+
+  public long count() { return count.sum(); }
+
+  /** In nanoseconds. */
+  public long sum() { return sum.sum(); }
+
+  /** In nanoseconds. */
+  public long max() { return max.get(); }
+
+  /** 
+   The upper bound of the bucket holding the given percentile, in nanoseconds. 
+   Returns 0 if nothing has been recorded.
+   @param percentile from 0 to 100.
+  */
+  public long percentile(double percentile) {
+    long total = 0;
+    long[] counts = new long[NUM_BUCKETS];
+    for (int idx = 0; idx < NUM_BUCKETS; ++idx) {
+      counts[idx] = buckets.get(idx);
+      total += counts[idx];
+    }
+    long rank = (long)Math.ceil(total * percentile / 100.0);
+    long seen = 0;
+    for (int idx = 0; idx < NUM_BUCKETS; ++idx) {
+      seen += counts[idx];
+      if (seen >= rank && seen > 0) {
+        return Math.min(upperBound(idx), max());
+      }
+    }
+    return 0;
+  }
+
+  /** A JSON object, with the times in milliseconds. */
+  String toJson() {
+    long count = count();
+    return "{" +
+      "\"count\":" + count + "," +
+      "\"total_ms\":" + millis(sum()) + "," +
+      "\"mean_ms\":" + millis(count == 0 ? 0 : sum() / count) + "," +
+      "\"p50_ms\":" + millis(percentile(50)) + "," +
+      "\"p90_ms\":" + millis(percentile(90)) + "," +
+      "\"p99_ms\":" + millis(percentile(99)) + "," +
+      "\"max_ms\":" + millis(max()) +
+    "}";
+  }
+
+  // PRIVATE
+
+  private static final int NUM_BUCKETS = 64;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+  /** The bucket N holds the durations from 2^(N-1) to 2^N - 1 nanoseconds. */
+  private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+  private static int bucketOf(long nanos) {
+    return Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+  }
+
+  private static long upperBound(int bucket) {
+    return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+  }
+}
@@ -0,0 +1,68 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import custom.solar.eclipse.viewer.util.DataFileReader;
+
+/**
+ A summary of the work done since the program started: a {@link Histogram} of durations for each stage, and counters.
+ Shared by the whole program. The names are fixed by the code, not by the data, so the number of them stays small.
+
+ <P>The summary can be written as JSON: by the web service, in answer to <em>GET /metrics</em>, 
+ and by the programs run from the command line, at the end, if given the command line setting 
+
+ {@code -DviewerMetricsFile=/tmp/metrics.json}
+
+ <P>Thread-safe.
+*/
+public final class Metrics {
+
+  /** The histogram of the given stage, created the first time it's needed. */
+  public static Histogram histogram(String stage) {
+    return HISTOGRAMS.computeIfAbsent(stage, name -> new Histogram());
+  }
+
+  /** The counter of the given name, created the first time it's needed. */
+  public static LongAdder counter(String name) {
+    return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+  }
+
+  /** A snapshot of all of the histograms and counters, in alphabetical order. */
+  public static String toJson() {
+    StringBuilder result = new StringBuilder("{\"stages\":{");
+    String separator = "";
+    for (Map.Entry<String, Histogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+      result.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().toJson());
+      separator = ",";
+    }
+    result.append("},\"counters\":{");
+    separator = "";
+    for (Map.Entry<String, LongAdder> entry : new TreeMap<>(COUNTERS).entrySet()) {
+      result.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().sum());
+      separator = ",";
+    }
+    return result.append("}}").toString();
+  }
+
+  /** If the System property <em>viewerMetricsFile</em> is set, write the snapshot to that file. */
+  public static void saveIfRequested() throws IOException {
+    String fileName = System.getProperty("viewerMetricsFile");
+    if (fileName != null) {
+      Files.write(Paths.get(fileName), toJson().getBytes(DataFileReader.ENCODING));
+      log("Metrics saved to " + fileName);
+    }
+  }
+
+  // PRIVATE
+
+  private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+  private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,33 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+
+/**
+ A stage of generating a viewer, recorded both as a JFR event and in a {@link Histogram}.
+
+ <P>The event begins when it's built. Set its attributes, and then call {@link #finish()}.
+ When no recording is running, the event costs almost nothing, but the duration is still added to the histogram.
+
+ <P>Not thread-safe: each event belongs to the thread that built it.
+*/
+@Category("Eclipse Viewer")
+public abstract class StageEvent extends Event {
+
+  /** Record the duration in the histogram, and commit the event, if a recording is running. */
+  public final void finish() {
+    histogram.record(System.nanoTime() - startNanos);
+    commit();
+  }
+
+  protected StageEvent(Histogram histogram) {
+    this.histogram = histogram;
+    this.startNanos = System.nanoTime();
+    begin();
+  }
+
+  // PRIVATE
+
+  private final transient Histogram histogram;
+  private final transient long startNanos;
+}
@@ -0,0 +1,22 @@
+package custom.solar.eclipse.viewer.metrics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Building the table of the timeline of the eclipse. */
+@Name("custom.solar.eclipse.viewer.TimelineTable")
+@Label("Timeline Table")
+public final class TimelineTableEvent extends StageEvent {
+
+  @Label("Rows")
+  public int rows;
+
+  @Label("In Document")
+  public boolean inDocument;
+
+  public TimelineTableEvent() {
+    super(HISTOGRAM);
+  }
+
+  private static final Histogram HISTOGRAM = Metrics.histogram("timeline_table");
+}
@@ -0,0 +1,9 @@
+/** 
+ The time taken by each stage of generating a viewer, and counts of the work done, for monitoring and for finding what's slow.
+ 
+ <P>Each stage is recorded twice, at little cost: as an event for the JDK Flight Recorder (JFR), and in a summary held in memory. 
+ The events are committed only while a recording is running, for example with the command line setting 
+ {@code -XX:StartFlightRecording=filename=viewer.jfr}. They're listed under the category <em>Eclipse Viewer</em>.
+ The summary is always kept, and can be written as JSON; see {@link custom.solar.eclipse.viewer.metrics.Metrics}.
+*/
+package custom.solar.eclipse.viewer.metrics;
@@ -0,0 +1,249 @@
+package custom.solar.eclipse.viewer.output;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import custom.solar.eclipse.viewer.config.Constants;
+
+/**
+ Keep generated PDF files in a local directory, so that asking for the same viewer again costs only a read from the disk.
+ Unlike a cache in memory, the files survive a restart.
+
+ <P>Content-addressed: the name of each file is a hash of its key, and of {@link Constants#CODE_VERSION}.
+ The key must identify everything that affects the output (see {@link custom.solar.eclipse.viewer.config.Config#digest()}).
+ When the code changes the output, its version changes too, and the old files are simply never asked for again; they age out.
+
+ <P>Files are written to a temporary file in the same directory, flushed to the disk, and then renamed, as a single step.
+ So a reader never sees a partial file, even if the process dies while writing.
+ Temporary files left over from a crash are deleted when the cache is created.
+
+ <P>The total size of the files is bounded. When it's exceeded, the least-recently used files are deleted first.
+ The time of last use is stored as the file's last-modified time (access times are often turned off in the file system),
+ so the order of use survives a restart as well.
+
+ <P>Only this object should change the directory.
+ Thread-safe.
+*/
+public final class DiskCache {
+
+  /**
+   Create the directory if needed, and index the files it already has.
+   @param maxBytes the most bytes to keep in the directory; if more are present, the least-recently used files are deleted at once.
+  */
+  public DiskCache(Path dir, long maxBytes) throws IOException {
+    this.dir = Files.createDirectories(dir);
+    this.maxBytes = maxBytes;
+    load();
+  }
+
+  /**
+   Open the file for the given key, for reading, and mark it as used now.
+   Returns null if there's no such file.
+   The caller must close the channel.
+   The file stays readable through the channel even if it's evicted in the meantime.
+  */
+  public FileChannel open(String key) throws IOException {
+    String name = fileName(key);
+    synchronized (index) {
+      if (index.get(name) == null) return null; //get, not containsKey, since it updates the order of use
+    }
+    Path file = dir.resolve(name);
+    FileChannel result = null;
+    try {
+      result = FileChannel.open(file, StandardOpenOption.READ);
+    }
+    catch (NoSuchFileException ex) {
+      //deleted by someone else; forget it
+      forget(name);
+      return null;
+    }
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    catch (IOException ex) {
+      //evicted just now; the open channel can still be read
+    }
+    return result;
+  }
+
+  /**
+   Store the bytes for the given key, replacing any file already present, and evict old files if needed.
+   The file appears all at once, or not at all.
+  */
+  public void put(String key, byte[] bytes) throws IOException {
+    String name = fileName(key);
+    Path temp = Files.createTempFile(dir, TEMP_PREFIX, TEMP_SUFFIX);
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(false); //otherwise, after a power failure, the rename can survive and the data not
+      }
+      Files.move(temp, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+    List<String> evicted = new ArrayList<>();
+    synchronized (index) {
+      Long previous = index.put(name, (long)bytes.length);
+      totalBytes += bytes.length - (previous == null ? 0 : previous);
+      evict(name, evicted);
+    }
+    delete(evicted);
+  }
+
+  /**
+   Copy the whole file to the given stream, starting at the beginning.
+   The stream is only wrapped in a channel, so the operating system can't copy from the file to a socket by itself:
+   the bytes pass through a small buffer on their way to the stream, a piece at a time.
+   The whole file is never held in memory. Returns the number of bytes copied.
+  */
+  public static long transfer(FileChannel file, OutputStream out) throws IOException {
+    WritableByteChannel target = Channels.newChannel(out);
+    long size = file.size();
+    long result = 0;
+    while (result < size) {
+      result += file.transferTo(result, size - result, target);
+    }
+    return result;
+  }
+
+  /** The total size of the files, in bytes. */
+  public long totalBytes() {
+    synchronized (index) {
+      return totalBytes;
+    }
+  }
+
+  /** The number of files. */
+  public int size() {
+    synchronized (index) {
+      return index.size();
+    }
+  }
+
+  @Override public String toString() {
+    return dir + ": " + size() + " files, " + totalBytes() + " of " + maxBytes + " bytes";
+  }
+
+  // PRIVATE
+
+  private final Path dir;
+  private final long maxBytes;
+
+  /** File name to file size, least-recently used first. Guarded by itself. */
+  private final Map<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  private static final String EXTENSION = ".pdf";
+  private static final String TEMP_PREFIX = "partial-";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /** A hex hash, safe as a file name on any file system. */
+  private static String fileName(String key) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-256");
+      byte[] hash = sha.digest((Constants.CODE_VERSION + "\n" + key).getBytes(StandardCharsets.UTF_8));
+      StringBuilder result = new StringBuilder(hash.length * 2 + EXTENSION.length());
+      for (byte b : hash) {
+        result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return result.append(EXTENSION).toString();
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("Every Java platform is required to support SHA-256.", ex);
+    }
+  }
+
+  /** Index the existing files, oldest use first, and delete leftover temporary files. */
+  private void load() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+      for (Path entry : entries) {
+        String name = entry.getFileName().toString();
+        if (name.startsWith(TEMP_PREFIX) && name.endsWith(TEMP_SUFFIX)) {
+          Files.deleteIfExists(entry);
+        }
+        else if (name.endsWith(EXTENSION) && Files.isRegularFile(entry)) {
+          files.add(entry);
+        }
+      }
+    }
+    Map<Path, FileTime> lastUsed = new LinkedHashMap<>();
+    for (Path file : files) {
+      lastUsed.put(file, Files.getLastModifiedTime(file));
+    }
+    files.sort(Comparator.comparing(lastUsed::get));
+    List<String> evicted = new ArrayList<>();
+    synchronized (index) {
+      for (Path file : files) {
+        long size = Files.size(file);
+        index.put(file.getFileName().toString(), size);
+        totalBytes += size;
+      }
+      evict(null, evicted);
+    }
+    delete(evicted);
+    log("Disk cache " + this);
+  }
+
+  /** Must be called while holding the lock. Never evicts the file just added. */
+  private void evict(String keep, List<String> evicted) {
+    Iterator<Map.Entry<String, Long>> oldestFirst = index.entrySet().iterator();
+    while (totalBytes > maxBytes && oldestFirst.hasNext()) {
+      Map.Entry<String, Long> entry = oldestFirst.next();
+      if (!entry.getKey().equals(keep)) {
+        totalBytes -= entry.getValue();
+        evicted.add(entry.getKey());
+        oldestFirst.remove();
+      }
+    }
+  }
+
+  /** Outside the lock, since it's slow. */
+  private void delete(List<String> names) {
+    for (String name : names) {
+      try {
+        Files.deleteIfExists(dir.resolve(name));
+      }
+      catch (IOException ex) {
+        warn("Can't delete " + name + " from the disk cache: " + ex);
+      }
+    }
+  }
+
+  private void forget(String name) {
+    synchronized (index) {
+      Long size = index.remove(name);
+      if (size != null) {
+        totalBytes -= size;
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package custom.solar.eclipse.viewer.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ Stream the file as the body of an HTTP response, using chunked transfer encoding.
+ The size of the file isn't known in advance, so the response has no Content-Length.
+
+ <P>The response headers are sent only when the first chunk is ready.
+ Until then, nothing has been committed, and the caller can still send an error response instead (see {@link #isCommitted()}).
+ The bytes are buffered into chunks of a reasonable size, instead of sending many tiny chunks.
+*/
+public final class HttpResponseTarget extends OutputTarget {
+
+  /**
+   @param contentType for example, "application/pdf".
+   @param fileName suggested to the browser, for saving the file; null for none.
+  */
+  public HttpResponseTarget(HttpExchange exchange, String contentType, String fileName) {
+    this.exchange = exchange;
+    this.contentType = contentType;
+    this.fileName = fileName;
+  }
+
+  /** True if the response headers have been sent. */
+  public boolean isCommitted() {
+    return committed;
+  }
+
+  @Override protected OutputStream openDestination() {
+    return new OutputStream() {
+      @Override public void write(int b) throws IOException {
+        body().write(b);
+      }
+      @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+        body().write(bytes, offset, length);
+      }
+      @Override public void flush() throws IOException {
+        body().flush();
+      }
+      @Override public void close() throws IOException {
+        body().close();
+      }
+    };
+  }
+
+  @Override protected int bufferSize() {
+    return CHUNK_SIZE;
+  }
+
+  // PRIVATE
+
+  private final HttpExchange exchange;
+  private final String contentType;
+  private final String fileName;
+  private boolean committed;
+
+  private static final int CHUNK_SIZE = 16 * 1024;
+  /** Tells HttpExchange to use chunked transfer encoding. */
+  private static final long UNKNOWN_LENGTH = 0;
+
+  /** Sends the headers the first time it's called. */
+  private OutputStream body() throws IOException {
+    if (!committed) {
+      exchange.getResponseHeaders().set("Content-Type", contentType);
+      if (fileName != null) {
+        exchange.getResponseHeaders().set("Content-Disposition", "inline; filename=\"" + fileName + "\"");
+      }
+      exchange.sendResponseHeaders(200, UNKNOWN_LENGTH);
+      committed = true;
+    }
+    return exchange.getResponseBody();
+  }
+}
@@ -0,0 +1,50 @@
+package custom.solar.eclipse.viewer.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ Keep the file in memory, in a buffer sized from the files generated before it.
+ Useful on a server, when the whole file is needed before it's sent, or when it's cached.
+
+ <P>The buffer is allocated once, at the estimated size, instead of starting small and growing (and copying) several times.
+ When the target is closed, the actual size is recorded in the estimate, for the next file.
+*/
+public final class MemoryTarget extends OutputTarget {
+
+  public MemoryTarget(SizeEstimate estimate) {
+    this.estimate = estimate;
+  }
+
+  /** A copy of the bytes written. */
+  public byte[] toByteArray() {
+    return buffer.toByteArray();
+  }
+
+  /** Copy the bytes written to the given stream, without an intermediate copy. */
+  public void writeTo(OutputStream out) throws IOException {
+    buffer.writeTo(out);
+  }
+
+  /** The size of the buffer when it was allocated. */
+  public int initialCapacity() {
+    return initialCapacity;
+  }
+
+  @Override protected OutputStream openDestination() {
+    initialCapacity = estimate.bufferSize();
+    buffer = new ByteArrayOutputStream(initialCapacity);
+    return buffer;
+  }
+
+  @Override protected void afterClose() {
+    estimate.record(bytes());
+  }
+
+  // PRIVATE
+
+  private final SizeEstimate estimate;
+  private ByteArrayOutputStream buffer;
+  private int initialCapacity;
+}
@@ -0,0 +1,112 @@
+package custom.solar.eclipse.viewer.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ A destination for a generated file, which measures what is written to it.
+
+ <P>Call {@link #open()} once, and pass the stream to the code that generates the file.
+ The generating code closes the stream when it's done (iText closes it when the document is closed).
+ The clock starts when the stream is opened.
+ The time to first byte is measured where the bytes leave for the destination, after any buffering done by the target.
+
+ <P>Not thread-safe.
+*/
+public abstract class OutputTarget {
+
+  /**
+   Start the clock, and return the stream to write to.
+   @throws IllegalStateException if called more than once.
+  */
+  public final OutputStream open() throws IOException {
+    if (measured != null) {
+      throw new IllegalStateException("The output target has already been opened.");
+    }
+    start = System.nanoTime();
+    measured = new MeasuredOutputStream(openDestination());
+    int bufferSize = bufferSize();
+    return bufferSize > 0 ? new BufferedOutputStream(measured, bufferSize) : measured;
+  }
+
+  /** The number of bytes that have reached the destination so far. */
+  public final long bytes() {
+    return measured == null ? 0 : measured.count;
+  }
+
+  /** The time from opening the target to the first byte reaching the destination; -1 if no bytes have been written yet. */
+  public final long nanosToFirstByte() {
+    return (measured == null || measured.firstByte == 0) ? -1 : measured.firstByte - start;
+  }
+
+  /** The time from opening the target to closing it; -1 if it hasn't been closed yet. */
+  public final long nanosToClose() {
+    return (measured == null || measured.closed == 0) ? -1 : measured.closed - start;
+  }
+
+  /** For example, "34273 bytes, first byte after 12.345 ms, closed after 15.678 ms". */
+  @Override public String toString() {
+    return bytes() + " bytes, first byte after " + millis(nanosToFirstByte()) + ", closed after " + millis(nanosToClose());
+  }
+
+  /** The underlying stream for the destination. Called once, by {@link #open()}. */
+  protected abstract OutputStream openDestination() throws IOException;
+
+  /** The size of the buffer placed in front of the destination; 0 for no buffer. By default, 0. */
+  protected int bufferSize() {
+    return 0;
+  }
+
+  /** Called after the destination has been closed. By default, does nothing. */
+  protected void afterClose() {
+    //nothing
+  }
+
+  // PRIVATE
+
+  private long start;
+  private MeasuredOutputStream measured;
+
+  private static String millis(long nanos) {
+    return nanos < 0 ? "(none)" : String.format("%.3f ms", nanos / 1_000_000.0);
+  }
+
+  /** Counts the bytes, and records the time of the first byte and the time of closing. */
+  private final class MeasuredOutputStream extends OutputStream {
+    MeasuredOutputStream(OutputStream out){
+      this.out = out;
+    }
+    @Override public void write(int b) throws IOException {
+      firstByte();
+      out.write(b);
+      ++count;
+    }
+    @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (length > 0) {
+        firstByte();
+        out.write(bytes, offset, length);
+        count = count + length;
+      }
+    }
+    @Override public void flush() throws IOException {
+      out.flush();
+    }
+    @Override public void close() throws IOException {
+      if (closed == 0) {
+        out.close();
+        closed = System.nanoTime();
+        afterClose();
+      }
+    }
+    private final OutputStream out;
+    private long count;
+    private long firstByte;
+    private long closed;
+    private void firstByte() {
+      if (firstByte == 0) {
+        firstByte = System.nanoTime();
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package custom.solar.eclipse.viewer.output;
+
+/**
+ An estimate of the size of the next file, from the sizes of the files generated before it.
+
+ <P>The estimate is the largest of the recent sizes, plus a little headroom.
+ Files of the same kind have similar sizes, so a buffer of this size usually never needs to grow.
+ Using the largest recent size, instead of the average, means that a slightly larger file is still likely to fit.
+
+ <P>Use one estimate for each kind of file, such as single viewers or booklets of a given size.
+ Thread-safe.
+*/
+public final class SizeEstimate {
+
+  /** @param initialSize the estimate used until the first size is recorded. */
+  public SizeEstimate(int initialSize) {
+    this.initialSize = initialSize;
+  }
+
+  /** The size of buffer to use for the next file. */
+  public synchronized int bufferSize() {
+    int largest = 0;
+    for (int idx = 0; idx < Math.min(numRecorded, NUM_RECENT); ++idx) {
+      largest = Math.max(largest, recent[idx]);
+    }
+    long result = largest == 0 ? initialSize : largest + largest / HEADROOM_DIVISOR;
+    return (int)Math.min(result, MAX_BUFFER_SIZE);
+  }
+
+  /** Remember the actual size of a file. */
+  public synchronized void record(long size) {
+    recent[(int)(numRecorded % NUM_RECENT)] = (int)Math.min(size, MAX_BUFFER_SIZE);
+    ++numRecorded;
+  }
+
+  // PRIVATE
+
+  private final int initialSize;
+  private static final int NUM_RECENT = 16;
+  private final int[] recent = new int[NUM_RECENT];
+  private long numRecorded;
+
+  /** 1/16 more than the largest recent size. */
+  private static final int HEADROOM_DIVISOR = 16;
+  /** Arrays can't be much larger than this. */
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+}
@@ -0,0 +1,42 @@
+package custom.solar.eclipse.viewer.output;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ Write the file as one entry in a ZIP archive, which may hold many such entries.
+ A batch of viewers can be streamed as a single archive (to a file, or to an HTTP response), without any temporary files.
+
+ <P>Closing the target only closes its entry, not the archive; the caller closes the archive after the last entry.
+ Each entry in the archive must have a distinct name.
+
+ <P>PDF content is already compressed, so an archive of PDF files doesn't shrink much.
+ Passing {@link java.util.zip.Deflater#BEST_SPEED} to {@link ZipOutputStream#setLevel(int)} saves time for little loss.
+*/
+public final class ZipEntryTarget extends OutputTarget {
+
+  public ZipEntryTarget(ZipOutputStream zip, String entryName) {
+    this.zip = zip;
+    this.entryName = entryName;
+  }
+
+  @Override protected OutputStream openDestination() throws IOException {
+    zip.putNextEntry(new ZipEntry(entryName));
+    return new FilterOutputStream(zip) {
+      @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length); //the default writes one byte at a time
+      }
+      @Override public void close() throws IOException {
+        zip.closeEntry();
+      }
+    };
+  }
+
+  // PRIVATE
+
+  private final ZipOutputStream zip;
+  private final String entryName;
+}
@@ -0,0 +1,10 @@
+/**
+ Where the generated files go, when they don't go to a plain file: to memory, to an HTTP response, or into a ZIP archive.
+
+ <P>Each target supplies the output stream passed to methods such as 
+ {@link custom.solar.eclipse.viewer.GeneratePdfABC#outputTo(java.io.OutputStream)}, 
+ and reports the number of bytes written and the time taken for the first of them to reach the destination.
+ 
+ <P>{@link custom.solar.eclipse.viewer.output.DiskCache} keeps generated files on the disk, to be sent again without generating them.
+*/
+package custom.solar.eclipse.viewer.output;
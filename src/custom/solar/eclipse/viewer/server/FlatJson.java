@@ -0,0 +1,179 @@
+package custom.solar.eclipse.viewer.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ Parse a JSON object whose values are all simple: strings, numbers, booleans, null, or arrays of those.
+ That's all a request for a viewer needs, so no JSON library is used.
+
+ <P>Numbers and booleans are returned as their text. Null values are left out.
+ The items of an array are joined with a '|' character, the same separator used by list settings in the config file.
+ Nested objects are not supported.
+*/
+final class FlatJson {
+
+  /** @throws IllegalArgumentException if the text isn't a flat JSON object. */
+  static Map<String, String> parse(String text) {
+    return new FlatJson(text).object();
+  }
+
+  // PRIVATE
+
+  private final String text;
+  private int pos;
+
+  private FlatJson(String text) {
+    this.text = text;
+  }
+
+  private Map<String, String> object() {
+    Map<String, String> result = new LinkedHashMap<>();
+    expect('{');
+    if (peek() == '}') {
+      ++pos;
+    }
+    else {
+      do {
+        String name = string();
+        expect(':');
+        String value = value(true);
+        if (value != null) {
+          result.put(name, value);
+        }
+      } while (consumeComma());
+      expect('}');
+    }
+    skipWhitespace();
+    if (pos != text.length()) {
+      throw error("Unexpected text after the end of the object");
+    }
+    return result;
+  }
+
+  /** Returns null for a JSON null. */
+  private String value(boolean arrayAllowed) {
+    char c = peek();
+    String result = null;
+    if (c == '"') {
+      result = string();
+    }
+    else if (c == '[' && arrayAllowed) {
+      result = array();
+    }
+    else if (c == '{' || c == '[') {
+      throw error("Nested objects and arrays aren't supported");
+    }
+    else {
+      result = literal();
+    }
+    return result;
+  }
+
+  private String array() {
+    expect('[');
+    StringBuilder result = new StringBuilder();
+    if (peek() == ']') {
+      ++pos;
+      return "";
+    }
+    do {
+      String item = value(false);
+      if (result.length() > 0) {
+        result.append('|');
+      }
+      result.append(item == null ? "" : item);
+    } while (consumeComma());
+    expect(']');
+    return result.toString();
+  }
+
+  /** A number, true, false, or null. */
+  private String literal() {
+    int start = pos;
+    while (pos < text.length() && "+-.0123456789eEtruefalsn".indexOf(text.charAt(pos)) >= 0) {
+      ++pos;
+    }
+    String result = text.substring(start, pos);
+    if (result.isEmpty()) {
+      throw error("Expected a value");
+    }
+    return "null".equals(result) ? null : result;
+  }
+
+  private String string() {
+    expect('"');
+    StringBuilder result = new StringBuilder();
+    while (true) {
+      if (pos >= text.length()) {
+        throw error("Unterminated string");
+      }
+      char c = text.charAt(pos++);
+      if (c == '"') {
+        break;
+      }
+      if (c == '\\') {
+        if (pos >= text.length()) {
+          throw error("Unterminated string");
+        }
+        char escaped = text.charAt(pos++);
+        switch (escaped) {
+          case '"': case '\\': case '/': result.append(escaped); break;
+          case 'b': result.append('\b'); break;
+          case 'f': result.append('\f'); break;
+          case 'n': result.append('\n'); break;
+          case 'r': result.append('\r'); break;
+          case 't': result.append('\t'); break;
+          case 'u':
+            if (pos + 4 > text.length()) {
+              throw error("Incomplete unicode escape");
+            }
+            try {
+              result.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+            }
+            catch (NumberFormatException ex) {
+              throw error("Invalid unicode escape");
+            }
+            pos = pos + 4;
+            break;
+          default: throw error("Invalid escape");
+        }
+      }
+      else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+
+  private boolean consumeComma() {
+    boolean result = peek() == ',';
+    if (result) {
+      ++pos;
+    }
+    return result;
+  }
+
+  private void expect(char c) {
+    if (peek() != c) {
+      throw error("Expected '" + c + "'");
+    }
+    ++pos;
+  }
+
+  /** The next character that isn't whitespace; 0 at the end of the text. */
+  private char peek() {
+    skipWhitespace();
+    return pos < text.length() ? text.charAt(pos) : 0;
+  }
+
+  private void skipWhitespace() {
+    while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+      ++pos;
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + ", at position " + pos + " of the JSON.");
+  }
+}
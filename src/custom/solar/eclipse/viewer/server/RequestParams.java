@@ -0,0 +1,70 @@
+package custom.solar.eclipse.viewer.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ The parameters of a request, from its query string, and from its body.
+
+ <P>The body can be a web form (<em>application/x-www-form-urlencoded</em>), or a JSON object (<em>application/json</em>).
+ When a parameter appears in both the query string and the body, the body wins.
+*/
+final class RequestParams {
+
+  /** @throws IllegalArgumentException if the parameters can't be parsed, or the body is too large, or of an unsupported type. */
+  static Map<String, String> from(HttpExchange exchange) throws IOException {
+    Map<String, String> result = new LinkedHashMap<>();
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query != null) {
+      result.putAll(formParams(query));
+    }
+    if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+      String body = body(exchange.getRequestBody());
+      String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+      String mediaType = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase();
+      if (FORM.equals(mediaType)) {
+        result.putAll(formParams(body));
+      }
+      else if (JSON.equals(mediaType)) {
+        result.putAll(FlatJson.parse(body));
+      }
+      else if (!body.isEmpty()) {
+        throw new IllegalArgumentException("Unsupported content type: " + contentType + ". Use " + FORM + " or " + JSON + ".");
+      }
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private static final String FORM = "application/x-www-form-urlencoded";
+  private static final String JSON = "application/json";
+  /** Far more than any real request needs. */
+  private static final int MAX_BODY_SIZE = 64 * 1024;
+
+  private static Map<String, String> formParams(String encoded) {
+    Map<String, String> result = new LinkedHashMap<>();
+    for (String pair : encoded.split("&")) {
+      if (pair.isEmpty()) continue;
+      int equals = pair.indexOf('=');
+      String name = equals < 0 ? pair : pair.substring(0, equals);
+      String value = equals < 0 ? "" : pair.substring(equals + 1);
+      result.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+
+  private static String body(InputStream input) throws IOException {
+    byte[] bytes = input.readNBytes(MAX_BODY_SIZE + 1);
+    if (bytes.length > MAX_BODY_SIZE) {
+      throw new IllegalArgumentException("The body of the request is larger than " + MAX_BODY_SIZE + " bytes.");
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
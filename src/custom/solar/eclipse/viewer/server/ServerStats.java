@@ -0,0 +1,44 @@
+package custom.solar.eclipse.viewer.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Counts of what the server has done since it started, for monitoring.
+ Thread-safe.
+*/
+final class ServerStats {
+
+  final LongAdder requests = new LongAdder();
+  /** Viewers sent back, whether generated for the request or not. */
+  final LongAdder served = new LongAdder();
+  /** Turned away by admission control, since too many requests were already waiting. */
+  final LongAdder rejected = new LongAdder();
+  /** Bad parameters, or a site where the eclipse isn't visible. */
+  final LongAdder badRequests = new LongAdder();
+  final LongAdder failed = new LongAdder();
+  final LongAdder bytes = new LongAdder();
+  /** Requests that waited for an identical request already under way, instead of generating their own viewer. */
+  final LongAdder coalesced = new LongAdder();
+  /** Requests answered from the cache of recent results. */
+  final LongAdder cacheHits = new LongAdder();
+  /** Requests that generated a viewer. */
+  final LongAdder cacheMisses = new LongAdder();
+  /** Requests answered with a file from the disk cache. */
+  final LongAdder diskHits = new LongAdder();
+
+  /** A flat JSON object. */
+  String toJson() {
+    return "{" +
+      "\"requests\":" + requests.sum() + "," +
+      "\"served\":" + served.sum() + "," +
+      "\"rejected\":" + rejected.sum() + "," +
+      "\"bad_requests\":" + badRequests.sum() + "," +
+      "\"failed\":" + failed.sum() + "," +
+      "\"bytes\":" + bytes.sum() + "," +
+      "\"coalesced\":" + coalesced.sum() + "," +
+      "\"cache_hits\":" + cacheHits.sum() + "," +
+      "\"cache_misses\":" + cacheMisses.sum() + "," +
+      "\"disk_hits\":" + diskHits.sum() +
+    "}";
+  }
+}
@@ -0,0 +1,117 @@
+package custom.solar.eclipse.viewer.server;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import custom.solar.eclipse.viewer.util.LruCache;
+
+/**
+ Coalesce identical requests that arrive at the same time, and keep the results for a short time afterwards.
+
+ <P>When many people ask for the same site at once (say, after a link on a local news site), 
+ the first request generates the viewer, and the others simply wait for its result (single-flight).
+ All of them receive the same bytes.
+ If the first request fails, then all of the requests waiting on it fail in the same way.
+
+ <P>The results are then kept in a small cache for a short time, so that requests arriving just after also get them without any work.
+ The cache is bounded in size: the least-recently used entries are dropped first.
+
+ <P>Thread-safe.
+*/
+final class SingleFlightCache {
+
+  /** Generates the result, if it's not already available. */
+  interface Render {
+    byte[] render() throws Exception;
+  }
+
+  /** @param timeToLiveMillis how long a result is kept; 0 to keep nothing, and only coalesce requests that overlap. */
+  SingleFlightCache(long timeToLiveMillis, ServerStats stats) {
+    this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+    this.stats = stats;
+  }
+
+  /** The result for the given key: from the cache, from a render already under way, or from a new render. */
+  byte[] get(String key, Render render) throws Exception {
+    byte[] result = cached(key);
+    if (result != null) {
+      stats.cacheHits.increment();
+      return result;
+    }
+    CompletableFuture<byte[]> mine = new CompletableFuture<>();
+    CompletableFuture<byte[]> underWay = inFlight.putIfAbsent(key, mine);
+    if (underWay != null) {
+      stats.coalesced.increment();
+      return await(underWay);
+    }
+    try {
+      //another render may have finished since the cache was checked
+      result = cached(key);
+      if (result == null) {
+        stats.cacheMisses.increment();
+        result = render.render();
+        cache(key, result);
+      }
+      else {
+        stats.cacheHits.increment();
+      }
+      mine.complete(result);
+      return result;
+    }
+    catch (Exception | Error ex) {
+      mine.completeExceptionally(ex);
+      throw ex;
+    }
+    finally {
+      //only after the result is in the cache, so that no request can miss both
+      inFlight.remove(key, mine);
+    }
+  }
+
+  // PRIVATE
+
+  private final long timeToLiveNanos;
+  private final ServerStats stats;
+  private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+  private static final int MAX_CACHE_SIZE = 256;
+
+  /** Never mutated after construction. */
+  private static final class Entry {
+    Entry(byte[] bytes, long expires){
+      this.bytes = bytes;
+      this.expires = expires;
+    }
+    final byte[] bytes;
+    final long expires;
+  }
+
+  private final LruCache<String, Entry> cache = new LruCache<>(MAX_CACHE_SIZE);
+
+  /** Returns null if there's no entry, or if the entry has expired. An expired entry stays until it's replaced or dropped. */
+  private byte[] cached(String key) {
+    Entry entry = cache.get(key);
+    return (entry == null || entry.expires - System.nanoTime() <= 0) ? null : entry.bytes;
+  }
+
+  private void cache(String key, byte[] bytes) {
+    if (timeToLiveNanos > 0) {
+      cache.put(key, new Entry(bytes, System.nanoTime() + timeToLiveNanos));
+    }
+  }
+
+  /** Rethrows any problem as it was originally thrown by the render. */
+  private static byte[] await(CompletableFuture<byte[]> underWay) throws Exception {
+    try {
+      return underWay.join();
+    }
+    catch (CompletionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof Exception) throw (Exception)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw ex;
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package custom.solar.eclipse.viewer.server;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import custom.solar.eclipse.viewer.GraphicsBackend;
+import custom.solar.eclipse.viewer.OutputProfile;
+import custom.solar.eclipse.viewer.PageComposition;
+import custom.solar.eclipse.viewer.config.Config;
+import custom.solar.eclipse.viewer.config.ConfigFromParams;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.output.DiskCache;
+import custom.solar.eclipse.viewer.output.MemoryTarget;
+import custom.solar.eclipse.viewer.output.SizeEstimate;
+
+/**
+ Generate a viewer for the site given by the parameters of the request, and send it back as a PDF.
+
+ <P>Identical requests are coalesced, and recent results are cached for a short time; see {@link SingleFlightCache}.
+ Requests are identical when their configs have the same {@link Config#digest()}, and the server uses the same output settings.
+ Since the result is shared, it's generated in memory, and sent with its length, instead of being streamed as it's generated.
+
+ <P>If there's a disk cache, it's checked first, and each generated viewer is added to it.
+ A file from the disk cache is copied to the response a piece at a time, through a small buffer, without reading the whole file into memory.
+
+ <P>Admission control: at most a fixed number of viewers are generated at the same time, since generating a viewer
+ is all computation, and running more of them than there are cores only makes each one slower.
+ A limited number of other requests wait for their turn; beyond that, requests are turned away at once with 503 (Service Unavailable),
+ instead of piling up. A request that waits too long is turned away as well.
+ Requests that are coalesced with another don't count, since they generate nothing.
+*/
+final class ViewerHandler implements HttpHandler {
+
+  ViewerHandler(ConfigFromParams configs, int maxRenders, int maxWaiting, long maxWaitMillis, long cacheMillis, DiskCache diskCache, ServerStats stats) {
+    this.configs = configs;
+    this.renders = new Semaphore(maxRenders, true);
+    this.maxInside = maxRenders + maxWaiting;
+    this.maxWaitMillis = maxWaitMillis;
+    this.results = new SingleFlightCache(cacheMillis, stats);
+    this.diskCache = diskCache;
+    this.stats = stats;
+  }
+
+  @Override public void handle(HttpExchange exchange) throws IOException {
+    stats.requests.increment();
+    try {
+      if (!"GET".equalsIgnoreCase(exchange.getRequestMethod()) && !"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+        sendText(exchange, 405, "Use GET or POST.");
+        return;
+      }
+      Config config = null;
+      try {
+        Map<String, String> params = RequestParams.from(exchange);
+        config = configs.configFrom(params);
+      }
+      catch (IllegalArgumentException ex) {
+        stats.badRequests.increment();
+        sendText(exchange, 400, ex.getMessage());
+        return;
+      }
+      respond(exchange, config);
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  // PRIVATE
+
+  private final ConfigFromParams configs;
+  private final Semaphore renders;
+  private final int maxInside;
+  private final long maxWaitMillis;
+  private final SingleFlightCache results;
+  /** Null if there's no disk cache. */
+  private final DiskCache diskCache;
+  private final ServerStats stats;
+  /** Requests that are either rendering, or waiting to render. */
+  private final AtomicInteger inside = new AtomicInteger();
+  /** Sized from the viewers generated so far. */
+  private final SizeEstimate sizeEstimate = new SizeEstimate(INITIAL_SIZE_ESTIMATE);
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+  /** For HttpExchange, a length of 0 means chunked, not empty. */
+  private static final long NO_BODY = -1;
+  private static final int INITIAL_SIZE_ESTIMATE = 64 * 1024;
+  private static final String CONTENT_DISPOSITION = "inline; filename=\"EclipseViewer.pdf\"";
+
+  /** Turned away by admission control. */
+  private static final class Rejected extends Exception {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private void respond(HttpExchange exchange, Config config) throws IOException {
+    GraphicsBackend backend = GraphicsBackend.fromSystemProperty();
+    PageComposition composition = PageComposition.fromSystemProperty();
+    OutputProfile profile = OutputProfile.fromSystemProperty();
+    String key = config.digest() + "|" + backend + "|" + composition + "|" + profile;
+    try {
+      if (sentFromDisk(exchange, key)) return;
+      byte[] pdf = results.get(key, () -> store(key, admitted(() -> render(config, backend, composition, profile))));
+      exchange.getResponseHeaders().set("Content-Disposition", CONTENT_DISPOSITION);
+      send(exchange, 200, "application/pdf", pdf);
+      stats.served.increment();
+      stats.bytes.add(pdf.length);
+    }
+    catch (Rejected ex) {
+      stats.rejected.increment();
+      exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+      sendText(exchange, 503, "Too busy. Please try again shortly.");
+    }
+    catch (IllegalArgumentException ex) {
+      stats.badRequests.increment();
+      failed(exchange, 400, ex);
+    }
+    catch (Exception ex) {
+      stats.failed.increment();
+      failed(exchange, 500, ex);
+    }
+  }
+
+  /** Run the render when it's this request's turn. */
+  private byte[] admitted(SingleFlightCache.Render render) throws Exception {
+    if (inside.incrementAndGet() > maxInside) {
+      inside.decrementAndGet();
+      throw new Rejected();
+    }
+    try {
+      if (!renders.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+        throw new Rejected();
+      }
+      try {
+        return render.render();
+      }
+      finally {
+        renders.release();
+      }
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new Rejected();
+    }
+    finally {
+      inside.decrementAndGet();
+    }
+  }
+
+  private byte[] render(Config config, GraphicsBackend backend, PageComposition composition, OutputProfile profile) throws Exception {
+    MemoryTarget target = new MemoryTarget(sizeEstimate);
+    GenerateViewer viewer = new GenerateViewer(config);
+    viewer.outputTo(target.open(), backend, composition, profile);
+    log("Viewer for " + config.location() + ": " + target);
+    return target.toByteArray();
+  }
+
+  /** Returns false if there's no disk cache, or if it doesn't have the file. */
+  private boolean sentFromDisk(HttpExchange exchange, String key) throws IOException {
+    if (diskCache == null) return false;
+    try (FileChannel file = diskCache.open(key)) {
+      if (file == null) return false;
+      exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+      exchange.getResponseHeaders().set("Content-Disposition", CONTENT_DISPOSITION);
+      exchange.sendResponseHeaders(200, file.size());
+      try (OutputStream body = exchange.getResponseBody()) {
+        stats.bytes.add(DiskCache.transfer(file, body));
+      }
+      stats.diskHits.increment();
+      stats.served.increment();
+      return true;
+    }
+  }
+
+  /** A viewer that can't be saved to the disk cache can still be sent. */
+  private byte[] store(String key, byte[] pdf) {
+    if (diskCache != null) {
+      try {
+        diskCache.put(key, pdf);
+      }
+      catch (IOException ex) {
+        warn("Can't save the viewer to the disk cache: " + ex);
+      }
+    }
+    return pdf;
+  }
+
+  private void failed(HttpExchange exchange, int status, Exception ex) throws IOException {
+    warn("Viewer not generated: " + ex);
+    sendText(exchange, status, ex.getMessage() == null ? ex.toString() : ex.getMessage());
+  }
+
+  static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+    send(exchange, status, "text/plain; charset=utf-8", text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static void send(HttpExchange exchange, int status, String contentType, byte[] bytes) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? NO_BODY : bytes.length);
+    try (OutputStream body = exchange.getResponseBody()) {
+      body.write(bytes);
+    }
+  }
+}
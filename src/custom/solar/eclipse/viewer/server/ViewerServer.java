@@ -0,0 +1,192 @@
+package custom.solar.eclipse.viewer.server;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.log;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.itextpdf.text.DocumentException;
+import com.sun.net.httpserver.HttpServer;
+
+import custom.solar.eclipse.viewer.config.ConfigFromParams;
+import custom.solar.eclipse.viewer.draw.GenerateViewer;
+import custom.solar.eclipse.viewer.metrics.Metrics;
+import custom.solar.eclipse.viewer.output.DiskCache;
+import custom.solar.eclipse.viewer.util.CountingOutputStream;
+
+/**
+ A web service that generates a viewer for any site, using the JDK's built-in HTTP server.
+
+ <P>Requests:
+ <ul>
+  <li><em>GET /viewer?location_name=...&amp;location_latitude=...</em>, or a POST of the same parameters as a web form or as a JSON object. 
+  The parameters have the same names as the settings in the config file; see {@link ConfigFromParams}. 
+  The response is the PDF. 
+  Identical requests arriving together generate only one viewer, and recent results are cached for a short time.
+  <li><em>GET /stats</em>: counts of requests, as JSON, including the number of coalesced requests and cache hits.
+  <li><em>GET /metrics</em>: the time taken by each stage of generating viewers, as JSON; see {@link Metrics}.
+ </ul>
+
+ <P>Each request runs on its own thread. 
+ On JDK 21 and later, that's a virtual thread, since a request spends most of its time waiting for its turn, or for the network. 
+ The project still builds and runs on JDK 17, where a pool of platform threads that grows as needed is used instead.
+ The number of viewers generated at the same time is bounded; see {@link ViewerHandler} for the admission control.
+
+ <P>Everything that doesn't depend on the request is loaded once, and shared by all requests: 
+ the base config, the catalog of Besselian elements, the registered fonts, and the caches used by the drawing code.
+ Before accepting requests, the server generates one viewer for the base config, to load all of those, and to warm up the JIT compiler.
+
+ <P>When running as a standalone program, the defaults can be changed with the command line settings (along with those for 
+ {@link custom.solar.eclipse.viewer.GraphicsBackend}, {@link custom.solar.eclipse.viewer.PageComposition}, 
+ and {@link custom.solar.eclipse.viewer.OutputProfile}):
+
+ {@code -DviewerPort=8080 -DviewerMaxRenders=4 -DviewerMaxWaiting=64 -DviewerMaxWaitMillis=10000 -DviewerCacheMillis=60000}
+ 
+ <P>The max renders defaults to the number of available processors. 
+ A cache time of 0 turns off the cache, but identical requests that overlap are still coalesced.
+ 
+ <P>To keep the generated viewers on the disk as well, across restarts, pass a directory, and optionally the most megabytes to keep there
+ (see {@link DiskCache}):
+ 
+ {@code -DviewerCacheDir=/var/cache/viewers -DviewerCacheMegabytes=512}
+*/
+public final class ViewerServer {
+
+  /** Start a server with the settings from the System properties, and the default config file as the base config. */
+  public static void main(String... args) throws IOException, DocumentException {
+    int processors = Runtime.getRuntime().availableProcessors();
+    ViewerServer server = new ViewerServer(
+      new InetSocketAddress(Integer.getInteger("viewerPort", DEFAULT_PORT)), 
+      new ConfigFromParams(),
+      Integer.getInteger("viewerMaxRenders", processors), 
+      Integer.getInteger("viewerMaxWaiting", DEFAULT_MAX_WAITING), 
+      Long.getLong("viewerMaxWaitMillis", DEFAULT_MAX_WAIT_MILLIS),
+      Long.getLong("viewerCacheMillis", DEFAULT_CACHE_MILLIS),
+      diskCacheFromSystemProperties()
+    );
+    server.start();
+  }
+
+  /**
+   @param address use port 0 for any free port; see {@link #port()}.
+   @param maxRenders the most viewers that are generated at the same time.
+   @param maxWaiting the most requests that wait for their turn; more than that are turned away at once.
+   @param maxWaitMillis the longest time a request waits for its turn, before being turned away.
+   @param cacheMillis how long a generated viewer is kept in memory, for identical requests; 0 for no cache.
+   @param diskCache possibly null, for no disk cache.
+  */
+  public ViewerServer(InetSocketAddress address, ConfigFromParams configs, int maxRenders, int maxWaiting, long maxWaitMillis, long cacheMillis, DiskCache diskCache) throws IOException {
+    this.configs = configs;
+    //small responses otherwise wait on delayed acknowledgements from the client; must be set before the server is created
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(address, BACKLOG);
+    server.createContext("/viewer", new ViewerHandler(configs, maxRenders, maxWaiting, maxWaitMillis, cacheMillis, diskCache, stats));
+    server.createContext("/stats", exchange -> {
+      try {
+        ViewerHandler.send(exchange, 200, "application/json", stats.toJson().getBytes(StandardCharsets.UTF_8));
+      }
+      finally {
+        exchange.close();
+      }
+    });
+    server.createContext("/metrics", exchange -> {
+      try {
+        ViewerHandler.send(exchange, 200, "application/json", Metrics.toJson().getBytes(StandardCharsets.UTF_8));
+      }
+      finally {
+        exchange.close();
+      }
+    });
+    executor = requestExecutor();
+    server.setExecutor(executor);
+    log("Viewer server: at most " + maxRenders + " viewers generated at the same time, and " + maxWaiting + " waiting.");
+  }
+
+  /** Warm up, then start accepting requests. Returns right away; the server runs on its own threads. */
+  public void start() throws IOException, DocumentException {
+    log("Warming up: generating a viewer for the base config.");
+    new GenerateViewer(configs.configFrom(new LinkedHashMap<>())).outputTo(new CountingOutputStream());
+    server.start();
+    log("Viewer server listening on port " + port() + ".");
+  }
+
+  /** Stop accepting requests, and wait a short time for the current ones to finish. */
+  public void stop() {
+    server.stop(STOP_DELAY_SECONDS);
+    executor.shutdown();
+  }
+
+  /** The port the server is listening on. */
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  /** Counts of requests, as a JSON object. The same as the response to <em>/stats</em>. */
+  public String stats() {
+    return stats.toJson();
+  }
+
+  // PRIVATE
+
+  private final ConfigFromParams configs;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final ServerStats stats = new ServerStats();
+
+  private static final int DEFAULT_PORT = 8080;
+  private static final int DEFAULT_MAX_WAITING = 64;
+  private static final long DEFAULT_MAX_WAIT_MILLIS = 10_000;
+  /** Short, since the point is to absorb a burst of identical requests, not to serve them for long. */
+  private static final long DEFAULT_CACHE_MILLIS = 60_000;
+  private static final long DEFAULT_DISK_CACHE_MEGABYTES = 512;
+  /** The pending connections queued by the operating system. 0 means the system's default. */
+  private static final int BACKLOG = 0;
+  private static final int STOP_DELAY_SECONDS = 2;
+
+  /** Returns null if no directory is given. */
+  private static DiskCache diskCacheFromSystemProperties() throws IOException {
+    String dir = System.getProperty("viewerCacheDir");
+    if (dir == null || dir.trim().isEmpty()) return null;
+    long megabytes = Long.getLong("viewerCacheMegabytes", DEFAULT_DISK_CACHE_MEGABYTES);
+    return new DiskCache(Paths.get(dir.trim()), megabytes * 1024 * 1024);
+  }
+
+  /**
+   A virtual thread per request, if the JDK has them.
+   Looked up by reflection, since the project is compiled for JDK 17, which doesn't.
+  */
+  private static ExecutorService requestExecutor() {
+    ExecutorService result = null;
+    try {
+      Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      result = (ExecutorService)virtualThreads.invoke(null);
+      log("Each request runs on a virtual thread.");
+    }
+    catch (NoSuchMethodException ex) {
+      result = Executors.newCachedThreadPool(new RequestThreads());
+      log("Each request runs on a platform thread. Virtual threads need JDK 21 or later.");
+    }
+    catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException("Can't create the virtual threads.", ex);
+    }
+    return result;
+  }
+
+  /** Daemon threads, named for the thread dumps. Used only when virtual threads aren't available. */
+  private static final class RequestThreads implements ThreadFactory {
+    @Override public Thread newThread(Runnable task) {
+      Thread result = new Thread(task, "viewer-request-" + count.incrementAndGet());
+      result.setDaemon(true);
+      return result;
+    }
+    private final AtomicInteger count = new AtomicInteger();
+  }
+}
@@ -0,0 +1,6 @@
+/**
+ An embedded web service that generates viewers on request, using the JDK's own HTTP server. No servlet container is needed.
+
+ <P>See {@link custom.solar.eclipse.viewer.server.ViewerServer}.
+*/
+package custom.solar.eclipse.viewer.server;
@@ -0,0 +1,84 @@
+package custom.solar.eclipse.viewer.sites;
+
+import custom.solar.eclipse.viewer.math.Maths;
+
+/**
+ A block of consecutive sites from a large list, stored as columns of primitives.
+
+ <P>Each column is a single array, allocated once, instead of one object for each site.
+ The angles are in radians, as in {@link custom.solar.eclipse.viewer.config.Config}.
+ The offset of the time zone is in minutes, and is negative west of Greenwich.
+
+ <P>Not thread-safe. A chunk is filled by one thread, and then handed to another through a queue,
+ which makes the values visible to the other thread.
+*/
+public final class SiteChunk {
+
+  /** Put in a queue of chunks after the last one, to tell the consumer that there are no more. */
+  public static final SiteChunk END_OF_INPUT = new SiteChunk(-1, 0);
+
+  /**
+   @param number the position of this chunk in the input, starting at 0.
+   @param capacity the most sites held by this chunk.
+  */
+  public SiteChunk(long number, int capacity) {
+    this.number = number;
+    this.names = new String[capacity];
+    this.latitudes = new double[capacity];
+    this.longitudes = new double[capacity];
+    this.altitudes = new double[capacity];
+    this.zoneMinutes = new int[capacity];
+  }
+
+  /** The position of this chunk in the input, starting at 0. */
+  public long number() { return number; }
+
+  /** The number of sites in this chunk. */
+  public int size() { return size; }
+
+  public boolean isFull() { return size == names.length; }
+
+  public String name(int idx) { return names[idx]; }
+  /** Radians. */
+  public double latitude(int idx) { return latitudes[idx]; }
+  /** Radians, positive east of Greenwich. */
+  public double longitude(int idx) { return longitudes[idx]; }
+  /** Meters. */
+  public double altitude(int idx) { return altitudes[idx]; }
+  /** Minutes, negative west of Greenwich. */
+  public int zoneMinutes(int idx) { return zoneMinutes[idx]; }
+
+  /**
+   Add a site to the end of this chunk.
+   @param latitude degrees
+   @param longitude degrees, positive east of Greenwich
+   @param altitude meters
+   @param zoneMinutes negative west of Greenwich
+   @throws IllegalStateException if the chunk is full.
+  */
+  public void add(String name, double latitude, double longitude, double altitude, int zoneMinutes) {
+    if (isFull()) {
+      throw new IllegalStateException("The chunk is full: " + size + " sites.");
+    }
+    names[size] = name;
+    latitudes[size] = Maths.degToRads(latitude);
+    longitudes[size] = Maths.degToRads(longitude);
+    altitudes[size] = altitude;
+    this.zoneMinutes[size] = zoneMinutes;
+    ++size;
+  }
+
+  @Override public String toString() {
+    return "Chunk " + number + ": " + size + " sites";
+  }
+
+  // PRIVATE
+
+  private final long number;
+  private final String[] names;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final double[] altitudes;
+  private final int[] zoneMinutes;
+  private int size;
+}
@@ -0,0 +1,271 @@
+package custom.solar.eclipse.viewer.sites;
+
+import static custom.solar.eclipse.viewer.util.LogUtil.warn;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+
+import custom.solar.eclipse.viewer.util.DataFileReader;
+
+/**
+ Read a large list of sites, one chunk at a time, without holding the whole file in memory.
+
+ <P>The file is text (UTF-8), with one site on each line, and five fields separated by commas (CSV) or tabs (TSV):
+ <ul>
+  <li>name: in double quotes if it contains the separator; a double quote inside the quotes is written twice.
+  <li>latitude, in degrees.
+  <li>longitude, in degrees, positive east of Greenwich.
+  <li>altitude, in meters.
+  <li>offset of the time zone from UT, in hours, negative west of Greenwich: for example <em>-3</em>, <em>5.5</em>, or <em>-3:30</em>.
+ </ul>
+
+ <P>Blank lines, and lines starting with {@value DataFileReader#COMMENT}, are ignored.
+ The first line is taken as a header, and ignored, if its latitude isn't a number.
+ Any other line that can't be read, or has a latitude or longitude out of range, is skipped, and counted.
+
+ <P>Speed: the fields are found by scanning for the separator, not with a regular expression,
+ and the numbers are parsed directly from the line, without a String for each field.
+ Only the name of each site becomes a new object.
+
+ <P>Not thread-safe.
+*/
+public final class SiteReader implements Closeable {
+
+  /** Files ending in <em>.tsv</em> or <em>.tab</em> are separated by tabs; others by commas. */
+  public static SiteReader open(Path file) throws IOException {
+    String name = file.getFileName().toString().toLowerCase();
+    char separator = name.endsWith(".tsv") || name.endsWith(".tab") ? TAB : COMMA;
+    return new SiteReader(Files.newBufferedReader(file, DataFileReader.ENCODING), separator);
+  }
+
+  /** @param separator usually a comma or a tab. */
+  public SiteReader(Reader reader, char separator) {
+    this.reader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader, BUFFER_SIZE);
+    this.separator = separator;
+  }
+
+  /** The next chunk of at most the given number of sites. Returns null when there are no more. */
+  public SiteChunk next(int capacity) throws IOException {
+    SiteChunk result = null;
+    String line = null;
+    while ((result == null || !result.isFull()) && (line = reader.readLine()) != null) {
+      ++lineNumber;
+      if (isIgnored(line)) continue;
+      if (result == null) {
+        result = new SiteChunk(chunkCount++, capacity);
+      }
+      if (add(line, result)) {
+        ++rowsRead;
+      }
+    }
+    return result;
+  }
+
+  /**
+   Read the whole input, and put each chunk in the given queue, followed by {@link SiteChunk#END_OF_INPUT}.
+   If the queue is full, wait until the consumer makes room; the queue's capacity bounds the memory used.
+   The end marker is put in the queue even if the input can't be read, so that the consumer doesn't wait forever.
+  */
+  public void sendTo(BlockingQueue<SiteChunk> queue, int chunkSize) throws IOException, InterruptedException {
+    try {
+      SiteChunk chunk = null;
+      while ((chunk = next(chunkSize)) != null) {
+        queue.put(chunk);
+      }
+    }
+    finally {
+      queue.put(SiteChunk.END_OF_INPUT);
+    }
+  }
+
+  /** The number of sites read so far. */
+  public long rowsRead() { return rowsRead; }
+
+  /** The number of lines skipped so far, since they couldn't be read. */
+  public long rowsSkipped() { return rowsSkipped; }
+
+  @Override public void close() throws IOException {
+    reader.close();
+  }
+
+  // PRIVATE
+
+  private final BufferedReader reader;
+  private final char separator;
+  private long lineNumber;
+  private long chunkCount;
+  private long rowsRead;
+  private long rowsSkipped;
+  private boolean pastHeader;
+  /** The position of the separator after each field, on the current line. Reused for every line. */
+  private final int[] fieldEnds = new int[NUM_FIELDS];
+
+  private static final char COMMA = ',';
+  private static final char TAB = '\t';
+  private static final char QUOTE = '"';
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_WARNINGS = 10;
+  private static final int NUM_FIELDS = 5;
+
+  /**
+   Powers of ten that are exact as doubles.
+   Dividing an exact integer by one of them gives the correctly rounded result, the same as Double.parseDouble.
+  */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  /** Integers above this are not all exact as doubles. */
+  private static final long MAX_EXACT = 1L << 53;
+
+  private boolean isIgnored(String line) {
+    int start = skipSpaces(line, 0, line.length());
+    return start == line.length() || line.startsWith(DataFileReader.COMMENT, start);
+  }
+
+  /** Returns false if the line is a header, or is skipped. */
+  private boolean add(String line, SiteChunk chunk) {
+    boolean isFirst = !pastHeader;
+    pastHeader = true;
+    int[] ends = fieldEnds;
+    String name = null;
+    int start = skipSpaces(line, 0, line.length());
+    if (line.charAt(start) == QUOTE) {
+      int close = closingQuote(line, start);
+      if (close < 0) return skip(line, "no closing quote");
+      name = unquote(line, start + 1, close);
+      ends[0] = line.indexOf(separator, close);
+    }
+    else {
+      ends[0] = line.indexOf(separator);
+      name = ends[0] < 0 ? null : line.substring(0, ends[0]).trim();
+    }
+    if (ends[0] < 0) return skip(line, "fewer than " + NUM_FIELDS + " fields");
+    for (int field = 1; field < NUM_FIELDS; ++field) {
+      int next = line.indexOf(separator, ends[field - 1] + 1);
+      if (next < 0 && field < NUM_FIELDS - 1) return skip(line, "fewer than " + NUM_FIELDS + " fields");
+      ends[field] = next < 0 ? line.length() : next; //any fields after the last are ignored
+    }
+    double latitude = number(line, ends[0] + 1, ends[1]);
+    if (isFirst && Double.isNaN(latitude)) {
+      return false; //a header
+    }
+    double longitude = number(line, ends[1] + 1, ends[2]);
+    double altitude = number(line, ends[2] + 1, ends[3]);
+    double zoneHours = hours(line, ends[3] + 1, ends[4]);
+    if (Double.isNaN(latitude) || Double.isNaN(longitude) || Double.isNaN(altitude) || Double.isNaN(zoneHours)) {
+      return skip(line, "not a number");
+    }
+    if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180 || Math.abs(zoneHours) > 14) {
+      return skip(line, "out of range");
+    }
+    chunk.add(name, latitude, longitude, altitude, (int)Math.round(zoneHours * 60));
+    return true;
+  }
+
+  private boolean skip(String line, String reason) {
+    ++rowsSkipped;
+    if (rowsSkipped <= MAX_WARNINGS) {
+      warn("Site skipped, line " + lineNumber + " (" + reason + "): " + line);
+    }
+    else if (rowsSkipped == MAX_WARNINGS + 1) {
+      warn("More sites skipped; only the first " + MAX_WARNINGS + " are listed.");
+    }
+    return false;
+  }
+
+  /** Returns -1 if there's no closing quote. A doubled quote is part of the text. */
+  private static int closingQuote(String line, int open) {
+    int pos = open + 1;
+    while (pos < line.length()) {
+      if (line.charAt(pos) == QUOTE) {
+        if (pos + 1 < line.length() && line.charAt(pos + 1) == QUOTE) {
+          pos += 2;
+          continue;
+        }
+        return pos;
+      }
+      ++pos;
+    }
+    return -1;
+  }
+
+  private static String unquote(String line, int start, int end) {
+    String result = line.substring(start, end);
+    return result.indexOf(QUOTE) < 0 ? result : result.replace("\"\"", "\"");
+  }
+
+  /** Decimal hours, or hours and minutes: -3:30 is -3.5 hours. */
+  private static double hours(String line, int start, int end) {
+    int colon = line.indexOf(':', start);
+    if (colon < 0 || colon >= end) return number(line, start, end);
+    double hours = number(line, start, colon);
+    double minutes = number(line, colon + 1, end);
+    boolean negative = line.charAt(skipSpaces(line, start, colon)) == '-';
+    return hours + (negative ? -minutes : minutes) / 60.0;
+  }
+
+  /**
+   A number in plain decimal notation, such as <em>-64.120</em>, parsed from the characters between start and end.
+   Other forms, such as <em>1e3</em>, are passed to Double.parseDouble.
+   Returns NaN if it's not a number.
+  */
+  static double number(String line, int start, int end) {
+    int from = skipSpaces(line, start, end);
+    int to = end;
+    while (to > from && line.charAt(to - 1) == ' ') --to;
+    if (from == to) return Double.NaN;
+    int pos = from;
+    boolean negative = false;
+    char first = line.charAt(pos);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      ++pos;
+    }
+    long digits = 0;
+    int decimals = 0;
+    boolean hasDigit = false;
+    boolean hasPoint = false;
+    for (; pos < to; ++pos) {
+      char c = line.charAt(pos);
+      if (c >= '0' && c <= '9') {
+        digits = digits * 10 + (c - '0');
+        hasDigit = true;
+        if (hasPoint) ++decimals;
+        if (digits >= MAX_EXACT) return slowNumber(line, from, to);
+      }
+      else if (c == '.' && !hasPoint) {
+        hasPoint = true;
+      }
+      else {
+        return slowNumber(line, from, to);
+      }
+    }
+    if (!hasDigit || decimals >= POWERS_OF_TEN.length) return slowNumber(line, from, to);
+    double result = digits / POWERS_OF_TEN[decimals];
+    return negative ? -result : result;
+  }
+
+  private static double slowNumber(String line, int from, int to) {
+    try {
+      return Double.parseDouble(line.substring(from, to));
+    }
+    catch (NumberFormatException ex) {
+      return Double.NaN;
+    }
+  }
+
+  /** Tabs aren't skipped, since they can be separators. */
+  private static int skipSpaces(String line, int start, int end) {
+    int result = start;
+    while (result < end && line.charAt(result) == ' ') {
+      ++result;
+    }
+    return result;
+  }
+}
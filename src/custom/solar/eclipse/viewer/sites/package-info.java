@@ -0,0 +1,5 @@
+/** 
+ Read long lists of sites, for computing the circumstances of an eclipse at many places at once. 
+ See {@link custom.solar.eclipse.viewer.BuildCircumstances}.
+*/
+package custom.solar.eclipse.viewer.sites;
@@ -0,0 +1,45 @@
+package custom.solar.eclipse.viewer.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** 
+ Count the bytes passing through to an underlying stream.
+ If there's no underlying stream, then the bytes are simply discarded (useful for benchmarks). 
+*/
+public final class CountingOutputStream extends OutputStream {
+
+  /** @param out the underlying stream; if null, then the bytes are discarded. */
+  public CountingOutputStream(OutputStream out) {
+    this.out = out;
+  }
+  
+  /** Discard all bytes, and simply count them. */
+  public CountingOutputStream() {
+    this(null);
+  }
+  
+  /** The number of bytes written so far. */
+  public long count() { return count; }
+
+  @Override public void write(int b) throws IOException {
+    if (out != null) out.write(b);
+    ++count;
+  }
+  
+  @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+    if (out != null) out.write(bytes, offset, length);
+    count = count + length;
+  }
+  
+  @Override public void flush() throws IOException {
+    if (out != null) out.flush();
+  }
+  
+  @Override public void close() throws IOException {
+    if (out != null) out.close();
+  }
+  
+  private OutputStream out;
+  private long count;
+}
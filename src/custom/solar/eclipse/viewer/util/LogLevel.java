@@ -0,0 +1,45 @@
+package custom.solar.eclipse.viewer.util;
+
+import java.util.Arrays;
+
+/**
+ The levels of logging, from the most detailed to none at all. See {@link LogUtil}.
+ Messages below the chosen level are ignored.
+
+ <P>The level can be changed with the command line setting:
+
+ {@code -DviewerLogLevel=WARN}
+*/
+public enum LogLevel {
+
+  /** Details of each step, for tracking down a problem. */
+  DEBUG,
+
+  /** The progress of the work. The default. */
+  INFO,
+
+  /** Only problems. */
+  WARN,
+
+  /** Nothing at all. In a servlet environment, it may be convenient to turn off all logging. */
+  OFF;
+
+  /**
+   Returns the value of the System property, if present; otherwise, returns {@link #INFO}.
+   An unknown value also gives {@link #INFO}, with a one-line complaint to System.err.
+   (This is called while {@link LogUtil} is being initialized, so an exception here would stop any logging at all.)
+  */
+  public static LogLevel fromSystemProperty() {
+    String value = System.getProperty("viewerLogLevel");
+    LogLevel result = INFO;
+    if (value != null) {
+      try {
+        result = valueOf(value.trim().toUpperCase());
+      }
+      catch (IllegalArgumentException ex) {
+        System.err.println("Unknown viewerLogLevel '" + value + "', using " + INFO + ". Expected one of " + Arrays.toString(values()) + ".");
+      }
+    }
+    return result;
+  }
+}
@@ -1,26 +1,166 @@
 package custom.solar.eclipse.viewer.util;
 
-/** 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
  Simple utility logging methods.
 
- Centralizing these policies makes it easier to change them, 
- if the logging requirements change. 
+ Centralizing these policies makes it easier to change them,
+ if the logging requirements change.
+
+ <P>Each message has a level (see {@link LogLevel}); messages below the chosen level are ignored.
+ When a message is expensive to build, pass a Supplier instead: it's called only if the level is enabled,
+ so a disabled message costs nothing but the check of the level.
+
+ <P>By default, messages are written to System.out by a background thread, through a bounded queue.
+ The callers don't wait on the console, unless the queue is full.
+ The messages are written in the order they're logged, and any still in the queue are written when the program exits.
+ To write each message at once, on the caller's thread, use the command line setting:
+
+ {@code -DviewerLogAsync=false}
+
+ <P>Thread-safe.
 */
 public final class LogUtil {
- 
+
  public static void log(Object thing) {
-   if (LOGGING_ON) {
-     System.out.println(thing.toString());
+   append(LogLevel.INFO, thing);
+ }
+
+ /** The message is built only if the level {@link LogLevel#INFO} is enabled. */
+ public static void log(Supplier<?> thing) {
+   if (isEnabled(LogLevel.INFO)) {
+     append(LogLevel.INFO, thing.get());
    }
  }
- 
+
  public static void warn(Object thing) {
-   if (LOGGING_ON) {
-     System.out.println("WARNING!!: " + thing.toString());
+   append(LogLevel.WARN, thing);
+ }
+
+ /** The message is built only if the level {@link LogLevel#WARN} is enabled. */
+ public static void warn(Supplier<?> thing) {
+   if (isEnabled(LogLevel.WARN)) {
+     append(LogLevel.WARN, thing.get());
+   }
+ }
+
+ public static void debug(Object thing) {
+   append(LogLevel.DEBUG, thing);
+ }
+
+ /** The message is built only if the level {@link LogLevel#DEBUG} is enabled. */
+ public static void debug(Supplier<?> thing) {
+   if (isEnabled(LogLevel.DEBUG)) {
+     append(LogLevel.DEBUG, thing.get());
+   }
+ }
+
+ public static boolean isEnabled(LogLevel level) {
+   return level != LogLevel.OFF && level.ordinal() >= THRESHOLD;
+ }
+
+ /**
+  Wait until every message logged so far has been written, for at most a few seconds.
+  Called before writing to System.out directly, so that the output isn't mixed up.
+ */
+ public static void flush() {
+   if (APPENDER != null) {
+     APPENDER.flush();
    }
  }
 
- /** In a servlet environment, it may be convenient to turn off all logging. */
- private static final boolean LOGGING_ON = true;
+ // PRIVATE
+
+ private static final int THRESHOLD = LogLevel.fromSystemProperty().ordinal();
+ /** Null if messages are written on the caller's thread. */
+ private static final Appender APPENDER = !"false".equalsIgnoreCase(System.getProperty("viewerLogAsync")) ? new Appender() : null;
+
+ private static void append(LogLevel level, Object thing) {
+   if (isEnabled(level)) {
+     String line = level == LogLevel.WARN ? "WARNING!!: " + thing.toString() : thing.toString();
+     if (APPENDER == null) {
+       System.out.println(line);
+     }
+     else {
+       APPENDER.append(line);
+     }
+   }
+ }
+
+ /** Writes the messages to System.out on a daemon thread, in batches. */
+ private static final class Appender {
+   Appender() {
+     Thread writer = new Thread(this::writeAll, "log-appender");
+     writer.setDaemon(true);
+     writer.start();
+     Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "log-flush"));
+   }
+
+   /** If the queue is full, wait for room, so that no message is lost. */
+   void append(String line) {
+     appended.incrementAndGet();
+     try {
+       queue.put(line);
+     }
+     catch (InterruptedException ex) {
+       Thread.currentThread().interrupt();
+       System.out.println(line); //out of order, but not lost
+       written(1);
+     }
+   }
+
+   void flush() {
+     long target = appended.get();
+     long deadline = System.currentTimeMillis() + FLUSH_MILLIS;
+     synchronized (this) {
+       long remaining = FLUSH_MILLIS;
+       while (written.get() < target && remaining > 0) {
+         try {
+           wait(remaining);
+         }
+         catch (InterruptedException ex) {
+           Thread.currentThread().interrupt();
+           return;
+         }
+         remaining = deadline - System.currentTimeMillis();
+       }
+     }
+   }
+
+   private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CAPACITY);
+   private final AtomicLong appended = new AtomicLong();
+   private final AtomicLong written = new AtomicLong();
+   /** Large enough that a burst of messages rarely makes the caller wait. */
+   private static final int CAPACITY = 8192;
+   private static final long FLUSH_MILLIS = 5000;
 
+   private void writeAll() {
+     List<String> batch = new ArrayList<>();
+     while (true) {
+       try {
+         batch.add(queue.take());
+       }
+       catch (InterruptedException ex) {
+         return;
+       }
+       queue.drainTo(batch);
+       for (String line : batch) {
+         System.out.println(line);
+       }
+       written(batch.size());
+       batch.clear();
+     }
+   }
+
+   private synchronized void written(int count) {
+     written.addAndGet(count);
+     notifyAll();
+   }
+ }
 }
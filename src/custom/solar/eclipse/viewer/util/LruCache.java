@@ -0,0 +1,165 @@
+package custom.solar.eclipse.viewer.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ A cache of bounded size. When it's full, the least-recently used entries are dropped first.
+
+ <P>Used for results that are slow to compute, and that are asked for over and over again with the same few keys.
+ {@link #get(Object, Computation)} computes a missing value outside of the lock, so that a slow computation
+ doesn't hold up the lookups of other keys.
+ Each value is computed only once, even when several threads ask for it at the same time: the first one does the work,
+ and the others wait for its result.
+ If the computation fails, then its exception goes to the thread that ran it, and nothing is cached;
+ the threads that were waiting for it each try again.
+
+ <P>Null values are allowed.
+ The number of hits and misses of {@link #get(Object, Computation)} is counted, for reporting.
+ Thread-safe.
+*/
+public final class LruCache<K, V> {
+
+  /** Computes the value for a key. Any checked exception is passed on to the caller. */
+  @FunctionalInterface
+  public interface Computation<K, V, E extends Exception> {
+    V compute(K key) throws E;
+  }
+
+  /** @param maxSize the largest number of entries that are kept; at least 1. */
+  public LruCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The size of a cache must be at least 1: " + maxSize);
+    }
+    this.entries = new LinkedHashMap<K, Slot<V>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override protected boolean removeEldestEntry(Map.Entry<K, Slot<V>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /** The value for the given key. If it's not in the cache, then it's computed, and added to the cache. */
+  public <E extends Exception> V get(K key, Computation<K, V, E> computation) throws E {
+    while (true) {
+      Slot<V> slot = null;
+      boolean isMine = false;
+      synchronized (entries) {
+        slot = entries.get(key);
+        if (slot == null) {
+          slot = new Slot<>();
+          entries.put(key, slot);
+          isMine = true;
+        }
+      }
+      if (isMine) {
+        misses.increment();
+        return computeInto(slot, key, computation);
+      }
+      if (slot.await()) {
+        hits.increment();
+        return slot.value;
+      }
+      //the thread computing it failed, and removed it: start over
+    }
+  }
+
+  /** The value for the given key; null if there's none yet. Doesn't wait for a value that's being computed. */
+  public V get(K key) {
+    Slot<V> slot = null;
+    synchronized (entries) {
+      slot = entries.get(key);
+    }
+    return slot == null ? null : slot.valueIfDone();
+  }
+
+  /** Add or replace the value for the given key. */
+  public void put(K key, V value) {
+    Slot<V> slot = new Slot<>();
+    slot.complete(value);
+    synchronized (entries) {
+      entries.put(key, slot);
+    }
+  }
+
+  /** The number of entries, including those still being computed. */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** The number of values that were found in the cache, or computed by another thread. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** The number of values that were computed. */
+  public long misses() {
+    return misses.sum();
+  }
+
+  // PRIVATE
+
+  private final Map<K, Slot<V>> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /** Holds a value while it's being computed, and after. */
+  private static final class Slot<V> {
+    synchronized void complete(V value) {
+      this.value = value;
+      this.state = DONE;
+      notifyAll();
+    }
+    synchronized void fail() {
+      this.state = FAILED;
+      notifyAll();
+    }
+    /** Returns false if the computation failed. Not interrupted by {@link Thread#interrupt()}, but keeps the interrupt. */
+    synchronized boolean await() {
+      boolean isInterrupted = false;
+      while (state == PENDING) {
+        try {
+          wait();
+        }
+        catch (InterruptedException ex) {
+          isInterrupted = true;
+        }
+      }
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return state == DONE;
+    }
+    synchronized V valueIfDone() {
+      return state == DONE ? value : null;
+    }
+    /** Read only after {@link #await()} returns true, which makes it visible. */
+    private V value;
+    private int state = PENDING;
+    private static final int PENDING = 0;
+    private static final int DONE = 1;
+    private static final int FAILED = 2;
+  }
+
+  /** On failure, the slot is removed before the waiting threads are woken, so that they don't find it again. */
+  private <E extends Exception> V computeInto(Slot<V> slot, K key, Computation<K, V, E> computation) throws E {
+    boolean isDone = false;
+    try {
+      V result = computation.compute(key);
+      slot.complete(result);
+      isDone = true;
+      return result;
+    }
+    finally {
+      if (!isDone) {
+        synchronized (entries) {
+          entries.remove(key, slot);
+        }
+        slot.fail();
+      }
+    }
+  }
+}
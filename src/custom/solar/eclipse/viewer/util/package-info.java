@@ -1,2 +1,2 @@
-/** Logging and reading data files. */
+/** Logging, reading data files, and a small cache. */
 package custom.solar.eclipse.viewer.util;
\ No newline at end of file
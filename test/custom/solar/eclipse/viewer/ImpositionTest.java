@@ -0,0 +1,151 @@
+package custom.solar.eclipse.viewer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfTemplate;
+
+import custom.solar.eclipse.viewer.Imposition.Duplex;
+import custom.solar.eclipse.viewer.Imposition.Sheet;
+
+/** The grid of cards on a sheet, and where the backs land when the sheet is printed two-sided. */
+final class ImpositionTest {
+
+  @Test void gridIsCenteredOnTheSheet() {
+    //tabloid: 2 columns of 306 and 3 rows of 396 fit in 792x1224, less a margin of 18 on each side
+    Imposition.Layout layout = new Imposition(Sheet.TABLOID, Duplex.FLIP_ON_LONG_EDGE).layoutFor(CARD_WIDTH, CARD_HEIGHT);
+    assertEquals(792, layout.sheetWidth());
+    assertEquals(1224, layout.sheetHeight());
+    assertEquals(2, layout.columns());
+    assertEquals(3, layout.rows());
+    assertEquals(6, layout.cardsPerSheet());
+    //the grid is 612x1188, so it starts 90 from the left and 18 from the top
+    assertArrayEquals(new float[] {1, 0, 0, 1, 90, 1224 - 18 - CARD_HEIGHT}, placed(layout, 0, false), TOLERANCE);
+    assertArrayEquals(new float[] {1, 0, 0, 1, 90 + CARD_WIDTH, 18}, placed(layout, 5, false), TOLERANCE);
+  }
+
+  @Test void landscapeWhenMoreCardsFit() {
+    //portrait fits 1 column of 3 rows; landscape fits 2 columns of 2 rows
+    Imposition.Layout layout = new Imposition(Sheet.LETTER, Duplex.FLIP_ON_LONG_EDGE).layoutFor(350, 250);
+    assertEquals(792, layout.sheetWidth());
+    assertEquals(612, layout.sheetHeight());
+    assertEquals(4, layout.cardsPerSheet());
+  }
+
+  @Test void gutterBetweenCards() {
+    //(792 - 2*18 + 10) / (306 + 10) = 2.4, and (1224 - 2*18 + 10) / (396 + 10) = 2.9
+    Imposition.Layout layout = new Imposition(792, 1224, 10, 18, Duplex.FLIP_ON_LONG_EDGE).layoutFor(CARD_WIDTH, CARD_HEIGHT);
+    assertEquals(2, layout.columns());
+    assertEquals(2, layout.rows());
+    float left = (792 - (2 * CARD_WIDTH + 10)) / 2;
+    float top = 1224 - (1224 - (2 * CARD_HEIGHT + 10)) / 2;
+    assertArrayEquals(new float[] {1, 0, 0, 1, left + CARD_WIDTH + 10, top - 2 * CARD_HEIGHT - 10}, placed(layout, 3, false), TOLERANCE);
+  }
+
+  @Test void cardThatDoesNotFit() {
+    Imposition imposition = new Imposition(Sheet.LETTER, Duplex.FLIP_ON_LONG_EDGE);
+    assertThrows(IllegalArgumentException.class, () -> imposition.layoutFor(600, 800));
+  }
+
+  @Test void templateIsPlacedByItsBoundingBox() {
+    Imposition.Layout layout = new Imposition(Sheet.TABLOID, Duplex.FLIP_ON_LONG_EDGE).layoutFor(CARD_WIDTH, CARD_HEIGHT);
+    PdfTemplate card = card(new Rectangle(20, 30, 20 + CARD_WIDTH, 30 + CARD_HEIGHT));
+    Placements cb = new Placements();
+    layout.place(cb, card, 0, false);
+    assertArrayEquals(new float[] {1, 0, 0, 1, 90 - 20, 1224 - 18 - CARD_HEIGHT - 30}, cb.matrices.get(0), TOLERANCE);
+  }
+
+  @Test void flipOnLongEdgeOfPortraitSheetMirrorsTheColumns() {
+    Imposition.Layout layout = new Imposition(Sheet.TABLOID, Duplex.FLIP_ON_LONG_EDGE).layoutFor(CARD_WIDTH, CARD_HEIGHT);
+    //the front of the first card is at the top left; its back is at the top right, the right way up
+    assertArrayEquals(new float[] {1, 0, 0, 1, 90 + CARD_WIDTH, 1224 - 18 - CARD_HEIGHT}, placed(layout, 0, true), TOLERANCE);
+    assertBacksBehindFronts(layout, CARD_WIDTH, CARD_HEIGHT, true);
+  }
+
+  @Test void flipOnShortEdgeOfPortraitSheetMirrorsTheRows() {
+    Imposition.Layout layout = new Imposition(Sheet.TABLOID, Duplex.FLIP_ON_SHORT_EDGE).layoutFor(CARD_WIDTH, CARD_HEIGHT);
+    //the back of the first card is at the bottom left, upside down
+    assertArrayEquals(new float[] {-1, 0, 0, -1, 90 + CARD_WIDTH, 18 + CARD_HEIGHT}, placed(layout, 0, true), TOLERANCE);
+    assertBacksBehindFronts(layout, CARD_WIDTH, CARD_HEIGHT, false);
+  }
+
+  @Test void flipOnShortEdgeOfLandscapeSheetMirrorsTheColumns() {
+    Imposition.Layout layout = new Imposition(Sheet.LETTER, Duplex.FLIP_ON_SHORT_EDGE).layoutFor(350, 250);
+    assertEquals(792, layout.sheetWidth());
+    assertBacksBehindFronts(layout, 350, 250, true);
+  }
+
+  @Test void flipOnLongEdgeOfLandscapeSheetMirrorsTheRows() {
+    Imposition.Layout layout = new Imposition(Sheet.LETTER, Duplex.FLIP_ON_LONG_EDGE).layoutFor(350, 250);
+    assertEquals(792, layout.sheetWidth());
+    assertBacksBehindFronts(layout, 350, 250, false);
+  }
+
+  // PRIVATE
+
+  private static final float CARD_WIDTH = 306;
+  private static final float CARD_HEIGHT = 396;
+  private static final float TOLERANCE = 0.001f;
+
+  /** Records where each template is placed, instead of writing it. */
+  private static final class Placements extends PdfContentByte {
+    Placements() {
+      super(null);
+    }
+    @Override public void addTemplate(PdfTemplate template, float a, float b, float c, float d, float e, float f) {
+      matrices.add(new float[] {a, b, c, d, e, f});
+    }
+    final List<float[]> matrices = new ArrayList<>();
+  }
+
+  private static PdfTemplate card(Rectangle boundingBox) {
+    PdfTemplate result = new PdfTemplate() {};
+    result.setBoundingBox(boundingBox);
+    return result;
+  }
+
+  private static float[] placed(Imposition.Layout layout, int idx, boolean back) {
+    return placed(layout, CARD_WIDTH, CARD_HEIGHT, idx, back);
+  }
+
+  private static float[] placed(Imposition.Layout layout, float width, float height, int idx, boolean back) {
+    Placements cb = new Placements();
+    layout.place(cb, card(new Rectangle(0, 0, width, height)), idx, back);
+    return cb.matrices.get(0);
+  }
+
+  /**
+   Turning the sheet over mirrors it about its vertical axis (left to right), or its horizontal axis (top to bottom).
+   Each back must cover the mirror image of the area covered by its front.
+   When the sheet is turned top to bottom, the backs are also turned upside down, so that they read the right way up.
+  */
+  private static void assertBacksBehindFronts(Imposition.Layout layout, float width, float height, boolean leftToRight) {
+    for (int idx = 0; idx < layout.cardsPerSheet(); ++idx) {
+      float[] front = placed(layout, width, height, idx, false);
+      float[] back = placed(layout, width, height, idx, true);
+      float[] frontArea = area(front, width, height);
+      float[] backArea = area(back, width, height);
+      float[] mirrored = leftToRight ?
+        new float[] {layout.sheetWidth() - frontArea[2], frontArea[1], layout.sheetWidth() - frontArea[0], frontArea[3]} :
+        new float[] {frontArea[0], layout.sheetHeight() - frontArea[3], frontArea[2], layout.sheetHeight() - frontArea[1]}
+      ;
+      assertArrayEquals(mirrored, backArea, TOLERANCE, "card " + idx);
+      assertEquals(leftToRight ? 1 : -1, back[0], "card " + idx);
+    }
+  }
+
+  /** Left, bottom, right, top of a card placed with the given matrix; it's either upright, or turned upside down. */
+  private static float[] area(float[] matrix, float width, float height) {
+    float x = matrix[4];
+    float y = matrix[5];
+    return matrix[0] > 0 ? new float[] {x, y, x + width, y + height} : new float[] {x - width, y - height, x, y};
+  }
+}
@@ -0,0 +1,55 @@
+package custom.solar.eclipse.viewer.astrocalc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ Converting the hours from T0 to a date and time, near the ends of the day.
+ Uses Meeus' example: the eclipse of 1994-05-10, with T0 at 17h TT.
+*/
+final class WorksheetTest {
+
+  @Test void sameDay() {
+    assertEquals(LocalDateTime.of(1994, 5, 10, 17, 0), worksheet(0, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 10, 22, 59, 59), worksheet(6 - 1 / 3600.0, 0).UTC());
+  }
+
+  @Test void lastHourOfTheDay() {
+    assertEquals(LocalDateTime.of(1994, 5, 10, 23, 0), worksheet(6, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 10, 23, 30), worksheet(6.5, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 10, 23, 59, 59), worksheet(7 - 1 / 3600.0, 0).UTC());
+  }
+
+  @Test void lastHourAfterSubtractingΔT() {
+    assertEquals(LocalDateTime.of(1994, 5, 11, 0, 0), worksheet(7, 0).TT());
+    assertEquals(LocalDateTime.of(1994, 5, 10, 23, 59), worksheet(7, 60).UTC());
+  }
+
+  @Test void nextDay() {
+    assertEquals(LocalDateTime.of(1994, 5, 11, 0, 0), worksheet(7, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 11, 1, 0), worksheet(8, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 12, 2, 0), worksheet(33, 0).UTC());
+  }
+
+  @Test void previousDay() {
+    assertEquals(LocalDateTime.of(1994, 5, 10, 0, 0), worksheet(-17, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 9, 23, 0), worksheet(-18, 0).UTC());
+    assertEquals(LocalDateTime.of(1994, 5, 8, 22, 0), worksheet(-43, 0).UTC());
+  }
+
+  @Test void localCivilTimeCrossesMidnight() {
+    Location east = new Location("East", 0.0, 0.0, 0.0, 2, 30);
+    Worksheet worksheet = new Worksheet(6.5, 0, new BesselianElementsLookup().lookupMeeusExample(), east);
+    assertEquals(LocalDateTime.of(1994, 5, 11, 2, 0), worksheet.localCivilTime());
+  }
+
+  // PRIVATE
+
+  private static Worksheet worksheet(double t, double ΔT) {
+    Location greenwich = new Location("Greenwich", 0.0, 0.0, 0.0, 0, 0);
+    return new Worksheet(t, ΔT, new BesselianElementsLookup().lookupMeeusExample(), greenwich);
+  }
+}
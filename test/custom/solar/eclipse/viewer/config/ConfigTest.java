@@ -0,0 +1,130 @@
+package custom.solar.eclipse.viewer.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/** The range checks made when a config is built, and the equality of configs. */
+final class ConfigTest {
+
+  @Test void validSettingsBuild() {
+    Config config = valid().build();
+    assertEquals("2024-04-08", config.eclipseDateUTC());
+    assertEquals(config, valid().build());
+    assertEquals(config.hashCode(), valid().build().hashCode());
+    assertEquals(config.digest(), valid().build().digest());
+  }
+
+  @Test void oneSettingChangesEquality() {
+    Config config = valid().build();
+    Config other = config.toBuilder().eyeholeCenter(0.2f).build();
+    assertNotEquals(config, other);
+    assertNotEquals(config.digest(), other.digest());
+    assertEquals(config, other.toBuilder().eyeholeCenter(config.eyeholeCenter()).build());
+  }
+
+  @Test void limitsAreAllowed() {
+    valid().latitude(Math.PI / 2).longitude(-Math.PI).build();
+    valid().hoursOffsetFromUT(-12).minutesOffsetFromUT(-59).build();
+    valid().hoursOffsetFromUT(14).minutesOffsetFromUT(59).build();
+    valid().eyeholeWidth(1f).eyeholeHeight(1f).eyeholeCenter(0f).build();
+    valid().viewerWidth(WIDTH).viewerHeight(HEIGHT).viewerTopMargin(0f).build();
+    valid().gapBetweenPartialPhases(1).build();
+    valid().gapBetweenPartialPhases(24 * 60).build();
+  }
+
+  @Test void dateMustBePresentAndWellFormed() {
+    assertProblem(valid().eclipseDateUTC(null), "eclipse_date_utc is missing");
+    assertProblem(valid().eclipseDateUTC("2024-4-8"), "eclipse_date_utc must have the format yyyy-mm-dd");
+  }
+
+  @Test void latitudeAndLongitudeInRange() {
+    assertProblem(valid().latitude(Math.PI / 2 + 1e-9), "location_latitude must be between -90 and 90 degrees");
+    assertProblem(valid().latitude(Double.NaN), "location_latitude must be between -90 and 90 degrees");
+    assertProblem(valid().longitude(-Math.PI - 1e-9), "location_longitude must be between -180 and 180 degrees");
+    assertProblem(valid().altitude(null), "location_altitude is missing");
+  }
+
+  @Test void offsetFromUTInRange() {
+    assertProblem(valid().hoursOffsetFromUT(-13), "location_hours_offset_from_ut must be from -12 to 14");
+    assertProblem(valid().hoursOffsetFromUT(15), "location_hours_offset_from_ut must be from -12 to 14");
+    assertProblem(valid().minutesOffsetFromUT(60), "location_minutes_offset_from_ut must be from -59 to 59");
+  }
+
+  @Test void sizesArePositive() {
+    assertProblem(valid().width(0f), "width must be greater than 0");
+    assertProblem(valid().height(Float.NaN), "height must be greater than 0");
+    assertProblem(valid().viewerHeight(-1f), "viewer_height must be greater than 0");
+    assertProblem(valid().armsLength(0.0), "arms_length must be greater than 0");
+    assertProblem(valid().viewerTopMargin(-1f), "viewer_top_margin can't be negative");
+  }
+
+  @Test void viewerFitsOnThePage() {
+    assertProblem(valid().viewerWidth(WIDTH + 1), "viewer_width is larger than the width of the page");
+    assertProblem(valid().viewerHeight(HEIGHT).viewerTopMargin(1f), "viewer_height plus the viewer_top_margin is larger than the height of the page");
+  }
+
+  @Test void eyeholeIsAFractionOfTheViewer() {
+    assertProblem(valid().eyeholeWidth(0f), "eyehole_width must be a fraction greater than 0, and at most 1");
+    assertProblem(valid().eyeholeHeight(1.01f), "eyehole_height must be a fraction greater than 0, and at most 1");
+    assertProblem(valid().eyeholeCenter(0.5f), "eyehole_center must be at least 0, and less than 0.5");
+    assertProblem(valid().eyeholeCenter(-0.1f), "eyehole_center must be at least 0, and less than 0.5");
+  }
+
+  @Test void otherChecks() {
+    assertProblem(valid().deltaT(Double.POSITIVE_INFINITY), "delta_t must be a finite number");
+    assertProblem(valid().gapBetweenPartialPhases(0), "gap_between_partial_phases must be from 1 to 1440");
+    assertProblem(valid().gapBetweenPartialPhases(24 * 60 + 1), "gap_between_partial_phases must be from 1 to 1440");
+    assertProblem(valid().qrCode2(null), "qr_code_2 is missing");
+    assertProblem(valid().location(null), "text settings can be empty, but not null");
+  }
+
+  @Test void everyProblemIsListed() {
+    String message = assertThrows(IllegalArgumentException.class, () -> valid().width(0f).eyeholeCenter(0.5f).gapBetweenPartialPhases(0).build()).getMessage();
+    assertTrue(message.contains("width must be greater than 0"), message);
+    assertTrue(message.contains("eyehole_center must be at least 0"), message);
+    assertTrue(message.contains("gap_between_partial_phases must be from 1"), message);
+  }
+
+  // PRIVATE
+
+  private static final float WIDTH = 612;
+  private static final float HEIGHT = 792;
+
+  /** Settings much like those of the sample config file. */
+  private static Config.Builder valid() {
+    return Config.builder()
+      .eclipseDateUTC("2024-04-08")
+      .location("Kingston, Ontario")
+      .latitude(Math.toRadians(44.23))
+      .longitude(Math.toRadians(-76.48))
+      .altitude(93.0)
+      .hoursOffsetFromUT(-4)
+      .minutesOffsetFromUT(0)
+      .qrCode1(new QRCode("Details", "https://example.com/1"))
+      .qrCode2(new QRCode("More", "https://example.com/2"))
+      .width(WIDTH)
+      .height(HEIGHT)
+      .viewerWidth(540f)
+      .viewerHeight(700f)
+      .viewerTopMargin(36f)
+      .eyeholeWidth(0.6f)
+      .eyeholeHeight(0.2f)
+      .eyeholeCenter(0.25f)
+      .armsLength(0.6)
+      .totalityAdvice(Arrays.asList("Remove the viewer during totality."))
+      .deltaT(69.0)
+      .gapBetweenPartialPhases(10)
+    ;
+  }
+
+  private static void assertProblem(Config.Builder builder, String problem) {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, builder::build);
+    assertTrue(ex.getMessage().contains(problem), ex.getMessage());
+  }
+}
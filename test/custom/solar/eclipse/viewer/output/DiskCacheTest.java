@@ -0,0 +1,140 @@
+package custom.solar.eclipse.viewer.output;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Reading back what was written, writing whole files only, and evicting the least-recently used files. */
+final class DiskCacheTest {
+
+  @TempDir Path dir;
+
+  @Test void readsBackWhatWasPut() throws IOException {
+    DiskCache cache = new DiskCache(dir, 1000);
+    cache.put("a", bytes(5, 'a'));
+    assertArrayEquals(bytes(5, 'a'), read(cache, "a"));
+    assertNull(cache.open("b"));
+    assertEquals(1, cache.size());
+    assertEquals(5, cache.totalBytes());
+  }
+
+  @Test void replacingAFileKeepsTheTotalRight() throws IOException {
+    DiskCache cache = new DiskCache(dir, 1000);
+    cache.put("a", bytes(5, 'a'));
+    cache.put("a", bytes(3, 'b'));
+    assertArrayEquals(bytes(3, 'b'), read(cache, "a"));
+    assertEquals(1, cache.size());
+    assertEquals(3, cache.totalBytes());
+    assertEquals(1, files().size());
+  }
+
+  @Test void leavesNoTemporaryFiles() throws IOException {
+    DiskCache cache = new DiskCache(dir, 1000);
+    cache.put("a", bytes(5, 'a'));
+    cache.put("b", bytes(5, 'b'));
+    for (Path file : files()) {
+      assertTrue(file.getFileName().toString().endsWith(".pdf"), file.toString());
+    }
+  }
+
+  @Test void deletesTemporaryFilesLeftByACrash() throws IOException {
+    Path partial = Files.write(dir.resolve("partial-123.tmp"), bytes(5, 'x'));
+    Path other = Files.write(dir.resolve("notes.txt"), bytes(5, 'x'));
+    DiskCache cache = new DiskCache(dir, 1000);
+    assertFalse(Files.exists(partial));
+    assertTrue(Files.exists(other), "only its own files are touched");
+    assertEquals(0, cache.size());
+  }
+
+  @Test void evictsTheLeastRecentlyUsed() throws IOException {
+    DiskCache cache = new DiskCache(dir, 10);
+    cache.put("a", bytes(4, 'a'));
+    cache.put("b", bytes(4, 'b'));
+    read(cache, "a"); //now b is the least recently used
+    cache.put("c", bytes(4, 'c'));
+    assertNull(cache.open("b"));
+    assertArrayEquals(bytes(4, 'a'), read(cache, "a"));
+    assertArrayEquals(bytes(4, 'c'), read(cache, "c"));
+    assertEquals(8, cache.totalBytes());
+    assertEquals(2, files().size());
+  }
+
+  @Test void neverEvictsTheFileJustAdded() throws IOException {
+    DiskCache cache = new DiskCache(dir, 10);
+    cache.put("a", bytes(4, 'a'));
+    cache.put("big", bytes(20, 'b'));
+    assertNull(cache.open("a"));
+    assertArrayEquals(bytes(20, 'b'), read(cache, "big"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test void openChannelSurvivesEviction() throws IOException {
+    DiskCache cache = new DiskCache(dir, 10);
+    cache.put("a", bytes(8, 'a'));
+    try (FileChannel channel = cache.open("a")) {
+      cache.put("b", bytes(8, 'b'));
+      assertNull(cache.open("a"));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(8, DiskCache.transfer(channel, out));
+      assertArrayEquals(bytes(8, 'a'), out.toByteArray());
+    }
+  }
+
+  @Test void restartKeepsTheFilesAndTheirOrderOfUse() throws IOException {
+    DiskCache first = new DiskCache(dir, 1000);
+    first.put("a", bytes(4, 'a'));
+    Path fileA = files().get(0);
+    first.put("b", bytes(4, 'b'));
+    //a was used last, a while after b
+    for (Path file : files()) {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(file.equals(fileA) ? 2_000_000 : 1_000_000));
+    }
+    DiskCache second = new DiskCache(dir, 1000);
+    assertEquals(2, second.size());
+    assertEquals(8, second.totalBytes());
+    DiskCache smaller = new DiskCache(dir, 4);
+    assertEquals(1, smaller.size());
+    assertArrayEquals(bytes(4, 'a'), read(smaller, "a"));
+    assertNull(smaller.open("b"));
+  }
+
+  // PRIVATE
+
+  private static byte[] bytes(int size, char c) {
+    byte[] result = new byte[size];
+    Arrays.fill(result, (byte)c);
+    return result;
+  }
+
+  private static byte[] read(DiskCache cache, String key) throws IOException {
+    try (FileChannel channel = cache.open(key)) {
+      assertNotNull(channel, key);
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      DiskCache.transfer(channel, result);
+      return result.toByteArray();
+    }
+  }
+
+  private List<Path> files() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package custom.solar.eclipse.viewer.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Coalescing requests that overlap, passing on the leader's result or failure, and keeping results for a short time. */
+final class SingleFlightCacheTest {
+
+  @AfterEach void tearDown() {
+    threads.shutdownNow();
+  }
+
+  @Test void waitersGetTheLeadersResult() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(0, stats);
+    byte[] bytes = {1, 2, 3};
+    Future<byte[]> leader = threads.submit(() -> cache.get(KEY, blockingRender(() -> bytes)));
+    List<Future<byte[]>> waiters = waitersOnTheLeader(cache);
+    release.countDown();
+    assertSame(bytes, leader.get(TIMEOUT, TimeUnit.SECONDS));
+    for (Future<byte[]> waiter : waiters) {
+      assertSame(bytes, waiter.get(TIMEOUT, TimeUnit.SECONDS));
+    }
+    assertEquals(1, renders.get());
+    assertEquals(1, stats.cacheMisses.sum());
+  }
+
+  @Test void waitersGetTheLeadersException() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(TTL_MILLIS, stats);
+    IOException failure = new IOException("Can't render.");
+    Future<byte[]> leader = threads.submit(() -> cache.get(KEY, blockingRender(() -> { throw failure; })));
+    List<Future<byte[]>> waiters = waitersOnTheLeader(cache);
+    release.countDown();
+    assertSame(failure, causeOf(leader));
+    for (Future<byte[]> waiter : waiters) {
+      assertSame(failure, causeOf(waiter));
+    }
+    assertEquals(1, renders.get());
+  }
+
+  @Test void waitersGetTheLeadersError() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(TTL_MILLIS, stats);
+    Error failure = new AssertionError("A bug in the render.");
+    Future<byte[]> leader = threads.submit(() -> cache.get(KEY, blockingRender(() -> { throw failure; })));
+    List<Future<byte[]>> waiters = waitersOnTheLeader(cache);
+    release.countDown();
+    assertSame(failure, causeOf(leader));
+    for (Future<byte[]> waiter : waiters) {
+      assertSame(failure, causeOf(waiter));
+    }
+  }
+
+  @Test void failureIsNotCached() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(TTL_MILLIS, stats);
+    assertThrows(IOException.class, () -> cache.get(KEY, () -> { throw new IOException("Can't render."); }));
+    byte[] bytes = {4, 5};
+    assertSame(bytes, cache.get(KEY, () -> bytes));
+    assertEquals(2, stats.cacheMisses.sum());
+  }
+
+  @Test void resultIsKeptForItsTimeToLive() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(TTL_MILLIS, stats);
+    byte[] bytes = {6};
+    assertSame(bytes, cache.get(KEY, () -> bytes));
+    assertSame(bytes, cache.get(KEY, () -> { throw new IllegalStateException("Not expected to render again."); }));
+    assertEquals(1, stats.cacheHits.sum());
+    //another key is rendered on its own
+    byte[] other = {7};
+    assertSame(other, cache.get("other", () -> other));
+  }
+
+  @Test void nothingIsKeptWithNoTimeToLive() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(0, stats);
+    cache.get(KEY, () -> new byte[] {8});
+    byte[] again = {9};
+    assertSame(again, cache.get(KEY, () -> again));
+    assertEquals(0, stats.cacheHits.sum());
+    assertEquals(2, stats.cacheMisses.sum());
+  }
+
+  // PRIVATE
+
+  private static final String KEY = "viewer";
+  private static final int NUM_WAITERS = 4;
+  private static final long TTL_MILLIS = 60_000;
+  private static final long TIMEOUT = 10;
+
+  private final ServerStats stats = new ServerStats();
+  private final ExecutorService threads = Executors.newCachedThreadPool();
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger renders = new AtomicInteger();
+
+  /** Signals when the render starts, then waits to be released, so that other requests can pile up behind it. */
+  private SingleFlightCache.Render blockingRender(SingleFlightCache.Render render) {
+    return () -> {
+      renders.incrementAndGet();
+      started.countDown();
+      assertTrue(release.await(TIMEOUT, TimeUnit.SECONDS), "never released");
+      return render.render();
+    };
+  }
+
+  /** Returns only once every waiter is waiting on the render that's under way. */
+  private List<Future<byte[]>> waitersOnTheLeader(SingleFlightCache cache) throws Exception {
+    assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS), "the leader never started");
+    List<Future<byte[]>> result = new ArrayList<>();
+    for (int idx = 0; idx < NUM_WAITERS; ++idx) {
+      result.add(threads.submit(() -> cache.get(KEY, () -> { throw new IllegalStateException("A waiter rendered."); })));
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+    while (stats.coalesced.sum() < NUM_WAITERS) {
+      assertTrue(System.nanoTime() < deadline, "the waiters never arrived");
+      Thread.sleep(1);
+    }
+    return result;
+  }
+
+  private static Throwable causeOf(Future<byte[]> future) throws Exception {
+    ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(TIMEOUT, TimeUnit.SECONDS));
+    return ex.getCause();
+  }
+}
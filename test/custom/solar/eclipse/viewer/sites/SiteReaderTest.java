@@ -0,0 +1,179 @@
+package custom.solar.eclipse.viewer.sites;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.jupiter.api.Test;
+
+import custom.solar.eclipse.viewer.math.Maths;
+
+/** Parsing numbers without Double.parseDouble, and reading the fields of each line. */
+final class SiteReaderTest {
+
+  @Test void plainDecimals() {
+    assertNumber(0.0, "0");
+    assertNumber(-64.12, "-64.120");
+    assertNumber(12.5, "+12.5");
+    assertNumber(0.5, ".5");
+    assertNumber(5.0, "5.");
+    assertNumber(3.25, "  3.25  ");
+  }
+
+  @Test void negativeZeroKeepsItsSign() {
+    assertNumber(-0.0, "-0");
+    assertNumber(-0.0, "-0.000");
+  }
+
+  @Test void sameAsParseDouble() {
+    Random random = new Random(1);
+    for (int idx = 0; idx < 100_000; ++idx) {
+      double value = (random.nextDouble() - 0.5) * 360;
+      String text = String.format(Locale.ROOT, "%." + random.nextInt(10) + "f", value);
+      assertNumber(Double.parseDouble(text), text);
+    }
+  }
+
+  @Test void otherFormsFallBackToParseDouble() {
+    assertNumber(1000.0, "1e3");
+    assertNumber(-0.025, "-2.5E-2");
+    assertNumber(Double.parseDouble("12345678901234567890.5"), "12345678901234567890.5");
+    assertNumber(Double.parseDouble("0.12345678901234567890123456"), "0.12345678901234567890123456");
+  }
+
+  @Test void blankIsNotANumber() {
+    assertNumber(Double.NaN, "");
+    assertNumber(Double.NaN, "   ");
+  }
+
+  @Test void malformedIsNotANumber() {
+    assertNumber(Double.NaN, "abc");
+    assertNumber(Double.NaN, "-");
+    assertNumber(Double.NaN, "+");
+    assertNumber(Double.NaN, ".");
+    assertNumber(Double.NaN, "1.2.3");
+    assertNumber(Double.NaN, "1-2");
+    assertNumber(Double.NaN, "--1");
+    assertNumber(Double.NaN, "1 2");
+  }
+
+  @Test void onlyTheGivenRangeIsParsed() {
+    assertEquals(12.5, SiteReader.number("ab12.5cd", 2, 6));
+  }
+
+  @Test void readsTheFieldsOfEachLine() throws IOException {
+    String csv =
+      "name,latitude,longitude,altitude,zone\n" +
+      "# a comment\n" +
+      "\n" +
+      "Kingston,44.23,-76.48,93,-4\n" +
+      "\"Dallas, Texas\",32.78,-96.8,131,-5,extra\n" +
+      "\"The \"\"Big\"\" Town\",10,20,0,5.5\n" +
+      "Newfoundland,47.56,-52.71,0,-3:30\n" +
+      "Azores,37.74,-25.67,0,-0:30\n"
+    ;
+    SiteReader reader = new SiteReader(new StringReader(csv), ',');
+    SiteChunk chunk = reader.next(10);
+    assertEquals(5, chunk.size());
+    assertEquals("Kingston", chunk.name(0));
+    assertEquals(Maths.degToRads(44.23), chunk.latitude(0));
+    assertEquals(Maths.degToRads(-76.48), chunk.longitude(0));
+    assertEquals(93.0, chunk.altitude(0));
+    assertEquals(-240, chunk.zoneMinutes(0));
+    assertEquals("Dallas, Texas", chunk.name(1));
+    assertEquals(-300, chunk.zoneMinutes(1));
+    assertEquals("The \"Big\" Town", chunk.name(2));
+    assertEquals(330, chunk.zoneMinutes(2));
+    assertEquals(-210, chunk.zoneMinutes(3));
+    assertEquals(-30, chunk.zoneMinutes(4));
+    assertNull(reader.next(10));
+    assertEquals(5, reader.rowsRead());
+    assertEquals(0, reader.rowsSkipped());
+  }
+
+  @Test void tabSeparated() throws IOException {
+    SiteReader reader = new SiteReader(new StringReader("Paris, France\t48.86\t2.35\t35\t1\n"), '\t');
+    SiteChunk chunk = reader.next(10);
+    assertEquals("Paris, France", chunk.name(0));
+    assertEquals(Maths.degToRads(2.35), chunk.longitude(0));
+  }
+
+  @Test void skipsLinesThatCantBeRead() throws IOException {
+    String csv =
+      "Fine,1,2,3,4\n" +
+      "Too few,1,2,3\n" +
+      "Not a number,1,x,3,4\n" +
+      "Latitude,91,2,3,4\n" +
+      "Longitude,1,-180.5,3,4\n" +
+      "Zone,1,2,3,15\n" +
+      "\"No closing quote,1,2,3,4\n" +
+      "Also fine,-1,-2,-3,-4\n"
+    ;
+    SiteReader reader = new SiteReader(new StringReader(csv), ',');
+    SiteChunk chunk = reader.next(10);
+    assertEquals(2, chunk.size());
+    assertEquals("Also fine", chunk.name(1));
+    assertEquals(2, reader.rowsRead());
+    assertEquals(6, reader.rowsSkipped());
+  }
+
+  @Test void firstLineIsDataIfItsLatitudeIsANumber() throws IOException {
+    SiteReader reader = new SiteReader(new StringReader("A,1,2,3,4\nB,5,6,7,8\n"), ',');
+    assertEquals(2, reader.next(10).size());
+  }
+
+  @Test void readsInChunks() throws IOException {
+    StringBuilder csv = new StringBuilder();
+    for (int idx = 0; idx < 5; ++idx) {
+      csv.append("Site ").append(idx).append(",1,2,3,4\n");
+    }
+    SiteReader reader = new SiteReader(new StringReader(csv.toString()), ',');
+    assertChunk(reader.next(2), 0, 2, "Site 0");
+    assertChunk(reader.next(2), 1, 2, "Site 2");
+    assertChunk(reader.next(2), 2, 1, "Site 4");
+    assertNull(reader.next(2));
+  }
+
+  @Test void endMarkerIsSentEvenIfTheInputFails() throws InterruptedException {
+    Reader failing = new Reader() {
+      @Override public int read(char[] buffer, int offset, int length) throws IOException {
+        throw new IOException("Disk error.");
+      }
+      @Override public void close() {}
+    };
+    BlockingQueue<SiteChunk> queue = new ArrayBlockingQueue<>(4);
+    SiteReader reader = new SiteReader(failing, ',');
+    assertThrows(IOException.class, () -> reader.sendTo(queue, 10));
+    assertSame(SiteChunk.END_OF_INPUT, queue.take());
+  }
+
+  @Test void endMarkerFollowsTheChunks() throws Exception {
+    BlockingQueue<SiteChunk> queue = new ArrayBlockingQueue<>(4);
+    SiteReader reader = new SiteReader(new StringReader("A,1,2,3,4\nB,5,6,7,8\nC,1,2,3,4\n"), ',');
+    reader.sendTo(queue, 2);
+    assertEquals(2, queue.take().size());
+    assertEquals(1, queue.take().size());
+    assertSame(SiteChunk.END_OF_INPUT, queue.take());
+  }
+
+  // PRIVATE
+
+  private static void assertNumber(double expected, String text) {
+    assertEquals(expected, SiteReader.number(text, 0, text.length()), text);
+  }
+
+  private static void assertChunk(SiteChunk chunk, long number, int size, String firstName) {
+    assertEquals(number, chunk.number());
+    assertEquals(size, chunk.size());
+    assertEquals(firstName, chunk.name(0));
+  }
+}
@@ -0,0 +1,91 @@
+package custom.solar.eclipse.viewer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/** Dropping the least-recently used entries, and computing each value only once. */
+final class LruCacheTest {
+
+  @Test void dropsTheLeastRecentlyUsed() {
+    LruCache<String, Integer> cache = new LruCache<>(2);
+    cache.put("a", 1);
+    cache.put("b", 2);
+    cache.get("a");
+    cache.put("c", 3);
+    assertNull(cache.get("b"));
+    assertEquals(1, cache.get("a"));
+    assertEquals(3, cache.get("c"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test void countsHitsAndMisses() {
+    LruCache<Integer, Integer> cache = new LruCache<>(10);
+    assertEquals(4, cache.get(2, key -> key * 2));
+    assertEquals(4, cache.get(2, key -> { throw new IllegalStateException("Not expected to compute again."); }));
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+  }
+
+  @Test void nullValuesAreCached() {
+    LruCache<String, String> cache = new LruCache<>(10);
+    assertNull(cache.get("a", key -> null));
+    assertNull(cache.get("a", key -> "computed again"));
+    assertEquals(1, cache.misses());
+  }
+
+  @Test void failureIsNotCached() throws IOException {
+    LruCache<String, String> cache = new LruCache<>(10);
+    assertThrows(IOException.class, () -> cache.get("a", key -> { throw new IOException("Can't compute."); }));
+    assertEquals(0, cache.size());
+    assertEquals("A", cache.get("a", key -> "A"));
+  }
+
+  @Test void computesOnceForManyThreads() throws Exception {
+    LruCache<String, String> cache = new LruCache<>(10);
+    AtomicInteger computations = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int idx = 0; idx < NUM_THREADS; ++idx) {
+        results.add(threads.submit(() -> cache.get("a", key -> {
+          computations.incrementAndGet();
+          assertTrue(release.await(TIMEOUT, TimeUnit.SECONDS), "never released");
+          return "A";
+        })));
+      }
+      release.countDown();
+      for (Future<String> result : results) {
+        assertEquals("A", result.get(TIMEOUT, TimeUnit.SECONDS));
+      }
+      assertEquals(1, computations.get());
+      assertEquals(NUM_THREADS, cache.hits() + cache.misses());
+    }
+    finally {
+      threads.shutdownNow();
+    }
+  }
+
+  @Test void sizeMustBePositive() {
+    assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>(0));
+  }
+
+  // PRIVATE
+
+  private static final int NUM_THREADS = 8;
+  private static final long TIMEOUT = 10;
+}